@@ -0,0 +1,216 @@
+package ru.nahk.folio;
+
+import android.os.Debug;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures latency percentiles and allocations of a repeated operation
+ * and reports them to the log under the {@link #TAG} tag.
+ * Allocations are taken from the process-wide runtime counter,
+ * so they are only meaningful while nothing else runs in the process.
+ */
+public final class Benchmark {
+    /**
+     * Log tag of the benchmark reports.
+     */
+    public static final String TAG = "FolioBenchmark";
+
+    /**
+     * Name of the runtime statistic with the number of bytes allocated by the process.
+     */
+    private static final String BYTES_ALLOCATED_STAT = "art.gc.bytes-allocated";
+
+    /**
+     * Number of nanoseconds in one microsecond.
+     */
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * Operation to measure.
+     */
+    public interface Operation {
+        /**
+         * Runs one iteration of the operation.
+         * @param iteration Zero-based iteration index, including warm-up iterations.
+         * @throws Exception Thrown if operation fails.
+         */
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * Prevents creating instances of the {@link Benchmark} class.
+     */
+    private Benchmark() { }
+
+    /**
+     * Runs the operation and reports its latency and allocations.
+     * @param name Name of the operation in the report.
+     * @param warmupIterations Number of unmeasured iterations to run first.
+     * @param iterations Number of measured iterations.
+     * @param operation Operation to measure.
+     * @return Measurement results.
+     * @throws Exception Thrown if operation fails.
+     */
+    public static Result run(
+        String name,
+        int warmupIterations,
+        int iterations,
+        Operation operation) throws Exception {
+
+        for (int iteration = 0; iteration < warmupIterations; ++iteration) {
+            operation.run(iteration);
+        }
+
+        long[] durations = new long[iterations];
+
+        Runtime.getRuntime().gc();
+        long allocatedBefore = getAllocatedBytes();
+
+        for (int iteration = 0; iteration < iterations; ++iteration) {
+            long startTime = System.nanoTime();
+            operation.run(warmupIterations + iteration);
+            durations[iteration] = System.nanoTime() - startTime;
+        }
+
+        long allocatedAfter = getAllocatedBytes();
+
+        Arrays.sort(durations);
+
+        Result result =
+            new Result(
+                name,
+                iterations,
+                getPercentile(durations, 0.5),
+                getPercentile(durations, 0.99),
+                allocatedBefore < 0 || allocatedAfter < 0
+                    ? -1
+                    : (allocatedAfter - allocatedBefore) / iterations);
+
+        Log.i(TAG, result.toString());
+
+        return result;
+    }
+
+    /**
+     * Reports arbitrary benchmark measurement, e.g. throughput of a single long run.
+     * @param message Measurement description.
+     */
+    public static void report(String message) {
+        Log.i(TAG, message);
+    }
+
+    /**
+     * Gets the number of bytes allocated by the process so far.
+     * @return Number of bytes or -1, if runtime does not report it.
+     */
+    private static long getAllocatedBytes() {
+        String value = Debug.getRuntimeStat(BYTES_ALLOCATED_STAT);
+
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        }
+        catch (NumberFormatException parseError) {
+            return -1;
+        }
+    }
+
+    /**
+     * Picks percentile of the sorted values using the nearest-rank method.
+     * @param sortedValues Values in ascending order.
+     * @param percentile Percentile between zero and one.
+     * @return Percentile value.
+     */
+    private static long getPercentile(long[] sortedValues, double percentile) {
+        int rank = (int) Math.ceil(percentile * sortedValues.length);
+        return sortedValues[Math.max(0, Math.min(sortedValues.length, rank) - 1)];
+    }
+
+    /**
+     * Measurement results of the operation.
+     */
+    public static final class Result {
+        /**
+         * Name of the operation.
+         */
+        private final String mName;
+
+        /**
+         * Number of measured iterations.
+         */
+        private final int mIterations;
+
+        /**
+         * Median latency in nanoseconds.
+         */
+        private final long mMedian;
+
+        /**
+         * 99th percentile latency in nanoseconds.
+         */
+        private final long mP99;
+
+        /**
+         * Bytes allocated per iteration or -1, if unknown.
+         */
+        private final long mAllocatedBytes;
+
+        /**
+         * Creates new instance of the {@link Result} class.
+         * @param name Name of the operation.
+         * @param iterations Number of measured iterations.
+         * @param median Median latency in nanoseconds.
+         * @param p99 99th percentile latency in nanoseconds.
+         * @param allocatedBytes Bytes allocated per iteration or -1, if unknown.
+         */
+        Result(String name, int iterations, long median, long p99, long allocatedBytes) {
+            mName = name;
+            mIterations = iterations;
+            mMedian = median;
+            mP99 = p99;
+            mAllocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Gets median latency.
+         * @return Latency in nanoseconds.
+         */
+        public long getMedian() {
+            return mMedian;
+        }
+
+        /**
+         * Gets 99th percentile latency.
+         * @return Latency in nanoseconds.
+         */
+        public long getP99() {
+            return mP99;
+        }
+
+        /**
+         * Gets the number of bytes allocated by one iteration on average.
+         * @return Number of bytes or -1, if runtime does not report allocations.
+         */
+        public long getAllocatedBytes() {
+            return mAllocatedBytes;
+        }
+
+        /**
+         * Formats results for the report.
+         * @return Human-readable results.
+         */
+        @Override
+        public String toString() {
+            return String.format(
+                Locale.ROOT,
+                "%s: p50 %.1f us, p99 %.1f us, %d bytes allocated per iteration (%d iterations)",
+                mName,
+                mMedian / NANOS_PER_MICRO,
+                mP99 / NANOS_PER_MICRO,
+                mAllocatedBytes,
+                mIterations);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ru.nahk.folio.stockapi.SymbolChanges;
+import ru.nahk.folio.utils.Money;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that portfolio readers never wait for a symbol quotes write transaction
+ * on the write-ahead logging database and see the data committed before it.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class PortfolioDatabaseConcurrencyTest {
+    /**
+     * Name of the test database file.
+     */
+    private static final String DATABASE_NAME = "folio-concurrency-test-db";
+
+    /**
+     * Time readers are allowed to take while the write transaction is open in seconds.
+     */
+    private static final long READ_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Time the write transaction is held open at most in seconds.
+     */
+    private static final long WRITE_HOLD_SECONDS = 30;
+
+    /**
+     * Identifier of the test widget.
+     */
+    private static final int WIDGET_ID = 42;
+
+    /**
+     * Latest price of all symbols before the write.
+     */
+    private static final long OLD_PRICE = 100 * 10000;
+
+    /**
+     * Database with the small test portfolio.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mDatabaseRule =
+        new PortfolioDatabaseRule(DATABASE_NAME).withSmallPortfolio();
+
+    /**
+     * Portfolio database under test.
+     */
+    private PortfolioDatabase mDatabase;
+
+    /**
+     * Executor that runs the writer and the readers on separate threads.
+     */
+    private ExecutorService mExecutor;
+
+    /**
+     * Prices the portfolio and adds a widget.
+     */
+    @Before
+    public void prepareDatabase() {
+        mDatabase = mDatabaseRule.getDatabase();
+        mExecutor = Executors.newCachedThreadPool();
+
+        mDatabase.getOpenHelper().getWritableDatabase().execSQL(
+            "UPDATE " + SymbolEntity.TABLE_NAME
+                + " SET " + SymbolEntity.LATEST_PRICE_COLUMN + " = " + OLD_PRICE
+                + ", " + SymbolEntity.LATEST_TIME_COLUMN + " = 1");
+
+        mDatabase.widgetDao().insert(
+            new PortfolioItemWidgetEntity(
+                WIDGET_ID,
+                PortfolioItemWidgetEntity.ITEM_TYPE_GROUP,
+                GroupDao.ROOT_GROUP_ID));
+    }
+
+    /**
+     * Stops the threads.
+     */
+    @After
+    public void stopExecutor() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Holds quotes write transaction open on one thread and reads the portfolio,
+     * widgets and lots on other threads before the transaction commits.
+     * @throws Exception Thrown if any thread fails.
+     */
+    @Test
+    public void readersDoNotWaitForQuotesWrite() throws Exception {
+        final List<SymbolEntity> symbols = mDatabase.symbolDao().get();
+        final long positionId = TestPortfolioDatabase.getPositionIds(mDatabase).get(0);
+
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch readsFinished = new CountDownLatch(1);
+        final AtomicBoolean isCommitted = new AtomicBoolean();
+
+        Future<Integer> writer = mExecutor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                SymbolChanges changes = new SymbolChanges();
+
+                for (SymbolEntity symbol : symbols) {
+                    symbol.latestPrice = Money.toBigDecimal(2 * OLD_PRICE);
+                    symbol.latestTime = 2L;
+                    changes.add(symbol.id, SymbolChanges.LATEST);
+                }
+
+                // Outer transaction keeps the quotes write uncommitted until readers are done
+                mDatabase.beginTransaction();
+                try {
+                    int savedCount = mDatabase.updateSymbolQuotes(symbols, changes).size();
+                    writeStarted.countDown();
+
+                    assertTrue(
+                        "Readers did not finish",
+                        readsFinished.await(WRITE_HOLD_SECONDS, TimeUnit.SECONDS));
+
+                    mDatabase.setTransactionSuccessful();
+                    return savedCount;
+                }
+                finally {
+                    mDatabase.endTransaction();
+                    isCommitted.set(true);
+                }
+            }
+        });
+
+        assertTrue(
+            "Write transaction did not start",
+            writeStarted.await(WRITE_HOLD_SECONDS, TimeUnit.SECONDS));
+
+        Future<GroupViewModel> portfolioRead = mExecutor.submit(new Callable<GroupViewModel>() {
+            @Override
+            public GroupViewModel call() {
+                return mDatabase.loadPortfolio();
+            }
+        });
+
+        Future<PortfolioItemWidgetEntity> widgetRead =
+            mExecutor.submit(new Callable<PortfolioItemWidgetEntity>() {
+                @Override
+                public PortfolioItemWidgetEntity call() {
+                    List<PortfolioItemWidgetEntity> widgets =
+                        mDatabase.widgetDao().loadAllPortfolioItemWidgets();
+                    assertEquals(1, widgets.size());
+
+                    return mDatabase.widgetDao().loadPortfolioItemWidget(WIDGET_ID);
+                }
+            });
+
+        Future<List<LotViewModel>> lotsRead = mExecutor.submit(new Callable<List<LotViewModel>>() {
+            @Override
+            public List<LotViewModel> call() {
+                return mDatabase.lotDao().getLotsForPosition(positionId);
+            }
+        });
+
+        GroupViewModel portfolio = portfolioRead.get(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        PortfolioItemWidgetEntity widget = widgetRead.get(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        List<LotViewModel> lots = lotsRead.get(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertFalse("Readers waited for the commit", isCommitted.get());
+        readsFinished.countDown();
+
+        assertEquals(symbols.size(), (int) writer.get(WRITE_HOLD_SECONDS, TimeUnit.SECONDS));
+
+        // Readers saw the data committed before the write transaction
+        assertNotNull(portfolio);
+        assertNotNull(widget);
+        assertEquals(5, lots.size());
+
+        for (LotViewModel lot : lots) {
+            assertEquals(Money.multiply(OLD_PRICE, lot.quantity), lot.currentValue);
+        }
+
+        assertEquals(
+            getOldPortfolioValue(portfolio),
+            portfolio.currentValue);
+
+        // New prices are visible once the write is committed
+        for (LotViewModel lot : mDatabase.lotDao().getLotsForPosition(positionId)) {
+            assertEquals(Money.multiply(2 * OLD_PRICE, lot.quantity), lot.currentValue);
+        }
+    }
+
+    /**
+     * Computes value of the portfolio at the old prices from the loaded positions.
+     * @param group Loaded portfolio group.
+     * @return Current value of the group at the old prices.
+     */
+    private static long getOldPortfolioValue(GroupViewModel group) {
+        long value = Money.UNKNOWN;
+        List<PositionsListItemViewModel> pending = new ArrayList<>(group.children);
+
+        while (!pending.isEmpty()) {
+            PositionsListItemViewModel item = pending.remove(pending.size() - 1);
+
+            if (item instanceof GroupViewModel) {
+                pending.addAll(((GroupViewModel) item).children);
+            } else {
+                value = Money.add(value, Money.multiply(OLD_PRICE, ((PositionViewModel) item).quantity));
+            }
+        }
+
+        return value;
+    }
+}
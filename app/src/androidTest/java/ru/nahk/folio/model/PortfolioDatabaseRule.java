@@ -0,0 +1,85 @@
+package ru.nahk.folio.model;
+
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+
+/**
+ * Test rule that creates portfolio database with {@link TestPortfolioDatabase}
+ * before every test and removes it after the test.
+ */
+public final class PortfolioDatabaseRule extends ExternalResource {
+    /**
+     * Name of the database file.
+     */
+    private final String mName;
+
+    /**
+     * Indicates whether the small test portfolio is imported into the database.
+     */
+    private boolean mHasSmallPortfolio;
+
+    /**
+     * Portfolio database of the current test.
+     */
+    private PortfolioDatabase mDatabase;
+
+    /**
+     * Number of lots imported into the database.
+     */
+    private int mLotCount;
+
+    /**
+     * Creates new instance of the {@link PortfolioDatabaseRule} class
+     * that provides empty database.
+     * @param name Name of the database file.
+     */
+    public PortfolioDatabaseRule(String name) {
+        mName = name;
+    }
+
+    /**
+     * Imports the small test portfolio into the database,
+     * see {@link TestPortfolioDatabase#importSmallPortfolio(PortfolioDatabase)}.
+     * @return This rule.
+     */
+    public PortfolioDatabaseRule withSmallPortfolio() {
+        mHasSmallPortfolio = true;
+        return this;
+    }
+
+    /**
+     * Gets portfolio database of the current test.
+     * @return Portfolio database.
+     */
+    public PortfolioDatabase getDatabase() {
+        return mDatabase;
+    }
+
+    /**
+     * Gets number of lots imported into the database.
+     * @return Number of lots.
+     */
+    public int getLotCount() {
+        return mLotCount;
+    }
+
+    /**
+     * Creates the database and imports the portfolio.
+     * @throws IOException Thrown if portfolio cannot be imported.
+     */
+    @Override
+    protected void before() throws IOException {
+        mDatabase = TestPortfolioDatabase.create(mName);
+        mLotCount = mHasSmallPortfolio ? TestPortfolioDatabase.importSmallPortfolio(mDatabase) : 0;
+    }
+
+    /**
+     * Removes the database.
+     */
+    @Override
+    protected void after() {
+        TestPortfolioDatabase.delete(mDatabase, mName);
+        mDatabase = null;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that exported portfolio is imported back with the same groups, positions and lots,
+ * including groups without positions.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class PortfolioExportTest {
+    /**
+     * Name of the exported database file.
+     */
+    private static final String SOURCE_DATABASE_NAME = "folio-export-source-test-db";
+
+    /**
+     * Name of the database file the export is imported into.
+     */
+    private static final String TARGET_DATABASE_NAME = "folio-export-target-test-db";
+
+    /**
+     * Database with the small test portfolio to export.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mSourceDatabaseRule =
+        new PortfolioDatabaseRule(SOURCE_DATABASE_NAME).withSmallPortfolio();
+
+    /**
+     * Empty database to import the export into.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mTargetDatabaseRule =
+        new PortfolioDatabaseRule(TARGET_DATABASE_NAME);
+
+    /**
+     * Database with the exported portfolio.
+     */
+    private PortfolioDatabase mSourceDatabase;
+
+    /**
+     * Database the export is imported into.
+     */
+    private PortfolioDatabase mTargetDatabase;
+
+    /**
+     * Number of lots in the exported portfolio.
+     */
+    private int mLotCount;
+
+    /**
+     * Adds empty groups to the exported portfolio.
+     */
+    @Before
+    public void addEmptyGroups() {
+        mSourceDatabase = mSourceDatabaseRule.getDatabase();
+        mTargetDatabase = mTargetDatabaseRule.getDatabase();
+        mLotCount = mSourceDatabaseRule.getLotCount();
+
+        GroupDao groupDao = mSourceDatabase.groupDao();
+        groupDao.insert(new GroupEntity("Empty", true, GroupDao.ROOT_GROUP_ID));
+
+        long parentGroupId = groupDao.insert(new GroupEntity("Only groups", true, GroupDao.ROOT_GROUP_ID));
+        groupDao.insert(new GroupEntity("Empty / nested", true, parentGroupId));
+    }
+
+    /**
+     * Checks round trip through comma-separated values.
+     * @throws IOException Thrown if portfolio cannot be exported or imported.
+     */
+    @Test
+    public void csvRoundTrip() throws IOException {
+        checkRoundTrip(PortfolioRecord.FORMAT_CSV);
+    }
+
+    /**
+     * Checks round trip through JSON.
+     * @throws IOException Thrown if portfolio cannot be exported or imported.
+     */
+    @Test
+    public void jsonRoundTrip() throws IOException {
+        checkRoundTrip(PortfolioRecord.FORMAT_JSON);
+    }
+
+    /**
+     * Exports the source portfolio, imports it into the empty target database
+     * and compares both portfolios.
+     * @param format Format of the records.
+     * @throws IOException Thrown if portfolio cannot be exported or imported.
+     */
+    private void checkRoundTrip(int format) throws IOException {
+        StringWriter export = new StringWriter();
+
+        try (PortfolioRecord.Writer writer = PortfolioRecord.openWriter(export, format)) {
+            assertEquals(mLotCount, new PortfolioExporter(mSourceDatabase).exportRecords(writer));
+        }
+
+        assertEquals(
+            mLotCount,
+            TestPortfolioDatabase.importPortfolio(
+                mTargetDatabase,
+                PortfolioRecord.openReader(new BufferedReader(new StringReader(export.toString())))));
+
+        assertEquals(getItemPaths(mSourceDatabase), getItemPaths(mTargetDatabase));
+    }
+
+    /**
+     * Lists paths of all groups and positions of the portfolio with the position lot counts.
+     * @param database Portfolio database.
+     * @return Sorted item paths.
+     */
+    private static List<String> getItemPaths(PortfolioDatabase database) {
+        List<String> paths = new ArrayList<>();
+        addItemPaths(database.loadPortfolio(), "", paths);
+        Collections.sort(paths);
+        return paths;
+    }
+
+    /**
+     * Adds paths of the child items of the group and of all its descendants.
+     * @param group Portfolio group.
+     * @param groupPath Path of the group.
+     * @param paths List to add paths to.
+     */
+    private static void addItemPaths(GroupViewModel group, String groupPath, List<String> paths) {
+        for (PositionsListItemViewModel child : group.children) {
+            if (child instanceof GroupViewModel) {
+                String path = groupPath + "/" + child.name;
+                paths.add(path);
+                addItemPaths((GroupViewModel) child, path, paths);
+            } else {
+                PositionViewModel position = (PositionViewModel) child;
+                paths.add(groupPath + "/" + position.symbol + " x" + position.lotCount);
+            }
+        }
+    }
+}
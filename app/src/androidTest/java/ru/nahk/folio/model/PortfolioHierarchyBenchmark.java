@@ -0,0 +1,168 @@
+package ru.nahk.folio.model;
+
+import android.database.Cursor;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import ru.nahk.folio.Benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks loading of a deep portfolio hierarchy with two queries
+ * against the per-group child queries it replaced.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class PortfolioHierarchyBenchmark {
+    /**
+     * Name of the benchmark database file.
+     */
+    private static final String DATABASE_NAME = "folio-hierarchy-benchmark-db";
+
+    /**
+     * Seed of the synthetic portfolio.
+     */
+    private static final long SEED = 1;
+
+    /**
+     * Number of groups in the synthetic portfolio: 3 child groups per group, 6 levels deep.
+     */
+    private static final int GROUP_COUNT = 1 + 3 + 9 + 27 + 81 + 243 + 729;
+
+    /**
+     * Number of positions in the synthetic portfolio: 9 positions in every group.
+     */
+    private static final int POSITION_COUNT = GROUP_COUNT * 9;
+
+    /**
+     * Query for the child groups of a group, as it was run for every group.
+     */
+    private static final String CHILD_GROUPS_SQL =
+        "SELECT g.id AS id, g.name AS name, g.is_expanded AS is_expanded "
+            + "FROM groups g "
+            + "WHERE g.parent_group_id = ? "
+            + "ORDER BY g.name";
+
+    /**
+     * Query for the child positions of a group, as it was run for every group.
+     */
+    private static final String CHILD_POSITIONS_SQL =
+        "SELECT p.id, p.symbol_id, s.display_name, p.quantity, p.lot_count, p.cost_basis, "
+            + "s.latest_price, s.latest_time, s.extended_price, s.extended_time, s.previous_close_price "
+            + "FROM positions p "
+            + "INNER JOIN symbols s ON s.id = p.symbol_id "
+            + "WHERE p.parent_group_id = ? "
+            + "ORDER BY ifnull(s.display_name, s.id)";
+
+    /**
+     * Portfolio database under test.
+     */
+    private static PortfolioDatabase database;
+
+    /**
+     * Generates the synthetic portfolio.
+     * @throws IOException Thrown if portfolio cannot be imported.
+     */
+    @BeforeClass
+    public static void createPortfolio() throws IOException {
+        database = TestPortfolioDatabase.create(DATABASE_NAME);
+
+        TestPortfolioDatabase.importPortfolio(
+            database,
+            new SyntheticPortfolioReader(SEED, 3, 6, 9, 1, 50));
+
+        TestPortfolioDatabase.setSymbolPrices(database, System.currentTimeMillis());
+        assertEquals(POSITION_COUNT, TestPortfolioDatabase.getPositionIds(database).size());
+    }
+
+    /**
+     * Removes the benchmark database.
+     */
+    @AfterClass
+    public static void deletePortfolio() {
+        TestPortfolioDatabase.delete(database, DATABASE_NAME);
+    }
+
+    /**
+     * Measures loading of the hierarchy with two queries and compares it
+     * with the per-group child queries.
+     * @throws Exception Thrown if benchmark fails.
+     */
+    @Test
+    public void loadHierarchy() throws Exception {
+        Benchmark.Result perGroup = Benchmark.run(
+            "Per-group child queries, " + GROUP_COUNT + " groups",
+            2,
+            20,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    assertEquals(POSITION_COUNT, loadChildren(GroupDao.ROOT_GROUP_ID));
+                }
+            });
+
+        Benchmark.Result twoQueries = Benchmark.run(
+            "PortfolioDatabase.loadPortfolio, " + POSITION_COUNT + " positions",
+            2,
+            20,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    assertEquals(GroupDao.ROOT_GROUP_ID, database.loadPortfolio().id);
+                }
+            });
+
+        Benchmark.report(String.format(
+            Locale.ROOT,
+            "loadHierarchy speedup: p50 %.1fx, 2 queries instead of %d",
+            (double) perGroup.getMedian() / twoQueries.getMedian(),
+            2 * GROUP_COUNT));
+    }
+
+    /**
+     * Reads child groups and positions of the group and of all its descendants
+     * with two queries per group, the way the hierarchy used to be loaded.
+     * @param groupId Identifier of the group.
+     * @return Number of positions read.
+     */
+    private static int loadChildren(long groupId) {
+        Object[] args = new Object[] { groupId };
+        List<Long> childGroupIds = new ArrayList<>();
+        int positionCount = 0;
+
+        try (Cursor cursor = database.query(CHILD_GROUPS_SQL, args)) {
+            while (cursor.moveToNext()) {
+                childGroupIds.add(cursor.getLong(0));
+                cursor.getString(1);
+                cursor.getInt(2);
+            }
+        }
+
+        try (Cursor cursor = database.query(CHILD_POSITIONS_SQL, args)) {
+            while (cursor.moveToNext()) {
+                for (int column = 0; column < cursor.getColumnCount(); ++column) {
+                    cursor.getString(column);
+                }
+
+                ++positionCount;
+            }
+        }
+
+        for (long childGroupId : childGroupIds) {
+            positionCount += loadChildren(childGroupId);
+        }
+
+        return positionCount;
+    }
+}
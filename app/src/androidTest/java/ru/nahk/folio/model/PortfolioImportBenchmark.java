@@ -0,0 +1,117 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import ru.nahk.folio.Benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks import throughput of a synthetic portfolio
+ * of about 111 thousand lots into an empty database.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class PortfolioImportBenchmark {
+    /**
+     * Prefix of the benchmark database file names.
+     */
+    private static final String DATABASE_NAME = "folio-import-benchmark-db";
+
+    /**
+     * Seed of the synthetic portfolio, same as the one generated from the debug menu.
+     */
+    private static final long SEED = 1;
+
+    /**
+     * Number of lots in the synthetic portfolio: 1111 groups of 5 positions with 20 lots.
+     */
+    private static final int LOT_COUNT = 1111 * 5 * 20;
+
+    /**
+     * Number of warm-up imports.
+     */
+    private static final int WARMUP_ITERATIONS = 1;
+
+    /**
+     * Number of measured imports.
+     */
+    private static final int ITERATIONS = 5;
+
+    /**
+     * Empty databases, one per iteration, so clearing the previous import is not measured.
+     */
+    private PortfolioDatabase[] mDatabases;
+
+    /**
+     * Creates and opens empty databases.
+     */
+    @Before
+    public void createDatabases() {
+        mDatabases = new PortfolioDatabase[WARMUP_ITERATIONS + ITERATIONS];
+
+        for (int index = 0; index < mDatabases.length; ++index) {
+            mDatabases[index] = TestPortfolioDatabase.create(getDatabaseName(index));
+
+            // Room opens the database lazily, opening is not a part of the import
+            mDatabases[index].getOpenHelper().getWritableDatabase();
+        }
+    }
+
+    /**
+     * Removes the benchmark databases.
+     */
+    @After
+    public void deleteDatabases() {
+        for (int index = 0; index < mDatabases.length; ++index) {
+            if (mDatabases[index] != null) {
+                TestPortfolioDatabase.delete(mDatabases[index], getDatabaseName(index));
+            }
+        }
+    }
+
+    /**
+     * Measures {@link PortfolioImporter#importRecords(PortfolioRecord.Reader)}
+     * of the whole synthetic portfolio into an empty database.
+     * Records are generated on the fly, so the time includes generating them.
+     * @throws Exception Thrown if benchmark fails.
+     */
+    @Test
+    public void importRecords() throws Exception {
+        Benchmark.Result result = Benchmark.run(
+            "PortfolioImporter.importRecords, " + LOT_COUNT + " lots",
+            WARMUP_ITERATIONS,
+            ITERATIONS,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) throws Exception {
+                    PortfolioImporter importer = new PortfolioImporter(mDatabases[iteration]);
+                    importer.importRecords(new SyntheticPortfolioReader(SEED, 10, 3, 5, 20, 50));
+
+                    assertEquals(LOT_COUNT, importer.getLotCount());
+                }
+            });
+
+        Benchmark.report(String.format(
+            Locale.ROOT,
+            "PortfolioImporter throughput: %.0f lots per second at p50",
+            LOT_COUNT * 1e9 / result.getMedian()));
+    }
+
+    /**
+     * Gets name of the database file.
+     * @param index Index of the iteration the database is used by.
+     * @return Database file name.
+     */
+    private static String getDatabaseName(int index) {
+        return DATABASE_NAME + "-" + index;
+    }
+}
@@ -0,0 +1,115 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.List;
+
+import ru.nahk.folio.Benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Benchmarks hot portfolio read paths on a synthetic portfolio
+ * of about 111 thousand lots stored in a local SQLite database.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class PortfolioReadBenchmark {
+    /**
+     * Name of the benchmark database file.
+     */
+    private static final String DATABASE_NAME = "folio-read-benchmark-db";
+
+    /**
+     * Seed of the synthetic portfolio, same as the one generated from the debug menu.
+     */
+    private static final long SEED = 1;
+
+    /**
+     * Number of lots in the synthetic portfolio: 1111 groups of 5 positions with 20 lots.
+     */
+    private static final int LOT_COUNT = 1111 * 5 * 20;
+
+    /**
+     * Portfolio database under test.
+     */
+    private static PortfolioDatabase database;
+
+    /**
+     * Identifiers of all positions.
+     */
+    private static List<Long> positionIds;
+
+    /**
+     * Generates the synthetic portfolio.
+     * @throws IOException Thrown if portfolio cannot be imported.
+     */
+    @BeforeClass
+    public static void createPortfolio() throws IOException {
+        database = TestPortfolioDatabase.create(DATABASE_NAME);
+
+        assertEquals(
+            LOT_COUNT,
+            TestPortfolioDatabase.importPortfolio(
+                database,
+                new SyntheticPortfolioReader(SEED, 10, 3, 5, 20, 50)));
+
+        TestPortfolioDatabase.setSymbolPrices(database, System.currentTimeMillis());
+        positionIds = TestPortfolioDatabase.getPositionIds(database);
+    }
+
+    /**
+     * Removes the benchmark database.
+     */
+    @AfterClass
+    public static void deletePortfolio() {
+        TestPortfolioDatabase.delete(database, DATABASE_NAME);
+    }
+
+    /**
+     * Measures loading of the whole portfolio hierarchy.
+     * @throws Exception Thrown if benchmark fails.
+     */
+    @Test
+    public void loadPortfolio() throws Exception {
+        Benchmark.run(
+            "PortfolioDatabase.loadPortfolio, " + positionIds.size() + " positions",
+            5,
+            50,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    assertNotNull(database.loadPortfolio());
+                }
+            });
+    }
+
+    /**
+     * Measures loading of the lots of a single position.
+     * @throws Exception Thrown if benchmark fails.
+     */
+    @Test
+    public void getLotsForPosition() throws Exception {
+        final LotDao lotDao = database.lotDao();
+
+        Benchmark.run(
+            "LotDao.getLotsForPosition, 20 lots",
+            100,
+            2000,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    long positionId = positionIds.get(iteration * 7919 % positionIds.size());
+                    assertEquals(20, lotDao.getLotsForPosition(positionId).size());
+                }
+            });
+    }
+}
@@ -0,0 +1,158 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+
+import ru.nahk.folio.stockapi.SymbolChanges;
+import ru.nahk.folio.utils.Money;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Checks that committed symbol quotes are applied to the portfolio snapshot
+ * without reloading it, and that consumers own their copies of the snapshot.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class PortfolioRepositoryTest {
+    /**
+     * Name of the test database file.
+     */
+    private static final String DATABASE_NAME = "folio-repository-test-db";
+
+    /**
+     * Latest trade time of all symbols before the quotes write.
+     */
+    private static final long OLD_LATEST_TIME = 1;
+
+    /**
+     * Database with the small test portfolio.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mDatabaseRule =
+        new PortfolioDatabaseRule(DATABASE_NAME).withSmallPortfolio();
+
+    /**
+     * Portfolio database under test.
+     */
+    private PortfolioDatabase mDatabase;
+
+    /**
+     * Portfolio repository under test.
+     */
+    private PortfolioRepository mRepository;
+
+    /**
+     * Symbol which quotes are changed by the tests.
+     */
+    private SymbolEntity mSymbol;
+
+    /**
+     * Prices the portfolio and creates the repository.
+     */
+    @Before
+    public void createRepository() {
+        mDatabase = mDatabaseRule.getDatabase();
+
+        TestPortfolioDatabase.setSymbolPrices(mDatabase, OLD_LATEST_TIME);
+
+        mRepository = TestPortfolioDatabase.createRepository(mDatabase);
+        mSymbol = mDatabase.symbolDao().get().get(0);
+    }
+
+    /**
+     * Stops listening to the symbol quotes.
+     */
+    @After
+    public void removeQuotesListener() {
+        mDatabase.setSymbolQuotesListener(null);
+    }
+
+    /**
+     * Checks that quotes saved outside of a transaction are applied to the snapshot
+     * and do not change copies handed out before.
+     */
+    @Test
+    public void committedQuotesAreApplied() {
+        PortfolioTree before = mRepository.getPortfolio();
+        long beforeValue = before.getRoot().currentValue;
+
+        saveDoubledPrice();
+
+        PortfolioTree after = mRepository.getPortfolio();
+        assertEquals(
+            mDatabase.loadPortfolio().currentValue,
+            after.getRoot().currentValue);
+        assertNotEquals(beforeValue, after.getRoot().currentValue);
+
+        // Copy handed out before the write is owned by its consumer
+        assertEquals(beforeValue, before.getRoot().currentValue);
+    }
+
+    /**
+     * Checks that quotes saved in a nested transaction are applied once the outer one commits.
+     */
+    @Test
+    public void nestedQuotesAreAppliedAfterCommit() {
+        long beforeValue = mRepository.getPortfolio().getRoot().currentValue;
+
+        mDatabase.beginTransaction();
+        try {
+            saveDoubledPrice();
+
+            assertEquals(beforeValue, mRepository.getPortfolio().getRoot().currentValue);
+            mDatabase.setTransactionSuccessful();
+        }
+        finally {
+            mDatabase.endTransaction();
+        }
+
+        assertEquals(
+            mDatabase.loadPortfolio().currentValue,
+            mRepository.getPortfolio().getRoot().currentValue);
+    }
+
+    /**
+     * Checks that quotes saved in a transaction that was rolled back are not applied.
+     */
+    @Test
+    public void rolledBackQuotesAreNotApplied() {
+        long beforeValue = mRepository.getPortfolio().getRoot().currentValue;
+
+        mDatabase.beginTransaction();
+        try {
+            saveDoubledPrice();
+        }
+        finally {
+            mDatabase.endTransaction();
+        }
+
+        assertEquals(beforeValue, mDatabase.loadPortfolio().currentValue);
+        assertEquals(beforeValue, mRepository.getPortfolio().getRoot().currentValue);
+    }
+
+    /**
+     * Saves doubled latest price of the test symbol.
+     */
+    private void saveDoubledPrice() {
+        mSymbol.latestPrice = Money.toBigDecimal(2 * Money.fromBigDecimal(mSymbol.latestPrice));
+        mSymbol.latestTime = OLD_LATEST_TIME + 1;
+
+        SymbolChanges changes = new SymbolChanges();
+        changes.add(mSymbol.id, SymbolChanges.LATEST);
+
+        List<SymbolEntity> savedSymbols =
+            mDatabase.updateSymbolQuotes(Collections.singletonList(mSymbol), changes);
+        assertEquals(1, savedSymbols.size());
+    }
+}
@@ -0,0 +1,312 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import ru.nahk.folio.stockapi.SymbolChanges;
+import ru.nahk.folio.utils.CalendarHelper;
+import ru.nahk.folio.utils.Money;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that incremental updates of the {@link PortfolioTree} produce the same values
+ * as loading the whole portfolio again, including symbols and groups with unknown values.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class PortfolioTreeTest {
+    /**
+     * Name of the test database file.
+     */
+    private static final String DATABASE_NAME = "folio-tree-test-db";
+
+    /**
+     * Number of random portfolios to check.
+     */
+    private static final int SEED_COUNT = 20;
+
+    /**
+     * Number of random changes applied to every portfolio.
+     */
+    private static final int STEP_COUNT = 100;
+
+    /**
+     * Stock symbols the positions are spread over.
+     */
+    private static final String[] SYMBOLS = { "AAA", "BBB", "CCC", "DDD", "EEE", "FFF" };
+
+    /**
+     * Names of the groups at every level.
+     */
+    private static final String[] GROUP_NAMES = { "Alpha", "Beta", "Gamma" };
+
+    /**
+     * Empty test database.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mDatabaseRule = new PortfolioDatabaseRule(DATABASE_NAME);
+
+    /**
+     * Portfolio database under test.
+     */
+    private PortfolioDatabase mDatabase;
+
+    /**
+     * Generator of the portfolio and changes.
+     */
+    private Random mRandom;
+
+    /**
+     * Latest trade time assigned to the symbols, increases with every symbol change.
+     */
+    private long mLatestTime;
+
+    /**
+     * Takes the database of the current test.
+     */
+    @Before
+    public void getDatabase() {
+        mDatabase = mDatabaseRule.getDatabase();
+    }
+
+    /**
+     * Applies random symbol and lot changes to random portfolios and compares
+     * every item of the tree with a freshly loaded portfolio after every change.
+     * @throws IOException Thrown if portfolio cannot be imported.
+     */
+    @Test
+    public void incrementalUpdatesMatchFullReload() throws IOException {
+        for (int seed = 1; seed <= SEED_COUNT; ++seed) {
+            mDatabase.clearPortfolio();
+            mDatabase.symbolDao().cleanupSymbols();
+
+            mRandom = new Random(seed);
+            mLatestTime = CalendarHelper.atUtcTime(System.currentTimeMillis(), 0, 0);
+
+            TestPortfolioDatabase.importPortfolio(mDatabase, new ListReader(generateRecords()));
+
+            for (String symbol : SYMBOLS) {
+                if (mRandom.nextBoolean()) {
+                    changeSymbol(symbol);
+                }
+            }
+
+            PortfolioTree tree = new PortfolioTree(mDatabase.loadPortfolio());
+            List<Long> positionIds = TestPortfolioDatabase.getPositionIds(mDatabase);
+
+            for (int step = 0; step < STEP_COUNT; ++step) {
+                Set<PositionsListItemViewModel> changedItems = new HashSet<>();
+
+                if (mRandom.nextInt(10) == 0) {
+                    // Copy has to be indexed and linked to its parents the same way as the original
+                    tree = tree.copy();
+                }
+
+                if (positionIds.isEmpty() || mRandom.nextBoolean()) {
+                    String symbol = SYMBOLS[mRandom.nextInt(SYMBOLS.length)];
+                    changeSymbol(symbol);
+                    tree.updateSymbol(mDatabase.symbolDao().get(symbol), changedItems);
+                } else {
+                    long positionId = positionIds.get(mRandom.nextInt(positionIds.size()));
+                    changeLots(positionId);
+                    tree.updatePosition(mDatabase.positionDao().load(positionId), changedItems);
+                }
+
+                assertSameValues(
+                    "seed " + seed + ", step " + step,
+                    new PortfolioTree(mDatabase.loadPortfolio()).getRoot(),
+                    tree);
+            }
+        }
+    }
+
+    /**
+     * Generates random portfolio records: groups up to three levels deep,
+     * positions with and without lots.
+     * @return Portfolio records.
+     */
+    private List<PortfolioRecord> generateRecords() {
+        int recordCount = 1 + mRandom.nextInt(60);
+        List<PortfolioRecord> records = new ArrayList<>(recordCount);
+
+        for (int recordIndex = 0; recordIndex < recordCount; ++recordIndex) {
+            PortfolioRecord record = new PortfolioRecord();
+            int depth = mRandom.nextInt(4);
+
+            for (int level = 0; level < depth; ++level) {
+                record.groupPath.add(GROUP_NAMES[mRandom.nextInt(GROUP_NAMES.length)]);
+            }
+
+            record.symbol = SYMBOLS[mRandom.nextInt(SYMBOLS.length)];
+
+            if (mRandom.nextInt(3) > 0) {
+                record.hasLot = true;
+                record.quantity = 1 + mRandom.nextInt(100);
+                record.purchasePrice = generatePrice();
+                record.purchaseDate = CalendarHelper.fromComponents(2018, 0, 1 + mRandom.nextInt(28));
+                record.commission = mRandom.nextBoolean() ? 0 : 4950000;
+            }
+
+            records.add(record);
+        }
+
+        return records;
+    }
+
+    /**
+     * Saves random market data of the symbol, including unknown prices
+     * and extended prices that are either more or less recent than the latest one.
+     * @param symbolId Stock symbol.
+     */
+    private void changeSymbol(String symbolId) {
+        SymbolEntity symbol = mDatabase.symbolDao().get(symbolId);
+        assertNotNull(symbolId, symbol);
+
+        mLatestTime += 60 * 1000;
+
+        symbol.latestTime = mLatestTime;
+        symbol.latestPrice = mRandom.nextInt(5) == 0 ? null : Money.toBigDecimal(generatePrice());
+
+        if (mRandom.nextInt(3) == 0) {
+            symbol.extendedTime = mLatestTime + (mRandom.nextBoolean() ? 1000 : -1000);
+            symbol.extendedPrice = mRandom.nextInt(4) == 0 ? null : Money.toBigDecimal(generatePrice());
+        }
+
+        if (mRandom.nextInt(3) == 0) {
+            symbol.previousClosePrice = mRandom.nextInt(4) == 0 ? null : Money.toBigDecimal(generatePrice());
+        }
+
+        SymbolChanges changes = new SymbolChanges();
+        changes.add(
+            symbolId,
+            SymbolChanges.LATEST | SymbolChanges.EXTENDED | SymbolChanges.PREVIOUS_CLOSE);
+
+        assertEquals(
+            1,
+            mDatabase.updateSymbolQuotes(Collections.singletonList(symbol), changes).size());
+    }
+
+    /**
+     * Adds a random lot to the position or removes one of its lots.
+     * @param positionId Identifier of the position.
+     */
+    private void changeLots(long positionId) {
+        List<LotViewModel> lots = mDatabase.lotDao().getLotsForPosition(positionId);
+
+        if (lots.isEmpty() || mRandom.nextBoolean()) {
+            mDatabase.lotDao().insert(
+                new LotEntity(
+                    positionId,
+                    1 + mRandom.nextInt(100),
+                    Money.toBigDecimal(generatePrice()),
+                    CalendarHelper.fromComponents(2019, 0, 1 + mRandom.nextInt(28)),
+                    Money.toBigDecimal(mRandom.nextBoolean() ? 0 : 4950000)));
+        } else {
+            mDatabase.lotDao().delete(lots.get(mRandom.nextInt(lots.size())).id);
+        }
+    }
+
+    /**
+     * Generates random price.
+     * @return Price between one cent and a thousand dollars as money value.
+     */
+    private long generatePrice() {
+        return (1 + mRandom.nextInt(100000)) * 100L;
+    }
+
+    /**
+     * Checks that every item of the tree has the same values as in the expected hierarchy.
+     * @param message Message that identifies the check.
+     * @param expected Expected group hierarchy.
+     * @param tree Incrementally updated portfolio tree.
+     */
+    private static void assertSameValues(String message, GroupViewModel expected, PortfolioTree tree) {
+        GroupViewModel actual = tree.getGroup(expected.id);
+        assertNotNull(message + ": group " + expected.id, actual);
+        assertSameValues(message + ": group " + expected.name, expected, actual);
+
+        for (PositionsListItemViewModel child : expected.children) {
+            if (child instanceof GroupViewModel) {
+                assertSameValues(message, (GroupViewModel) child, tree);
+            } else {
+                PositionViewModel position = tree.getPosition(child.id);
+                assertNotNull(message + ": position " + child.id, position);
+                assertSameValues(message + ": position " + child.name, child, position);
+                assertEquals(
+                    message + ": position " + child.name + " symbol value",
+                    ((PositionViewModel) child).symbolValue,
+                    position.symbolValue);
+            }
+        }
+
+        assertEquals(message + ": children of " + expected.name, expected.children.size(), actual.children.size());
+    }
+
+    /**
+     * Checks that item has the expected values.
+     * @param message Message that identifies the item.
+     * @param expected Item with expected values.
+     * @param actual Item to check.
+     */
+    private static void assertSameValues(
+            String message,
+            PortfolioItemViewModel expected,
+            PortfolioItemViewModel actual) {
+        assertEquals(message + " current value", expected.currentValue, actual.currentValue);
+        assertEquals(message + " base value", expected.baseValue, actual.baseValue);
+    }
+
+    /**
+     * Reads portfolio records from a list.
+     */
+    private static final class ListReader implements PortfolioRecord.Reader {
+        /**
+         * Records to read.
+         */
+        private final List<PortfolioRecord> mRecords;
+
+        /**
+         * Index of the next record.
+         */
+        private int mIndex;
+
+        /**
+         * Creates new instance of the {@link ListReader} class.
+         * @param records Records to read.
+         */
+        ListReader(List<PortfolioRecord> records) {
+            mRecords = records;
+        }
+
+        /**
+         * Reads next record.
+         * @return Next record or NULL, if all records were read.
+         */
+        @Override
+        public PortfolioRecord read() {
+            return mIndex < mRecords.size() ? mRecords.get(mIndex++) : null;
+        }
+
+        /**
+         * Does nothing, as there are no resources to release.
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import ru.nahk.folio.Benchmark;
+import ru.nahk.folio.stockapi.SymbolChanges;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks saving of refreshed quotes of 1000 symbols with {@link SymbolQuoteWriter}
+ * against the full-row update that Room generated for the removed {@code @Update} methods.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class SymbolQuoteWriteBenchmark {
+    /**
+     * Name of the benchmark database file.
+     */
+    private static final String DATABASE_NAME = "folio-quote-write-benchmark-db";
+
+    /**
+     * Number of symbols written by every iteration.
+     */
+    private static final int SYMBOL_COUNT = 1000;
+
+    /**
+     * Number of warm-up iterations.
+     */
+    private static final int WARMUP_ITERATIONS = 3;
+
+    /**
+     * Number of measured iterations.
+     */
+    private static final int ITERATIONS = 30;
+
+    /**
+     * Full-row update statement, as generated by Room for {@code @Update} of {@link SymbolEntity}.
+     */
+    private static final String FULL_ROW_UPDATE_SQL =
+        "UPDATE OR ABORT `symbols` SET `id` = ?,`display_name` = ?,"
+            + "`open_price` = ?,`open_time` = ?,`latest_price` = ?,`latest_time` = ?,"
+            + "`close_price` = ?,`close_time` = ?,`extended_price` = ?,`extended_time` = ?,"
+            + "`previous_close_price` = ?,`market_cap` = ?,`day_high` = ?,`day_low` = ?,"
+            + "`week_52_high` = ?,`week_52_low` = ? WHERE `id` = ?";
+
+    /**
+     * Portfolio database under test.
+     */
+    private static PortfolioDatabase database;
+
+    /**
+     * Symbols with all market data filled in.
+     */
+    private static List<SymbolEntity> symbols;
+
+    /**
+     * Latest trade time of the last written quotes, increased by every write.
+     */
+    private static long latestTime;
+
+    /**
+     * Creates symbols with all market data filled in.
+     * @throws IOException Thrown if database cannot be created.
+     */
+    @BeforeClass
+    public static void createSymbols() throws IOException {
+        database = TestPortfolioDatabase.create(DATABASE_NAME);
+        symbols = new ArrayList<>(SYMBOL_COUNT);
+        latestTime = System.currentTimeMillis();
+
+        for (int symbolIndex = 0; symbolIndex < SYMBOL_COUNT; ++symbolIndex) {
+            SymbolEntity symbol = new SymbolEntity(String.format(Locale.ROOT, "S%04d", symbolIndex));
+            symbol.displayName = "Symbol " + symbolIndex;
+            symbol.openPrice = getPrice(symbolIndex);
+            symbol.openTime = latestTime;
+            symbol.latestPrice = getPrice(symbolIndex + 1);
+            symbol.latestTime = latestTime;
+            symbol.previousClosePrice = getPrice(symbolIndex + 2);
+            symbol.marketCap = getPrice(symbolIndex * 1000);
+            symbol.dayHigh = getPrice(symbolIndex + 3);
+            symbol.dayLow = getPrice(symbolIndex);
+            symbol.week52High = getPrice(symbolIndex + 4);
+            symbol.week52Low = getPrice(symbolIndex);
+
+            database.symbolDao().insert(symbol);
+            symbols.add(symbol);
+        }
+    }
+
+    /**
+     * Removes the benchmark database.
+     */
+    @AfterClass
+    public static void deleteSymbols() {
+        TestPortfolioDatabase.delete(database, DATABASE_NAME);
+    }
+
+    /**
+     * Measures saving of new latest prices of all symbols with both write paths.
+     * Quote writer also appends a tick for every symbol, full-row update does not.
+     * @throws Exception Thrown if benchmark fails.
+     */
+    @Test
+    public void writeLatestQuotes() throws Exception {
+        Benchmark.Result fullRow = Benchmark.run(
+            "Full-row @Update, " + SYMBOL_COUNT + " symbols",
+            WARMUP_ITERATIONS,
+            ITERATIONS,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) throws IOException {
+                    changeLatestQuotes(iteration);
+                    assertEquals(SYMBOL_COUNT, updateFullRows());
+                }
+            });
+
+        Benchmark.Result quoteWriter = Benchmark.run(
+            "PortfolioDatabase.updateSymbolQuotes, " + SYMBOL_COUNT + " symbols",
+            WARMUP_ITERATIONS,
+            ITERATIONS,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    SymbolChanges changes = changeLatestQuotes(iteration);
+                    assertEquals(SYMBOL_COUNT, database.updateSymbolQuotes(symbols, changes).size());
+                }
+            });
+
+        Benchmark.report(String.format(
+            Locale.ROOT,
+            "SymbolQuoteWriter speedup: p50 %.1fx",
+            (double) fullRow.getMedian() / quoteWriter.getMedian()));
+    }
+
+    /**
+     * Sets new latest price and time of all symbols.
+     * @param iteration Benchmark iteration.
+     * @return Changes made to the symbols.
+     */
+    private static SymbolChanges changeLatestQuotes(int iteration) {
+        SymbolChanges changes = new SymbolChanges();
+        ++latestTime;
+
+        for (int symbolIndex = 0; symbolIndex < symbols.size(); ++symbolIndex) {
+            SymbolEntity symbol = symbols.get(symbolIndex);
+            symbol.latestPrice = getPrice(symbolIndex + iteration % 10);
+            symbol.latestTime = latestTime;
+            changes.add(symbol.id, SymbolChanges.LATEST);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Writes all columns of all symbols in one transaction, the way Room does for {@code @Update}.
+     * @return Number of updated rows.
+     * @throws IOException Thrown if statement cannot be closed.
+     */
+    private static int updateFullRows() throws IOException {
+        SupportSQLiteDatabase sqlDatabase = database.getOpenHelper().getWritableDatabase();
+        int updatedCount = 0;
+
+        database.beginTransaction();
+        try (SupportSQLiteStatement statement = sqlDatabase.compileStatement(FULL_ROW_UPDATE_SQL)) {
+            for (SymbolEntity symbol : symbols) {
+                statement.bindString(1, symbol.id);
+                bindString(statement, 2, symbol.displayName);
+                bindMoney(statement, 3, symbol.openPrice);
+                bindLong(statement, 4, symbol.openTime);
+                bindMoney(statement, 5, symbol.latestPrice);
+                bindLong(statement, 6, symbol.latestTime);
+                bindMoney(statement, 7, symbol.closePrice);
+                bindLong(statement, 8, symbol.closeTime);
+                bindMoney(statement, 9, symbol.extendedPrice);
+                bindLong(statement, 10, symbol.extendedTime);
+                bindMoney(statement, 11, symbol.previousClosePrice);
+                bindMoney(statement, 12, symbol.marketCap);
+                bindMoney(statement, 13, symbol.dayHigh);
+                bindMoney(statement, 14, symbol.dayLow);
+                bindMoney(statement, 15, symbol.week52High);
+                bindMoney(statement, 16, symbol.week52Low);
+                statement.bindString(17, symbol.id);
+
+                updatedCount += statement.executeUpdateDelete();
+            }
+
+            database.setTransactionSuccessful();
+        }
+        finally {
+            database.endTransaction();
+        }
+
+        return updatedCount;
+    }
+
+    /**
+     * Creates deterministic price.
+     * @param value Whole dollars.
+     * @return Price value.
+     */
+    private static BigDecimal getPrice(int value) {
+        return BigDecimal.valueOf(value % 900 + 100);
+    }
+
+    /**
+     * Binds nullable string value.
+     * @param statement Statement to bind to.
+     * @param index Parameter index.
+     * @param value Value to bind.
+     */
+    private static void bindString(SupportSQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Binds nullable integer value.
+     * @param statement Statement to bind to.
+     * @param index Parameter index.
+     * @param value Value to bind.
+     */
+    private static void bindLong(SupportSQLiteStatement statement, int index, Long value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
+    }
+
+    /**
+     * Binds nullable money value the same way as {@link MoneyTypeConverter}.
+     * @param statement Statement to bind to.
+     * @param index Parameter index.
+     * @param value Value to bind.
+     */
+    private static void bindMoney(SupportSQLiteStatement statement, int index, BigDecimal value) {
+        bindLong(statement, index, MoneyTypeConverter.dollarsToPennies(value));
+    }
+}
@@ -0,0 +1,232 @@
+package ru.nahk.folio.model;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import ru.nahk.folio.utils.CalendarHelper;
+
+/**
+ * Generates deterministic synthetic portfolio of the configured size and shape.
+ * Every group has the same number of child groups down to the configured depth
+ * and every group, including the root one, has the same number of positions.
+ * Positions take stock symbols in turns, so symbols do not repeat within a group
+ * as long as there are enough of them.
+ * Records are generated one at a time, so portfolios of any size can be imported
+ * with {@link PortfolioImporter} to profile database queries on realistic data.
+ */
+public class SyntheticPortfolioReader implements PortfolioRecord.Reader {
+    /**
+     * Smallest generated purchase year.
+     */
+    private static final int FIRST_PURCHASE_YEAR = 2000;
+
+    /**
+     * Number of years purchase dates are spread over.
+     */
+    private static final int PURCHASE_YEARS = 19;
+
+    /**
+     * Number of money units in one cent.
+     */
+    private static final long CENT = 100;
+
+    /**
+     * Generator of the field values.
+     */
+    private final Random mRandom;
+
+    /**
+     * Number of child groups in every group above the maximum depth.
+     */
+    private final int mGroupsPerGroup;
+
+    /**
+     * Maximum depth of the groups below the root group.
+     */
+    private final int mDepth;
+
+    /**
+     * Number of positions in every group.
+     */
+    private final int mPositionsPerGroup;
+
+    /**
+     * Number of lots in every position, positions have no lots when 0.
+     */
+    private final int mLotsPerPosition;
+
+    /**
+     * Number of distinct stock symbols positions are spread over.
+     */
+    private final int mSymbolCount;
+
+    /**
+     * Record instance reused for all records.
+     */
+    private final PortfolioRecord mRecord = new PortfolioRecord();
+
+    /**
+     * Indexes of the current group at every level below the root group.
+     */
+    private final int[] mGroupIndexes;
+
+    /**
+     * Names of the groups from the root group (exclusive) to the current group.
+     */
+    private final List<String> mGroupPath = new ArrayList<>();
+
+    /**
+     * Index of the current position in the current group.
+     */
+    private int mPositionIndex;
+
+    /**
+     * Number of positions generated before the current one.
+     */
+    private int mPositionOrdinal;
+
+    /**
+     * Index of the next lot in the current position.
+     */
+    private int mLotIndex;
+
+    /**
+     * Stock symbol of the current position.
+     */
+    private String mSymbol;
+
+    /**
+     * Indicates whether all records were generated.
+     */
+    private boolean mIsFinished;
+
+    /**
+     * Creates new instance of the {@link SyntheticPortfolioReader} class.
+     * @param seed Seed of the generator, same seed produces the same portfolio.
+     * @param groupsPerGroup Number of child groups in every group above the maximum depth.
+     * @param depth Maximum depth of the groups below the root group.
+     * @param positionsPerGroup Number of positions in every group.
+     * @param lotsPerPosition Number of lots in every position.
+     * @param symbolCount Number of distinct stock symbols positions are spread over.
+     */
+    public SyntheticPortfolioReader(
+        long seed,
+        int groupsPerGroup,
+        int depth,
+        int positionsPerGroup,
+        int lotsPerPosition,
+        int symbolCount) {
+
+        if (groupsPerGroup < 0 || depth < 0 || positionsPerGroup < 0
+                || lotsPerPosition < 0 || symbolCount <= 0) {
+            throw new IllegalArgumentException("Invalid synthetic portfolio shape");
+        }
+
+        mRandom = new Random(seed);
+        mGroupsPerGroup = groupsPerGroup;
+        mDepth = groupsPerGroup == 0 ? 0 : depth;
+        mPositionsPerGroup = positionsPerGroup;
+        mLotsPerPosition = lotsPerPosition;
+        mSymbolCount = symbolCount;
+        mGroupIndexes = new int[mDepth];
+        mIsFinished = positionsPerGroup == 0;
+    }
+
+    /**
+     * Generates next record.
+     * Groups are visited depth-first and only groups with positions appear in the records.
+     * @return Next record or NULL, if all records were generated.
+     */
+    @Override
+    public PortfolioRecord read() {
+        if (mIsFinished) {
+            return null;
+        }
+
+        if (mSymbol == null) {
+            mSymbol = getSymbol(mPositionOrdinal % mSymbolCount);
+        }
+
+        mRecord.clear();
+        mRecord.groupPath.addAll(mGroupPath);
+        mRecord.symbol = mSymbol;
+
+        if (mLotsPerPosition > 0) {
+            mRecord.hasLot = true;
+            mRecord.quantity = 1 + mRandom.nextInt(500);
+            mRecord.purchasePrice = (100 + mRandom.nextInt(100000)) * CENT;
+            mRecord.purchaseDate =
+                CalendarHelper.fromComponents(
+                    FIRST_PURCHASE_YEAR + mRandom.nextInt(PURCHASE_YEARS),
+                    Calendar.JANUARY + mRandom.nextInt(12),
+                    1 + mRandom.nextInt(28));
+            mRecord.commission = mRandom.nextBoolean() ? 0 : 495 * CENT;
+        }
+
+        if (++mLotIndex >= mLotsPerPosition) {
+            mLotIndex = 0;
+            mSymbol = null;
+            ++mPositionOrdinal;
+
+            if (++mPositionIndex >= mPositionsPerGroup) {
+                mPositionIndex = 0;
+                mIsFinished = !moveToNextGroup();
+            }
+        }
+
+        return mRecord;
+    }
+
+    /**
+     * Does nothing, as there are no resources to release.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Moves to the next group in depth-first order.
+     * @return True if there is next group, false if all groups were visited.
+     */
+    private boolean moveToNextGroup() {
+        int level = mGroupPath.size();
+
+        if (level < mDepth) {
+            // Descend into the first child group
+            mGroupIndexes[level] = 0;
+        } else {
+            // Ascend until there is a next sibling group
+            while (level > 0 && mGroupIndexes[level - 1] == mGroupsPerGroup - 1) {
+                mGroupPath.remove(--level);
+            }
+
+            if (level == 0) {
+                return false;
+            }
+
+            mGroupPath.remove(--level);
+            ++mGroupIndexes[level];
+        }
+
+        mGroupPath.add("Group " + (level + 1) + "." + (mGroupIndexes[level] + 1));
+        return true;
+    }
+
+    /**
+     * Builds stock symbol with the given index.
+     * @param index Index of the symbol.
+     * @return Stock symbol of four or more letters.
+     */
+    private static String getSymbol(int index) {
+        StringBuilder symbol = new StringBuilder();
+
+        do {
+            symbol.append((char) ('A' + index % 26));
+            index /= 26;
+        } while (index > 0 || symbol.length() < 4);
+
+        return symbol.reverse().toString();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.nahk.folio.model;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates file-backed portfolio databases for tests and benchmarks.
+ * Databases are configured the same way as the application database,
+ * including migrations, triggers and write-ahead logging.
+ */
+public final class TestPortfolioDatabase {
+    /**
+     * Prevents creating instances of the {@link TestPortfolioDatabase} class.
+     */
+    private TestPortfolioDatabase() { }
+
+    /**
+     * Creates new empty portfolio database, removing the previous file with the same name.
+     * @param name Name of the database file.
+     * @return Portfolio database with the root group only.
+     */
+    public static PortfolioDatabase create(String name) {
+        Context context = InstrumentationRegistry.getTargetContext().getApplicationContext();
+
+        context.deleteDatabase(name);
+
+        return PortfolioDatabase.createBuilder(context, name).build();
+    }
+
+    /**
+     * Closes the database and removes its file.
+     * @param database Portfolio database.
+     * @param name Name of the database file.
+     */
+    public static void delete(PortfolioDatabase database, String name) {
+        database.close();
+        InstrumentationRegistry.getTargetContext().getApplicationContext().deleteDatabase(name);
+    }
+
+    /**
+     * Creates portfolio repository backed by the given database.
+     * @param database Portfolio database.
+     * @return Portfolio repository.
+     */
+    public static PortfolioRepository createRepository(PortfolioDatabase database) {
+        return new PortfolioRepository(database);
+    }
+
+    /**
+     * Imports portfolio records into the database.
+     * @param database Portfolio database.
+     * @param reader Portfolio records to import.
+     * @return Number of imported lots.
+     * @throws IOException Thrown if records cannot be read.
+     */
+    public static int importPortfolio(
+        PortfolioDatabase database,
+        PortfolioRecord.Reader reader) throws IOException {
+
+        PortfolioImporter importer = new PortfolioImporter(database);
+
+        try {
+            importer.importRecords(reader);
+        }
+        finally {
+            reader.close();
+        }
+
+        return importer.getLotCount();
+    }
+
+    /**
+     * Imports small portfolio shared by the tests: 13 groups nested 2 levels deep,
+     * each with 4 positions of 5 lots, which is 260 lots over 10 stock symbols.
+     * @param database Portfolio database.
+     * @return Number of imported lots.
+     * @throws IOException Thrown if records cannot be read.
+     */
+    public static int importSmallPortfolio(PortfolioDatabase database) throws IOException {
+        return importPortfolio(database, new SyntheticPortfolioReader(1, 3, 2, 4, 5, 10));
+    }
+
+    /**
+     * Assigns deterministic latest and previous close prices to all symbols,
+     * so that portfolio values are known.
+     * @param database Portfolio database.
+     * @param latestTime Latest trade time as epoch time in milliseconds.
+     */
+    public static void setSymbolPrices(PortfolioDatabase database, long latestTime) {
+        database.getOpenHelper().getWritableDatabase().execSQL(
+            "UPDATE " + SymbolEntity.TABLE_NAME + " SET "
+                + SymbolEntity.LATEST_PRICE_COLUMN + " = (100 + rowid % 900) * 10000, "
+                + SymbolEntity.PREVIOUS_CLOSE_PRICE_COLUMN + " = (101 + rowid % 900) * 10000, "
+                + SymbolEntity.LATEST_TIME_COLUMN + " = " + latestTime);
+    }
+
+    /**
+     * Loads identifiers of all positions.
+     * @param database Portfolio database.
+     * @return Position identifiers in ascending order.
+     */
+    public static List<Long> getPositionIds(PortfolioDatabase database) {
+        List<Long> positionIds = new ArrayList<>();
+
+        try (Cursor cursor = database.query(
+                "SELECT " + PositionEntity.ID_COLUMN
+                    + " FROM " + PositionEntity.TABLE_NAME
+                    + " ORDER BY " + PositionEntity.ID_COLUMN,
+                null)) {
+            while (cursor.moveToNext()) {
+                positionIds.add(cursor.getLong(0));
+            }
+        }
+
+        return positionIds;
+    }
+}
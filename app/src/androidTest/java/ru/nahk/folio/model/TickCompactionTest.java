@@ -0,0 +1,196 @@
+package ru.nahk.folio.model;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link PortfolioDatabase#compactTicks(long)} keeps ticks of the current day,
+ * 5 minutes buckets of the recent days and regular session closes of the older days.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class TickCompactionTest {
+    /**
+     * Name of the test database file.
+     */
+    private static final String DATABASE_NAME = "folio-tick-compaction-test-db";
+
+    /**
+     * US stock symbol, its post-market session crosses UTC midnight in winter.
+     */
+    private static final String US_SYMBOL = "AAPL";
+
+    /**
+     * Australian stock symbol, its regular session crosses UTC midnight in summer.
+     */
+    private static final String SYDNEY_SYMBOL = "BHP.AX";
+
+    /**
+     * Current time of the compaction, Thursday.
+     */
+    private static final long NOW = utc(2024, Calendar.JANUARY, 25, 18, 0);
+
+    /**
+     * Empty test database.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mDatabaseRule = new PortfolioDatabaseRule(DATABASE_NAME);
+
+    /**
+     * Portfolio database under test.
+     */
+    private PortfolioDatabase mDatabase;
+
+    /**
+     * Adds the test symbols.
+     */
+    @Before
+    public void insertSymbols() {
+        mDatabase = mDatabaseRule.getDatabase();
+        mDatabase.symbolDao().insert(new SymbolEntity(US_SYMBOL));
+        mDatabase.symbolDao().insert(new SymbolEntity(SYDNEY_SYMBOL));
+    }
+
+    /**
+     * Checks that ticks of the current UTC day are kept as is.
+     */
+    @Test
+    public void currentDayIsKept() {
+        long[] ticks = {
+            utc(2024, Calendar.JANUARY, 25, 15, 0),
+            utc(2024, Calendar.JANUARY, 25, 15, 1),
+            utc(2024, Calendar.JANUARY, 25, 15, 2)
+        };
+
+        for (long time : ticks) {
+            insertTick(US_SYMBOL, time, false);
+        }
+
+        assertEquals(0, mDatabase.compactTicks(NOW));
+        assertTicks(US_SYMBOL, ticks);
+    }
+
+    /**
+     * Checks that ticks of the recent days are reduced to the last regular
+     * and the last extended hours tick of every 5 minutes.
+     */
+    @Test
+    public void recentDaysKeepLastTickOfBuckets() {
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 23, 16, 0), false);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 23, 16, 2), false);
+
+        // Regular session close is followed by post-market trades within the same bucket
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 23, 21, 0), false);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 23, 21, 3), true);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 23, 21, 4), true);
+
+        assertEquals(2, mDatabase.compactTicks(NOW));
+        assertTicks(
+            US_SYMBOL,
+            utc(2024, Calendar.JANUARY, 23, 16, 2),
+            utc(2024, Calendar.JANUARY, 23, 21, 0),
+            utc(2024, Calendar.JANUARY, 23, 21, 4));
+
+        assertEquals(0, mDatabase.compactTicks(NOW));
+    }
+
+    /**
+     * Checks that ticks of the older days are reduced to the regular session closes,
+     * even when extended hours trading or the session itself crosses UTC midnight.
+     */
+    @Test
+    public void olderDaysKeepSessionCloses() {
+        // New York session closes at 21:00 UTC, post-market lasts until 1:00 UTC
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 8, 15, 0), false);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 8, 21, 0), false);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 8, 21, 30), true);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 9, 0, 59), true);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 9, 14, 30), false);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 9, 21, 0), false);
+        insertTick(US_SYMBOL, utc(2024, Calendar.JANUARY, 9, 23, 0), true);
+
+        // Sydney session lasts from 23:00 to 5:00 UTC
+        insertTick(SYDNEY_SYMBOL, utc(2024, Calendar.JANUARY, 8, 23, 10), false);
+        insertTick(SYDNEY_SYMBOL, utc(2024, Calendar.JANUARY, 9, 2, 0), false);
+        insertTick(SYDNEY_SYMBOL, utc(2024, Calendar.JANUARY, 9, 4, 59), false);
+        insertTick(SYDNEY_SYMBOL, utc(2024, Calendar.JANUARY, 9, 23, 10), false);
+        insertTick(SYDNEY_SYMBOL, utc(2024, Calendar.JANUARY, 10, 4, 59), false);
+
+        assertEquals(8, mDatabase.compactTicks(NOW));
+        assertTicks(
+            US_SYMBOL,
+            utc(2024, Calendar.JANUARY, 8, 21, 0),
+            utc(2024, Calendar.JANUARY, 9, 21, 0));
+        assertTicks(
+            SYDNEY_SYMBOL,
+            utc(2024, Calendar.JANUARY, 9, 4, 59),
+            utc(2024, Calendar.JANUARY, 10, 4, 59));
+
+        assertEquals(0, mDatabase.compactTicks(NOW));
+    }
+
+    /**
+     * Inserts price tick of the symbol.
+     * @param symbolId Stock symbol.
+     * @param time Trade time as epoch time in milliseconds.
+     * @param isExtended Indicates whether trade was made outside of the regular session.
+     */
+    private void insertTick(String symbolId, long time, boolean isExtended) {
+        mDatabase.getOpenHelper().getWritableDatabase().execSQL(
+            "INSERT INTO " + TickEntity.TABLE_NAME + " ("
+                + TickEntity.SYMBOL_ID_COLUMN + ", "
+                + TickEntity.TIME_COLUMN + ", "
+                + TickEntity.PRICE_COLUMN + ", "
+                + TickEntity.IS_EXTENDED_COLUMN
+                + ") VALUES (?, ?, ?, ?)",
+            new Object[] { symbolId, time, 1000000, isExtended ? 1 : 0 });
+    }
+
+    /**
+     * Checks times of the remaining ticks of the symbol.
+     * @param symbolId Stock symbol.
+     * @param expectedTimes Expected tick times in chronological order.
+     */
+    private void assertTicks(String symbolId, long... expectedTimes) {
+        List<Long> expected = new ArrayList<>(expectedTimes.length);
+        for (long time : expectedTimes) {
+            expected.add(time);
+        }
+
+        List<Long> actual = new ArrayList<>();
+        for (TickEntity tick : mDatabase.tickDao().get(symbolId, 0, Long.MAX_VALUE)) {
+            actual.add(tick.time);
+        }
+
+        assertEquals(Arrays.toString(expectedTimes), expected, actual);
+    }
+
+    /**
+     * Computes epoch timestamp of the UTC date and time.
+     * @param year Year.
+     * @param month Month.
+     * @param date Date.
+     * @param hour Hour.
+     * @param minute Minute.
+     * @return Epoch time in milliseconds.
+     */
+    private static long utc(int year, int month, int date, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, date, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
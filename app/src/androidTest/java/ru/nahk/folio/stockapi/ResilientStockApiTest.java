@@ -0,0 +1,326 @@
+package ru.nahk.folio.stockapi;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import ru.nahk.folio.model.SymbolEntity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks retries, circuit breaker and request budget of {@link ResilientStockApi}.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class ResilientStockApiTest {
+    /**
+     * Backoff before the first retry in milliseconds.
+     */
+    private static final long BACKOFF = 10;
+
+    /**
+     * Time the circuit breaker stays open after it opens for the first time in milliseconds.
+     */
+    private static final long OPEN_DURATION = 300;
+
+    /**
+     * Number of attempts made for a single request.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Number of consecutive transient failures that opens the circuit breaker.
+     */
+    private static final int FAILURE_THRESHOLD = 5;
+
+    /**
+     * Checks that transient failure is retried until the request succeeds.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void transientFailureIsRetried() throws StockApiException {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi(
+            new StockApiTransientException("Connection reset"),
+            new StockApiTransientException("Connection reset"));
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+
+        api.updateSymbols(createSymbols());
+
+        assertEquals(3, scriptedApi.mRequestCount);
+        assertEquals(ResilientStockApi.BREAKER_CLOSED, api.getState().getBreakerState());
+    }
+
+    /**
+     * Checks that transient failure is reported once all attempts have failed.
+     */
+    @Test
+    public void retriesAreLimited() {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi();
+        scriptedApi.mDefaultError = new StockApiTransientException("Connection reset");
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+
+        assertUpdateFails(api, StockApiTransientException.class);
+        assertEquals(MAX_ATTEMPTS, scriptedApi.mRequestCount);
+        assertEquals(ResilientStockApi.BREAKER_CLOSED, api.getState().getBreakerState());
+    }
+
+    /**
+     * Checks that error response is not retried.
+     */
+    @Test
+    public void responseErrorIsNotRetried() {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi(
+            new StockApiResponseException("Invalid API response code: 404"));
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+
+        assertUpdateFails(api, StockApiResponseException.class);
+        assertEquals(1, scriptedApi.mRequestCount);
+    }
+
+    /**
+     * Checks that repeated failures open the breaker, failed trial keeps it open
+     * for longer and successful trial closes it.
+     * @throws Exception Thrown if update fails or test is interrupted.
+     */
+    @Test
+    public void breakerOpensAndRecovers() throws Exception {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi();
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+        openBreaker(api, scriptedApi);
+
+        // Open breaker fails requests without calling the service
+        assertUpdateFails(api, StockApiUnavailableException.class);
+        assertEquals(FAILURE_THRESHOLD, scriptedApi.mRequestCount);
+
+        // Failed trial is not retried and keeps the breaker open twice as long
+        Thread.sleep(OPEN_DURATION);
+        assertEquals(ResilientStockApi.BREAKER_HALF_OPEN, api.getState().getBreakerState());
+        assertUpdateFails(api, StockApiTransientException.class);
+        assertEquals(FAILURE_THRESHOLD + 1, scriptedApi.mRequestCount);
+
+        Thread.sleep(OPEN_DURATION);
+        assertTrue(api.getState().isUnavailable());
+
+        Thread.sleep(OPEN_DURATION);
+        scriptedApi.mDefaultError = null;
+        api.updateSymbols(createSymbols());
+        assertEquals(ResilientStockApi.BREAKER_CLOSED, api.getState().getBreakerState());
+    }
+
+    /**
+     * Checks that error which did not reach the service neither closes the breaker
+     * nor blocks the next trial.
+     * @throws Exception Thrown if update fails or test is interrupted.
+     */
+    @Test
+    public void localErrorDoesNotCloseBreaker() throws Exception {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi();
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+        openBreaker(api, scriptedApi);
+
+        Thread.sleep(OPEN_DURATION);
+        scriptedApi.mDefaultError = new StockApiException("No stock API providers");
+        assertUpdateFails(api, StockApiException.class);
+        assertEquals(ResilientStockApi.BREAKER_HALF_OPEN, api.getState().getBreakerState());
+
+        scriptedApi.mDefaultError = null;
+        api.updateSymbols(createSymbols());
+        assertEquals(ResilientStockApi.BREAKER_CLOSED, api.getState().getBreakerState());
+    }
+
+    /**
+     * Checks that unexpected runtime error during the trial re-opens the breaker
+     * instead of leaving the trial in progress forever.
+     * @throws Exception Thrown if update fails or test is interrupted.
+     */
+    @Test
+    public void runtimeErrorEndsTrial() throws Exception {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi();
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+        openBreaker(api, scriptedApi);
+
+        Thread.sleep(OPEN_DURATION);
+        scriptedApi.mDefaultError = new IllegalStateException("Unexpected token");
+
+        try {
+            api.updateSymbols(createSymbols());
+            fail("Runtime error is expected");
+        }
+        catch (IllegalStateException runtimeError) {
+            // Expected
+        }
+
+        assertTrue(api.getState().isUnavailable());
+
+        Thread.sleep(OPEN_DURATION * 2);
+        scriptedApi.mDefaultError = null;
+        api.updateSymbols(createSymbols());
+        assertEquals(ResilientStockApi.BREAKER_CLOSED, api.getState().getBreakerState());
+    }
+
+    /**
+     * Checks that quote update draws a request for every batch and large update
+     * is allowed, but holds back the following ones.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void budgetIsChargedPerBatch() throws StockApiException {
+        ScriptedStockApi scriptedApi = new ScriptedStockApi();
+        ResilientStockApi api = new ResilientStockApi(scriptedApi, BACKOFF, OPEN_DURATION);
+        int capacity = api.getState().getAvailableRequests();
+
+        scriptedApi.mBatchCount = 4;
+        api.updateSymbols(createSymbols());
+        assertEquals(capacity - 4, api.getState().getAvailableRequests());
+        assertFalse(api.getState().isRateLimited());
+
+        scriptedApi.mBatchCount = capacity;
+        api.updateSymbols(createSymbols());
+        assertEquals(0, api.getState().getAvailableRequests());
+        assertTrue(api.getState().isRateLimited());
+
+        assertUpdateFails(api, StockApiRateLimitedException.class);
+        assertEquals(2, scriptedApi.mRequestCount);
+
+        // Look-ups have their own budget
+        api.searchSymbols("AA");
+        assertEquals(3, scriptedApi.mRequestCount);
+    }
+
+    /**
+     * Fails enough requests in a row to open the breaker.
+     * @param api Resilient stock API with closed breaker.
+     * @param scriptedApi Underlying stock API, left failing every request.
+     */
+    private static void openBreaker(ResilientStockApi api, ScriptedStockApi scriptedApi) {
+        scriptedApi.mDefaultError = new StockApiTransientException("Connection reset");
+
+        assertUpdateFails(api, StockApiTransientException.class);
+        assertUpdateFails(api, StockApiTransientException.class);
+
+        assertEquals(FAILURE_THRESHOLD, scriptedApi.mRequestCount);
+        assertEquals(ResilientStockApi.BREAKER_OPEN, api.getState().getBreakerState());
+    }
+
+    /**
+     * Checks that update fails with the given error.
+     * @param api Stock API to update symbols with.
+     * @param errorType Expected type of the error.
+     */
+    private static void assertUpdateFails(
+            ResilientStockApi api,
+            Class<? extends StockApiException> errorType) {
+        try {
+            api.updateSymbols(createSymbols());
+            fail(errorType.getSimpleName() + " is expected");
+        }
+        catch (StockApiException updateError) {
+            assertEquals(errorType, updateError.getClass());
+        }
+    }
+
+    /**
+     * Creates symbols to update.
+     * @return Symbol entities.
+     */
+    private static List<SymbolEntity> createSymbols() {
+        return new ArrayList<>(Arrays.asList(new SymbolEntity("AAPL"), new SymbolEntity("MSFT")));
+    }
+
+    /**
+     * Stock API that fails requests with the scripted errors.
+     */
+    private static final class ScriptedStockApi extends StockApiBase {
+        /**
+         * Errors of the next requests, NULL for successful request.
+         */
+        private final Queue<Exception> mErrors = new ArrayDeque<>();
+
+        /**
+         * Error of the requests after the scripted ones or NULL, if they succeed.
+         */
+        private volatile Exception mDefaultError;
+
+        /**
+         * Number of batches every quote update is split into.
+         */
+        private volatile int mBatchCount = 1;
+
+        /**
+         * Number of requests made.
+         */
+        private volatile int mRequestCount;
+
+        /**
+         * Creates new instance of the {@link ScriptedStockApi} class.
+         * @param errors Errors of the first requests, followed by successful ones.
+         */
+        ScriptedStockApi(Exception... errors) {
+            mErrors.addAll(Arrays.asList(errors));
+        }
+
+        /**
+         * Gets the configured number of batches.
+         * @param symbols Symbol entities to update.
+         * @return Number of requests.
+         */
+        @Override
+        public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+            return mBatchCount;
+        }
+
+        /**
+         * Fails with the next scripted error or reports no changes.
+         * @param symbols Symbol entities to update.
+         * @return Empty changes.
+         * @throws StockApiException Scripted error.
+         */
+        @Override
+        public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+            simulateRequest();
+            return new SymbolChanges();
+        }
+
+        /**
+         * Fails with the next scripted error or finds nothing.
+         * @param query Part of the symbol or company name.
+         * @return Empty list.
+         * @throws StockApiException Scripted error.
+         */
+        @Override
+        public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+            simulateRequest();
+            return new ArrayList<>();
+        }
+
+        /**
+         * Counts the request and throws the next scripted error, if any.
+         * @throws StockApiException Scripted error.
+         */
+        private void simulateRequest() throws StockApiException {
+            ++mRequestCount;
+
+            Exception error = mErrors.isEmpty() ? mDefaultError : mErrors.remove();
+
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+
+            if (error != null) {
+                throw (StockApiException) error;
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package ru.nahk.folio.stockapi;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link SseStreamingStockApi} against a local server that replays a recorded events stream,
+ * drops the connection and expects the stream to resume from the last event.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class SseStreamingStockApiTest {
+    /**
+     * Time to wait for a tick or connection in seconds.
+     */
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Reconnection delay the server requests in milliseconds.
+     */
+    private static final long RETRY_DELAY = 200;
+
+    /**
+     * Events sent over the first connection, after which the server drops it.
+     * Contains keep-alive comment, multi-line data, an event without a tick and a malformed event.
+     */
+    private static final String FIRST_STREAM =
+        ": connected\n"
+            + "retry: " + RETRY_DELAY + "\n"
+            + "\n"
+            + "id: 1\n"
+            + "data: {\"symbol\": \"AAPL\", \"price\": \"189.41\", \"time\": 1700000000, \"session\": \"regular\"}\n"
+            + "\n"
+            + ": keep-alive\n"
+            + "\n"
+            + "id: 2\n"
+            + "event: quote\n"
+            + "data: {\"symbol\": \"MSFT\",\n"
+            + "data:  \"price\": 370.5, \"time\": 1700000060, \"session\": \"post\"}\n"
+            + "\n"
+            + "id: 3\n"
+            + "data: {\"status\": \"heartbeat\"}\n"
+            + "\n"
+            + "data: {\"symbol\": \"AAPL\", \"price\": \"not a price\", \"time\": 1700000120}\n"
+            + "\n";
+
+    /**
+     * Events sent over the second connection, which is kept open.
+     * Contains pre-market event.
+     */
+    private static final String SECOND_STREAM =
+        "id: 4\r\n"
+            + "data: {\"symbol\": \"AAPL\", \"price\": \"189.50\", \"time\": 1700000180, \"session\": \"regular\"}\r\n"
+            + "\r\n"
+            + "id: 5\r\n"
+            + "data: {\"symbol\": \"MSFT\", \"price\": \"371.25\", \"time\": 1700000240, \"session\": \"pre\"}\r\n"
+            + "\r\n";
+
+    /**
+     * Local server that replays the recorded stream.
+     */
+    private ServerSocket mServerSocket;
+
+    /**
+     * Thread that serves the connections.
+     */
+    private Thread mServerThread;
+
+    /**
+     * Request headers of the accepted connections, request line first.
+     */
+    private final BlockingQueue<List<String>> mRequests = new LinkedBlockingQueue<>();
+
+    /**
+     * Time the first connection was dropped in nanoseconds.
+     */
+    private volatile long mDropTime;
+
+    /**
+     * Time the second connection was accepted in nanoseconds.
+     */
+    private volatile long mReconnectTime;
+
+    /**
+     * Signalled when the test no longer needs the second connection.
+     */
+    private final CountDownLatch mTestFinished = new CountDownLatch(1);
+
+    /**
+     * Received ticks.
+     */
+    private final BlockingQueue<QuoteTick> mTicks = new LinkedBlockingQueue<>();
+
+    /**
+     * Received errors.
+     */
+    private final BlockingQueue<StockApiException> mErrors = new LinkedBlockingQueue<>();
+
+    /**
+     * Starts the local server.
+     * @throws IOException Thrown if server socket cannot be opened.
+     */
+    @Before
+    public void startServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+
+        mServerThread = new Thread("sse-replay-server") {
+            @Override
+            public void run() {
+                try {
+                    try (Socket socket = mServerSocket.accept()) {
+                        mRequests.add(readRequest(socket));
+                        writeResponse(socket, FIRST_STREAM);
+
+                        // Taken before the connection is dropped, so the reconnection delay is not overestimated
+                        mDropTime = System.nanoTime();
+                    }
+
+                    try (Socket socket = mServerSocket.accept()) {
+                        mReconnectTime = System.nanoTime();
+                        mRequests.add(readRequest(socket));
+                        writeResponse(socket, SECOND_STREAM);
+
+                        mTestFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    }
+                }
+                catch (IOException | InterruptedException serverError) {
+                    // Test fails on missing requests or ticks
+                }
+            }
+        };
+
+        mServerThread.start();
+    }
+
+    /**
+     * Stops the local server.
+     * @throws Exception Thrown if server cannot be stopped.
+     */
+    @After
+    public void stopServer() throws Exception {
+        mTestFinished.countDown();
+        mServerSocket.close();
+        mServerThread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Checks that ticks are parsed from the recorded stream, the server-requested
+     * reconnection delay is honored and the stream resumes from the last event identifier.
+     * @throws Exception Thrown if test is interrupted.
+     */
+    @Test
+    public void replaysStreamAndResumesAfterReconnect() throws Exception {
+        SseStreamingStockApi api = new SseStreamingStockApi(
+            new FakeStockApi(1, 0, 0),
+            "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/stream?version=1");
+
+        StreamingStockApi.Subscription subscription = api.subscribe(
+            Arrays.asList("AAPL", "MSFT"),
+            new StreamingStockApi.Listener() {
+                @Override
+                public void onTick(QuoteTick tick) {
+                    mTicks.add(tick);
+                }
+
+                @Override
+                public void onError(StockApiException error) {
+                    mErrors.add(error);
+                }
+            });
+
+        try {
+            List<String> firstRequest = mRequests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(firstRequest);
+            assertTrue(firstRequest.get(0), firstRequest.get(0).startsWith("GET /stream?version=1&symbols=AAPL,MSFT "));
+            assertTrue(firstRequest.contains("Accept: text/event-stream"));
+            assertNull(getHeader(firstRequest, "Last-Event-ID"));
+
+            assertTick(mTicks.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), "AAPL", "189.41", 1700000000000L, false);
+            assertTick(mTicks.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), "MSFT", "370.5", 1700000060000L, true);
+
+            // Malformed event is reported without breaking the stream
+            assertNotNull(mErrors.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            List<String> secondRequest = mRequests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(secondRequest);
+            assertEquals("3", getHeader(secondRequest, "Last-Event-ID"));
+            assertTrue(
+                "Reconnected too early",
+                mReconnectTime - mDropTime >= TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY));
+
+            assertTick(mTicks.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), "AAPL", "189.50", 1700000180000L, false);
+
+            // Pre-market trade is an extended hours trade as well
+            assertTick(mTicks.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS), "MSFT", "371.25", 1700000240000L, true);
+        }
+        finally {
+            subscription.close();
+        }
+
+        // Dropped connection is not an error and closed subscription does not reconnect
+        assertTrue(mErrors.isEmpty());
+        assertTrue(mTicks.isEmpty());
+        assertNull(mRequests.poll(RETRY_DELAY * 2, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Checks tick values.
+     * @param tick Tick to check.
+     * @param symbol Expected stock symbol.
+     * @param price Expected price.
+     * @param time Expected time in milliseconds.
+     * @param isExtended Expected trading session.
+     */
+    private static void assertTick(QuoteTick tick, String symbol, String price, long time, boolean isExtended) {
+        assertNotNull(symbol, tick);
+        assertEquals(symbol, tick.symbol);
+        assertEquals(new BigDecimal(price), tick.price);
+        assertEquals(time, tick.time);
+        assertEquals(isExtended, tick.isExtended);
+    }
+
+    /**
+     * Reads request line and headers.
+     * @param socket Accepted connection.
+     * @return Request line followed by the headers.
+     * @throws IOException Thrown if request cannot be read.
+     */
+    private static List<String> readRequest(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            lines.add(line);
+        }
+
+        return lines;
+    }
+
+    /**
+     * Writes response headers and the events, leaving the connection open.
+     * @param socket Accepted connection.
+     * @param events Events to write.
+     * @throws IOException Thrown if response cannot be written.
+     */
+    private static void writeResponse(Socket socket, String events) throws IOException {
+        OutputStream output = socket.getOutputStream();
+
+        output.write((
+            "HTTP/1.1 200 OK\r\n"
+                + "Content-Type: text/event-stream; charset=utf-8\r\n"
+                + "Cache-Control: no-cache\r\n"
+                + "Connection: close\r\n"
+                + "\r\n"
+                + events).getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    /**
+     * Gets request header value.
+     * @param request Request line followed by the headers.
+     * @param name Header name.
+     * @return Header value or NULL, if header is missing.
+     */
+    private static String getHeader(List<String> request, String name) {
+        for (String line : request) {
+            int separatorIndex = line.indexOf(':');
+
+            if (separatorIndex > 0 && line.substring(0, separatorIndex).equalsIgnoreCase(name)) {
+                return line.substring(separatorIndex + 1).trim();
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,226 @@
+package ru.nahk.folio.stockapi;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import ru.nahk.folio.model.SymbolEntity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks routing and failover of {@link StockApiRegistry} between two fake providers.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class StockApiRegistryTest {
+    /**
+     * Time after which unhealthy provider is probed again in milliseconds.
+     */
+    private static final long PROBE_DELAY = 300;
+
+    /**
+     * Number of symbols requested by every update.
+     */
+    private static final int SYMBOL_COUNT = 6;
+
+    /**
+     * Checks that untried providers are tried in registration order, the fastest provider
+     * is preferred afterwards and its failed requests are served by the slower one.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void routeFollowsLatency() throws StockApiException {
+        FakeStockApi slowApi = new FakeStockApi(1, 40, 0);
+        FakeStockApi fastApi = new FakeStockApi(2, 5, 3);
+
+        StockApiRegistry registry = new StockApiRegistry(PROBE_DELAY);
+        registry.register("slow", slowApi);
+        registry.register("fast", fastApi);
+
+        // Both providers are untried, so registration order wins
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(1, slowApi.getRequestCount());
+        assertEquals(0, fastApi.getRequestCount());
+
+        // Untried provider goes before the one with known latency
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(1, slowApi.getRequestCount());
+        assertEquals(1, fastApi.getRequestCount());
+
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(1, slowApi.getRequestCount());
+        assertEquals(2, fastApi.getRequestCount());
+
+        // Every third request of the fast provider fails and is retried with the slow one
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(2, slowApi.getRequestCount());
+        assertEquals(3, fastApi.getRequestCount());
+
+        // Single failure does not make the fast provider unhealthy
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(2, slowApi.getRequestCount());
+        assertEquals(4, fastApi.getRequestCount());
+
+        List<StockApiRegistry.ProviderStats> stats = registry.getStats();
+        assertEquals("slow", stats.get(0).getName());
+        assertEquals("fast", stats.get(1).getName());
+        assertTrue(stats.get(1).getLatency() < stats.get(0).getLatency());
+        assertTrue(stats.get(1).getErrorRate() > 0);
+        assertEquals(0, stats.get(0).getErrorRate(), 0);
+        assertTrue(stats.get(0).isHealthy());
+        assertTrue(stats.get(1).isHealthy());
+    }
+
+    /**
+     * Checks that only the symbols of the failed batch are requested from the next provider.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void failedSymbolsAreHandedOff() throws StockApiException {
+        // Every second batch of two symbols fails, which are symbols 2 and 3
+        FakeStockApi primaryApi = new FakeStockApi(1, 0, 2, 2);
+        FakeStockApi secondaryApi = new FakeStockApi(2, 10, 0);
+
+        StockApiRegistry registry = new StockApiRegistry(PROBE_DELAY);
+        registry.register("primary", primaryApi);
+        registry.register("secondary", secondaryApi);
+
+        List<SymbolEntity> symbols = createSymbols();
+        assertUpdated(registry.updateSymbols(symbols));
+
+        assertEquals(3, primaryApi.getRequestCount());
+        assertEquals(1, secondaryApi.getRequestCount());
+
+        List<SymbolEntity> primarySymbols = createSymbols();
+        new FakeStockApi(1, 0, 0).updateSymbols(primarySymbols);
+
+        List<SymbolEntity> secondarySymbols = createSymbols();
+        new FakeStockApi(2, 0, 0).updateSymbols(secondarySymbols);
+
+        // Base price depends only on the seed and symbol, so it tells which provider served the symbol
+        for (int symbolIndex = 0; symbolIndex < SYMBOL_COUNT; ++symbolIndex) {
+            List<SymbolEntity> expectedSymbols =
+                symbolIndex == 2 || symbolIndex == 3 ? secondarySymbols : primarySymbols;
+
+            assertEquals(
+                symbols.get(symbolIndex).id,
+                expectedSymbols.get(symbolIndex).previousClosePrice,
+                symbols.get(symbolIndex).previousClosePrice);
+        }
+
+        // Partial result keeps the primary provider healthy and preferred
+        assertTrue(registry.getStats().get(0).isHealthy());
+        assertEquals(0, registry.getStats().get(0).getErrorRate(), 0);
+    }
+
+    /**
+     * Checks that symbols none of the providers could update are reported as failed,
+     * along with the changes made to the other symbols.
+     */
+    @Test
+    public void unservedSymbolsAreReported() {
+        FakeStockApi primaryApi = new FakeStockApi(1, 0, 2, 2);
+        FakeStockApi failingApi = new FakeStockApi(2, 10, 1);
+
+        StockApiRegistry registry = new StockApiRegistry(PROBE_DELAY);
+        registry.register("primary", primaryApi);
+        registry.register("failing", failingApi);
+
+        try {
+            registry.updateSymbols(createSymbols());
+            fail("Partial result is expected");
+        }
+        catch (StockApiPartialResultException partialResult) {
+            assertEquals(Arrays.asList(getSymbol(2), getSymbol(3)), partialResult.getFailedSymbols());
+            assertEquals(SYMBOL_COUNT - 2, partialResult.getChanges().getSymbols().size());
+            assertFalse(partialResult.getChanges().getSymbols().contains(getSymbol(2)));
+        }
+        catch (StockApiException updateError) {
+            fail("Partial result is expected, got " + updateError);
+        }
+
+        assertEquals(1, failingApi.getRequestCount());
+    }
+
+    /**
+     * Checks that provider is skipped after consecutive failures
+     * and probed again once the probe delay passes.
+     * @throws Exception Thrown if update fails or test is interrupted.
+     */
+    @Test
+    public void unhealthyProviderIsProbedAgain() throws Exception {
+        FakeStockApi failingApi = new FakeStockApi(1, 0, 1);
+        FakeStockApi backupApi = new FakeStockApi(2, 5, 0);
+
+        StockApiRegistry registry = new StockApiRegistry(PROBE_DELAY);
+        registry.register("failing", failingApi);
+        registry.register("backup", backupApi);
+
+        // Failing provider stays preferred until it fails three times in a row
+        for (int requestIndex = 1; requestIndex <= 3; ++requestIndex) {
+            assertUpdated(registry.updateSymbols(createSymbols()));
+            assertEquals(requestIndex, failingApi.getRequestCount());
+            assertEquals(requestIndex, backupApi.getRequestCount());
+        }
+
+        assertFalse(registry.getStats().get(0).isHealthy());
+
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(3, failingApi.getRequestCount());
+        assertEquals(4, backupApi.getRequestCount());
+
+        Thread.sleep(PROBE_DELAY);
+        assertTrue(registry.getStats().get(0).isHealthy());
+
+        // Probe fails, so provider is skipped for another probe delay
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(4, failingApi.getRequestCount());
+        assertEquals(5, backupApi.getRequestCount());
+
+        assertUpdated(registry.updateSymbols(createSymbols()));
+        assertEquals(4, failingApi.getRequestCount());
+        assertEquals(6, backupApi.getRequestCount());
+    }
+
+    /**
+     * Checks that all requested symbols were updated.
+     * @param changes Changes made by the update.
+     */
+    private static void assertUpdated(SymbolChanges changes) {
+        assertEquals(SYMBOL_COUNT, changes.getSymbols().size());
+    }
+
+    /**
+     * Creates symbols without market data.
+     * @return Symbol entities.
+     */
+    private static List<SymbolEntity> createSymbols() {
+        List<SymbolEntity> symbols = new ArrayList<>(SYMBOL_COUNT);
+
+        for (int symbolIndex = 0; symbolIndex < SYMBOL_COUNT; ++symbolIndex) {
+            symbols.add(new SymbolEntity(getSymbol(symbolIndex)));
+        }
+
+        return symbols;
+    }
+
+    /**
+     * Gets stock symbol.
+     * @param symbolIndex Index of the symbol.
+     * @return Stock symbol.
+     */
+    private static String getSymbol(int symbolIndex) {
+        return String.format(Locale.ROOT, "S%d", symbolIndex);
+    }
+}
@@ -0,0 +1,310 @@
+package ru.nahk.folio.stockapi;
+
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import ru.nahk.folio.Benchmark;
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.utils.CalendarHelper;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks streaming parsing of a 500-symbol quote response with {@link JsonReader}
+ * against reading the whole body into a string and parsing it into {@link JSONObject} tree.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class YahooQuoteParseBenchmark {
+    /**
+     * Number of quotes in the response.
+     */
+    private static final int SYMBOL_COUNT = 500;
+
+    /**
+     * Number of warm-up iterations.
+     */
+    private static final int WARMUP_ITERATIONS = 5;
+
+    /**
+     * Number of measured iterations.
+     */
+    private static final int ITERATIONS = 50;
+
+    /**
+     * Quote object with the full set of fields the quote API returns for an equity,
+     * with the symbol and prices replaced by placeholders.
+     * Most of the fields are skipped by the parser, as in real responses.
+     */
+    private static final String QUOTE_TEMPLATE =
+        "{\n"
+            + "  \"language\": \"en-US\",\n"
+            + "  \"region\": \"US\",\n"
+            + "  \"quoteType\": \"EQUITY\",\n"
+            + "  \"quoteSourceName\": \"Nasdaq Real Time Price\",\n"
+            + "  \"triggerable\": true,\n"
+            + "  \"currency\": \"USD\",\n"
+            + "  \"exchange\": \"NMS\",\n"
+            + "  \"shortName\": \"${symbol} Holdings, Inc.\",\n"
+            + "  \"longName\": \"${symbol} Holdings Incorporated\",\n"
+            + "  \"messageBoardId\": \"finmb_${symbol}\",\n"
+            + "  \"exchangeTimezoneName\": \"America/New_York\",\n"
+            + "  \"exchangeTimezoneShortName\": \"EDT\",\n"
+            + "  \"gmtOffSetMilliseconds\": -14400000,\n"
+            + "  \"market\": \"us_market\",\n"
+            + "  \"esgPopulated\": false,\n"
+            + "  \"marketState\": \"POST\",\n"
+            + "  \"priceHint\": 2,\n"
+            + "  \"postMarketChangePercent\": 0.0948,\n"
+            + "  \"postMarketTime\": 1539907196,\n"
+            + "  \"postMarketPrice\": ${price}.37,\n"
+            + "  \"postMarketChange\": 0.2,\n"
+            + "  \"regularMarketChange\": -4.9799957,\n"
+            + "  \"regularMarketChangePercent\": -2.3059895,\n"
+            + "  \"regularMarketTime\": 1539892801,\n"
+            + "  \"regularMarketPrice\": ${price}.17,\n"
+            + "  \"regularMarketDayHigh\": ${price}.89,\n"
+            + "  \"regularMarketDayRange\": \"${price}.06 - ${price}.89\",\n"
+            + "  \"regularMarketDayLow\": ${price}.06,\n"
+            + "  \"regularMarketVolume\": 32389769,\n"
+            + "  \"regularMarketPreviousClose\": ${price}.95,\n"
+            + "  \"bid\": ${price}.3,\n"
+            + "  \"ask\": ${price}.4,\n"
+            + "  \"bidSize\": 12,\n"
+            + "  \"askSize\": 10,\n"
+            + "  \"fullExchangeName\": \"NasdaqGS\",\n"
+            + "  \"financialCurrency\": \"USD\",\n"
+            + "  \"regularMarketOpen\": ${price}.54,\n"
+            + "  \"averageDailyVolume3Month\": 29286514,\n"
+            + "  \"averageDailyVolume10Day\": 33107912,\n"
+            + "  \"fiftyTwoWeekLowChange\": 55.869995,\n"
+            + "  \"fiftyTwoWeekLowChangePercent\": 0.3661812,\n"
+            + "  \"fiftyTwoWeekRange\": \"1${price}.3 - 2${price}.94\",\n"
+            + "  \"fiftyTwoWeekHighChange\": -21.770004,\n"
+            + "  \"fiftyTwoWeekHighChangePercent\": -0.09455027,\n"
+            + "  \"fiftyTwoWeekLow\": 1${price}.3,\n"
+            + "  \"fiftyTwoWeekHigh\": 2${price}.94,\n"
+            + "  \"dividendDate\": 1534377600,\n"
+            + "  \"earningsTimestamp\": 1541091600,\n"
+            + "  \"earningsTimestampStart\": 1541091600,\n"
+            + "  \"earningsTimestampEnd\": 1541091600,\n"
+            + "  \"trailingAnnualDividendRate\": 2.72,\n"
+            + "  \"trailingPE\": 19.945225,\n"
+            + "  \"trailingAnnualDividendYield\": 0.012591417,\n"
+            + "  \"epsTrailingTwelveMonths\": 10.48,\n"
+            + "  \"epsForward\": 13.47,\n"
+            + "  \"sharesOutstanding\": 4829929984,\n"
+            + "  \"bookValue\": 22.533,\n"
+            + "  \"fiftyDayAverage\": 220.73314,\n"
+            + "  \"fiftyDayAverageChange\": -11.323135,\n"
+            + "  \"fiftyDayAverageChangePercent\": -0.051298123,\n"
+            + "  \"twoHundredDayAverage\": 190.16457,\n"
+            + "  \"twoHundredDayAverageChange\": 19.245422,\n"
+            + "  \"twoHundredDayAverageChangePercent\": 0.10120491,\n"
+            + "  \"marketCap\": 1011402473472,\n"
+            + "  \"forwardPE\": 15.546399,\n"
+            + "  \"priceToBook\": 9.293436,\n"
+            + "  \"sourceInterval\": 15,\n"
+            + "  \"exchangeDataDelayedBy\": 0,\n"
+            + "  \"tradeable\": true,\n"
+            + "  \"firstTradeDateMilliseconds\": 345479400000,\n"
+            + "  \"symbol\": \"${symbol}\"\n"
+            + "}";
+
+    /**
+     * Response body with all quotes.
+     */
+    private static byte[] response;
+
+    /**
+     * Builds the response body.
+     */
+    @BeforeClass
+    public static void createResponse() {
+        StringBuilder body = new StringBuilder("{\"quoteResponse\":{\"result\":[");
+
+        for (int symbolIndex = 0; symbolIndex < SYMBOL_COUNT; ++symbolIndex) {
+            if (symbolIndex > 0) {
+                body.append(',');
+            }
+
+            body.append(
+                QUOTE_TEMPLATE
+                    .replace("${symbol}", getSymbol(symbolIndex))
+                    .replace("${price}", Integer.toString(10 + symbolIndex % 90)));
+        }
+
+        body.append("],\"error\":null}}");
+        response = body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Measures parsing of the response with both parsers and reports time and allocation savings.
+     * @throws Exception Thrown if benchmark fails.
+     */
+    @Test
+    public void parseQuoteResponse() throws Exception {
+        Benchmark.Result dom = Benchmark.run(
+            "StringBuilder + JSONObject, " + SYMBOL_COUNT + " quotes",
+            WARMUP_ITERATIONS,
+            ITERATIONS,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) throws IOException, JSONException {
+                    Map<String, SymbolEntity> symbolsMap = createSymbols();
+                    assertEquals(SYMBOL_COUNT, parseDom(symbolsMap));
+                }
+            });
+
+        Benchmark.Result streaming = Benchmark.run(
+            "JsonReader, " + SYMBOL_COUNT + " quotes",
+            WARMUP_ITERATIONS,
+            ITERATIONS,
+            new Benchmark.Operation() {
+                @Override
+                public void run(int iteration) throws IOException, StockApiException {
+                    Map<String, SymbolEntity> symbolsMap = createSymbols();
+                    SymbolChanges changes = new SymbolChanges();
+
+                    try (JsonReader reader = new JsonReader(
+                            new InputStreamReader(new ByteArrayInputStream(response), "UTF-8"))) {
+                        YahooFinanceApi.readQuoteResponse(reader, symbolsMap, changes);
+                    }
+
+                    assertEquals(SYMBOL_COUNT, changes.getSymbols().size());
+                }
+            });
+
+        Benchmark.report(String.format(
+            Locale.ROOT,
+            "Quote response parsing of %d bytes: p50 %.1fx faster, %d instead of %d bytes allocated",
+            response.length,
+            (double) dom.getMedian() / streaming.getMedian(),
+            streaming.getAllocatedBytes(),
+            dom.getAllocatedBytes()));
+    }
+
+    /**
+     * Creates symbols without market data for all quotes of the response.
+     * @return Symbols indexed by the stock symbol.
+     */
+    private static Map<String, SymbolEntity> createSymbols() {
+        Map<String, SymbolEntity> symbolsMap = new HashMap<>(SYMBOL_COUNT * 2);
+
+        for (int symbolIndex = 0; symbolIndex < SYMBOL_COUNT; ++symbolIndex) {
+            String symbol = getSymbol(symbolIndex);
+            symbolsMap.put(symbol, new SymbolEntity(symbol));
+        }
+
+        return symbolsMap;
+    }
+
+    /**
+     * Gets stock symbol of the quote.
+     * @param symbolIndex Index of the quote in the response.
+     * @return Stock symbol.
+     */
+    private static String getSymbol(int symbolIndex) {
+        return String.format(Locale.ROOT, "S%03d", symbolIndex);
+    }
+
+    /**
+     * Reads the whole response into a string line by line, parses it into {@link JSONObject} tree
+     * and updates the symbols from it, the way quote responses used to be parsed.
+     * @param symbolsMap Symbols to update indexed by the stock symbol.
+     * @return Number of updated symbols.
+     * @throws IOException Thrown if response cannot be read.
+     * @throws JSONException Thrown if response cannot be parsed.
+     */
+    private static int parseDom(Map<String, SymbolEntity> symbolsMap) throws IOException, JSONException {
+        StringBuilder body = new StringBuilder();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(response), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                body.append(line);
+                body.append(System.lineSeparator());
+            }
+        }
+
+        JSONArray quotes =
+            new JSONObject(body.toString())
+                .getJSONObject("quoteResponse")
+                .getJSONArray("result");
+
+        int updatedCount = 0;
+
+        for (int quoteIndex = 0; quoteIndex < quotes.length(); ++quoteIndex) {
+            JSONObject quote = quotes.getJSONObject(quoteIndex);
+            SymbolEntity symbol = symbolsMap.get(quote.getString("symbol"));
+
+            if (symbol == null) {
+                continue;
+            }
+
+            symbol.displayName = quote.optString("shortName", symbol.displayName);
+
+            if (quote.has("regularMarketTime")) {
+                long latestTime = TimeUnit.SECONDS.toMillis(quote.getLong("regularMarketTime"));
+
+                if (quote.has("regularMarketPrice")) {
+                    symbol.latestTime = symbol.closeTime = latestTime;
+                    symbol.latestPrice = symbol.closePrice =
+                        new BigDecimal(quote.getString("regularMarketPrice"));
+                }
+
+                if (quote.has("regularMarketOpen")) {
+                    symbol.openTime = CalendarHelper.atUtcTime(latestTime, 13, 30);
+                    symbol.openPrice = new BigDecimal(quote.getString("regularMarketOpen"));
+                }
+            }
+
+            if (quote.has("postMarketTime") && quote.has("postMarketPrice")) {
+                symbol.extendedTime = TimeUnit.SECONDS.toMillis(quote.getLong("postMarketTime"));
+                symbol.extendedPrice = new BigDecimal(quote.getString("postMarketPrice"));
+            }
+
+            if (quote.has("regularMarketPreviousClose")) {
+                symbol.previousClosePrice = new BigDecimal(quote.getString("regularMarketPreviousClose"));
+            }
+
+            if (quote.has("marketCap")) {
+                symbol.marketCap = new BigDecimal(quote.getString("marketCap"));
+            }
+
+            if (quote.has("regularMarketDayHigh") && quote.has("regularMarketDayLow")) {
+                symbol.dayHigh = new BigDecimal(quote.getString("regularMarketDayHigh"));
+                symbol.dayLow = new BigDecimal(quote.getString("regularMarketDayLow"));
+            }
+
+            if (quote.has("fiftyTwoWeekHigh") && quote.has("fiftyTwoWeekLow")) {
+                symbol.week52High = new BigDecimal(quote.getString("fiftyTwoWeekHigh"));
+                symbol.week52Low = new BigDecimal(quote.getString("fiftyTwoWeekLow"));
+            }
+
+            ++updatedCount;
+        }
+
+        return updatedCount;
+    }
+}
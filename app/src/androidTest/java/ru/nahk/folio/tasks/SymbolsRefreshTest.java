@@ -0,0 +1,176 @@
+package ru.nahk.folio.tasks;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioDatabaseRule;
+import ru.nahk.folio.model.PortfolioRepository;
+import ru.nahk.folio.model.PortfolioTree;
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.model.TestPortfolioDatabase;
+import ru.nahk.folio.stockapi.FakeStockApi;
+import ru.nahk.folio.stockapi.StockApiException;
+import ru.nahk.folio.stockapi.SymbolChanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that portfolio reads do not wait for the network phase of {@link SymbolsRefresh}.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class SymbolsRefreshTest {
+    /**
+     * Name of the test database file.
+     */
+    private static final String DATABASE_NAME = "folio-refresh-test-db";
+
+    /**
+     * Time the stock API request is held in flight at most in seconds.
+     */
+    private static final long FETCH_HOLD_SECONDS = 30;
+
+    /**
+     * Time reads are allowed to take while the request is in flight in seconds.
+     */
+    private static final long READ_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Database with the small test portfolio.
+     */
+    @Rule
+    public final PortfolioDatabaseRule mDatabaseRule =
+        new PortfolioDatabaseRule(DATABASE_NAME).withSmallPortfolio();
+
+    /**
+     * Portfolio database under test.
+     */
+    private PortfolioDatabase mDatabase;
+
+    /**
+     * Executor that runs the refresh.
+     */
+    private ExecutorService mExecutor;
+
+    /**
+     * Starts the refresh thread.
+     */
+    @Before
+    public void startExecutor() {
+        mDatabase = mDatabaseRule.getDatabase();
+        mExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Stops the refresh thread.
+     */
+    @After
+    public void stopExecutor() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Keeps the stock API request in flight and reloads the portfolio and lots meanwhile.
+     * @throws Exception Thrown if refresh or reads fail.
+     */
+    @Test
+    public void readsFinishWhileFetchIsInFlight() throws Exception {
+        final BlockingStockApi api = new BlockingStockApi();
+        final List<SymbolEntity> symbols = mDatabase.symbolDao().get();
+        PortfolioRepository repository = TestPortfolioDatabase.createRepository(mDatabase);
+        long positionId = TestPortfolioDatabase.getPositionIds(mDatabase).get(0);
+
+        Future<SymbolsRefresh> refresh = mExecutor.submit(new Callable<SymbolsRefresh>() {
+            @Override
+            public SymbolsRefresh call() throws StockApiException {
+                return SymbolsRefresh.run(mDatabase, api, symbols);
+            }
+        });
+
+        try {
+            assertTrue(
+                "Request did not start",
+                api.mRequestStarted.await(FETCH_HOLD_SECONDS, TimeUnit.SECONDS));
+
+            long readStartTime = System.nanoTime();
+
+            PortfolioTree portfolio = repository.reloadPortfolio();
+            assertNotNull(portfolio.getRoot());
+            assertEquals(5, mDatabase.lotDao().getLotsForPosition(positionId).size());
+
+            long readDuration = System.nanoTime() - readStartTime;
+
+            assertFalse("Refresh finished before the reads", refresh.isDone());
+            assertTrue(
+                "Reads took " + TimeUnit.NANOSECONDS.toMillis(readDuration) + " ms",
+                readDuration < TimeUnit.SECONDS.toNanos(READ_TIMEOUT_SECONDS));
+        }
+        finally {
+            api.mRequestReleased.countDown();
+        }
+
+        SymbolsRefresh result = refresh.get(FETCH_HOLD_SECONDS, TimeUnit.SECONDS);
+        assertEquals(symbols.size(), result.getUpdatedSymbols().size());
+    }
+
+    /**
+     * Fake stock API that holds every request in flight until it is released.
+     */
+    private static final class BlockingStockApi extends FakeStockApi {
+        /**
+         * Signalled when request reaches the stock API.
+         */
+        final CountDownLatch mRequestStarted = new CountDownLatch(1);
+
+        /**
+         * Releases requests held in flight.
+         */
+        final CountDownLatch mRequestReleased = new CountDownLatch(1);
+
+        /**
+         * Creates new instance of the {@link BlockingStockApi} class.
+         */
+        BlockingStockApi() {
+            super(1, 0, 0);
+        }
+
+        /**
+         * Waits until request is released and generates quotes.
+         * @param symbols Symbol entities to update.
+         * @return Changes made to the symbols.
+         * @throws StockApiException Thrown if quotes cannot be generated.
+         */
+        @Override
+        public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+            mRequestStarted.countDown();
+
+            try {
+                // Test fails on its own, if request is never released
+                mRequestReleased.await(FETCH_HOLD_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException interruptedError) {
+                Thread.currentThread().interrupt();
+            }
+
+            return super.updateSymbols(symbols);
+        }
+    }
+}
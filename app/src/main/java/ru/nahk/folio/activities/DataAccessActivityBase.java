@@ -3,6 +3,7 @@ package ru.nahk.folio.activities;
 import android.support.v7.app.AppCompatActivity;
 
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 
 /**
  * Base class for activities that require access to persisted data store.
@@ -15,4 +16,12 @@ public abstract class DataAccessActivityBase extends AppCompatActivity {
     protected PortfolioDatabase getDataStore() {
         return PortfolioDatabase.getInstance(getApplicationContext());
     }
+
+    /**
+     * Retrieves an instance of the shared portfolio repository.
+     * @return Instance of the shared portfolio repository.
+     */
+    protected PortfolioRepository getRepository() {
+        return PortfolioRepository.getInstance(getApplicationContext());
+    }
 }
@@ -29,6 +29,7 @@ import ru.nahk.folio.R;
 import ru.nahk.folio.controls.TextInputAutoCompleteTextView;
 import ru.nahk.folio.model.GroupDao;
 import ru.nahk.folio.model.GroupViewModel;
+import ru.nahk.folio.model.PortfolioRecord;
 import ru.nahk.folio.stockapi.StockApiFactory;
 import ru.nahk.folio.stockapi.SymbolInfo;
 import ru.nahk.folio.utils.ThemedResources;
@@ -64,6 +65,17 @@ public class GroupSwipeController extends ItemTouchHelper.Callback {
          * @param newName New name.
          */
         void renameGroup(GroupViewModel group, String newName);
+
+        /**
+         * Imports portfolio items from a document.
+         */
+        void importPortfolio();
+
+        /**
+         * Exports portfolio items to a document.
+         * @param format Format of the document.
+         */
+        void exportPortfolio(int format);
     }
 
     /**
@@ -329,6 +341,24 @@ public class GroupSwipeController extends ItemTouchHelper.Callback {
                     });
                 return true;
 
+            case R.id.import_portfolio:
+                if (mGroupActionsHandler != null) {
+                    mGroupActionsHandler.importPortfolio();
+                }
+                return true;
+
+            case R.id.export_portfolio_csv:
+                if (mGroupActionsHandler != null) {
+                    mGroupActionsHandler.exportPortfolio(PortfolioRecord.FORMAT_CSV);
+                }
+                return true;
+
+            case R.id.export_portfolio_json:
+                if (mGroupActionsHandler != null) {
+                    mGroupActionsHandler.exportPortfolio(PortfolioRecord.FORMAT_JSON);
+                }
+                return true;
+
             case R.id.about_app:
                 mContext.startActivity(new Intent(mContext, AboutActivity.class));
                 return true;
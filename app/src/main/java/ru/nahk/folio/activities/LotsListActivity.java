@@ -36,6 +36,8 @@ import ru.nahk.folio.tasks.SaveLotTask;
 import ru.nahk.folio.utils.BigDecimalHelper;
 import ru.nahk.folio.utils.CalendarHelper;
 import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ErrorMessages;
+import ru.nahk.folio.utils.Money;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -326,7 +328,10 @@ public class LotsListActivity
         Intent parentIntent = super.getParentActivityIntent();
 
         if (parentIntent != null && mLotsChanged) {
-            parentIntent.putExtra(ActivityNavigationConstants.FORCE_REFRESH_KEY, true);
+            parentIntent
+                .putExtra(ActivityNavigationConstants.FORCE_REFRESH_KEY, true)
+                .putExtra(ActivityNavigationConstants.POSITION_ID_KEY, mPositionId)
+                .putExtra(ActivityNavigationConstants.STOCK_SYMBOL_KEY, mStockSymbol);
         }
 
         return parentIntent;
@@ -350,13 +355,13 @@ public class LotsListActivity
                     item.quantity)
                 .putExtra(
                     ActivityNavigationConstants.STOCK_PURCHASE_PRICE_KEY,
-                    BigDecimalHelper.stripTrailingZeros(item.purchasePrice).toPlainString())
+                    BigDecimalHelper.stripTrailingZeros(Money.toBigDecimal(item.purchasePrice)).toPlainString())
                 .putExtra(
                     ActivityNavigationConstants.STOCK_PURCHASE_DATE_KEY,
                     CalendarHelper.toString(item.purchaseDate))
                 .putExtra(
                     ActivityNavigationConstants.STOCK_PURCHASE_COMMISSION_KEY,
-                    BigDecimalHelper.stripTrailingZeros(item.commission).toPlainString()),
+                    BigDecimalHelper.stripTrailingZeros(Money.toBigDecimal(item.commission)).toPlainString()),
             EditLotActivity.DEFAULT_REQUEST_CODE);
     }
 
@@ -467,7 +472,10 @@ public class LotsListActivity
      */
     @Override
     public void progressError(Exception error) {
-        Snackbar.make(findViewById(android.R.id.content), error.getMessage(), Snackbar.LENGTH_LONG)
+        Snackbar.make(
+                findViewById(android.R.id.content),
+                ErrorMessages.getMessage(this, error),
+                Snackbar.LENGTH_LONG)
             .show();
     }
 
@@ -9,14 +9,13 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.List;
 
 import ru.nahk.folio.R;
 import ru.nahk.folio.model.LotViewModel;
-import ru.nahk.folio.utils.BigDecimalHelper;
 import ru.nahk.folio.utils.CalendarHelper;
+import ru.nahk.folio.utils.Money;
 
 /**
  * {@link RecyclerView} adapter for position lot items view.
@@ -141,34 +140,34 @@ public class LotsListAdapter extends RecyclerView.Adapter<LotsListAdapter.LotIte
                     R.plurals.lot_shares_count_format,
                     item.quantity,
                     item.quantity,
-                    BigDecimalHelper.formatCurrency(item.purchasePrice)));
+                    Money.formatCurrency(item.purchasePrice)));
 
             mPurchaseDateView.setText(
                 CalendarHelper.toString(item.purchaseDate, DateFormat.MEDIUM));
 
             int valueChangeDirection = 0;
 
-            if (item.currentValue == null) {
+            if (!Money.isKnown(item.currentValue)) {
                 mCurrentValueView.setText(
                     itemView.getResources().getString(R.string.unknown_value));
                 mValueChangeView.setText(null);
             } else {
                 mCurrentValueView.setText(
-                    BigDecimalHelper.formatCurrency(item.currentValue));
+                    Money.formatCurrency(item.currentValue));
 
-                if (item.baseValue == null) {
+                if (!Money.isKnown(item.baseValue)) {
                     mValueChangeView.setText(null);
                 } else {
                     valueChangeDirection =
-                        item.currentValue.compareTo(item.baseValue);
+                        Money.compare(item.currentValue, item.baseValue);
 
-                    BigDecimal valueChange = item.currentValue.subtract(item.baseValue);
+                    long valueChange = Money.subtract(item.currentValue, item.baseValue);
 
                     mValueChangeView.setText(
                         String.format(
                             itemView.getContext().getString(R.string.extended_value_change_format),
-                            BigDecimalHelper.formatCurrencyChange(valueChange),
-                            BigDecimalHelper.formatPercentage(item.baseValue, valueChange)));
+                            Money.formatCurrencyChange(valueChange),
+                            Money.formatPercentage(item.baseValue, valueChange)));
                 }
             }
 
@@ -2,9 +2,11 @@ package ru.nahk.folio.activities;
 
 import android.content.ClipData;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.Snackbar;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.SwipeRefreshLayout;
@@ -13,20 +15,29 @@ import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.helper.ItemTouchHelper;
 import android.view.View;
 
+import java.util.Collections;
+import java.util.List;
+
 import ru.nahk.folio.R;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PortfolioItemViewModel;
+import ru.nahk.folio.model.PortfolioRecord;
 import ru.nahk.folio.model.PositionViewModel;
 import ru.nahk.folio.model.PositionsListItemViewModel;
 import ru.nahk.folio.tasks.AddGroupTask;
 import ru.nahk.folio.tasks.AddPositionTask;
 import ru.nahk.folio.tasks.DeletePositionsListItemTask;
+import ru.nahk.folio.tasks.ExportPortfolioTask;
+import ru.nahk.folio.tasks.ImportPortfolioTask;
 import ru.nahk.folio.tasks.LoadPortfolioTask;
 import ru.nahk.folio.tasks.MovePositionsListItemTask;
+import ru.nahk.folio.tasks.RefreshPortfolioItemsTask;
 import ru.nahk.folio.tasks.RefreshPortfolioSymbolsDataTask;
 import ru.nahk.folio.tasks.RefreshPositionsListTask;
 import ru.nahk.folio.tasks.RenameGroupTask;
+import ru.nahk.folio.tasks.TickCompactionJob;
 import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ErrorMessages;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -45,6 +56,31 @@ public class MainActivity
         MovePositionsListItemDragListener.OnPositionsListItemMovedListener,
         DeleteItemDragListener.OnItemDeletedListener<PositionsListItemViewModel> {
 
+    /**
+     * Request code to pick a document to import portfolio from.
+     */
+    private static final int IMPORT_PORTFOLIO_REQUEST_CODE = 1;
+
+    /**
+     * Request code to create a CSV document to export portfolio to.
+     */
+    private static final int EXPORT_PORTFOLIO_CSV_REQUEST_CODE = 2;
+
+    /**
+     * Request code to create a JSON document to export portfolio to.
+     */
+    private static final int EXPORT_PORTFOLIO_JSON_REQUEST_CODE = 3;
+
+    /**
+     * MIME types of the documents that can be imported.
+     */
+    private static final String[] IMPORT_MIME_TYPES = {
+        "text/csv",
+        "text/comma-separated-values",
+        "application/json",
+        "text/plain"
+    };
+
     /**
      * List control that displays portfolio positions and groups.
      */
@@ -95,10 +131,13 @@ public class MainActivity
         mSwipeRefresh = findViewById(R.id.swipe_refresh);
         mSwipeRefresh.setOnRefreshListener(this);
 
+        // Quote refreshes append price ticks, keep them downsampled in background
+        TickCompactionJob.schedule(getApplicationContext());
+
         // Kick-off the task to initialize list adapter
         new LoadPortfolioTask(
             this,
-            getDataStore(),
+            getRepository(),
             this,
             this,
             this,
@@ -124,7 +163,20 @@ public class MainActivity
 
             if (intent != null &&
                     intent.getBooleanExtra(ActivityNavigationConstants.FORCE_REFRESH_KEY, false)) {
-                onSymbolsDataChanged();
+                if (mAdapter != null
+                        && intent.hasExtra(ActivityNavigationConstants.POSITION_ID_KEY)) {
+                    // Only one position has changed, so update it in place
+                    new RefreshPortfolioItemsTask(
+                        this,
+                        getDataStore(),
+                        mAdapter,
+                        Collections.singletonList(
+                            intent.getStringExtra(ActivityNavigationConstants.STOCK_SYMBOL_KEY)),
+                        intent.getLongExtra(ActivityNavigationConstants.POSITION_ID_KEY, 0))
+                        .execute();
+                } else {
+                    onSymbolsDataChanged();
+                }
             }
         }
     }
@@ -148,11 +200,34 @@ public class MainActivity
     @Override
     void onSymbolsDataChanged() {
         if (mAdapter != null) {
-            new RefreshPositionsListTask(this, getDataStore(), mAdapter)
+            new RefreshPositionsListTask(this, getRepository(), mAdapter)
+                .execute();
+        }
+    }
+
+    /**
+     * Applies data of the changed symbols to the displayed portfolio.
+     * @param symbols Stock symbols which data has changed or NULL, if not known.
+     */
+    @Override
+    void onSymbolsDataChanged(List<String> symbols) {
+        if (symbols == null) {
+            onSymbolsDataChanged();
+        } else if (mAdapter != null) {
+            new RefreshPortfolioItemsTask(this, getDataStore(), mAdapter, symbols, null)
                 .execute();
         }
     }
 
+    /**
+     * Streams quotes for all portfolio symbols while portfolio is shown.
+     * @return Always true.
+     */
+    @Override
+    boolean isQuoteStreamingEnabled() {
+        return true;
+    }
+
     /**
      * Starts drag-and-drop for position list item.
      * @param item Positions list item view-model.
@@ -213,7 +288,7 @@ public class MainActivity
     public void addGroup(@NonNull GroupViewModel parentGroup, @NonNull String groupName) {
         new AddGroupTask(
             this,
-            getDataStore(),
+            getRepository(),
             mAdapter,
             parentGroup,
             groupName).execute();
@@ -229,7 +304,7 @@ public class MainActivity
         new AddPositionTask(
             this,
             this,
-            getDataStore(),
+            getRepository(),
             mAdapter,
             parentGroup,
             symbol).execute();
@@ -251,6 +326,92 @@ public class MainActivity
             newName).execute();
     }
 
+    /**
+     * Asks user to pick a document to import portfolio from.
+     */
+    @Override
+    public void importPortfolio() {
+        startActivityForResult(
+            new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                .addCategory(Intent.CATEGORY_OPENABLE)
+                .setType("*/*")
+                .putExtra(Intent.EXTRA_MIME_TYPES, IMPORT_MIME_TYPES),
+            IMPORT_PORTFOLIO_REQUEST_CODE);
+    }
+
+    /**
+     * Asks user to create a document to export portfolio to.
+     * @param format Format of the document.
+     */
+    @Override
+    public void exportPortfolio(int format) {
+        boolean isJson = format == PortfolioRecord.FORMAT_JSON;
+
+        startActivityForResult(
+            new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                .addCategory(Intent.CATEGORY_OPENABLE)
+                .setType(isJson ? "application/json" : "text/csv")
+                .putExtra(
+                    Intent.EXTRA_TITLE,
+                    getString(
+                        isJson
+                            ? R.string.export_portfolio_json_file_name
+                            : R.string.export_portfolio_csv_file_name)),
+            isJson ? EXPORT_PORTFOLIO_JSON_REQUEST_CODE : EXPORT_PORTFOLIO_CSV_REQUEST_CODE);
+    }
+
+    /**
+     * Imports or exports portfolio using the document picked by user.
+     * @param requestCode Request code.
+     * @param resultCode Activity result code.
+     * @param data Result data.
+     */
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+
+        Uri documentUri = data != null ? data.getData() : null;
+
+        if (resultCode != RESULT_OK || documentUri == null || mAdapter == null) {
+            return;
+        }
+
+        switch (requestCode) {
+            case IMPORT_PORTFOLIO_REQUEST_CODE:
+                new ImportPortfolioTask(
+                    this,
+                    this,
+                    getRepository(),
+                    mAdapter,
+                    documentUri,
+                    new Callback<Integer>() {
+                        @Override
+                        public void run(Integer lotCount) {
+                            showLotCountMessage(R.plurals.import_portfolio_completed_format, lotCount);
+                        }
+                    }).execute();
+                break;
+
+            case EXPORT_PORTFOLIO_CSV_REQUEST_CODE:
+            case EXPORT_PORTFOLIO_JSON_REQUEST_CODE:
+                new ExportPortfolioTask(
+                    this,
+                    this,
+                    getDataStore(),
+                    documentUri,
+                    requestCode == EXPORT_PORTFOLIO_JSON_REQUEST_CODE
+                        ? PortfolioRecord.FORMAT_JSON
+                        : PortfolioRecord.FORMAT_CSV,
+                    new Callback<Integer>() {
+                        @Override
+                        public void run(Integer lotCount) {
+                            showLotCountMessage(R.plurals.export_portfolio_completed_format, lotCount);
+                        }
+                    }).execute();
+                break;
+        }
+    }
+
     /**
      * Moves portfolio item to new parent.
      * @param item Item to move.
@@ -261,7 +422,7 @@ public class MainActivity
         new MovePositionsListItemTask(
             this,
             this,
-            getDataStore(),
+            getRepository(),
             mAdapter,
             item,
             targetGroup).execute();
@@ -276,7 +437,7 @@ public class MainActivity
         new DeletePositionsListItemTask(
             this,
             this,
-            getDataStore(),
+            getRepository(),
             mAdapter,
             item).execute();
     }
@@ -297,13 +458,29 @@ public class MainActivity
         mSwipeRefresh.setRefreshing(false);
     }
 
+    /**
+     * Shows message with the number of processed lots.
+     * @param pluralsResourceId Plurals resource identifier of the message format.
+     * @param lotCount Number of processed lots.
+     */
+    private void showLotCountMessage(int pluralsResourceId, int lotCount) {
+        Snackbar.make(
+                findViewById(android.R.id.content),
+                getResources().getQuantityString(pluralsResourceId, lotCount, lotCount),
+                Snackbar.LENGTH_LONG)
+            .show();
+    }
+
     /**
      * Handles errors during async operation.
      * @param error Exception from async operation.
      */
     @Override
     public void progressError(Exception error) {
-        Snackbar.make(findViewById(android.R.id.content), error.getMessage(), Snackbar.LENGTH_LONG)
+        Snackbar.make(
+                findViewById(android.R.id.content),
+                ErrorMessages.getMessage(this, error),
+                Snackbar.LENGTH_LONG)
             .show();
     }
 }
@@ -14,6 +14,7 @@ import ru.nahk.folio.model.PortfolioItemWidgetEntity;
 import ru.nahk.folio.tasks.AddPortfolioItemWidgetTask;
 import ru.nahk.folio.tasks.LoadExpandedPortfolioTask;
 import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ErrorMessages;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -155,7 +156,10 @@ public class PortfolioItemWidgetConfigureActivity
      */
     @Override
     public void progressError(Exception error) {
-        Snackbar.make(findViewById(android.R.id.content), error.getMessage(), Snackbar.LENGTH_LONG)
+        Snackbar.make(
+                findViewById(android.R.id.content),
+                ErrorMessages.getMessage(this, error),
+                Snackbar.LENGTH_LONG)
             .show();
     }
 }
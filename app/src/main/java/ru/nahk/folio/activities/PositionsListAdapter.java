@@ -17,16 +17,17 @@ import android.view.animation.DecelerateInterpolator;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.math.BigDecimal;
+import java.util.Collection;
 
 import ru.nahk.folio.R;
 import ru.nahk.folio.controls.LevelStripes;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PortfolioItemViewModel;
+import ru.nahk.folio.model.PortfolioTree;
 import ru.nahk.folio.model.PositionViewModel;
 import ru.nahk.folio.model.PositionsListItemViewModel;
-import ru.nahk.folio.utils.BigDecimalHelper;
 import ru.nahk.folio.utils.DynamicArray;
+import ru.nahk.folio.utils.Money;
 import ru.nahk.folio.utils.ThemedResources;
 
 /**
@@ -168,33 +169,33 @@ public class PositionsListAdapter
 
             int valueChangeDirection = 0;
 
-            if (item.currentValue == null) {
+            if (!Money.isKnown(item.currentValue)) {
                 mCurrentValueView.setText(getEmptyCurrentValueText());
                 mValueChangeView.setText(getEmptyValueChangeText());
             } else {
                 mCurrentValueView.setText(
-                    BigDecimalHelper.formatCurrency(item.currentValue));
+                    Money.formatCurrency(item.currentValue));
 
                 mShowExtendedInformation =
                     PositionsListAdapter.this.mRecyclerView != null
                         && (PositionsListAdapter.this.mRecyclerView.getWidth() /
                             itemView.getResources().getDimension(R.dimen.list_item_height)) > EXTENDED_INFO_RATIO;
 
-                if (item.baseValue == null) {
+                if (!Money.isKnown(item.baseValue)) {
                     mValueChangeView.setText(getEmptyValueChangeText());
                 } else {
                     valueChangeDirection =
-                        item.currentValue.compareTo(item.baseValue);
+                        Money.compare(item.currentValue, item.baseValue);
 
-                    BigDecimal valueChange = item.currentValue.subtract(item.baseValue);
+                    long valueChange = Money.subtract(item.currentValue, item.baseValue);
 
                     mValueChangeView.setText(
                         String.format(
                             itemView.getContext().getString(R.string.extended_value_change_format),
-                            BigDecimalHelper.formatCurrencyChange(valueChange),
+                            Money.formatCurrencyChange(valueChange),
                             mShowExtendedInformation
-                                ? BigDecimalHelper.formatPercentage(item.baseValue, valueChange)
-                                : BigDecimalHelper.formatPercentageShort(item.baseValue, valueChange)));
+                                ? Money.formatPercentage(item.baseValue, valueChange)
+                                : Money.formatPercentageShort(item.baseValue, valueChange)));
                 }
             }
 
@@ -415,9 +416,9 @@ public class PositionsListAdapter
 
             if (item.quantity > 0) {
                 int symbolValueChangeDirection = 0;
-                if (item.symbolValueChange != null) {
+                if (Money.isKnown(item.symbolValueChange)) {
                     symbolValueChangeDirection =
-                        item.symbolValueChange.compareTo(BigDecimal.ZERO);
+                        Money.compare(item.symbolValueChange, 0);
                 }
 
                 if (mShowExtendedInformation) {
@@ -472,12 +473,12 @@ public class PositionsListAdapter
             symbolView.setText(item.symbol);
 
             // Append current symbol value
-            if (item.symbolValue != null) {
+            if (Money.isKnown(item.symbolValue)) {
                 symbolView.append(
                     itemView.getResources().getString(R.string.extended_symbol_format_splitter));
 
                 Spannable symbolValue =
-                    new SpannableString(BigDecimalHelper.formatCurrency(item.symbolValue));
+                    new SpannableString(Money.formatCurrency(item.symbolValue));
                 symbolValue.setSpan(
                     new ForegroundColorSpan(
                         ThemedResources.getColor(
@@ -492,7 +493,7 @@ public class PositionsListAdapter
             }
 
             // Append current symbol value change
-            if (item.symbolValueChange != null) {
+            if (Money.isKnown(item.symbolValueChange)) {
                 symbolView.append(
                     itemView.getResources().getString(R.string.extended_symbol_format_splitter));
 
@@ -500,9 +501,9 @@ public class PositionsListAdapter
                     new SpannableString(
                         itemView.getResources().getString(
                             R.string.extended_value_change_format,
-                            BigDecimalHelper.formatCurrencyChange(item.symbolValueChange),
-                            BigDecimalHelper.formatPercentage(
-                                item.symbolValue.add(item.symbolValueChange),
+                            Money.formatCurrencyChange(item.symbolValueChange),
+                            Money.formatPercentage(
+                                Money.add(item.symbolValue, item.symbolValueChange),
                                 item.symbolValueChange)));
 
                 symbolValueChange.setSpan(
@@ -570,6 +571,11 @@ public class PositionsListAdapter
      */
     private DynamicArray<PositionsListItemViewModel> mVisibleItems;
 
+    /**
+     * Portfolio hierarchy that is displayed by the list.
+     */
+    private PortfolioTree mTree;
+
     /**
      * Listener for item long click events.
      */
@@ -590,6 +596,7 @@ public class PositionsListAdapter
      */
     public PositionsListAdapter() {
         mVisibleItems = new DynamicArray<>();
+        mTree = new PortfolioTree(null);
     }
 
     /**
@@ -762,11 +769,42 @@ public class PositionsListAdapter
     }
 
     /**
-     * Sets the underlying list items buffer to the given root positions group.
+     * Notifies the list about value changes of the given items.
+     * Items that are not visible are skipped.
+     * @param items Items which values have changed.
+     */
+    public void notifyItemsChanged(Collection<PositionsListItemViewModel> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        for (int itemIndex = 0; itemIndex < mVisibleItems.size(); ++itemIndex) {
+            if (items.contains(mVisibleItems.get(itemIndex))) {
+                notifyItemChanged(itemIndex);
+            }
+        }
+    }
+
+    /**
+     * Gets portfolio hierarchy that is displayed by the list.
+     * Hierarchy is read while binding items, so changes have to be applied to it
+     * and reported with {@link #notifyItemsChanged(Collection)} from the UI thread.
+     * @return Portfolio hierarchy.
+     */
+    public PortfolioTree getTree() {
+        return mTree;
+    }
+
+    /**
+     * Sets the underlying list items buffer to the root group of the given portfolio.
      * If this method is called after initial binding, then {@code notifyDataSetChanged()}
      * has to be called explicitly from the UI thread.
+     * @param tree Portfolio hierarchy to display.
      */
-    public void setData(GroupViewModel root) {
+    public void setData(PortfolioTree tree) {
+        GroupViewModel root = tree.getRoot();
+
+        mTree = tree;
         mVisibleItems.clear();
         mVisibleItems.add(root);
 
@@ -12,14 +12,20 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import java.math.BigDecimal;
-import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import ru.nahk.folio.R;
+import ru.nahk.folio.controls.PriceChart;
+import ru.nahk.folio.model.CandleEntity;
 import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.tasks.LoadPriceHistoryTask;
 import ru.nahk.folio.tasks.LoadSymbolDetailsTask;
 import ru.nahk.folio.tasks.RefreshSymbolDataTask;
 import ru.nahk.folio.utils.BigDecimalHelper;
 import ru.nahk.folio.utils.CalendarHelper;
+import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ErrorMessages;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -33,6 +39,11 @@ public class SymbolDetailsActivity
         SwipeRefreshLayout.OnRefreshListener,
         SymbolDetailsPresenter {
 
+    /**
+     * Length of the displayed price history in milliseconds.
+     */
+    private static final long PRICE_HISTORY_LENGTH = TimeUnit.DAYS.toMillis(365);
+
     /**
      * Layout control that enables swipe-to-refresh functionality.
      */
@@ -168,6 +179,16 @@ public class SymbolDetailsActivity
      */
     private TextView mWeek52LowView;
 
+    /**
+     * Control that groups all price history controls.
+     */
+    private ViewGroup mPriceHistoryTile;
+
+    /**
+     * Control that displays price history chart.
+     */
+    private PriceChart mPriceHistoryChart;
+
     /**
      * Identifier of the parent position.
      */
@@ -234,6 +255,9 @@ public class SymbolDetailsActivity
         mWeek52HighView = findViewById(R.id.week_52_high);
         mWeek52LowView = findViewById(R.id.week_52_low);
 
+        mPriceHistoryTile = findViewById(R.id.price_history_tile);
+        mPriceHistoryChart = findViewById(R.id.price_history_chart);
+
         mSwipeRefresh = findViewById(R.id.swipe_refresh);
         mSwipeRefresh.setOnRefreshListener(this);
 
@@ -243,6 +267,8 @@ public class SymbolDetailsActivity
             mStockSymbol,
             getDataStore().symbolDao(),
             this).execute();
+
+        loadPriceHistory();
     }
 
     /**
@@ -284,6 +310,7 @@ public class SymbolDetailsActivity
             }
 
             onSymbolsDataChanged();
+            loadPriceHistory();
         }
     }
 
@@ -472,7 +499,7 @@ public class SymbolDetailsActivity
      * @param timeView Control to display time.
      * @param priceValue Price value.
      * @param baseValue Base price value.
-     * @param timeValue Time value.
+     * @param timeValue Time value as epoch time in milliseconds.
      */
     private void setPriceChangeAndTime(
         TextView priceView,
@@ -480,7 +507,7 @@ public class SymbolDetailsActivity
         TextView timeView,
         BigDecimal priceValue,
         BigDecimal baseValue,
-        Calendar timeValue) {
+        Long timeValue) {
 
         setPrice(priceView, priceValue);
 
@@ -538,8 +565,33 @@ public class SymbolDetailsActivity
             this,
             this,
             mStockSymbol,
-            getDataStore().symbolDao(),
+            getDataStore(),
             this).execute();
+
+        loadPriceHistory();
+    }
+
+    /**
+     * Loads daily price history of the symbol and displays it on the chart.
+     * Only candles that weren't requested before are fetched from the stock API.
+     */
+    private void loadPriceHistory() {
+        long endTime = System.currentTimeMillis();
+
+        new LoadPriceHistoryTask(
+            this,
+            mStockSymbol,
+            endTime - PRICE_HISTORY_LENGTH,
+            endTime,
+            CandleEntity.INTERVAL_DAY,
+            getDataStore(),
+            new Callback<List<CandleEntity>>() {
+                @Override
+                public void run(List<CandleEntity> candles) {
+                    mPriceHistoryTile.setVisibility(candles.size() > 1 ? View.VISIBLE : View.GONE);
+                    mPriceHistoryChart.setCandles(candles);
+                }
+            }).execute();
     }
 
     /**
@@ -554,6 +606,24 @@ public class SymbolDetailsActivity
             this).execute();
     }
 
+    /**
+     * Streams quotes for the displayed symbol.
+     * @return Always true.
+     */
+    @Override
+    boolean isQuoteStreamingEnabled() {
+        return true;
+    }
+
+    /**
+     * Gets displayed stock symbol.
+     * @return Displayed stock symbol.
+     */
+    @Override
+    String getStreamedSymbol() {
+        return mStockSymbol;
+    }
+
     /**
      * Handles start of the async operation.
      */
@@ -576,7 +646,10 @@ public class SymbolDetailsActivity
      */
     @Override
     public void progressError(Exception error) {
-        Snackbar.make(findViewById(android.R.id.content), error.getMessage(), Snackbar.LENGTH_LONG)
+        Snackbar.make(
+                findViewById(android.R.id.content),
+                ErrorMessages.getMessage(this, error),
+                Snackbar.LENGTH_LONG)
             .show();
     }
 }
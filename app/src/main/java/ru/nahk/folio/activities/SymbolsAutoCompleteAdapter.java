@@ -1,6 +1,9 @@
 package ru.nahk.folio.activities;
 
 import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -11,7 +14,9 @@ import android.widget.Filterable;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import ru.nahk.folio.R;
 import ru.nahk.folio.stockapi.StockApi;
@@ -22,6 +27,11 @@ import ru.nahk.folio.stockapi.SymbolInfo;
  * List adapter for symbols auto-complete text editor.
  */
 final class SymbolsAutoCompleteAdapter extends BaseAdapter implements Filterable {
+    /**
+     * Delay after the last query change before searching remotely in milliseconds.
+     */
+    private static final long REMOTE_SEARCH_DELAY = 300;
+
     /**
      * Current activity context.
      */
@@ -42,6 +52,26 @@ final class SymbolsAutoCompleteAdapter extends BaseAdapter implements Filterable
      */
     private List<SymbolInfo> mSymbols;
 
+    /**
+     * Cache of the search results.
+     */
+    private final SymbolsSearchCache mSearchCache = new SymbolsSearchCache();
+
+    /**
+     * Main thread handler to debounce remote searches.
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Scheduled remote search.
+     */
+    private Runnable mPendingRemoteSearch;
+
+    /**
+     * Normalized query of the currently displayed results.
+     */
+    private String mCurrentQuery;
+
     /**
      * Creates a new instance of the {@link SymbolsAutoCompleteAdapter} class
      * with the provided context and stock API.
@@ -139,28 +169,118 @@ final class SymbolsAutoCompleteAdapter extends BaseAdapter implements Filterable
         return mFilter;
     }
 
+    /**
+     * Schedules remote search, replacing the one that is not started yet.
+     * Must be called on the main thread.
+     * @param query Normalized search query.
+     * @param localSymbols Symbols found locally for the query.
+     */
+    private void scheduleRemoteSearch(final String query, final List<SymbolInfo> localSymbols) {
+        if (mPendingRemoteSearch != null) {
+            mHandler.removeCallbacks(mPendingRemoteSearch);
+        }
+
+        mPendingRemoteSearch = new Runnable() {
+            @Override
+            public void run() {
+                mPendingRemoteSearch = null;
+
+                AsyncTask.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        searchRemotely(query, localSymbols);
+                    }
+                });
+            }
+        };
+
+        mHandler.postDelayed(mPendingRemoteSearch, REMOTE_SEARCH_DELAY);
+    }
+
+    /**
+     * Searches for symbols remotely, merges them with local results and
+     * updates the list, if query has not changed in the meantime.
+     * @param query Normalized search query.
+     * @param localSymbols Symbols found locally for the query.
+     */
+    private void searchRemotely(final String query, List<SymbolInfo> localSymbols) {
+        List<SymbolInfo> remoteSymbols;
+
+        try {
+            remoteSymbols = mStockApi.searchSymbols(query);
+        } catch (StockApiException apiError) {
+            // Auto-complete is best effort only, keep local results
+            return;
+        }
+
+        final List<SymbolInfo> mergedSymbols = new ArrayList<>(localSymbols);
+        Set<String> knownSymbols = new HashSet<>();
+
+        for (SymbolInfo symbol : localSymbols) {
+            knownSymbols.add(symbol.symbol);
+        }
+
+        for (SymbolInfo symbol : remoteSymbols) {
+            if (knownSymbols.add(symbol.symbol)) {
+                mergedSymbols.add(symbol);
+            }
+        }
+
+        mSearchCache.put(query, localSymbols, mergedSymbols);
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (query.equals(mCurrentQuery)) {
+                    mSymbols = mergedSymbols;
+                    notifyDataSetChanged();
+                }
+            }
+        });
+    }
+
     /**
      * Symbols search filter.
      */
     private class SymbolsFilter extends Filter {
         /**
-         * Performs {@link StockApi} query to find matching symbols.
+         * Looks up cached results or finds matching symbols locally, using cached local results
+         * of a shorter query where possible, and schedules remote search to complement them.
          * @param constraint Search constraint.
          * @return Symbols filtering results.
          */
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
             List<SymbolInfo> matchingSymbols;
+            final String query = constraint == null ? "" : SymbolsSearchCache.normalize(constraint);
 
-            if (constraint == null || constraint.length() < 1) {
+            if (query.isEmpty()) {
                 matchingSymbols = new ArrayList<>();
             }
             else {
-                try {
-                    matchingSymbols = mStockApi.findSymbols(mContext, constraint.toString());
-                } catch (StockApiException apiError) {
-                    // Auto-complete is best effort only
-                    matchingSymbols = new ArrayList<>();
+                matchingSymbols = mSearchCache.get(query);
+
+                if (matchingSymbols == null) {
+                    matchingSymbols = mSearchCache.getLocal(query);
+
+                    if (matchingSymbols == null) {
+                        try {
+                            matchingSymbols = mStockApi.findSymbols(mContext, query);
+                            mSearchCache.putLocal(query, matchingSymbols);
+                        } catch (StockApiException apiError) {
+                            // Auto-complete is best effort only
+                            matchingSymbols = new ArrayList<>();
+                        }
+                    }
+
+                    // Remote results of a shorter query are ranked and limited for that query only
+                    final List<SymbolInfo> localSymbols = matchingSymbols;
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            scheduleRemoteSearch(query, localSymbols);
+                        }
+                    });
                 }
             }
 
@@ -180,6 +300,7 @@ final class SymbolsAutoCompleteAdapter extends BaseAdapter implements Filterable
         protected void publishResults(CharSequence constraint, FilterResults results) {
             //noinspection unchecked
             mSymbols = (List<SymbolInfo>) results.values;
+            mCurrentQuery = constraint == null ? "" : SymbolsSearchCache.normalize(constraint);
 
             if (results.count > 0) {
                 notifyDataSetChanged();
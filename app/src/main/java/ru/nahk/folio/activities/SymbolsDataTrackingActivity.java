@@ -8,7 +8,12 @@ import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.content.LocalBroadcastManager;
 
+import java.util.List;
+
 import ru.nahk.folio.broadcasts.SymbolsDataChangedBroadcast;
+import ru.nahk.folio.stockapi.StockApiFactory;
+import ru.nahk.folio.stockapi.StreamingStockApi;
+import ru.nahk.folio.tasks.QuoteStreamSession;
 
 /**
  * Base class for all activities that are interested in symbols data changes.
@@ -19,6 +24,11 @@ abstract class SymbolsDataTrackingActivity extends DataAccessActivityBase {
      */
     private BroadcastReceiver mSymbolsDataChangedReceiver;
 
+    /**
+     * Quotes streaming session while activity is in foreground.
+     */
+    private QuoteStreamSession mQuoteStreamSession;
+
     /**
      * Subscribes to local notifications.
      * @param savedInstanceState Previous activity state.
@@ -30,7 +40,7 @@ abstract class SymbolsDataTrackingActivity extends DataAccessActivityBase {
         mSymbolsDataChangedReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                onSymbolsDataChanged();
+                onSymbolsDataChanged(SymbolsDataChangedBroadcast.getSymbols(intent));
             }
         };
 
@@ -41,6 +51,35 @@ abstract class SymbolsDataTrackingActivity extends DataAccessActivityBase {
                 new IntentFilter(SymbolsDataChangedBroadcast.ACTION_NAME));
     }
 
+    /**
+     * Starts streaming quotes, if activity requests it and streaming is available.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        StreamingStockApi streamingApi = StockApiFactory.getStreamingApi();
+
+        if (streamingApi != null && isQuoteStreamingEnabled()) {
+            mQuoteStreamSession =
+                new QuoteStreamSession(this, getDataStore(), streamingApi, getStreamedSymbol());
+            mQuoteStreamSession.start();
+        }
+    }
+
+    /**
+     * Stops streaming quotes when activity leaves foreground.
+     */
+    @Override
+    protected void onPause() {
+        if (mQuoteStreamSession != null) {
+            mQuoteStreamSession.stop();
+            mQuoteStreamSession = null;
+        }
+
+        super.onPause();
+    }
+
     /**
      * Unsubscribe from all notifications.
      */
@@ -56,4 +95,29 @@ abstract class SymbolsDataTrackingActivity extends DataAccessActivityBase {
      * Handles symbols data change notifications.
      */
     abstract void onSymbolsDataChanged();
+
+    /**
+     * Handles notifications about data changes of the specific symbols.
+     * Reloads all data by default.
+     * @param symbols Stock symbols which data has changed or NULL, if not known.
+     */
+    void onSymbolsDataChanged(List<String> symbols) {
+        onSymbolsDataChanged();
+    }
+
+    /**
+     * Checks whether activity should receive streamed quotes while in foreground.
+     * @return True to stream quotes, otherwise false.
+     */
+    boolean isQuoteStreamingEnabled() {
+        return false;
+    }
+
+    /**
+     * Gets stock symbol to stream quotes for.
+     * @return Stock symbol or null to stream quotes for all portfolio symbols.
+     */
+    String getStreamedSymbol() {
+        return null;
+    }
 }
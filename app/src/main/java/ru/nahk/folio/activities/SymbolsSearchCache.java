@@ -0,0 +1,270 @@
+package ru.nahk.folio.activities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ru.nahk.folio.stockapi.StockApi;
+import ru.nahk.folio.stockapi.SymbolInfo;
+
+/**
+ * Bounded cache of the symbols search results.
+ * Local results of a query that extends a cached query with complete local results
+ * are found by filtering and re-ranking the cached ones. Merged local and remote results
+ * are only known for the exact query, as remote search matches and ranks symbols on its own.
+ */
+final class SymbolsSearchCache {
+    /**
+     * Maximum number of cached queries.
+     */
+    private static final int MAX_ENTRIES = 64;
+
+    /**
+     * Rank of the symbol which ticker starts with the query.
+     */
+    private static final int RANK_TICKER_PREFIX = 0;
+
+    /**
+     * Rank of the symbol which company name has a word starting with the query.
+     */
+    private static final int RANK_WORD_PREFIX = 1;
+
+    /**
+     * Rank of the symbol which ticker or company name contains the query.
+     */
+    private static final int RANK_SUBSTRING = 2;
+
+    /**
+     * Search results indexed by the normalized query in access order.
+     */
+    private final Map<String, Entry> mEntries =
+        new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    /**
+     * Normalizes search query to be used as a cache key.
+     * @param query Search query.
+     * @return Normalized search query.
+     */
+    static String normalize(CharSequence query) {
+        return query.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets cached local and remote results for the query.
+     * @param query Normalized search query.
+     * @return Merged search results or null, if remote search was not made for the query.
+     */
+    synchronized List<SymbolInfo> get(String query) {
+        Entry entry = mEntries.get(query);
+        return entry != null ? entry.mSymbols : null;
+    }
+
+    /**
+     * Gets cached local results for the query.
+     * @param query Normalized search query.
+     * @return Local search results or null, if results are not known.
+     */
+    synchronized List<SymbolInfo> getLocal(String query) {
+        Entry entry = mEntries.get(query);
+
+        if (entry != null) {
+            return entry.mLocalSymbols;
+        }
+
+        // Longer query can only narrow down complete local results of its prefix
+        for (int prefixLength = query.length() - 1; prefixLength > 0; --prefixLength) {
+            Entry prefixEntry = mEntries.get(query.substring(0, prefixLength));
+
+            if (prefixEntry != null && !prefixEntry.mIsLocalTruncated) {
+                List<SymbolInfo> localSymbols = filter(prefixEntry.mLocalSymbols, query);
+                mEntries.put(query, new Entry(localSymbols, null));
+                return localSymbols;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Caches local search results, unless results for the query are already known.
+     * @param query Normalized search query.
+     * @param localSymbols Local search results.
+     */
+    synchronized void putLocal(String query, List<SymbolInfo> localSymbols) {
+        if (!mEntries.containsKey(query)) {
+            mEntries.put(query, new Entry(localSymbols, null));
+        }
+    }
+
+    /**
+     * Caches merged local and remote search results.
+     * @param query Normalized search query.
+     * @param localSymbols Local search results.
+     * @param symbols Merged search results.
+     */
+    synchronized void put(String query, List<SymbolInfo> localSymbols, List<SymbolInfo> symbols) {
+        mEntries.put(query, new Entry(localSymbols, symbols));
+    }
+
+    /**
+     * Selects symbols with ticker or company name containing the query and ranks them
+     * the same way local index does: ticker prefix matches, company name word prefix
+     * matches and then other matches, each in alphabetical order.
+     * @param symbols Symbols to filter.
+     * @param query Normalized search query.
+     * @return Ranked matching symbols.
+     */
+    private static List<SymbolInfo> filter(List<SymbolInfo> symbols, String query) {
+        List<Match> matches = new ArrayList<>(symbols.size());
+
+        for (SymbolInfo symbol : symbols) {
+            String ticker = symbol.symbol.toUpperCase(Locale.ROOT);
+            String companyName =
+                symbol.companyName == null ? "" : symbol.companyName.toUpperCase(Locale.ROOT);
+
+            if (ticker.startsWith(query)) {
+                matches.add(new Match(symbol, RANK_TICKER_PREFIX, ticker, ticker));
+                continue;
+            }
+
+            String word = findWordPrefix(companyName, query);
+
+            if (word != null) {
+                matches.add(new Match(symbol, RANK_WORD_PREFIX, word, ticker));
+            } else if (ticker.contains(query) || companyName.contains(query)) {
+                matches.add(new Match(symbol, RANK_SUBSTRING, ticker, ticker));
+            }
+        }
+
+        Collections.sort(matches, new Comparator<Match>() {
+            @Override
+            public int compare(Match left, Match right) {
+                if (left.mRank != right.mRank) {
+                    return left.mRank - right.mRank;
+                }
+
+                int result = left.mSortKey.compareTo(right.mSortKey);
+                return result != 0 ? result : left.mTicker.compareTo(right.mTicker);
+            }
+        });
+
+        List<SymbolInfo> result = new ArrayList<>(matches.size());
+
+        for (Match match : matches) {
+            result.add(match.mSymbol);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the first in alphabetical order word of the company name that starts with the query.
+     * Words are split on characters other than letters and digits, same as in the local index.
+     * @param companyName Normalized company name.
+     * @param query Normalized search query.
+     * @return Matching word or null, if no word starts with the query.
+     */
+    private static String findWordPrefix(String companyName, String query) {
+        String result = null;
+        int wordStart = -1;
+
+        for (int charIndex = 0; charIndex <= companyName.length(); ++charIndex) {
+            boolean isWordChar =
+                charIndex < companyName.length()
+                    && Character.isLetterOrDigit(companyName.charAt(charIndex));
+
+            if (isWordChar && wordStart < 0) {
+                wordStart = charIndex;
+            } else if (!isWordChar && wordStart >= 0) {
+                String word = companyName.substring(wordStart, charIndex);
+
+                if (word.startsWith(query) && (result == null || word.compareTo(result) < 0)) {
+                    result = word;
+                }
+
+                wordStart = -1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Cached search results.
+     */
+    private static final class Entry {
+        /**
+         * Local search results.
+         */
+        private final List<SymbolInfo> mLocalSymbols;
+
+        /**
+         * Indicates whether local search results were limited.
+         */
+        private final boolean mIsLocalTruncated;
+
+        /**
+         * Merged local and remote search results or null, if remote search was not made.
+         */
+        private final List<SymbolInfo> mSymbols;
+
+        /**
+         * Creates new instance of the {@link Entry} class.
+         * @param localSymbols Local search results.
+         * @param symbols Merged local and remote search results or null, if remote search was not made.
+         */
+        Entry(List<SymbolInfo> localSymbols, List<SymbolInfo> symbols) {
+            mLocalSymbols = localSymbols;
+            mIsLocalTruncated = localSymbols.size() >= StockApi.MAX_SEARCH_RESULTS;
+            mSymbols = symbols;
+        }
+    }
+
+    /**
+     * Symbol matching the narrowed query.
+     */
+    private static final class Match {
+        /**
+         * Matching symbol.
+         */
+        private final SymbolInfo mSymbol;
+
+        /**
+         * Rank of the match.
+         */
+        private final int mRank;
+
+        /**
+         * Key to order matches of the same rank.
+         */
+        private final String mSortKey;
+
+        /**
+         * Normalized ticker to order matches with the same key.
+         */
+        private final String mTicker;
+
+        /**
+         * Creates new instance of the {@link Match} class.
+         * @param symbol Matching symbol.
+         * @param rank Rank of the match.
+         * @param sortKey Key to order matches of the same rank.
+         * @param ticker Normalized ticker to order matches with the same key.
+         */
+        Match(SymbolInfo symbol, int rank, String sortKey, String ticker) {
+            mSymbol = symbol;
+            mRank = rank;
+            mSortKey = sortKey;
+            mTicker = ticker;
+        }
+    }
+}
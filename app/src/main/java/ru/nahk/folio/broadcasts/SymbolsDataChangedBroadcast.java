@@ -4,6 +4,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.support.v4.content.LocalBroadcastManager;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Local broadcast to notify about symbols data changes.
  */
@@ -13,6 +16,11 @@ public final class SymbolsDataChangedBroadcast {
      */
     public static final String ACTION_NAME = "symbols-data-changed";
 
+    /**
+     * Name of the intent extra with the list of changed stock symbols.
+     */
+    private static final String SYMBOLS_EXTRA = "symbols";
+
     /**
      * Sends the broadcast.
      * @param context Activity or application context.
@@ -20,4 +28,23 @@ public final class SymbolsDataChangedBroadcast {
     public static void send(Context context) {
         LocalBroadcastManager.getInstance(context).sendBroadcast(new Intent(ACTION_NAME));
     }
+
+    /**
+     * Sends the broadcast about changes of the given symbols.
+     * @param context Activity or application context.
+     * @param symbols Stock symbols which data has changed.
+     */
+    public static void send(Context context, ArrayList<String> symbols) {
+        LocalBroadcastManager.getInstance(context)
+            .sendBroadcast(new Intent(ACTION_NAME).putStringArrayListExtra(SYMBOLS_EXTRA, symbols));
+    }
+
+    /**
+     * Gets stock symbols which data has changed.
+     * @param intent Received broadcast intent.
+     * @return Changed stock symbols or NULL, if any symbol could have changed.
+     */
+    public static List<String> getSymbols(Intent intent) {
+        return intent.getStringArrayListExtra(SYMBOLS_EXTRA);
+    }
 }
@@ -15,6 +15,7 @@ import android.view.View;
 import ru.nahk.folio.R;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PositionsListItemViewModel;
+import ru.nahk.folio.utils.Money;
 
 /**
  * Control that renders colored vertical stripes for multiple nesting levels.
@@ -294,8 +295,8 @@ public class LevelStripes extends View {
 
         while (currentItem != null && currentItem.level > 0) {
             int valueChangeDirection =
-                currentItem.currentValue != null && currentItem.baseValue != null
-                    ? currentItem.currentValue.compareTo(currentItem.baseValue)
+                Money.isKnown(currentItem.currentValue) && Money.isKnown(currentItem.baseValue)
+                    ? Money.compare(currentItem.currentValue, currentItem.baseValue)
                     : 0;
 
             if (needsBottomPadding) {
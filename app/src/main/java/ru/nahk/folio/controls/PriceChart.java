@@ -0,0 +1,226 @@
+package ru.nahk.folio.controls;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.List;
+
+import ru.nahk.folio.R;
+import ru.nahk.folio.model.CandleEntity;
+
+/**
+ * Control that renders close prices of historical candles as a line chart.
+ * Line is colored by the price change over the displayed range.
+ */
+public class PriceChart extends View {
+    /**
+     * Configured width of the chart line.
+     */
+    private int mLineWidth;
+
+    /**
+     * Paint for negative price change line.
+     */
+    private Paint mNegativeChangePaint;
+
+    /**
+     * Paint for no price change line.
+     */
+    private Paint mNoChangePaint;
+
+    /**
+     * Paint for positive price change line.
+     */
+    private Paint mPositiveChangePaint;
+
+    /**
+     * Candles to display in chronological order.
+     */
+    private List<CandleEntity> mCandles;
+
+    /**
+     * Pre-allocated {@link Path} for chart line rendering.
+     */
+    private Path mLine;
+
+    /**
+     * Creates new instance of the {@link PriceChart} class
+     * with the provided context.
+     * @param context Parent activity context.
+     */
+    public PriceChart(Context context) {
+        super(context);
+        init();
+    }
+
+    /**
+     * Creates new instance of the {@link PriceChart} class
+     * with the provided context and XML attributes.
+     * @param context Parent activity context.
+     * @param attrs XML attributes.
+     */
+    public PriceChart(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs);
+    }
+
+    /**
+     * Creates new instance of the {@link PriceChart} class
+     * with the provided context, XML attributes and default style.
+     * @param context Parent activity context.
+     * @param attrs XML attributes.
+     * @param defStyleAttr Default style attributes.
+     */
+    public PriceChart(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs);
+    }
+
+    /**
+     * Sets the candles to display.
+     * @param candles Candles in chronological order.
+     */
+    public void setCandles(List<CandleEntity> candles) {
+        if (candles != mCandles) {
+            mCandles = candles;
+            invalidate();
+        }
+    }
+
+    /**
+     * Initializes all fields with default values.
+     */
+    private void init() {
+        mLineWidth = 2;
+        mNegativeChangePaint = createLinePaint();
+        mNoChangePaint = createLinePaint();
+        mPositiveChangePaint = createLinePaint();
+        mLine = new Path();
+    }
+
+    /**
+     * Initializes all fields from XML attributes.
+     * @param context Parent activity context.
+     * @param attrs XML attributes.
+     */
+    private void init(@NonNull Context context, AttributeSet attrs) {
+        init();
+
+        TypedArray typedAttrs = null;
+
+        try {
+            typedAttrs =
+                context.obtainStyledAttributes(attrs, R.styleable.PriceChart);
+
+            for (int attrIndex = 0; attrIndex < typedAttrs.getIndexCount(); ++attrIndex) {
+                int attrId = typedAttrs.getIndex(attrIndex);
+                switch (attrId) {
+                    case R.styleable.PriceChart_lineWidth:
+                        mLineWidth =
+                            typedAttrs.getDimensionPixelSize(attrId, mLineWidth);
+                        break;
+
+                    case R.styleable.PriceChart_negativeChangeColor:
+                        mNegativeChangePaint.setColor(
+                            typedAttrs.getColor(attrId, Color.RED));
+                        break;
+
+                    case R.styleable.PriceChart_noChangeColor:
+                        mNoChangePaint.setColor(
+                            typedAttrs.getColor(attrId, Color.GRAY));
+                        break;
+
+                    case R.styleable.PriceChart_positiveChangeColor:
+                        mPositiveChangePaint.setColor(
+                            typedAttrs.getColor(attrId, Color.GREEN));
+                        break;
+                }
+            }
+        }
+        finally {
+            if (typedAttrs != null) {
+                typedAttrs.recycle();
+            }
+        }
+
+        mNegativeChangePaint.setStrokeWidth(mLineWidth);
+        mNoChangePaint.setStrokeWidth(mLineWidth);
+        mPositiveChangePaint.setStrokeWidth(mLineWidth);
+    }
+
+    /**
+     * Creates paint for the chart line.
+     * @return Stroke paint.
+     */
+    private Paint createLinePaint() {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        paint.setStrokeWidth(mLineWidth);
+        return paint;
+    }
+
+    /**
+     * Draws the line of close prices.
+     * @param canvas Target canvas.
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (mCandles == null || mCandles.size() < 2) {
+            return;
+        }
+
+        double minPrice = Double.MAX_VALUE;
+        double maxPrice = -Double.MAX_VALUE;
+
+        for (CandleEntity candle : mCandles) {
+            double price = candle.close.doubleValue();
+            minPrice = Math.min(minPrice, price);
+            maxPrice = Math.max(maxPrice, price);
+        }
+
+        float left = getPaddingStart();
+        float top = getPaddingTop() + mLineWidth / 2f;
+        float width = Math.max(getWidth() - getPaddingStart() - getPaddingEnd(), 0);
+        float height = Math.max(getHeight() - getPaddingTop() - getPaddingBottom() - mLineWidth, 0);
+        double priceRange = maxPrice - minPrice;
+
+        mLine.reset();
+
+        for (int candleIndex = 0; candleIndex < mCandles.size(); ++candleIndex) {
+            double price = mCandles.get(candleIndex).close.doubleValue();
+
+            float x = left + width * candleIndex / (mCandles.size() - 1);
+            float y = priceRange > 0
+                ? top + (float)((maxPrice - price) / priceRange) * height
+                : top + height / 2;
+
+            if (candleIndex == 0) {
+                mLine.moveTo(x, y);
+            } else {
+                mLine.lineTo(x, y);
+            }
+        }
+
+        int changeDirection = mCandles.get(mCandles.size() - 1).close
+            .compareTo(mCandles.get(0).close);
+
+        canvas.drawPath(
+            mLine,
+            changeDirection < 0
+                ? mNegativeChangePaint
+                : (changeDirection > 0
+                    ? mPositiveChangePaint
+                    : mNoChangePaint));
+    }
+}
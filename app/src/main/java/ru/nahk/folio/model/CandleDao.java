@@ -0,0 +1,60 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.Query;
+
+import java.util.List;
+
+import static android.arch.persistence.room.OnConflictStrategy.REPLACE;
+
+/**
+ * Data access methods to work with historical price candles.
+ */
+@Dao
+public interface CandleDao {
+    /**
+     * Inserts candles, replacing existing candles for the same time.
+     * @param candles Candle entities to insert.
+     */
+    @Insert(onConflict = REPLACE)
+    void insert(List<CandleEntity> candles);
+
+    /**
+     * Inserts or replaces the requested range of the symbol candles.
+     * @param range Candle range entity to save.
+     */
+    @Insert(onConflict = REPLACE)
+    void insertRange(CandleRangeEntity range);
+
+    /**
+     * Loads candles of the symbol within the time range.
+     * @param symbolId Stock symbol.
+     * @param interval Candle interval in seconds.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @return Candles in chronological order.
+     */
+    @Query("SELECT * FROM candles"
+        + " WHERE symbol_id = :symbolId AND interval = :interval AND time BETWEEN :startTime AND :endTime"
+        + " ORDER BY time")
+    List<CandleEntity> get(String symbolId, int interval, long startTime, long endTime);
+
+    /**
+     * Gets start time of the latest stored candle of the symbol.
+     * @param symbolId Stock symbol.
+     * @param interval Candle interval in seconds.
+     * @return Epoch time in milliseconds or null, if there are no candles.
+     */
+    @Query("SELECT MAX(time) FROM candles WHERE symbol_id = :symbolId AND interval = :interval")
+    Long getLastCandleTime(String symbolId, int interval);
+
+    /**
+     * Loads the range of the symbol candles that was already requested.
+     * @param symbolId Stock symbol.
+     * @param interval Candle interval in seconds.
+     * @return Candle range entity or null, if nothing was requested yet.
+     */
+    @Query("SELECT * FROM candle_ranges WHERE symbol_id = :symbolId AND interval = :interval")
+    CandleRangeEntity getRange(String symbolId, int interval);
+}
@@ -0,0 +1,178 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Ignore;
+import android.support.annotation.NonNull;
+
+import java.math.BigDecimal;
+
+import static android.arch.persistence.room.ForeignKey.CASCADE;
+
+/**
+ * Historical price candle entity.
+ * Primary key starts with the symbol and interval, so that chart data for
+ * a time range is read with a single index range scan.
+ */
+@Entity(
+    tableName = CandleEntity.TABLE_NAME,
+    primaryKeys = {
+        CandleEntity.SYMBOL_ID_COLUMN,
+        CandleEntity.INTERVAL_COLUMN,
+        CandleEntity.TIME_COLUMN
+    },
+    foreignKeys = @ForeignKey(
+        entity = SymbolEntity.class,
+        parentColumns = SymbolEntity.ID_COLUMN,
+        childColumns = CandleEntity.SYMBOL_ID_COLUMN,
+        onDelete = CASCADE)
+)
+public class CandleEntity {
+    /**
+     * Five minutes candle interval in seconds.
+     */
+    public static final int INTERVAL_5_MINUTES = 5 * 60;
+
+    /**
+     * Hourly candle interval in seconds.
+     */
+    public static final int INTERVAL_HOUR = 60 * 60;
+
+    /**
+     * Daily candle interval in seconds.
+     */
+    public static final int INTERVAL_DAY = 24 * INTERVAL_HOUR;
+
+    /**
+     * Weekly candle interval in seconds.
+     */
+    public static final int INTERVAL_WEEK = 7 * INTERVAL_DAY;
+
+    /**
+     * Name of the candles table.
+     */
+    static final String TABLE_NAME = "candles";
+
+    /**
+     * Name of the stock symbol column.
+     */
+    static final String SYMBOL_ID_COLUMN = "symbol_id";
+
+    /**
+     * Name of the candle interval column.
+     */
+    static final String INTERVAL_COLUMN = "interval";
+
+    /**
+     * Name of the candle start time column.
+     */
+    static final String TIME_COLUMN = "time";
+
+    /**
+     * Name of the open price column.
+     */
+    static final String OPEN_COLUMN = "open";
+
+    /**
+     * Name of the high price column.
+     */
+    static final String HIGH_COLUMN = "high";
+
+    /**
+     * Name of the low price column.
+     */
+    static final String LOW_COLUMN = "low";
+
+    /**
+     * Name of the close price column.
+     */
+    static final String CLOSE_COLUMN = "close";
+
+    /**
+     * Name of the traded volume column.
+     */
+    static final String VOLUME_COLUMN = "volume";
+
+    /**
+     * Stock symbol.
+     */
+    @NonNull
+    @ColumnInfo(name = SYMBOL_ID_COLUMN)
+    public String symbolId;
+
+    /**
+     * Candle interval in seconds.
+     */
+    @ColumnInfo(name = INTERVAL_COLUMN)
+    public int interval;
+
+    /**
+     * Candle start time as epoch time in milliseconds.
+     */
+    @ColumnInfo(name = TIME_COLUMN)
+    public long time;
+
+    /**
+     * Open price.
+     */
+    @NonNull
+    @ColumnInfo(name = OPEN_COLUMN)
+    public BigDecimal open;
+
+    /**
+     * High price.
+     */
+    @NonNull
+    @ColumnInfo(name = HIGH_COLUMN)
+    public BigDecimal high;
+
+    /**
+     * Low price.
+     */
+    @NonNull
+    @ColumnInfo(name = LOW_COLUMN)
+    public BigDecimal low;
+
+    /**
+     * Close price.
+     */
+    @NonNull
+    @ColumnInfo(name = CLOSE_COLUMN)
+    public BigDecimal close;
+
+    /**
+     * Traded volume.
+     */
+    @ColumnInfo(name = VOLUME_COLUMN)
+    public long volume;
+
+    /**
+     * Creates new instance of the {@link CandleEntity} class.
+     */
+    public CandleEntity() { }
+
+    /**
+     * Creates new instance of the {@link CandleEntity} class
+     * with given values.
+     */
+    @Ignore
+    public CandleEntity(
+            @NonNull String symbolId,
+            int interval,
+            long time,
+            @NonNull BigDecimal open,
+            @NonNull BigDecimal high,
+            @NonNull BigDecimal low,
+            @NonNull BigDecimal close,
+            long volume) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+}
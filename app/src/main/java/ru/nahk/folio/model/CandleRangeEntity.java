@@ -0,0 +1,99 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Ignore;
+import android.support.annotation.NonNull;
+
+import static android.arch.persistence.room.ForeignKey.CASCADE;
+
+/**
+ * Time range of historical price candles that was already requested from the stock API.
+ * Stored candles can't tell the range apart from market holidays and other non-trading gaps,
+ * so the requested range is kept separately for every symbol and candle interval.
+ */
+@Entity(
+    tableName = CandleRangeEntity.TABLE_NAME,
+    primaryKeys = {
+        CandleRangeEntity.SYMBOL_ID_COLUMN,
+        CandleRangeEntity.INTERVAL_COLUMN
+    },
+    foreignKeys = @ForeignKey(
+        entity = SymbolEntity.class,
+        parentColumns = SymbolEntity.ID_COLUMN,
+        childColumns = CandleRangeEntity.SYMBOL_ID_COLUMN,
+        onDelete = CASCADE)
+)
+public class CandleRangeEntity {
+    /**
+     * Name of the candle ranges table.
+     */
+    static final String TABLE_NAME = "candle_ranges";
+
+    /**
+     * Name of the stock symbol column.
+     */
+    static final String SYMBOL_ID_COLUMN = "symbol_id";
+
+    /**
+     * Name of the candle interval column.
+     */
+    static final String INTERVAL_COLUMN = "interval";
+
+    /**
+     * Name of the range start time column.
+     */
+    static final String START_TIME_COLUMN = "start_time";
+
+    /**
+     * Name of the range end time column.
+     */
+    static final String END_TIME_COLUMN = "end_time";
+
+    /**
+     * Stock symbol.
+     */
+    @NonNull
+    @ColumnInfo(name = SYMBOL_ID_COLUMN)
+    public String symbolId;
+
+    /**
+     * Candle interval in seconds.
+     */
+    @ColumnInfo(name = INTERVAL_COLUMN)
+    public int interval;
+
+    /**
+     * Start of the requested range as epoch time in milliseconds.
+     */
+    @ColumnInfo(name = START_TIME_COLUMN)
+    public long startTime;
+
+    /**
+     * End of the requested range as epoch time in milliseconds.
+     */
+    @ColumnInfo(name = END_TIME_COLUMN)
+    public long endTime;
+
+    /**
+     * Creates new instance of the {@link CandleRangeEntity} class.
+     */
+    public CandleRangeEntity() { }
+
+    /**
+     * Creates new instance of the {@link CandleRangeEntity} class
+     * with given values.
+     */
+    @Ignore
+    public CandleRangeEntity(
+            @NonNull String symbolId,
+            int interval,
+            long startTime,
+            long endTime) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+}
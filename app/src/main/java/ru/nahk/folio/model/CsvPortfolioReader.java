@@ -0,0 +1,332 @@
+package ru.nahk.folio.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads portfolio records from comma-separated values one row at a time.
+ * First row is a header with field names, which can go in any order.
+ * Group path is a single field with group names separated by slash,
+ * slashes and backslashes in names are escaped with backslash.
+ */
+class CsvPortfolioReader implements PortfolioRecord.Reader {
+    /**
+     * Separator of the group names in the group path.
+     */
+    static final char GROUP_PATH_SEPARATOR = '/';
+
+    /**
+     * Escape character for the group path separator.
+     */
+    static final char GROUP_PATH_ESCAPE = '\\';
+
+    /**
+     * Unicode byte order mark.
+     */
+    static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    /**
+     * Stream to read from.
+     */
+    private final Reader mReader;
+
+    /**
+     * Record instance reused for all rows.
+     */
+    private final PortfolioRecord mRecord = new PortfolioRecord();
+
+    /**
+     * Field values of the current row.
+     */
+    private final List<String> mFields = new ArrayList<>();
+
+    /**
+     * Buffer for the current field value.
+     */
+    private final StringBuilder mField = new StringBuilder();
+
+    /**
+     * Index of the group path field in a row or -1, if field is missing.
+     */
+    private int mGroupIndex = -1;
+
+    /**
+     * Index of the stock symbol field in a row or -1, if field is missing.
+     */
+    private int mSymbolIndex = -1;
+
+    /**
+     * Index of the lot quantity field in a row or -1, if field is missing.
+     */
+    private int mQuantityIndex = -1;
+
+    /**
+     * Index of the lot purchase price field in a row or -1, if field is missing.
+     */
+    private int mPurchasePriceIndex = -1;
+
+    /**
+     * Index of the lot purchase date field in a row or -1, if field is missing.
+     */
+    private int mPurchaseDateIndex = -1;
+
+    /**
+     * Index of the lot commission field in a row or -1, if field is missing.
+     */
+    private int mCommissionIndex = -1;
+
+    /**
+     * Number of the current line in the stream.
+     */
+    private int mLineNumber = 1;
+
+    /**
+     * Character read ahead of the current position or -2, if there is none.
+     */
+    private int mPeekedCharacter = -2;
+
+    /**
+     * Indicates whether header row was read.
+     */
+    private boolean mIsHeaderRead;
+
+    /**
+     * Creates new instance of the {@link CsvPortfolioReader} class.
+     * @param reader Stream to read from.
+     */
+    CsvPortfolioReader(Reader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * Reads next row.
+     * @return Next record or NULL, if there are no more rows.
+     * @throws IOException Thrown if stream cannot be read or has invalid format.
+     */
+    @Override
+    public PortfolioRecord read() throws IOException {
+        if (!mIsHeaderRead) {
+            readHeader();
+        }
+
+        int rowLineNumber;
+        do {
+            rowLineNumber = mLineNumber;
+            if (!readRow()) {
+                return null;
+            }
+        } while (mFields.size() == 1 && mFields.get(0).trim().isEmpty());
+
+        mRecord.clear();
+        parseGroupPath(getField(mGroupIndex), mRecord.groupPath);
+        mRecord.symbol = getField(mSymbolIndex);
+
+        PortfolioRecord.parseLot(
+            mRecord,
+            getField(mQuantityIndex),
+            getField(mPurchasePriceIndex),
+            getField(mPurchaseDateIndex),
+            getField(mCommissionIndex),
+            "on line " + rowLineNumber);
+
+        return mRecord;
+    }
+
+    /**
+     * Closes the stream.
+     * @throws IOException Thrown if stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    /**
+     * Reads header row and maps field names to their indexes.
+     * @throws IOException Thrown if stream cannot be read or header is invalid.
+     */
+    private void readHeader() throws IOException {
+        mIsHeaderRead = true;
+
+        if (!readRow()) {
+            throw new IOException("Missing header");
+        }
+
+        // Skip byte order mark that spreadsheet applications write
+        if (mFields.get(0).startsWith(BYTE_ORDER_MARK)) {
+            mFields.set(0, mFields.get(0).substring(BYTE_ORDER_MARK.length()));
+        }
+
+        for (int index = 0; index < mFields.size(); ++index) {
+            switch (mFields.get(index).trim().toLowerCase(Locale.US)) {
+                case PortfolioRecord.GROUP_FIELD:
+                    mGroupIndex = index;
+                    break;
+
+                case PortfolioRecord.SYMBOL_FIELD:
+                    mSymbolIndex = index;
+                    break;
+
+                case PortfolioRecord.QUANTITY_FIELD:
+                    mQuantityIndex = index;
+                    break;
+
+                case PortfolioRecord.PURCHASE_PRICE_FIELD:
+                    mPurchasePriceIndex = index;
+                    break;
+
+                case PortfolioRecord.PURCHASE_DATE_FIELD:
+                    mPurchaseDateIndex = index;
+                    break;
+
+                case PortfolioRecord.COMMISSION_FIELD:
+                    mCommissionIndex = index;
+                    break;
+            }
+        }
+
+        if (mSymbolIndex < 0) {
+            throw new IOException("Missing " + PortfolioRecord.SYMBOL_FIELD + " column in header");
+        }
+    }
+
+    /**
+     * Gets value of the field in the current row.
+     * @param index Index of the field.
+     * @return Field value or NULL, if field is missing.
+     */
+    private String getField(int index) {
+        return index >= 0 && index < mFields.size() ? mFields.get(index) : null;
+    }
+
+    /**
+     * Reads next row into the fields list.
+     * Quoted fields may contain separators, line breaks and doubled quotes.
+     * @return True if row was read, false if the end of stream is reached.
+     * @throws IOException Thrown if stream cannot be read or has unterminated quoted field.
+     */
+    private boolean readRow() throws IOException {
+        mFields.clear();
+        mField.setLength(0);
+
+        int character = nextCharacter();
+        if (character == -1) {
+            return false;
+        }
+
+        boolean isQuoted = false;
+
+        while (true) {
+            if (isQuoted) {
+                if (character == -1) {
+                    throw new IOException("Unterminated quoted field on line " + mLineNumber);
+                } else if (character == '"') {
+                    if (peekCharacter() == '"') {
+                        nextCharacter();
+                        mField.append('"');
+                    } else {
+                        isQuoted = false;
+                    }
+                } else {
+                    mField.append((char) character);
+                }
+            } else if (character == '"' && mField.length() == 0) {
+                isQuoted = true;
+            } else if (character == ',') {
+                mFields.add(mField.toString());
+                mField.setLength(0);
+            } else if (character == '\r' || character == '\n' || character == -1) {
+                if (character == '\r' && peekCharacter() == '\n') {
+                    nextCharacter();
+                }
+
+                mFields.add(mField.toString());
+                return true;
+            } else {
+                mField.append((char) character);
+            }
+
+            character = nextCharacter();
+        }
+    }
+
+    /**
+     * Reads next character from the stream, counting lines.
+     * @return Next character or -1, if the end of stream is reached.
+     * @throws IOException Thrown if stream cannot be read.
+     */
+    private int nextCharacter() throws IOException {
+        int character;
+
+        if (mPeekedCharacter != -2) {
+            character = mPeekedCharacter;
+            mPeekedCharacter = -2;
+        } else {
+            character = mReader.read();
+        }
+
+        if (character == '\n') {
+            ++mLineNumber;
+        }
+
+        return character;
+    }
+
+    /**
+     * Peeks next character from the stream without consuming it.
+     * @return Next character or -1, if the end of stream is reached.
+     * @throws IOException Thrown if stream cannot be read.
+     */
+    private int peekCharacter() throws IOException {
+        if (mPeekedCharacter == -2) {
+            mPeekedCharacter = mReader.read();
+        }
+
+        return mPeekedCharacter;
+    }
+
+    /**
+     * Splits group path field into group names.
+     * @param path Group path field or NULL.
+     * @param groupPath List to add group names to.
+     */
+    static void parseGroupPath(String path, List<String> groupPath) {
+        if (path == null) {
+            return;
+        }
+
+        StringBuilder name = new StringBuilder();
+
+        for (int index = 0; index < path.length(); ++index) {
+            char character = path.charAt(index);
+
+            if (character == GROUP_PATH_ESCAPE && index + 1 < path.length()) {
+                name.append(path.charAt(++index));
+            } else if (character == GROUP_PATH_SEPARATOR) {
+                addGroupName(name, groupPath);
+            } else {
+                name.append(character);
+            }
+        }
+
+        addGroupName(name, groupPath);
+    }
+
+    /**
+     * Adds non-empty group name to the group path and resets the name buffer.
+     * @param name Group name buffer.
+     * @param groupPath Group path to add the name to.
+     */
+    private static void addGroupName(StringBuilder name, List<String> groupPath) {
+        String trimmedName = name.toString().trim();
+
+        if (!trimmedName.isEmpty()) {
+            groupPath.add(trimmedName);
+        }
+
+        name.setLength(0);
+    }
+}
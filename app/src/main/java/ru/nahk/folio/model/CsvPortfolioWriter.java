@@ -0,0 +1,134 @@
+package ru.nahk.folio.model;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import ru.nahk.folio.utils.Money;
+
+/**
+ * Writes portfolio records as comma-separated values one row at a time,
+ * in the format {@link CsvPortfolioReader} reads.
+ */
+class CsvPortfolioWriter implements PortfolioRecord.Writer {
+    /**
+     * Stream to write to.
+     */
+    private final Writer mWriter;
+
+    /**
+     * Buffer for the current row.
+     */
+    private final StringBuilder mRow = new StringBuilder();
+
+    /**
+     * Creates new instance of the {@link CsvPortfolioWriter} class and writes the header.
+     * @param writer Stream to write to.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    CsvPortfolioWriter(Writer writer) throws IOException {
+        mWriter = writer;
+
+        mWriter
+            .append(PortfolioRecord.GROUP_FIELD).append(',')
+            .append(PortfolioRecord.SYMBOL_FIELD).append(',')
+            .append(PortfolioRecord.QUANTITY_FIELD).append(',')
+            .append(PortfolioRecord.PURCHASE_PRICE_FIELD).append(',')
+            .append(PortfolioRecord.PURCHASE_DATE_FIELD).append(',')
+            .append(PortfolioRecord.COMMISSION_FIELD).append("\r\n");
+    }
+
+    /**
+     * Writes the record as a row.
+     * @param record Record to write.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    @Override
+    public void write(PortfolioRecord record) throws IOException {
+        mRow.setLength(0);
+
+        appendField(formatGroupPath(record));
+        mRow.append(',');
+        appendField(record.symbol == null ? "" : record.symbol);
+
+        if (record.hasLot) {
+            mRow
+                .append(',').append(record.quantity)
+                .append(',').append(Money.toPlainString(record.purchasePrice))
+                .append(',').append(PortfolioRecord.formatDate(record.purchaseDate))
+                .append(',').append(Money.toPlainString(record.commission));
+        } else {
+            mRow.append(",,,,");
+        }
+
+        mWriter.append(mRow).append("\r\n");
+    }
+
+    /**
+     * Flushes and closes the stream.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+
+    /**
+     * Joins group names into the group path field.
+     * @param record Record with group names.
+     * @return Group path field.
+     */
+    private static String formatGroupPath(PortfolioRecord record) {
+        StringBuilder path = new StringBuilder();
+
+        for (String name : record.groupPath) {
+            if (path.length() > 0) {
+                path.append(CsvPortfolioReader.GROUP_PATH_SEPARATOR);
+            }
+
+            for (int index = 0; index < name.length(); ++index) {
+                char character = name.charAt(index);
+
+                if (character == CsvPortfolioReader.GROUP_PATH_SEPARATOR
+                        || character == CsvPortfolioReader.GROUP_PATH_ESCAPE) {
+                    path.append(CsvPortfolioReader.GROUP_PATH_ESCAPE);
+                }
+
+                path.append(character);
+            }
+        }
+
+        return path.toString();
+    }
+
+    /**
+     * Appends field value to the row, quoting it if necessary.
+     * @param value Field value.
+     */
+    private void appendField(String value) {
+        boolean needsQuotes = false;
+
+        for (int index = 0; index < value.length() && !needsQuotes; ++index) {
+            char character = value.charAt(index);
+            needsQuotes = character == ',' || character == '"' || character == '\r' || character == '\n';
+        }
+
+        if (!needsQuotes) {
+            mRow.append(value);
+            return;
+        }
+
+        mRow.append('"');
+
+        for (int index = 0; index < value.length(); ++index) {
+            char character = value.charAt(index);
+
+            if (character == '"') {
+                mRow.append('"');
+            }
+
+            mRow.append(character);
+        }
+
+        mRow.append('"');
+    }
+}
@@ -29,13 +29,14 @@ public class DatabaseInitializationCallback extends RoomDatabase.Callback {
     }
 
     /**
-     * Inserts root group into newly created database.
+     * Creates triggers and inserts root group into newly created database.
      * @param db SQLite database.
      */
     @Override
     public void onCreate(@NonNull SupportSQLiteDatabase db) {
         super.onCreate(db);
 
+        PortfolioDatabase.createLotAggregateTriggers(db);
         ensureRootGroup(db);
     }
 
@@ -1,6 +1,8 @@
 package ru.nahk.folio.model;
 
+import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Embedded;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
 import android.arch.persistence.room.RoomWarnings;
@@ -73,9 +75,8 @@ public interface GroupDao {
     GroupViewModel loadById(long groupId);
 
     /**
-     * Loads all direct children groups under given parent.
-     * @param groupId Identifier of the parent group.
-     * @return List of groups under given parent.
+     * Loads all groups along with their parent group identifiers.
+     * @return List of all groups ordered by name.
      */
     // GroupViewModel has two extra fields (currentValue, baseValue) that will be computed in the code
     @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
@@ -83,48 +84,27 @@ public interface GroupDao {
         "SELECT " +
             "g.id AS id," +
             "g.name AS name," +
-            "g.is_expanded AS is_expanded " +
+            "g.is_expanded AS is_expanded," +
+            "g.parent_group_id AS parent_group_id " +
         "FROM groups g " +
-        "WHERE " +
-            "g.parent_group_id == :groupId " +
-            "OR (:groupId IS NULL AND g.parent_group_id IS NULL)" +
         "ORDER BY g.name;"
     )
-    List<GroupViewModel> loadByParentGroup(long groupId);
+    List<GroupTreeItem> loadAllWithParent();
 
     /**
-     * Loads positions group with computed value.
-     * @param groupId Identifier of the group to load.
-     * @return Loaded group with curent and basse values.
+     * Group view model along with the identifier of its parent group.
      */
-    @Query(
-        "WITH RECURSIVE nested_groups(id) AS (" +
-            "VALUES (:groupId) " +
-            "UNION ALL " +
-            "SELECT g.id " +
-            "FROM nested_groups ng " +
-                "INNER JOIN groups g ON g.parent_group_id = ng.id)," +
-        "nested_positions AS (" +
-            "SELECT " +
-                "CASE WHEN s.extended_time > s.latest_time " +
-                    "THEN ifnull(SUM(l.quantity) * s.extended_price, s.extended_price) " +
-                    "ELSE ifnull(SUM(l.quantity) * s.latest_price, s.latest_price) " +
-                "END AS current_value," +
-                "ifnull(SUM(l.quantity * l.purchase_price + l.commission), s.previous_close_price) AS base_value " +
-            "FROM positions p " +
-                "INNER JOIN nested_groups ng ON ng.id = p.parent_group_id " +
-                "INNER JOIN symbols s ON s.id = p.symbol_id " +
-                "LEFT OUTER JOIN lots l ON l.position_id = p.id " +
-            "GROUP BY p.id" +
-        ")," +
-        "group_value AS (" +
-            "SELECT " +
-                "SUM(current_value) AS current_value," +
-                "SUM(base_value) AS base_value " +
-            "FROM nested_positions" +
-        ")" +
-        "SELECT g.id, g.name, g.is_expanded, gv.current_value, gv.base_value " +
-        "FROM groups g, group_value gv " +
-        "WHERE g.id = :groupId")
-    GroupViewModel loadWithValue(long groupId);
+    class GroupTreeItem {
+        /**
+         * Group view model.
+         */
+        @Embedded
+        public GroupViewModel group;
+
+        /**
+         * Identifier of the parent group.
+         */
+        @ColumnInfo(name = "parent_group_id")
+        public Long parentGroupId;
+    }
 }
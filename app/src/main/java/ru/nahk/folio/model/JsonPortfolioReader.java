@@ -0,0 +1,156 @@
+package ru.nahk.folio.model;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads portfolio records from JSON array of objects one object at a time.
+ * Group path is an array of group names, money values are decimal strings or numbers.
+ */
+class JsonPortfolioReader implements PortfolioRecord.Reader {
+    /**
+     * JSON stream reader.
+     */
+    private final JsonReader mReader;
+
+    /**
+     * Record instance reused for all objects.
+     */
+    private final PortfolioRecord mRecord = new PortfolioRecord();
+
+    /**
+     * Number of the current record in the array.
+     */
+    private int mRecordNumber;
+
+    /**
+     * Indicates whether beginning of the array was read.
+     */
+    private boolean mIsArrayStarted;
+
+    /**
+     * Creates new instance of the {@link JsonPortfolioReader} class.
+     * @param reader Stream to read from.
+     */
+    JsonPortfolioReader(Reader reader) {
+        mReader = new JsonReader(reader);
+    }
+
+    /**
+     * Reads next object.
+     * @return Next record or NULL, if there are no more objects.
+     * @throws IOException Thrown if stream cannot be read or has invalid format.
+     */
+    @Override
+    public PortfolioRecord read() throws IOException {
+        if (!mIsArrayStarted) {
+            mReader.beginArray();
+            mIsArrayStarted = true;
+        }
+
+        if (!mReader.hasNext()) {
+            mReader.endArray();
+            return null;
+        }
+
+        ++mRecordNumber;
+        mRecord.clear();
+
+        String quantity = null;
+        String purchasePrice = null;
+        String purchaseDate = null;
+        String commission = null;
+
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            switch (mReader.nextName()) {
+                case PortfolioRecord.GROUP_FIELD:
+                    readGroupPath();
+                    break;
+
+                case PortfolioRecord.SYMBOL_FIELD:
+                    mRecord.symbol = nextString();
+                    break;
+
+                case PortfolioRecord.QUANTITY_FIELD:
+                    quantity = nextString();
+                    break;
+
+                case PortfolioRecord.PURCHASE_PRICE_FIELD:
+                    purchasePrice = nextString();
+                    break;
+
+                case PortfolioRecord.PURCHASE_DATE_FIELD:
+                    purchaseDate = nextString();
+                    break;
+
+                case PortfolioRecord.COMMISSION_FIELD:
+                    commission = nextString();
+                    break;
+
+                default:
+                    mReader.skipValue();
+                    break;
+            }
+        }
+        mReader.endObject();
+
+        PortfolioRecord.parseLot(
+            mRecord,
+            quantity,
+            purchasePrice,
+            purchaseDate,
+            commission,
+            "in record " + mRecordNumber);
+
+        return mRecord;
+    }
+
+    /**
+     * Closes the stream.
+     * @throws IOException Thrown if stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    /**
+     * Reads group path, which is an array of group names or a path string in CSV format.
+     * @throws IOException Thrown if stream cannot be read or has invalid format.
+     */
+    private void readGroupPath() throws IOException {
+        JsonToken token = mReader.peek();
+
+        if (token == JsonToken.BEGIN_ARRAY) {
+            mReader.beginArray();
+            while (mReader.hasNext()) {
+                String name = nextString();
+
+                if (name != null && !name.trim().isEmpty()) {
+                    mRecord.groupPath.add(name.trim());
+                }
+            }
+            mReader.endArray();
+        } else {
+            CsvPortfolioReader.parseGroupPath(nextString(), mRecord.groupPath);
+        }
+    }
+
+    /**
+     * Reads string, number or null value.
+     * @return Value string or NULL.
+     * @throws IOException Thrown if stream cannot be read or has invalid format.
+     */
+    private String nextString() throws IOException {
+        if (mReader.peek() == JsonToken.NULL) {
+            mReader.nextNull();
+            return null;
+        }
+
+        return mReader.nextString();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.nahk.folio.model;
+
+import android.util.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import ru.nahk.folio.utils.Money;
+
+/**
+ * Writes portfolio records as JSON array of objects one object at a time,
+ * in the format {@link JsonPortfolioReader} reads.
+ * Money values are written as decimal strings, so they do not lose precision.
+ */
+class JsonPortfolioWriter implements PortfolioRecord.Writer {
+    /**
+     * JSON stream writer.
+     */
+    private final JsonWriter mWriter;
+
+    /**
+     * Creates new instance of the {@link JsonPortfolioWriter} class and starts the array.
+     * @param writer Stream to write to.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    JsonPortfolioWriter(Writer writer) throws IOException {
+        mWriter = new JsonWriter(writer);
+        mWriter.beginArray();
+    }
+
+    /**
+     * Writes the record as an object.
+     * @param record Record to write.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    @Override
+    public void write(PortfolioRecord record) throws IOException {
+        mWriter.beginObject();
+
+        mWriter.name(PortfolioRecord.GROUP_FIELD).beginArray();
+        for (String name : record.groupPath) {
+            mWriter.value(name);
+        }
+        mWriter.endArray();
+
+        // Group without positions has neither symbol nor lot
+        if (record.symbol != null) {
+            mWriter.name(PortfolioRecord.SYMBOL_FIELD).value(record.symbol);
+        }
+
+        if (record.hasLot) {
+            mWriter.name(PortfolioRecord.QUANTITY_FIELD).value(record.quantity);
+            mWriter.name(PortfolioRecord.PURCHASE_PRICE_FIELD)
+                .value(Money.toPlainString(record.purchasePrice));
+            mWriter.name(PortfolioRecord.PURCHASE_DATE_FIELD)
+                .value(PortfolioRecord.formatDate(record.purchaseDate));
+            mWriter.name(PortfolioRecord.COMMISSION_FIELD)
+                .value(Money.toPlainString(record.commission));
+        }
+
+        mWriter.endObject();
+    }
+
+    /**
+     * Ends the array and closes the stream.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            mWriter.endArray();
+        }
+        finally {
+            mWriter.close();
+        }
+    }
+}
@@ -24,10 +24,11 @@ public interface LotDao {
             "l.purchase_date AS purchase_date," +
             "l.purchase_price AS purchase_price," +
             "l.commission AS commission," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN l.quantity * s.extended_price" +
-            "   ELSE l.quantity * s.latest_price " +
-            "END AS current_value," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN l.quantity * s.extended_price" +
+            "       ELSE l.quantity * s.latest_price " +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS current_value," +
             "l.quantity * l.purchase_price + l.commission AS base_value " +
         "FROM lots l " +
             "INNER JOIN positions p ON p.id = l.position_id " +
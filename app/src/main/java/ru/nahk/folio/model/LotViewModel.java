@@ -5,10 +5,11 @@ import android.arch.persistence.room.Ignore;
 import android.arch.persistence.room.TypeConverters;
 import android.support.annotation.NonNull;
 
-import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.util.Calendar;
 
+import ru.nahk.folio.utils.Money;
+
 /**
  * View-model for the position lot.
  */
@@ -20,10 +21,10 @@ public class LotViewModel extends PortfolioItemViewModel {
     public int quantity;
 
     /**
-     * Purchase price
+     * Purchase price in {@link Money} units.
      */
     @ColumnInfo(name = "purchase_price")
-    public BigDecimal purchasePrice;
+    public long purchasePrice;
 
     /**
      * Purchase date.
@@ -33,10 +34,10 @@ public class LotViewModel extends PortfolioItemViewModel {
     public Calendar purchaseDate;
 
     /**
-     * Purchase commission.
+     * Purchase commission in {@link Money} units.
      */
     @ColumnInfo(name = "commission")
-    public BigDecimal commission;
+    public long commission;
 
     /**
      * Formats shares quantity to string.
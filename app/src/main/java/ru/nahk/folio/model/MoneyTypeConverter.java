@@ -5,11 +5,18 @@ import android.arch.persistence.room.TypeConverter;
 import java.math.BigDecimal;
 
 import ru.nahk.folio.utils.BigDecimalHelper;
+import ru.nahk.folio.utils.Money;
 
 /**
  * Defines type conversion to store {@link BigDecimal} dollar values as long number of pennies.
  */
 class MoneyTypeConverter {
+    /**
+     * SQL literal of the {@link Money#UNKNOWN} value.
+     * Queries that load money into {@code long} view-model fields use it in place of NULL.
+     */
+    static final String UNKNOWN_SQL = "" + Money.UNKNOWN;
+
     /**
      * Converts pennies value to {@link BigDecimal} dollar representation.
      * @param pennies Pennies amount.
@@ -7,10 +7,16 @@ import android.arch.persistence.room.RoomDatabase;
 import android.arch.persistence.room.TypeConverters;
 import android.arch.persistence.room.migration.Migration;
 import android.content.Context;
+import android.util.LongSparseArray;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import ru.nahk.folio.utils.BigDecimalHelper;
+import ru.nahk.folio.stockapi.SymbolChanges;
+import ru.nahk.folio.utils.CalendarHelper;
+import ru.nahk.folio.utils.Money;
 
 /**
  * Provides access to the portfolio database.
@@ -21,13 +27,15 @@ import ru.nahk.folio.utils.BigDecimalHelper;
         LotEntity.class,
         PositionEntity.class,
         GroupEntity.class,
-        PortfolioItemWidgetEntity.class
+        PortfolioItemWidgetEntity.class,
+        CandleEntity.class,
+        TickEntity.class,
+        CandleRangeEntity.class
     },
-    version = 2
+    version = 7
 )
 @TypeConverters({
-    MoneyTypeConverter.class,
-    TimestampTypeConverter.class
+    MoneyTypeConverter.class
 })
 public abstract class PortfolioDatabase extends RoomDatabase {
     /**
@@ -44,6 +52,159 @@ public abstract class PortfolioDatabase extends RoomDatabase {
         }
     };
 
+    /**
+     * Database migration that adds historical price candles table.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        /**
+         * Executes migration scripts.
+         * @param database SQLite database instance.
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS candles ("
+                    + "symbol_id TEXT NOT NULL, "
+                    + "interval INTEGER NOT NULL, "
+                    + "time INTEGER NOT NULL, "
+                    + "open INTEGER NOT NULL, "
+                    + "high INTEGER NOT NULL, "
+                    + "low INTEGER NOT NULL, "
+                    + "close INTEGER NOT NULL, "
+                    + "volume INTEGER NOT NULL, "
+                    + "PRIMARY KEY(symbol_id, interval, time), "
+                    + "FOREIGN KEY(symbol_id) REFERENCES symbols(id) ON UPDATE NO ACTION ON DELETE CASCADE)");
+        }
+    };
+
+    /**
+     * Database migration that adds lot aggregates to positions table.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        /**
+         * Executes migration scripts.
+         * @param database SQLite database instance.
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE positions ADD COLUMN lot_count INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE positions ADD COLUMN quantity INTEGER");
+            database.execSQL("ALTER TABLE positions ADD COLUMN cost_basis INTEGER");
+
+            database.execSQL(
+                "UPDATE positions SET "
+                    + "lot_count = (SELECT COUNT(*) FROM lots l WHERE l.position_id = positions.id), "
+                    + "quantity = (SELECT SUM(l.quantity) FROM lots l WHERE l.position_id = positions.id), "
+                    + "cost_basis = ("
+                        + "SELECT SUM(l.quantity * l.purchase_price + l.commission) "
+                        + "FROM lots l WHERE l.position_id = positions.id)");
+
+            createLotAggregateTriggers(database);
+        }
+    };
+
+    /**
+     * Database migration that adds intraday price ticks table.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        /**
+         * Executes migration scripts.
+         * @param database SQLite database instance.
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS ticks ("
+                    + "symbol_id TEXT NOT NULL, "
+                    + "time INTEGER NOT NULL, "
+                    + "price INTEGER NOT NULL, "
+                    + "PRIMARY KEY(symbol_id, time), "
+                    + "FOREIGN KEY(symbol_id) REFERENCES symbols(id) ON UPDATE NO ACTION ON DELETE CASCADE)");
+        }
+    };
+
+    /**
+     * Database migration that adds requested candle ranges table.
+     * Ranges are seeded from the stored candles, so that existing history isn't fetched again.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        /**
+         * Executes migration scripts.
+         * @param database SQLite database instance.
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS candle_ranges ("
+                    + "symbol_id TEXT NOT NULL, "
+                    + "interval INTEGER NOT NULL, "
+                    + "start_time INTEGER NOT NULL, "
+                    + "end_time INTEGER NOT NULL, "
+                    + "PRIMARY KEY(symbol_id, interval), "
+                    + "FOREIGN KEY(symbol_id) REFERENCES symbols(id) ON UPDATE NO ACTION ON DELETE CASCADE)");
+
+            database.execSQL(
+                "INSERT INTO candle_ranges (symbol_id, interval, start_time, end_time) "
+                    + "SELECT symbol_id, interval, MIN(time), MAX(time) FROM candles "
+                    + "GROUP BY symbol_id, interval");
+        }
+    };
+
+    /**
+     * Database migration that adds extended hours flag to the intraday price ticks.
+     * Ticks logged before it cannot be told apart and are treated as regular session ticks.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        /**
+         * Executes migration scripts.
+         * @param database SQLite database instance.
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE ticks ADD COLUMN is_extended INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * Statement that adds the NEW lot to its position aggregates.
+     */
+    private static final String ADD_LOT_TO_POSITION_SQL =
+        "UPDATE positions SET "
+            + "lot_count = lot_count + 1, "
+            + "quantity = ifnull(quantity, 0) + NEW.quantity, "
+            + "cost_basis = ifnull(cost_basis, 0) + NEW.quantity * NEW.purchase_price + NEW.commission "
+        + "WHERE id = NEW.position_id;";
+
+    /**
+     * Statement that removes the OLD lot from its position aggregates.
+     * Aggregates are reset to NULL when the last lot is removed.
+     */
+    private static final String REMOVE_LOT_FROM_POSITION_SQL =
+        "UPDATE positions SET "
+            + "lot_count = lot_count - 1, "
+            + "quantity = CASE WHEN lot_count > 1 THEN quantity - OLD.quantity END, "
+            + "cost_basis = CASE WHEN lot_count > 1 "
+                + "THEN cost_basis - (OLD.quantity * OLD.purchase_price + OLD.commission) "
+            + "END "
+        + "WHERE id = OLD.position_id;";
+
+    /**
+     * Number of days before the current one to keep intraday ticks in 5 minutes buckets.
+     */
+    private static final int TICK_BUCKETS_DAYS = 7;
+
+    /**
+     * Minimal time between regular sessions of the same exchange in hours.
+     * Regular sessions last at most 9 hours, including lunch breaks,
+     * so the next session starts at least 15 hours after the previous one.
+     */
+    private static final int TICK_SESSION_GAP_HOURS = 12;
+
+    /**
+     * Name of the portfolio database file.
+     */
+    private static final String DATABASE_NAME = "folio-db";
+
     /**
      * Synchronization object used during singleton initialization.
      */
@@ -60,6 +221,44 @@ public abstract class PortfolioDatabase extends RoomDatabase {
      */
     public static final long NEW_ENTITY_ID = 0;
 
+    /**
+     * Listener of the committed symbol quotes.
+     */
+    public interface SymbolQuotesListener {
+        /**
+         * Handles symbols which quotes were committed.
+         * @param symbols Saved symbol entities.
+         */
+        void onSymbolQuotesCommitted(List<SymbolEntity> symbols);
+    }
+
+    /**
+     * Listener notified about symbols which quotes were committed or NULL, if not set.
+     */
+    private volatile SymbolQuotesListener mSymbolQuotesListener;
+
+    /**
+     * Symbols saved by the current transaction, that are not committed yet.
+     * Transaction state fields are only accessed by the thread that owns the transaction.
+     */
+    private final List<SymbolEntity> mUncommittedQuotes = new ArrayList<>();
+
+    /**
+     * Nesting depth of the current transaction.
+     */
+    private int mTransactionDepth;
+
+    /**
+     * Indicates whether the innermost transaction was marked as successful.
+     */
+    private boolean mIsTransactionSuccessful;
+
+    /**
+     * Indicates whether any of the nested transactions has failed,
+     * so the outermost transaction is rolled back.
+     */
+    private boolean mHasTransactionFailed;
+
     /**
      * Retrieves data access object for groups information.
      * @return Data access object for groups information.
@@ -90,19 +289,29 @@ public abstract class PortfolioDatabase extends RoomDatabase {
      */
     public abstract WidgetDao widgetDao();
 
+    /**
+     * Retrieves data access object for historical price candles.
+     * @return Data access object for historical price candles.
+     */
+    public abstract CandleDao candleDao();
+
+    /**
+     * Retrieves data access object for intraday price ticks.
+     * @return Data access object for intraday price ticks.
+     */
+    public abstract TickDao tickDao();
+
     /**
      * Retrieves an instance of the portfolio data store.
+     * Database uses write-ahead logging, so reads outside of transactions
+     * run on a pool of reader connections concurrently with a committing write.
      * @return Instance of the portfolio data store
      */
     public static PortfolioDatabase getInstance(Context applicationContext) {
         if (instance == null) {
             synchronized (instanceInitializationSyncObj) {
                 if (instance == null) {
-                    instance = Room
-                        .databaseBuilder(applicationContext, PortfolioDatabase.class, "folio-db")
-                        .addCallback(new DatabaseInitializationCallback(applicationContext))
-                        .addMigrations(MIGRATION_1_2)
-                        .build();
+                    instance = createBuilder(applicationContext, DATABASE_NAME).build();
                 }
             }
         }
@@ -110,6 +319,159 @@ public abstract class PortfolioDatabase extends RoomDatabase {
         return instance;
     }
 
+    /**
+     * Creates builder of the portfolio database with the given file name,
+     * configured the same way as the shared instance.
+     * @param applicationContext Application context.
+     * @param name Name of the database file.
+     * @return Portfolio database builder.
+     */
+    static Builder<PortfolioDatabase> createBuilder(Context applicationContext, String name) {
+        return Room
+            .databaseBuilder(applicationContext, PortfolioDatabase.class, name)
+            .addCallback(new DatabaseInitializationCallback(applicationContext))
+            .addMigrations(
+                MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7)
+            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING);
+    }
+
+    /**
+     * Creates triggers that keep lot aggregates of the positions up to date.
+     * @param database SQLite database instance.
+     */
+    static void createLotAggregateTriggers(SupportSQLiteDatabase database) {
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS lots_after_insert AFTER INSERT ON lots "
+                + "BEGIN " + ADD_LOT_TO_POSITION_SQL + " END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS lots_after_delete AFTER DELETE ON lots "
+                + "BEGIN " + REMOVE_LOT_FROM_POSITION_SQL + " END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS lots_after_update "
+                + "AFTER UPDATE OF position_id, quantity, purchase_price, commission ON lots "
+                + "BEGIN " + REMOVE_LOT_FROM_POSITION_SQL + " " + ADD_LOT_TO_POSITION_SQL + " END");
+    }
+
+    /**
+     * Sets listener that is notified about symbols which quotes were saved by
+     * {@link #updateSymbolQuotes(List, SymbolChanges)}. Listener is called on the writing thread
+     * after the outermost transaction is committed, and is not called if it is rolled back.
+     * @param listener Listener to notify or NULL, to stop notifications.
+     */
+    public void setSymbolQuotesListener(SymbolQuotesListener listener) {
+        mSymbolQuotesListener = listener;
+    }
+
+    /**
+     * Begins transaction, that can be nested into the current one.
+     */
+    @Override
+    public void beginTransaction() {
+        super.beginTransaction();
+
+        ++mTransactionDepth;
+        mIsTransactionSuccessful = false;
+    }
+
+    /**
+     * Marks the innermost transaction as successful.
+     */
+    @Override
+    public void setTransactionSuccessful() {
+        super.setTransactionSuccessful();
+        mIsTransactionSuccessful = true;
+    }
+
+    /**
+     * Ends the innermost transaction and notifies symbol quotes listener,
+     * if the outermost transaction was committed.
+     */
+    @Override
+    public void endTransaction() {
+        List<SymbolEntity> committedQuotes = null;
+
+        mHasTransactionFailed |= !mIsTransactionSuccessful;
+
+        // Outer transaction can't be marked successful before inner ones end
+        mIsTransactionSuccessful = false;
+
+        if (--mTransactionDepth == 0) {
+            if (!mHasTransactionFailed && !mUncommittedQuotes.isEmpty()) {
+                committedQuotes = new ArrayList<>(mUncommittedQuotes);
+            }
+
+            mUncommittedQuotes.clear();
+            mHasTransactionFailed = false;
+        }
+
+        // Transaction state has to be reset before another thread can begin a transaction
+        super.endTransaction();
+
+        SymbolQuotesListener listener = mSymbolQuotesListener;
+        if (committedQuotes != null && listener != null) {
+            listener.onSymbolQuotesCommitted(committedQuotes);
+        }
+    }
+
+    /**
+     * Saves changed market data of the symbols.
+     * Only columns that have changed are written, and symbols that already have
+     * more recent latest trade time stored are skipped.
+     * New latest and extended prices of the saved symbols are appended to the ticks
+     * in the same transaction. Saved symbols are passed to the symbol quotes listener
+     * once the transaction is committed.
+     * @param symbols Symbol entities with new data.
+     * @param changes Changes made to the symbols.
+     * @return Symbol entities that were saved.
+     */
+    public List<SymbolEntity> updateSymbolQuotes(List<SymbolEntity> symbols, SymbolChanges changes) {
+        if (changes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<SymbolEntity> savedSymbols = new ArrayList<>(symbols.size());
+        SymbolQuoteWriter writer = new SymbolQuoteWriter(getOpenHelper().getWritableDatabase());
+
+        beginTransaction();
+        try {
+            for (SymbolEntity symbol : symbols) {
+                if (writer.write(symbol, changes.getChangedFields(symbol.id))) {
+                    savedSymbols.add(symbol);
+                }
+            }
+
+            mUncommittedQuotes.addAll(savedSymbols);
+            setTransactionSuccessful();
+        }
+        finally {
+            endTransaction();
+            writer.close();
+        }
+
+        return savedSymbols;
+    }
+
+    /**
+     * Downsamples intraday price ticks, so that their number stays bounded.
+     * Ticks of the current UTC day are kept as is, ticks of the previous
+     * {@link #TICK_BUCKETS_DAYS} days are reduced to the last regular and extended hours tick
+     * of every 5 minutes and older ticks are reduced to the regular session close of every trading day.
+     * Must be called from a background thread.
+     * @param now Current epoch time in milliseconds.
+     * @return Number of removed ticks.
+     */
+    public int compactTicks(long now) {
+        long todayStart = CalendarHelper.atUtcTime(now, 0, 0);
+        long bucketsStart = todayStart - TimeUnit.DAYS.toMillis(TICK_BUCKETS_DAYS);
+
+        TickDao tickDao = tickDao();
+
+        return tickDao.downsample(bucketsStart, todayStart, TimeUnit.MINUTES.toMillis(5))
+            + tickDao.keepSessionCloses(0, bucketsStart, TimeUnit.HOURS.toMillis(TICK_SESSION_GAP_HOURS));
+    }
+
     /**
      * Removes all groups and positions from portfolio.
      */
@@ -143,88 +505,90 @@ public abstract class PortfolioDatabase extends RoomDatabase {
 
     /**
      * Loads the group with given identifier including all its children.
+     * All groups and positions are loaded with two queries and the hierarchy
+     * is assembled in memory.
+     * Queries do not share a transaction, so they run on reader connections and never wait
+     * for writers. Positions of a group that was added between the queries are skipped:
+     * {@link PortfolioRepository} reloads the snapshot after any change made during the load.
      * @param groupId Identifier of the group to load.
      * @param isExpanded Flag that indicates whether all groups should be expanded.
      * @return Items group with given identifier.
      */
     private GroupViewModel loadHierarchy(long groupId, Boolean isExpanded) {
-        beginTransaction();
-        try {
-            GroupViewModel group = groupDao().loadById(groupId);
+        List<GroupDao.GroupTreeItem> groupItems = groupDao().loadAllWithParent();
+        List<PositionDao.PositionTreeItem> positionItems = positionDao().loadAllWithParent();
 
-            if (group != null) {
-                BigDecimal[] value =
-                    loadGroupChildren(group, (byte) 1, isExpanded);
+        LongSparseArray<GroupViewModel> groups = new LongSparseArray<>(groupItems.size());
+        for (GroupDao.GroupTreeItem groupItem : groupItems) {
+            groups.put(groupItem.group.id, groupItem.group);
+        }
 
-                group.currentValue = value[0];
-                group.baseValue = value[1];
+        // Items come sorted by name, so appending them keeps children sorted
+        // with groups followed by positions
+        for (GroupDao.GroupTreeItem groupItem : groupItems) {
+            if (groupItem.parentGroupId != null) {
+                GroupViewModel parent = groups.get(groupItem.parentGroupId);
 
-                if (isExpanded != null) {
-                    group.isExpanded = isExpanded;
+                if (parent != null) {
+                    groupItem.group.parent = parent;
+                    parent.children.add(groupItem.group);
                 }
             }
+        }
 
-            setTransactionSuccessful();
+        for (PositionDao.PositionTreeItem positionItem : positionItems) {
+            GroupViewModel parent = groups.get(positionItem.parentGroupId);
 
-            return group;
+            if (parent != null) {
+                positionItem.position.parent = parent;
+                parent.children.add(positionItem.position);
+            }
         }
-        finally {
-            endTransaction();
+
+        GroupViewModel group = groups.get(groupId);
+
+        if (group != null) {
+            group.parent = null;
+            computeGroupValue(group, (byte) 1, isExpanded);
         }
+
+        return group;
     }
 
     /**
-     * Recursively loads all children in the given group.
-     * @param group Group view model to load children for.
-     * @param level Current hierarchy level.
-     * @return Array with two elements where first element is the total value of all children
-     * and second element is the total gain or loss of all children.
+     * Recursively computes value of the group from its children
+     * and populates hierarchy levels.
+     * @param group Group view model with loaded children.
+     * @param level Hierarchy level of the group children.
+     * @param isExpanded Flag that indicates whether all groups should be expanded.
      */
-    // TODO: Rewrite using recursive CTE?
-    private BigDecimal[] loadGroupChildren(
+    private static void computeGroupValue(
             GroupViewModel group,
             byte level,
             Boolean isExpanded) {
-        BigDecimal[] result = new BigDecimal[] { null, null };
-
-        // Load children groups
-        for (GroupViewModel childGroup: groupDao().loadByParentGroup(group.id)) {
-            childGroup.level = level;
-            childGroup.parent = group;
-            group.children.add(childGroup);
+        long currentValue = Money.UNKNOWN;
+        long baseValue = Money.UNKNOWN;
 
-            // Load children for the child group
-            BigDecimal[] childGroupValue =
-                loadGroupChildren(childGroup, (byte) (level + 1), isExpanded);
+        for (PositionsListItemViewModel child : group.children) {
+            child.level = level;
 
-            // Populate group's value
-            childGroup.currentValue = childGroupValue[0];
-            childGroup.baseValue = childGroupValue[1];
-
-            if (isExpanded != null) {
-                childGroup.isExpanded = isExpanded;
+            if (child instanceof GroupViewModel) {
+                computeGroupValue((GroupViewModel) child, (byte) (level + 1), isExpanded);
             }
 
-            // Update current group values
-            result[0] = BigDecimalHelper.add(result[0], childGroupValue[0]);
-            result[1] = BigDecimalHelper.add(result[1], childGroupValue[1]);
+            currentValue = Money.add(currentValue, child.currentValue);
+            baseValue = Money.add(baseValue, child.baseValue);
         }
 
-        // Load children positions
-        for (PositionViewModel childPosition: positionDao().loadByParentGroup(group.id)) {
-            childPosition.level = level;
-            childPosition.parent = group;
-            group.children.add(childPosition);
+        group.currentValue = currentValue;
+        group.baseValue = baseValue;
 
-            // Update current group values
-            result[0] = BigDecimalHelper.add(result[0], childPosition.currentValue);
-            result[1] = BigDecimalHelper.add(result[1], childPosition.baseValue);
+        if (isExpanded != null) {
+            group.isExpanded = isExpanded;
         }
 
         if (!group.children.isEmpty()) {
             group.children.get(group.children.size() - 1).lastInParent = true;
         }
-
-        return result;
     }
 }
@@ -0,0 +1,176 @@
+package ru.nahk.folio.model;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.util.LongSparseArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exports portfolio records from the database.
+ * Lots are streamed straight from the cursor into the records writer one row at a time,
+ * without loading the portfolio hierarchy or lot view-models.
+ * Groups without positions and child groups are exported as records without stock symbol,
+ * other groups are implied by the group paths of their descendants.
+ */
+public class PortfolioExporter {
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Names of the groups indexed by group identifier.
+     */
+    private final LongSparseArray<String> mGroupNames = new LongSparseArray<>();
+
+    /**
+     * Identifiers of the parent groups indexed by group identifier.
+     */
+    private final LongSparseArray<Long> mParentGroupIds = new LongSparseArray<>();
+
+    /**
+     * Group paths indexed by group identifier, filled as groups are exported.
+     */
+    private final LongSparseArray<List<String>> mGroupPaths = new LongSparseArray<>();
+
+    /**
+     * Identifiers of the groups that have child groups or positions.
+     */
+    private final LongSparseArray<Boolean> mNonEmptyGroupIds = new LongSparseArray<>();
+
+    /**
+     * Creates new instance of the {@link PortfolioExporter} class.
+     * @param dataStore Persistent portfolio data store.
+     */
+    public PortfolioExporter(@NonNull PortfolioDatabase dataStore) {
+        mDataStore = dataStore;
+    }
+
+    /**
+     * Exports all groups, positions and lots of the portfolio.
+     * Must be called from a background thread.
+     * Positions of a group that was added during the export are skipped.
+     * @param writer Portfolio records writer.
+     * @return Number of exported lots.
+     * @throws IOException Thrown if records cannot be written.
+     */
+    public int exportRecords(@NonNull PortfolioRecord.Writer writer) throws IOException {
+        loadGroups();
+
+        PortfolioRecord record = new PortfolioRecord();
+        int lotCount = 0;
+
+        try (Cursor cursor = mDataStore.query(
+                "SELECT p." + PositionEntity.PARENT_GROUP_ID_COLUMN
+                    + ", p." + PositionEntity.SYMBOL_ID_COLUMN
+                    + ", l." + LotEntity.QUANTITY_COLUMN
+                    + ", l." + LotEntity.PURCHASE_PRICE_COLUMN
+                    + ", l." + LotEntity.PURCHASE_DATE_COLUMN
+                    + ", l." + LotEntity.COMMISSION_COLUMN
+                    + " FROM " + PositionEntity.TABLE_NAME + " p"
+                    + " LEFT JOIN " + LotEntity.TABLE_NAME + " l"
+                    + " ON l." + LotEntity.POSITION_ID_COLUMN + " = p." + PositionEntity.ID_COLUMN
+                    + " ORDER BY p." + PositionEntity.PARENT_GROUP_ID_COLUMN
+                    + ", p." + PositionEntity.SYMBOL_ID_COLUMN
+                    + ", p." + PositionEntity.ID_COLUMN
+                    + ", l." + LotEntity.PURCHASE_DATE_COLUMN
+                    + ", l." + LotEntity.ID_COLUMN,
+                null)) {
+            while (cursor.moveToNext()) {
+                long groupId = cursor.getLong(0);
+                List<String> groupPath = getGroupPath(groupId);
+
+                if (groupPath == null) {
+                    continue;
+                }
+
+                mNonEmptyGroupIds.put(groupId, Boolean.TRUE);
+
+                record.clear();
+                record.groupPath.addAll(groupPath);
+                record.symbol = cursor.getString(1);
+
+                if (!cursor.isNull(2)) {
+                    record.hasLot = true;
+                    record.quantity = cursor.getInt(2);
+                    record.purchasePrice = cursor.getLong(3);
+                    record.purchaseDate = DateTypeConverter.toDate(cursor.getInt(4));
+                    record.commission = cursor.getLong(5);
+
+                    ++lotCount;
+                }
+
+                writer.write(record);
+            }
+        }
+
+        for (int index = 0; index < mGroupNames.size(); ++index) {
+            long groupId = mGroupNames.keyAt(index);
+            List<String> groupPath = getGroupPath(groupId);
+
+            if (groupPath == null || groupPath.isEmpty() || mNonEmptyGroupIds.get(groupId) != null) {
+                continue;
+            }
+
+            record.clear();
+            record.groupPath.addAll(groupPath);
+            writer.write(record);
+        }
+
+        return lotCount;
+    }
+
+    /**
+     * Loads names and parents of all groups.
+     */
+    private void loadGroups() {
+        try (Cursor cursor = mDataStore.query(
+                "SELECT " + GroupEntity.ID_COLUMN + ", "
+                    + GroupEntity.PARENT_GROUP_ID_COLUMN + ", "
+                    + GroupEntity.NAME_COLUMN
+                    + " FROM " + GroupEntity.TABLE_NAME,
+                null)) {
+            while (cursor.moveToNext()) {
+                long groupId = cursor.getLong(0);
+
+                mGroupNames.put(groupId, cursor.getString(2));
+
+                if (cursor.isNull(1)) {
+                    mParentGroupIds.put(groupId, null);
+                } else {
+                    mParentGroupIds.put(groupId, cursor.getLong(1));
+                    mNonEmptyGroupIds.put(cursor.getLong(1), Boolean.TRUE);
+                }
+            }
+        }
+
+        mGroupPaths.put(GroupDao.ROOT_GROUP_ID, Collections.<String>emptyList());
+    }
+
+    /**
+     * Gets names of the groups from the root group (exclusive) to the given group.
+     * @param groupId Group identifier.
+     * @return Group path or NULL, if group is not attached to the root group.
+     */
+    private List<String> getGroupPath(long groupId) {
+        List<String> groupPath = mGroupPaths.get(groupId);
+
+        if (groupPath == null && mGroupNames.indexOfKey(groupId) >= 0) {
+            Long parentGroupId = mParentGroupIds.get(groupId);
+            List<String> parentPath = parentGroupId == null ? null : getGroupPath(parentGroupId);
+
+            if (parentPath != null) {
+                groupPath = new ArrayList<>(parentPath.size() + 1);
+                groupPath.addAll(parentPath);
+                groupPath.add(mGroupNames.get(groupId));
+                mGroupPaths.put(groupId, groupPath);
+            }
+        }
+
+        return groupPath;
+    }
+}
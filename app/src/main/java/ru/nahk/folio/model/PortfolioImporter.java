@@ -0,0 +1,389 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Imports portfolio records into the database.
+ * Records are read in chunks outside of transactions and each chunk is written
+ * in its own short transaction with compiled insert statements, so a large import
+ * neither holds the write lock for the whole file nor reloads the portfolio per lot.
+ * Groups and positions that already exist are reused, so importing the same file twice
+ * only adds the lots again. Records without stock symbol only create their groups.
+ */
+public class PortfolioImporter {
+    /**
+     * Maximum number of records written in one transaction.
+     */
+    static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Identifiers of the groups indexed by the parent group identifier and group name.
+     */
+    private final Map<String, Long> mGroupIds = new HashMap<>();
+
+    /**
+     * Identifiers of the positions indexed by the parent group identifier and stock symbol.
+     */
+    private final Map<String, Long> mPositionIds = new HashMap<>();
+
+    /**
+     * Stock symbols that are stored in the database.
+     */
+    private final Map<String, String> mSymbolIds = new HashMap<>();
+
+    /**
+     * Symbol entities that were added by the import.
+     */
+    private final List<SymbolEntity> mNewSymbols = new ArrayList<>();
+
+    /**
+     * Number of lots that were imported.
+     */
+    private int mLotCount;
+
+    /**
+     * Compiled statement that inserts a symbol.
+     */
+    private SupportSQLiteStatement mInsertSymbolStatement;
+
+    /**
+     * Compiled statement that inserts a group.
+     */
+    private SupportSQLiteStatement mInsertGroupStatement;
+
+    /**
+     * Compiled statement that inserts a position.
+     */
+    private SupportSQLiteStatement mInsertPositionStatement;
+
+    /**
+     * Compiled statement that inserts a lot.
+     */
+    private SupportSQLiteStatement mInsertLotStatement;
+
+    /**
+     * Creates new instance of the {@link PortfolioImporter} class.
+     * @param dataStore Persistent portfolio data store.
+     */
+    public PortfolioImporter(@NonNull PortfolioDatabase dataStore) {
+        mDataStore = dataStore;
+    }
+
+    /**
+     * Imports all records into the root group.
+     * Must be called from a background thread outside of any database transaction.
+     * When reading fails, chunks written before the failure remain imported.
+     * @param reader Portfolio records reader.
+     * @throws IOException Thrown if records cannot be read.
+     */
+    public void importRecords(@NonNull PortfolioRecord.Reader reader) throws IOException {
+        loadExistingItems();
+
+        SupportSQLiteDatabase database = mDataStore.getOpenHelper().getWritableDatabase();
+
+        try {
+            mInsertSymbolStatement = database.compileStatement(
+                "INSERT OR IGNORE INTO " + SymbolEntity.TABLE_NAME
+                    + " (" + SymbolEntity.ID_COLUMN + ") VALUES (?)");
+
+            mInsertGroupStatement = database.compileStatement(
+                "INSERT INTO " + GroupEntity.TABLE_NAME + " ("
+                    + GroupEntity.NAME_COLUMN + ", "
+                    + GroupEntity.IS_EXPANDED_COLUMN + ", "
+                    + GroupEntity.PARENT_GROUP_ID_COLUMN + ") VALUES (?, 1, ?)");
+
+            mInsertPositionStatement = database.compileStatement(
+                "INSERT INTO " + PositionEntity.TABLE_NAME + " ("
+                    + PositionEntity.PARENT_GROUP_ID_COLUMN + ", "
+                    + PositionEntity.SYMBOL_ID_COLUMN + ", "
+                    + PositionEntity.LOT_COUNT_COLUMN + ") VALUES (?, ?, 0)");
+
+            // Position aggregates are maintained by the lot triggers
+            mInsertLotStatement = database.compileStatement(
+                "INSERT INTO " + LotEntity.TABLE_NAME + " ("
+                    + LotEntity.POSITION_ID_COLUMN + ", "
+                    + LotEntity.QUANTITY_COLUMN + ", "
+                    + LotEntity.PURCHASE_PRICE_COLUMN + ", "
+                    + LotEntity.PURCHASE_DATE_COLUMN + ", "
+                    + LotEntity.COMMISSION_COLUMN + ") VALUES (?, ?, ?, ?, ?)");
+
+            List<PortfolioRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+            List<PortfolioRecord> spareRecords = new ArrayList<>(CHUNK_SIZE);
+
+            while (readChunk(reader, chunk, spareRecords)) {
+                writeChunk(chunk);
+
+                // Records are reused by the next chunk
+                spareRecords.addAll(chunk);
+                chunk.clear();
+            }
+        }
+        finally {
+            closeStatement(mInsertSymbolStatement);
+            closeStatement(mInsertGroupStatement);
+            closeStatement(mInsertPositionStatement);
+            closeStatement(mInsertLotStatement);
+        }
+    }
+
+    /**
+     * Gets the symbol entities that were added by the import.
+     * They do not have any market data yet.
+     * @return New symbol entities.
+     */
+    public List<SymbolEntity> getNewSymbols() {
+        return mNewSymbols;
+    }
+
+    /**
+     * Gets the number of lots that were imported.
+     * @return Number of imported lots.
+     */
+    public int getLotCount() {
+        return mLotCount;
+    }
+
+    /**
+     * Loads identifiers of existing groups, positions and symbols.
+     */
+    private void loadExistingItems() {
+        try (Cursor cursor = mDataStore.query(
+                "SELECT " + GroupEntity.ID_COLUMN + ", "
+                    + GroupEntity.PARENT_GROUP_ID_COLUMN + ", "
+                    + GroupEntity.NAME_COLUMN
+                    + " FROM " + GroupEntity.TABLE_NAME
+                    + " WHERE " + GroupEntity.PARENT_GROUP_ID_COLUMN + " IS NOT NULL",
+                null)) {
+            while (cursor.moveToNext()) {
+                String key = getGroupKey(cursor.getLong(1), cursor.getString(2));
+
+                // Keep the first group among the ones with the same name
+                if (!mGroupIds.containsKey(key)) {
+                    mGroupIds.put(key, cursor.getLong(0));
+                }
+            }
+        }
+
+        try (Cursor cursor = mDataStore.query(
+                "SELECT " + PositionEntity.ID_COLUMN + ", "
+                    + PositionEntity.PARENT_GROUP_ID_COLUMN + ", "
+                    + PositionEntity.SYMBOL_ID_COLUMN
+                    + " FROM " + PositionEntity.TABLE_NAME,
+                null)) {
+            while (cursor.moveToNext()) {
+                String key = getPositionKey(cursor.getLong(1), cursor.getString(2));
+
+                if (!mPositionIds.containsKey(key)) {
+                    mPositionIds.put(key, cursor.getLong(0));
+                }
+            }
+        }
+
+        try (Cursor cursor = mDataStore.query(
+                "SELECT " + SymbolEntity.ID_COLUMN + " FROM " + SymbolEntity.TABLE_NAME,
+                null)) {
+            while (cursor.moveToNext()) {
+                String symbol = cursor.getString(0);
+                mSymbolIds.put(normalizeSymbol(symbol), symbol);
+            }
+        }
+    }
+
+    /**
+     * Reads next chunk of records.
+     * @param reader Portfolio records reader.
+     * @param chunk List to add records to.
+     * @param spareRecords Records that can be reused.
+     * @return True if any records were read, otherwise false.
+     * @throws IOException Thrown if records cannot be read.
+     */
+    private static boolean readChunk(
+        PortfolioRecord.Reader reader,
+        List<PortfolioRecord> chunk,
+        List<PortfolioRecord> spareRecords) throws IOException {
+
+        PortfolioRecord record;
+        while (chunk.size() < CHUNK_SIZE && (record = reader.read()) != null) {
+            // Readers reuse the record instance, so it is copied
+            PortfolioRecord copy =
+                spareRecords.isEmpty()
+                    ? new PortfolioRecord()
+                    : spareRecords.remove(spareRecords.size() - 1);
+
+            copy.clear();
+            copy.groupPath.addAll(record.groupPath);
+            copy.symbol = record.symbol;
+            copy.hasLot = record.hasLot;
+            copy.quantity = record.quantity;
+            copy.purchasePrice = record.purchasePrice;
+            copy.purchaseDate = record.purchaseDate;
+            copy.commission = record.commission;
+
+            chunk.add(copy);
+        }
+
+        return !chunk.isEmpty();
+    }
+
+    /**
+     * Writes chunk of records in one transaction.
+     * @param chunk Records to write.
+     */
+    private void writeChunk(List<PortfolioRecord> chunk) {
+        mDataStore.beginTransaction();
+        try {
+            for (PortfolioRecord record : chunk) {
+                long groupId = ensureGroupPath(record.groupPath);
+
+                if (record.symbol == null) {
+                    continue;
+                }
+
+                long positionId = ensurePosition(groupId, ensureSymbol(record.symbol));
+
+                if (record.hasLot) {
+                    mInsertLotStatement.bindLong(1, positionId);
+                    mInsertLotStatement.bindLong(2, record.quantity);
+                    mInsertLotStatement.bindLong(3, record.purchasePrice);
+                    mInsertLotStatement.bindLong(4, DateTypeConverter.fromDate(record.purchaseDate));
+                    mInsertLotStatement.bindLong(5, record.commission);
+                    mInsertLotStatement.executeInsert();
+
+                    ++mLotCount;
+                }
+            }
+
+            mDataStore.setTransactionSuccessful();
+        }
+        finally {
+            mDataStore.endTransaction();
+        }
+    }
+
+    /**
+     * Finds or creates the groups along the path.
+     * @param groupPath Names of the groups below the root group.
+     * @return Identifier of the last group in the path.
+     */
+    private long ensureGroupPath(List<String> groupPath) {
+        long groupId = GroupDao.ROOT_GROUP_ID;
+
+        for (String name : groupPath) {
+            String key = getGroupKey(groupId, name);
+            Long childGroupId = mGroupIds.get(key);
+
+            if (childGroupId == null) {
+                mInsertGroupStatement.bindString(1, name);
+                mInsertGroupStatement.bindLong(2, groupId);
+                childGroupId = mInsertGroupStatement.executeInsert();
+
+                mGroupIds.put(key, childGroupId);
+            }
+
+            groupId = childGroupId;
+        }
+
+        return groupId;
+    }
+
+    /**
+     * Finds or creates the symbol.
+     * @param symbol Stock symbol.
+     * @return Stored stock symbol.
+     */
+    private String ensureSymbol(String symbol) {
+        String normalizedSymbol = normalizeSymbol(symbol);
+        String storedSymbol = mSymbolIds.get(normalizedSymbol);
+
+        if (storedSymbol == null) {
+            mInsertSymbolStatement.bindString(1, normalizedSymbol);
+            mInsertSymbolStatement.executeInsert();
+
+            storedSymbol = normalizedSymbol;
+            mSymbolIds.put(normalizedSymbol, storedSymbol);
+            mNewSymbols.add(new SymbolEntity(storedSymbol));
+        }
+
+        return storedSymbol;
+    }
+
+    /**
+     * Finds or creates the position.
+     * @param groupId Identifier of the parent group.
+     * @param symbol Stored stock symbol.
+     * @return Identifier of the position.
+     */
+    private long ensurePosition(long groupId, String symbol) {
+        String key = getPositionKey(groupId, symbol);
+        Long positionId = mPositionIds.get(key);
+
+        if (positionId == null) {
+            mInsertPositionStatement.bindLong(1, groupId);
+            mInsertPositionStatement.bindString(2, symbol);
+            positionId = mInsertPositionStatement.executeInsert();
+
+            mPositionIds.put(key, positionId);
+        }
+
+        return positionId;
+    }
+
+    /**
+     * Builds index key for the group.
+     * @param parentGroupId Identifier of the parent group.
+     * @param name Group name.
+     * @return Group key.
+     */
+    private static String getGroupKey(long parentGroupId, String name) {
+        return parentGroupId + "/" + name;
+    }
+
+    /**
+     * Builds index key for the position.
+     * @param parentGroupId Identifier of the parent group.
+     * @param symbol Stock symbol.
+     * @return Position key.
+     */
+    private static String getPositionKey(long parentGroupId, String symbol) {
+        return parentGroupId + "/" + normalizeSymbol(symbol);
+    }
+
+    /**
+     * Normalizes stock symbol, which is compared case-insensitively in the database.
+     * @param symbol Stock symbol.
+     * @return Normalized stock symbol.
+     */
+    private static String normalizeSymbol(String symbol) {
+        return symbol.trim().toUpperCase(Locale.US);
+    }
+
+    /**
+     * Releases compiled statement.
+     * @param statement Statement to release or NULL.
+     */
+    private static void closeStatement(SupportSQLiteStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            }
+            catch (IOException closeError) {
+                // Statement resources are released by the database anyway
+            }
+        }
+    }
+}
@@ -2,7 +2,7 @@ package ru.nahk.folio.model;
 
 import android.arch.persistence.room.ColumnInfo;
 
-import java.math.BigDecimal;
+import ru.nahk.folio.utils.Money;
 
 /**
  * Base view-model for all portfolio items.
@@ -15,14 +15,14 @@ public abstract class PortfolioItemViewModel {
     public long id;
 
     /**
-     * Current value of the item.
+     * Current value of the item in {@link Money} units.
      */
     @ColumnInfo(name = "current_value")
-    public BigDecimal currentValue;
+    public long currentValue = Money.UNKNOWN;
 
     /**
-     * Base value of the item.
+     * Base value of the item in {@link Money} units.
      */
     @ColumnInfo(name = "base_value")
-    public BigDecimal baseValue;
+    public long baseValue = Money.UNKNOWN;
 }
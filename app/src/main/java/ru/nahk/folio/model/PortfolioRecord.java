@@ -0,0 +1,296 @@
+package ru.nahk.folio.model;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+import ru.nahk.folio.utils.CalendarHelper;
+import ru.nahk.folio.utils.Money;
+
+/**
+ * Flat portfolio record used for import and export.
+ * Every record describes one lot together with the position and groups it belongs to,
+ * a position without lots or, when stock symbol is empty, a group without positions.
+ */
+public class PortfolioRecord {
+    /**
+     * Comma-separated values format.
+     */
+    public static final int FORMAT_CSV = 0;
+
+    /**
+     * JSON format.
+     */
+    public static final int FORMAT_JSON = 1;
+
+    /**
+     * Name of the group path field.
+     */
+    static final String GROUP_FIELD = "group";
+
+    /**
+     * Name of the stock symbol field.
+     */
+    static final String SYMBOL_FIELD = "symbol";
+
+    /**
+     * Name of the lot quantity field.
+     */
+    static final String QUANTITY_FIELD = "quantity";
+
+    /**
+     * Name of the lot purchase price field.
+     */
+    static final String PURCHASE_PRICE_FIELD = "purchase_price";
+
+    /**
+     * Name of the lot purchase date field.
+     */
+    static final String PURCHASE_DATE_FIELD = "purchase_date";
+
+    /**
+     * Name of the lot commission field.
+     */
+    static final String COMMISSION_FIELD = "commission";
+
+    /**
+     * Names of the groups from the root group (exclusive) to the position parent group.
+     */
+    public final List<String> groupPath = new ArrayList<>();
+
+    /**
+     * Stock symbol of the position or NULL, if record describes a group without positions.
+     */
+    public String symbol;
+
+    /**
+     * Indicates whether record describes a lot, otherwise it describes a position without lots.
+     */
+    public boolean hasLot;
+
+    /**
+     * Number of shares in the lot.
+     */
+    public int quantity;
+
+    /**
+     * Purchase price of one share.
+     */
+    public long purchasePrice;
+
+    /**
+     * Purchase date of the lot.
+     */
+    public Calendar purchaseDate;
+
+    /**
+     * Commission paid for the lot.
+     */
+    public long commission;
+
+    /**
+     * Resets the record to an empty state, so it can be reused.
+     */
+    void clear() {
+        groupPath.clear();
+        symbol = null;
+        hasLot = false;
+        quantity = 0;
+        purchasePrice = 0;
+        purchaseDate = null;
+        commission = 0;
+    }
+
+    /**
+     * Sequentially reads portfolio records from the stream.
+     */
+    public interface Reader extends Closeable {
+        /**
+         * Reads next record.
+         * @return Next record or NULL, if there are no more records.
+         * @throws IOException Thrown if stream cannot be read or has invalid format.
+         */
+        PortfolioRecord read() throws IOException;
+    }
+
+    /**
+     * Sequentially writes portfolio records to the stream.
+     */
+    public interface Writer extends Closeable {
+        /**
+         * Writes the record. Record can be reused by the caller once method returns.
+         * @param record Record to write.
+         * @throws IOException Thrown if stream cannot be written.
+         */
+        void write(PortfolioRecord record) throws IOException;
+    }
+
+    /**
+     * Creates portfolio records reader, detecting format from the stream contents.
+     * @param reader Buffered stream reader.
+     * @return Portfolio records reader.
+     * @throws IOException Thrown if stream cannot be read.
+     */
+    public static Reader openReader(@NonNull BufferedReader reader) throws IOException {
+        // JSON document is an array, while CSV document starts with the header
+        reader.mark(1);
+        int firstCharacter = reader.read();
+        while (firstCharacter != -1
+                && (Character.isWhitespace(firstCharacter)
+                    || firstCharacter == CsvPortfolioReader.BYTE_ORDER_MARK.charAt(0))) {
+            reader.mark(1);
+            firstCharacter = reader.read();
+        }
+        reader.reset();
+
+        return
+            firstCharacter == '['
+                ? new JsonPortfolioReader(reader)
+                : new CsvPortfolioReader(reader);
+    }
+
+    /**
+     * Creates portfolio records writer for the given format.
+     * @param writer Stream writer.
+     * @param format Format of the records: {@link #FORMAT_CSV} or {@link #FORMAT_JSON}.
+     * @return Portfolio records writer.
+     * @throws IOException Thrown if stream cannot be written.
+     */
+    public static Writer openWriter(@NonNull java.io.Writer writer, int format) throws IOException {
+        return
+            format == FORMAT_JSON
+                ? new JsonPortfolioWriter(writer)
+                : new CsvPortfolioWriter(writer);
+    }
+
+    /**
+     * Parses lot fields of the record from their string representation.
+     * Lot is present when quantity is specified. Record without stock symbol
+     * and lot describes the group at its group path, its symbol is reset to NULL.
+     * @param record Record to update.
+     * @param quantity Quantity or NULL.
+     * @param purchasePrice Purchase price or NULL.
+     * @param purchaseDate Purchase date or NULL.
+     * @param commission Commission or NULL.
+     * @param location Location of the record in the stream for error messages.
+     * @throws IOException Thrown if any of the fields is invalid.
+     */
+    static void parseLot(
+        PortfolioRecord record,
+        String quantity,
+        String purchasePrice,
+        String purchaseDate,
+        String commission,
+        String location) throws IOException {
+
+        if (isEmpty(record.symbol)) {
+            // Group without positions has no lot either, and root group is not a record
+            if (!isEmpty(quantity) || record.groupPath.isEmpty()) {
+                throw new IOException("Missing " + SYMBOL_FIELD + " " + location);
+            }
+
+            record.symbol = null;
+            return;
+        }
+
+        if (isEmpty(quantity)) {
+            return;
+        }
+
+        record.hasLot = true;
+
+        try {
+            record.quantity = Integer.parseInt(quantity.trim());
+        }
+        catch (NumberFormatException formatError) {
+            throw new IOException("Invalid " + QUANTITY_FIELD + " " + location, formatError);
+        }
+
+        record.purchasePrice = parseMoney(purchasePrice, PURCHASE_PRICE_FIELD, location);
+        record.commission = isEmpty(commission) ? 0 : parseMoney(commission, COMMISSION_FIELD, location);
+        record.purchaseDate = parseDate(purchaseDate, location);
+    }
+
+    /**
+     * Formats date in ISO 8601 format.
+     * @param date Date to format.
+     * @return Formatted date, for example "2018-01-31".
+     */
+    static String formatDate(Calendar date) {
+        return
+            String.format(
+                Locale.US,
+                "%04d-%02d-%02d",
+                date.get(Calendar.YEAR),
+                date.get(Calendar.MONTH) + 1,
+                date.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Parses money field.
+     * @param value Field value.
+     * @param field Field name for error messages.
+     * @param location Location of the record in the stream for error messages.
+     * @return Money value.
+     * @throws IOException Thrown if value is missing or invalid.
+     */
+    private static long parseMoney(String value, String field, String location) throws IOException {
+        if (isEmpty(value)) {
+            throw new IOException("Missing " + field + " " + location);
+        }
+
+        try {
+            return Money.parse(value.trim());
+        }
+        catch (NumberFormatException | ArithmeticException formatError) {
+            throw new IOException("Invalid " + field + " " + location, formatError);
+        }
+    }
+
+    /**
+     * Parses ISO 8601 date field.
+     * @param value Field value, for example "2018-01-31".
+     * @param location Location of the record in the stream for error messages.
+     * @return Parsed date.
+     * @throws IOException Thrown if value is missing or invalid.
+     */
+    private static Calendar parseDate(String value, String location) throws IOException {
+        if (isEmpty(value)) {
+            throw new IOException("Missing " + PURCHASE_DATE_FIELD + " " + location);
+        }
+
+        String[] components = value.trim().split("-");
+
+        try {
+            if (components.length == 3) {
+                int year = Integer.parseInt(components[0]);
+                int month = Integer.parseInt(components[1]);
+                int day = Integer.parseInt(components[2]);
+
+                if (month >= 1 && month <= 12 && day >= 1 && day <= 31) {
+                    return CalendarHelper.fromComponents(year, month - 1, day);
+                }
+            }
+        }
+        catch (NumberFormatException formatError) {
+            // Reported below
+        }
+
+        throw new IOException("Invalid " + PURCHASE_DATE_FIELD + " " + location);
+    }
+
+    /**
+     * Checks whether field value is empty.
+     * @param value Field value.
+     * @return True if value is NULL or blank, otherwise false.
+     */
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,173 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.room.InvalidationTracker;
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide in-memory snapshot of the portfolio hierarchy.
+ * Snapshot is loaded on first access and reloaded after portfolio structure changes,
+ * i.e. groups, positions or lots, so consumers only hit the database after such a change.
+ * Symbol quotes are applied to the loaded snapshot in place once they are committed.
+ * Snapshot itself never leaves the repository: it is only accessed under the repository lock
+ * and every consumer receives its own copy, which it can change without affecting others.
+ */
+public class PortfolioRepository {
+    /**
+     * Synchronization object used during singleton initialization.
+     */
+    private static final Object instanceInitializationSyncObj = new Object();
+
+    /**
+     * Portfolio repository instance.
+     */
+    private static PortfolioRepository instance;
+
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Observer that discards the snapshot when portfolio structure tables change.
+     */
+    private final InvalidationTracker.Observer mInvalidationObserver;
+
+    /**
+     * Indicates whether invalidation observer is registered.
+     */
+    private boolean mIsTracking;
+
+    /**
+     * Version of the portfolio data, incremented on every change.
+     */
+    private final AtomicInteger mVersion = new AtomicInteger();
+
+    /**
+     * Current portfolio snapshot or NULL, if it was not loaded yet.
+     */
+    private PortfolioTree mSnapshot;
+
+    /**
+     * Version of the portfolio data the snapshot was loaded at.
+     */
+    private int mSnapshotVersion;
+
+    /**
+     * Creates new instance of the {@link PortfolioRepository} class.
+     * @param dataStore Persistent portfolio data store.
+     */
+    PortfolioRepository(PortfolioDatabase dataStore) {
+        mDataStore = dataStore;
+
+        mInvalidationObserver =
+            new InvalidationTracker.Observer(
+                GroupEntity.TABLE_NAME,
+                PositionEntity.TABLE_NAME,
+                LotEntity.TABLE_NAME) {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalidate();
+                }
+            };
+
+        // Symbol changes are applied without reloading the snapshot
+        mDataStore.setSymbolQuotesListener(new PortfolioDatabase.SymbolQuotesListener() {
+            @Override
+            public void onSymbolQuotesCommitted(List<SymbolEntity> symbols) {
+                applySymbolQuotes(symbols);
+            }
+        });
+    }
+
+    /**
+     * Retrieves an instance of the portfolio repository.
+     * @param applicationContext Application context.
+     * @return Instance of the portfolio repository.
+     */
+    public static PortfolioRepository getInstance(Context applicationContext) {
+        if (instance == null) {
+            synchronized (instanceInitializationSyncObj) {
+                if (instance == null) {
+                    instance = new PortfolioRepository(PortfolioDatabase.getInstance(applicationContext));
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Retrieves persistent portfolio data store the snapshot is loaded from.
+     * @return Persistent portfolio data store.
+     */
+    public PortfolioDatabase getDataStore() {
+        return mDataStore;
+    }
+
+    /**
+     * Retrieves copy of the current portfolio snapshot, loading it if portfolio has changed.
+     * Must be called from a background thread.
+     * @return Portfolio hierarchy with the stored group expansion state, owned by the caller.
+     */
+    public synchronized PortfolioTree getPortfolio() {
+        if (!mIsTracking) {
+            // Registration synchronizes database triggers, so it is postponed till the first load
+            mDataStore.getInvalidationTracker().addObserver(mInvalidationObserver);
+            mIsTracking = true;
+        }
+
+        // Version is captured before loading, so changes made during the load
+        // cause another reload on the next access
+        int version = mVersion.get();
+
+        if (mSnapshot == null || mSnapshotVersion != version) {
+            mSnapshot = new PortfolioTree(mDataStore.loadPortfolio());
+            mSnapshotVersion = version;
+        }
+
+        return mSnapshot.copy();
+    }
+
+    /**
+     * Reloads portfolio snapshot after a change made by the caller.
+     * Room delivers table invalidations asynchronously, so the snapshot
+     * may not be discarded yet when the writing thread reads it back.
+     * Must be called from a background thread.
+     * @return Portfolio hierarchy with the stored group expansion state, owned by the caller.
+     */
+    public synchronized PortfolioTree reloadPortfolio() {
+        invalidate();
+        return getPortfolio();
+    }
+
+    /**
+     * Applies committed symbol quotes to the loaded portfolio snapshot.
+     * Snapshot that is being loaded is updated after the load, so quotes committed
+     * during the load are not lost.
+     * @param symbols Symbol entities which quotes were committed.
+     */
+    private synchronized void applySymbolQuotes(List<SymbolEntity> symbols) {
+        if (mSnapshot == null) {
+            return;
+        }
+
+        List<PositionsListItemViewModel> changedItems = new ArrayList<>();
+        for (SymbolEntity symbol : symbols) {
+            mSnapshot.updateSymbol(symbol, changedItems);
+        }
+    }
+
+    /**
+     * Marks current portfolio snapshot as outdated, so it is reloaded on the next access.
+     * Does not block, so it is safe to call from change notifications.
+     */
+    public void invalidate() {
+        mVersion.incrementAndGet();
+    }
+}
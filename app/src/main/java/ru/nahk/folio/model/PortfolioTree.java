@@ -0,0 +1,337 @@
+package ru.nahk.folio.model;
+
+import android.util.LongSparseArray;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ru.nahk.folio.utils.Money;
+
+/**
+ * In-memory portfolio hierarchy that indexes positions by stock symbol and identifier,
+ * so price and lot changes can be applied without reloading the whole portfolio.
+ * Changes are applied to the affected positions and propagated as value deltas
+ * up the parent chain only.
+ * Hierarchy is not thread-safe: it has to be confined to a single thread, or be guarded
+ * by its owner the way {@link PortfolioRepository} does. Consumers that read on
+ * a different thread than the one that applies changes work on their own {@link #copy()}.
+ */
+public class PortfolioTree {
+    /**
+     * Root portfolio group.
+     */
+    private final GroupViewModel mRoot;
+
+    /**
+     * Portfolio positions indexed by the upper-case stock symbol.
+     */
+    private final Map<String, List<PositionViewModel>> mPositionsBySymbol = new HashMap<>();
+
+    /**
+     * Portfolio positions indexed by identifier.
+     */
+    private final LongSparseArray<PositionViewModel> mPositionsById = new LongSparseArray<>();
+
+    /**
+     * Portfolio groups indexed by identifier.
+     */
+    private final LongSparseArray<GroupViewModel> mGroupsById = new LongSparseArray<>();
+
+    /**
+     * Creates new instance of the {@link PortfolioTree} class.
+     * @param root Loaded root portfolio group.
+     */
+    public PortfolioTree(GroupViewModel root) {
+        mRoot = root;
+
+        if (root != null) {
+            indexItems(root);
+        }
+    }
+
+    /**
+     * Gets root portfolio group.
+     * @return Root portfolio group.
+     */
+    public GroupViewModel getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * Creates deep copy of the hierarchy, including group expansion state,
+     * that can be changed independently of this one.
+     * @return Copy of the portfolio hierarchy.
+     */
+    public PortfolioTree copy() {
+        return new PortfolioTree(mRoot == null ? null : copyGroup(mRoot, null));
+    }
+
+    /**
+     * Finds portfolio group by identifier.
+     * @param groupId Identifier of the group.
+     * @return Portfolio group or NULL, if there is no such group.
+     */
+    public GroupViewModel getGroup(long groupId) {
+        return mGroupsById.get(groupId);
+    }
+
+    /**
+     * Finds portfolio position by identifier.
+     * @param positionId Identifier of the position.
+     * @return Portfolio position or NULL, if there is no such position.
+     */
+    public PositionViewModel getPosition(long positionId) {
+        return mPositionsById.get(positionId);
+    }
+
+    /**
+     * Applies new symbol data to all positions of this symbol.
+     * @param symbol Updated symbol entity.
+     * @param changedItems Collection that accumulates items with changed values.
+     */
+    public void updateSymbol(SymbolEntity symbol, Collection<PositionsListItemViewModel> changedItems) {
+        List<PositionViewModel> positions = mPositionsBySymbol.get(getSymbolKey(symbol.id));
+
+        if (positions == null) {
+            return;
+        }
+
+        // Prices are truncated the same way they are when stored in the database
+        long symbolValue =
+            isExtendedLatest(symbol)
+                ? Money.fromBigDecimal(symbol.extendedPrice)
+                : Money.fromBigDecimal(symbol.latestPrice);
+
+        long previousClosePrice = Money.fromBigDecimal(symbol.previousClosePrice);
+        long symbolValueChange = Money.subtract(symbolValue, previousClosePrice);
+
+        for (PositionViewModel position : positions) {
+            long oldCurrentValue = position.currentValue;
+            long oldBaseValue = position.baseValue;
+
+            position.name = symbol.displayName;
+            position.symbolValue = symbolValue;
+            position.symbolValueChange = symbolValueChange;
+
+            if (position.lotCount > 0) {
+                position.currentValue = Money.multiply(symbolValue, position.quantity);
+            } else {
+                position.currentValue = symbolValue;
+                position.baseValue = previousClosePrice;
+            }
+
+            changedItems.add(position);
+            propagate(position, oldCurrentValue, oldBaseValue, changedItems);
+        }
+    }
+
+    /**
+     * Replaces values of the loaded position, e.g. after its lots have changed.
+     * @param update Freshly loaded position view model.
+     * @param changedItems Collection that accumulates items with changed values.
+     */
+    public void updatePosition(PositionViewModel update, Collection<PositionsListItemViewModel> changedItems) {
+        PositionViewModel position = mPositionsById.get(update.id);
+
+        if (position == null) {
+            return;
+        }
+
+        long oldCurrentValue = position.currentValue;
+        long oldBaseValue = position.baseValue;
+
+        position.name = update.name;
+        position.quantity = update.quantity;
+        position.lotCount = update.lotCount;
+        position.symbolValue = update.symbolValue;
+        position.symbolValueChange = update.symbolValueChange;
+        position.currentValue = update.currentValue;
+        position.baseValue = update.baseValue;
+
+        changedItems.add(position);
+        propagate(position, oldCurrentValue, oldBaseValue, changedItems);
+    }
+
+    /**
+     * Applies value change of the item to all its ancestors.
+     * @param item Item which value has changed.
+     * @param oldCurrentValue Previous current value of the item.
+     * @param oldBaseValue Previous base value of the item.
+     * @param changedItems Collection that accumulates items with changed values.
+     */
+    private static void propagate(
+            PositionsListItemViewModel item,
+            long oldCurrentValue,
+            long oldBaseValue,
+            Collection<PositionsListItemViewModel> changedItems) {
+        GroupViewModel group = item.parent;
+
+        while (group != null
+                && (oldCurrentValue != item.currentValue || oldBaseValue != item.baseValue)) {
+            long oldGroupCurrentValue = group.currentValue;
+            long oldGroupBaseValue = group.baseValue;
+
+            if (canApplyDelta(group.currentValue, oldCurrentValue, item.currentValue)
+                    && canApplyDelta(group.baseValue, oldBaseValue, item.baseValue)) {
+                group.currentValue = applyDelta(group.currentValue, oldCurrentValue, item.currentValue);
+                group.baseValue = applyDelta(group.baseValue, oldBaseValue, item.baseValue);
+            } else {
+                // Item appeared in or disappeared from the totals,
+                // so the group has to be summed up from its children
+                computeGroupValue(group);
+            }
+
+            changedItems.add(group);
+
+            item = group;
+            oldCurrentValue = oldGroupCurrentValue;
+            oldBaseValue = oldGroupBaseValue;
+            group = group.parent;
+        }
+    }
+
+    /**
+     * Checks whether group total can be adjusted by the difference of child values.
+     * @param total Current group total.
+     * @param oldValue Previous child value.
+     * @param newValue New child value.
+     * @return True if delta can be applied, false if total has to be recomputed.
+     */
+    private static boolean canApplyDelta(long total, long oldValue, long newValue) {
+        return !Money.isKnown(oldValue) && !Money.isKnown(newValue)
+            || Money.isKnown(oldValue) && Money.isKnown(newValue) && Money.isKnown(total);
+    }
+
+    /**
+     * Adjusts group total by the difference of child values.
+     * @param total Current group total.
+     * @param oldValue Previous child value.
+     * @param newValue New child value.
+     * @return Adjusted group total.
+     */
+    private static long applyDelta(long total, long oldValue, long newValue) {
+        if (!Money.isKnown(oldValue)) {
+            return total;
+        }
+
+        return Money.add(total, Money.subtract(newValue, oldValue));
+    }
+
+    /**
+     * Sums up values of the direct children of the group.
+     * @param group Group to compute value for.
+     */
+    private static void computeGroupValue(GroupViewModel group) {
+        long currentValue = Money.UNKNOWN;
+        long baseValue = Money.UNKNOWN;
+
+        for (PositionsListItemViewModel child : group.children) {
+            currentValue = Money.add(currentValue, child.currentValue);
+            baseValue = Money.add(baseValue, child.baseValue);
+        }
+
+        group.currentValue = currentValue;
+        group.baseValue = baseValue;
+    }
+
+    /**
+     * Checks whether extended price is more recent than the latest one,
+     * the same way portfolio queries do.
+     * @param symbol Symbol entity.
+     * @return True if extended price should be used, otherwise false.
+     */
+    private static boolean isExtendedLatest(SymbolEntity symbol) {
+        return symbol.extendedTime != null
+            && symbol.latestTime != null
+            && symbol.extendedTime > symbol.latestTime;
+    }
+
+    /**
+     * Gets key for the symbols index.
+     * @param symbol Stock symbol.
+     * @return Index key.
+     */
+    private static String getSymbolKey(String symbol) {
+        // Symbol identifiers are compared case-insensitive in the database
+        return symbol.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Recursively copies the group and its children.
+     * @param source Group to copy.
+     * @param parent Copy of the parent group or NULL, if copying the root group.
+     * @return Copy of the group.
+     */
+    private static GroupViewModel copyGroup(GroupViewModel source, GroupViewModel parent) {
+        GroupViewModel group = new GroupViewModel();
+        copyItem(source, group, parent);
+        group.isExpanded = source.isExpanded;
+
+        for (PositionsListItemViewModel child : source.children) {
+            if (child instanceof GroupViewModel) {
+                group.children.add(copyGroup((GroupViewModel) child, group));
+            } else if (child instanceof PositionViewModel) {
+                PositionViewModel sourcePosition = (PositionViewModel) child;
+                PositionViewModel position = new PositionViewModel();
+                copyItem(sourcePosition, position, group);
+                position.symbol = sourcePosition.symbol;
+                position.quantity = sourcePosition.quantity;
+                position.lotCount = sourcePosition.lotCount;
+                position.symbolValue = sourcePosition.symbolValue;
+                position.symbolValueChange = sourcePosition.symbolValueChange;
+                group.children.add(position);
+            }
+        }
+
+        return group;
+    }
+
+    /**
+     * Copies values shared by all positions list items.
+     * @param source Item to copy values from.
+     * @param target Item to copy values to.
+     * @param parent Copy of the parent group.
+     */
+    private static void copyItem(
+            PositionsListItemViewModel source,
+            PositionsListItemViewModel target,
+            GroupViewModel parent) {
+        target.id = source.id;
+        target.name = source.name;
+        target.currentValue = source.currentValue;
+        target.baseValue = source.baseValue;
+        target.level = source.level;
+        target.lastInParent = source.lastInParent;
+        target.parent = parent;
+    }
+
+    /**
+     * Recursively adds the group and its children to the indices.
+     * @param group Group to index.
+     */
+    private void indexItems(GroupViewModel group) {
+        mGroupsById.put(group.id, group);
+
+        for (PositionsListItemViewModel child : group.children) {
+            if (child instanceof GroupViewModel) {
+                indexItems((GroupViewModel) child);
+            } else if (child instanceof PositionViewModel) {
+                PositionViewModel position = (PositionViewModel) child;
+                String key = getSymbolKey(position.symbol);
+
+                List<PositionViewModel> positions = mPositionsBySymbol.get(key);
+                if (positions == null) {
+                    positions = new ArrayList<>(1);
+                    mPositionsBySymbol.put(key, positions);
+                }
+
+                positions.add(position);
+                mPositionsById.put(position.id, position);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package ru.nahk.folio.model;
 
+import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Embedded;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
 
@@ -37,62 +39,66 @@ public interface PositionDao {
             "p.id AS id," +
             "p.symbol_id AS symbol_id," +
             "s.display_name AS name," +
-            "SUM(l.quantity) AS quantity," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN ifnull(SUM(l.quantity) * s.extended_price, s.extended_price)" +
-            "   ELSE ifnull(SUM(l.quantity) * s.latest_price, s.latest_price)" +
-            "END AS current_value," +
-            "ifnull(SUM(l.quantity * l.purchase_price + l.commission), s.previous_close_price) AS base_value," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN s.extended_price" +
-            "   ELSE s.latest_price " +
-            "END AS symbol_value," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN s.extended_price - s.previous_close_price" +
-            "   ELSE s.latest_price - s.previous_close_price " +
-            "END AS symbol_value_change " +
+            "p.quantity AS quantity," +
+            "p.lot_count AS lot_count," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN ifnull(p.quantity * s.extended_price, s.extended_price)" +
+            "       ELSE ifnull(p.quantity * s.latest_price, s.latest_price)" +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS current_value," +
+            "coalesce(p.cost_basis, s.previous_close_price, " +
+                MoneyTypeConverter.UNKNOWN_SQL + ") AS base_value," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN s.extended_price" +
+            "       ELSE s.latest_price " +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS symbol_value," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN s.extended_price - s.previous_close_price" +
+            "       ELSE s.latest_price - s.previous_close_price " +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS symbol_value_change " +
         "FROM positions p " +
             "INNER JOIN symbols s ON s.id = p.symbol_id " +
-            "LEFT OUTER JOIN lots l ON l.position_id = p.id " +
         "WHERE " +
-            "p.id = :positionId " +
-        "GROUP BY p.id;"
+            "p.id = :positionId;"
     )
     PositionViewModel load(long positionId);
 
     /**
-     * Loads all direct children portfolio positions under given parent.
-     * @param groupId Identifier of the parent group.
-     * @return List of portfolio positions under given parent.
+     * Loads all portfolio positions along with their parent group identifiers.
+     * @return List of all portfolio positions ordered by name.
      */
     @Query(
         "SELECT " +
             "p.id AS id," +
             "p.symbol_id AS symbol_id," +
+            "p.parent_group_id AS parent_group_id," +
             "s.display_name AS name," +
-            "SUM(l.quantity) AS quantity," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN ifnull(SUM(l.quantity) * s.extended_price, s.extended_price)" +
-            "   ELSE ifnull(SUM(l.quantity) * s.latest_price, s.latest_price)" +
-            "END AS current_value," +
-            "ifnull(SUM(l.quantity * l.purchase_price + l.commission), s.previous_close_price) AS base_value," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN s.extended_price" +
-            "   ELSE s.latest_price " +
-            "END AS symbol_value," +
-            "CASE WHEN s.extended_time > s.latest_time" +
-            "   THEN s.extended_price - s.previous_close_price" +
-            "   ELSE s.latest_price - s.previous_close_price " +
-            "END AS symbol_value_change " +
+            "p.quantity AS quantity," +
+            "p.lot_count AS lot_count," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN ifnull(p.quantity * s.extended_price, s.extended_price)" +
+            "       ELSE ifnull(p.quantity * s.latest_price, s.latest_price)" +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS current_value," +
+            "coalesce(p.cost_basis, s.previous_close_price, " +
+                MoneyTypeConverter.UNKNOWN_SQL + ") AS base_value," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN s.extended_price" +
+            "       ELSE s.latest_price " +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS symbol_value," +
+            "ifnull(" +
+            "   CASE WHEN s.extended_time > s.latest_time" +
+            "       THEN s.extended_price - s.previous_close_price" +
+            "       ELSE s.latest_price - s.previous_close_price " +
+            "   END, " + MoneyTypeConverter.UNKNOWN_SQL + ") AS symbol_value_change " +
         "FROM positions p " +
             "INNER JOIN symbols s ON s.id = p.symbol_id " +
-            "LEFT OUTER JOIN lots l ON l.position_id = p.id " +
-        "WHERE " +
-            "p.parent_group_id = :groupId " +
-        "GROUP BY p.id " +
         "ORDER BY ifnull(s.display_name, s.id);"
     )
-    List<PositionViewModel> loadByParentGroup(long groupId);
+    List<PositionTreeItem> loadAllWithParent();
 
     /**
      * Deletes portfolio position entity.
@@ -106,4 +112,21 @@ public interface PositionDao {
      */
     @Query("DELETE FROM positions")
     void deleteAll();
+
+    /**
+     * Portfolio position view model along with the identifier of its parent group.
+     */
+    class PositionTreeItem {
+        /**
+         * Portfolio position view model.
+         */
+        @Embedded
+        public PositionViewModel position;
+
+        /**
+         * Identifier of the parent group.
+         */
+        @ColumnInfo(name = "parent_group_id")
+        public long parentGroupId;
+    }
 }
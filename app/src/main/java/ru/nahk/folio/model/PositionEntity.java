@@ -8,6 +8,8 @@ import android.arch.persistence.room.Index;
 import android.arch.persistence.room.PrimaryKey;
 import android.support.annotation.NonNull;
 
+import java.math.BigDecimal;
+
 import static android.arch.persistence.room.ColumnInfo.NOCASE;
 import static android.arch.persistence.room.ForeignKey.CASCADE;
 import static android.arch.persistence.room.ForeignKey.RESTRICT;
@@ -55,6 +57,21 @@ public class PositionEntity {
      */
     static final String SYMBOL_ID_COLUMN = "symbol_id";
 
+    /**
+     * Name of the number of lots column.
+     */
+    static final String LOT_COUNT_COLUMN = "lot_count";
+
+    /**
+     * Name of the total quantity of shares in all lots column.
+     */
+    static final String QUANTITY_COLUMN = "quantity";
+
+    /**
+     * Name of the total cost basis of all lots column.
+     */
+    static final String COST_BASIS_COLUMN = "cost_basis";
+
     /**
      * Portfolio position identifier.
      */
@@ -76,6 +93,27 @@ public class PositionEntity {
     @ColumnInfo(name = SYMBOL_ID_COLUMN, collate = NOCASE)
     public String symbolId;
 
+    /**
+     * Number of lots in the position.
+     * Maintained by the database triggers on lots table.
+     */
+    @ColumnInfo(name = LOT_COUNT_COLUMN)
+    public int lotCount;
+
+    /**
+     * Total quantity of shares in all lots or NULL, if position does not have lots.
+     * Maintained by the database triggers on lots table.
+     */
+    @ColumnInfo(name = QUANTITY_COLUMN)
+    public Long quantity;
+
+    /**
+     * Total purchase price and commission of all lots or NULL, if position does not have lots.
+     * Maintained by the database triggers on lots table.
+     */
+    @ColumnInfo(name = COST_BASIS_COLUMN)
+    public BigDecimal costBasis;
+
     /**
      * Creates new instance of the {@link PositionEntity} class.
      */
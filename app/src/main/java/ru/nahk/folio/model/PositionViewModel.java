@@ -2,7 +2,7 @@ package ru.nahk.folio.model;
 
 import android.arch.persistence.room.ColumnInfo;
 
-import java.math.BigDecimal;
+import ru.nahk.folio.utils.Money;
 
 /**
  * View-model for the portfolio position.
@@ -21,14 +21,20 @@ public class PositionViewModel extends PositionsListItemViewModel {
     public int quantity;
 
     /**
-     * Value of single one share.
+     * Number of lots in the position.
+     */
+    @ColumnInfo(name = "lot_count")
+    public int lotCount;
+
+    /**
+     * Value of single one share in {@link Money} units.
      */
     @ColumnInfo(name = "symbol_value")
-    public BigDecimal symbolValue;
+    public long symbolValue = Money.UNKNOWN;
 
     /**
-     * Recent change in share's value.
+     * Recent change in share's value in {@link Money} units.
      */
     @ColumnInfo(name = "symbol_value_change")
-    public BigDecimal symbolValueChange;
+    public long symbolValueChange = Money.UNKNOWN;
 }
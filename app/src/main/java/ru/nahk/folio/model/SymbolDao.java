@@ -4,7 +4,6 @@ import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Delete;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
-import android.arch.persistence.room.Update;
 
 import java.util.List;
 
@@ -45,20 +44,6 @@ public interface SymbolDao {
     @Query("SELECT * FROM symbols WHERE id = :symbolId")
     SymbolEntity get(String symbolId);
 
-    /**
-     * Updates multiple symbol entities.
-     * @param symbols Symbol entities to update.
-     */
-    @Update
-    void update(SymbolEntity... symbols);
-
-    /**
-     * Updates lies of symbol entities.
-     * @param symbols Symbol entities to update.
-     */
-    @Update
-    void update(List<SymbolEntity> symbols);
-
     /**
      * Deletes symbol entity
      * @param symbol Symbol entity to delete.
@@ -7,7 +7,6 @@ import android.arch.persistence.room.PrimaryKey;
 import android.support.annotation.NonNull;
 
 import java.math.BigDecimal;
-import java.util.Calendar;
 
 import static android.arch.persistence.room.ColumnInfo.NOCASE;
 
@@ -124,10 +123,10 @@ public class SymbolEntity {
     public BigDecimal openPrice;
 
     /**
-     * Trade opening time.
+     * Trade opening time as epoch time in milliseconds.
      */
     @ColumnInfo(name = OPEN_TIME_COLUMN)
-    public Calendar openTime;
+    public Long openTime;
 
     /**
      * Latest share price.
@@ -136,10 +135,10 @@ public class SymbolEntity {
     public BigDecimal latestPrice;
 
     /**
-     * Latest trade time.
+     * Latest trade time as epoch time in milliseconds.
      */
     @ColumnInfo(name = LATEST_TIME_COLUMN)
-    public Calendar latestTime;
+    public Long latestTime;
 
     /**
      * Share price at trade closing.
@@ -148,22 +147,22 @@ public class SymbolEntity {
     public BigDecimal closePrice;
 
     /**
-     * Trade closing time.
+     * Trade closing time as epoch time in milliseconds.
      */
     @ColumnInfo(name = CLOSE_TIME_COLUMN)
-    public Calendar closeTime;
+    public Long closeTime;
 
     /**
-     * Extended share price, e.g. after hours.
+     * Extended share price, e.g. pre-market or after hours.
      */
     @ColumnInfo(name = EXTENDED_PRICE_COLUMN)
     public BigDecimal extendedPrice;
 
     /**
-     * Extended trade time.
+     * Extended trade time as epoch time in milliseconds.
      */
     @ColumnInfo(name = EXTENDED_TIME_COLUMN)
-    public Calendar extendedTime;
+    public Long extendedTime;
 
     /**
      * Share price at previous closing.
@@ -214,4 +213,26 @@ public class SymbolEntity {
     public SymbolEntity(@NonNull String id) {
         this.id = id;
     }
+
+    /**
+     * Copies market data from another entity of the same symbol.
+     * @param source Entity to copy market data from.
+     */
+    public void copyMarketDataFrom(SymbolEntity source) {
+        displayName = source.displayName;
+        openPrice = source.openPrice;
+        openTime = source.openTime;
+        latestPrice = source.latestPrice;
+        latestTime = source.latestTime;
+        closePrice = source.closePrice;
+        closeTime = source.closeTime;
+        extendedPrice = source.extendedPrice;
+        extendedTime = source.extendedTime;
+        previousClosePrice = source.previousClosePrice;
+        marketCap = source.marketCap;
+        dayHigh = source.dayHigh;
+        dayLow = source.dayLow;
+        week52High = source.week52High;
+        week52Low = source.week52Low;
+    }
 }
@@ -0,0 +1,300 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.util.SparseArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import ru.nahk.folio.stockapi.SymbolChanges;
+import ru.nahk.folio.utils.BigDecimalHelper;
+
+/**
+ * Writes changed market data columns of the symbols.
+ * One compiled statement is created for each distinct set of changed fields
+ * and reused for all symbols with the same changes.
+ * Symbols that already have more recent latest trade time stored are not overwritten,
+ * so results of slow requests cannot replace newer data.
+ * New latest and extended prices of the written symbols are also appended to the ticks table,
+ * with extended prices flagged as such.
+ */
+class SymbolQuoteWriter implements Closeable {
+    /**
+     * SQLite database to write to.
+     */
+    private final SupportSQLiteDatabase mDatabase;
+
+    /**
+     * Compiled update statements indexed by the changed fields flags.
+     */
+    private final SparseArray<SupportSQLiteStatement> mStatements = new SparseArray<>();
+
+    /**
+     * Compiled tick insert statement, created on first use.
+     */
+    private SupportSQLiteStatement mTickStatement;
+
+    /**
+     * Creates new instance of the {@link SymbolQuoteWriter} class.
+     * @param database SQLite database to write to.
+     */
+    SymbolQuoteWriter(SupportSQLiteDatabase database) {
+        mDatabase = database;
+    }
+
+    /**
+     * Writes changed columns of the symbol.
+     * @param symbol Symbol entity with new data.
+     * @param changedFields {@link SymbolChanges} flags of the fields to write.
+     * Latest and extended prices are appended to the ticks, if symbol was written.
+     * @return True if symbol was written, false if there was nothing to write
+     * or stored data is more recent.
+     */
+    boolean write(SymbolEntity symbol, int changedFields) {
+        if (changedFields == 0) {
+            return false;
+        }
+
+        SupportSQLiteStatement statement = mStatements.get(changedFields);
+        if (statement == null) {
+            statement = mDatabase.compileStatement(buildUpdateSql(changedFields));
+            mStatements.put(changedFields, statement);
+        }
+
+        int index = 1;
+
+        if ((changedFields & SymbolChanges.DISPLAY_NAME) != 0) {
+            bindString(statement, index++, symbol.displayName);
+        }
+
+        if ((changedFields & SymbolChanges.OPEN) != 0) {
+            bindMoney(statement, index++, symbol.openPrice);
+            bindTimestamp(statement, index++, symbol.openTime);
+        }
+
+        if ((changedFields & SymbolChanges.LATEST) != 0) {
+            bindMoney(statement, index++, symbol.latestPrice);
+            bindTimestamp(statement, index++, symbol.latestTime);
+        }
+
+        if ((changedFields & SymbolChanges.CLOSE) != 0) {
+            bindMoney(statement, index++, symbol.closePrice);
+            bindTimestamp(statement, index++, symbol.closeTime);
+        }
+
+        if ((changedFields & SymbolChanges.EXTENDED) != 0) {
+            bindMoney(statement, index++, symbol.extendedPrice);
+            bindTimestamp(statement, index++, symbol.extendedTime);
+        }
+
+        if ((changedFields & SymbolChanges.PREVIOUS_CLOSE) != 0) {
+            bindMoney(statement, index++, symbol.previousClosePrice);
+        }
+
+        if ((changedFields & SymbolChanges.MARKET_CAP) != 0) {
+            bindMoney(statement, index++, symbol.marketCap);
+        }
+
+        if ((changedFields & SymbolChanges.DAY_RANGE) != 0) {
+            bindMoney(statement, index++, symbol.dayHigh);
+            bindMoney(statement, index++, symbol.dayLow);
+        }
+
+        if ((changedFields & SymbolChanges.WEEK_52_RANGE) != 0) {
+            bindMoney(statement, index++, symbol.week52High);
+            bindMoney(statement, index++, symbol.week52Low);
+        }
+
+        statement.bindString(index++, symbol.id);
+        bindTimestamp(statement, index++, symbol.latestTime);
+        bindTimestamp(statement, index, symbol.latestTime);
+
+        if (statement.executeUpdateDelete() == 0) {
+            return false;
+        }
+
+        if ((changedFields & SymbolChanges.LATEST) != 0) {
+            writeTick(symbol.id, symbol.latestTime, symbol.latestPrice, false);
+        }
+
+        if ((changedFields & SymbolChanges.EXTENDED) != 0) {
+            writeTick(symbol.id, symbol.extendedTime, symbol.extendedPrice, true);
+        }
+
+        return true;
+    }
+
+    /**
+     * Releases compiled statements.
+     */
+    @Override
+    public void close() {
+        for (int statementIndex = 0; statementIndex < mStatements.size(); ++statementIndex) {
+            try {
+                mStatements.valueAt(statementIndex).close();
+            }
+            catch (IOException closeError) {
+                // Statement resources are released by the database anyway
+            }
+        }
+
+        mStatements.clear();
+
+        if (mTickStatement != null) {
+            try {
+                mTickStatement.close();
+            }
+            catch (IOException closeError) {
+                // Statement resources are released by the database anyway
+            }
+
+            mTickStatement = null;
+        }
+    }
+
+    /**
+     * Appends price tick of the symbol, replacing existing tick with the same time.
+     * @param symbolId Stock symbol.
+     * @param time Trade time or NULL, if unknown.
+     * @param price Trade price or NULL, if unknown.
+     * @param isExtended Indicates whether trade was made outside of the regular session.
+     */
+    private void writeTick(String symbolId, Long time, BigDecimal price, boolean isExtended) {
+        if (time == null || price == null) {
+            return;
+        }
+
+        if (mTickStatement == null) {
+            mTickStatement = mDatabase.compileStatement(
+                "INSERT OR REPLACE INTO " + TickEntity.TABLE_NAME + " ("
+                    + TickEntity.SYMBOL_ID_COLUMN + ", "
+                    + TickEntity.TIME_COLUMN + ", "
+                    + TickEntity.PRICE_COLUMN + ", "
+                    + TickEntity.IS_EXTENDED_COLUMN
+                    + ") VALUES (?, ?, ?, ?)");
+        }
+
+        mTickStatement.bindString(1, symbolId);
+        mTickStatement.bindLong(2, time);
+        bindMoney(mTickStatement, 3, price);
+        mTickStatement.bindLong(4, isExtended ? 1 : 0);
+        mTickStatement.executeInsert();
+    }
+
+    /**
+     * Builds update statement for the given set of changed fields.
+     * @param changedFields {@link SymbolChanges} flags of the fields to write.
+     * @return Update statement SQL.
+     */
+    private static String buildUpdateSql(int changedFields) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(SymbolEntity.TABLE_NAME).append(" SET ");
+
+        if ((changedFields & SymbolChanges.DISPLAY_NAME) != 0) {
+            appendColumn(sql, SymbolEntity.DISPLAY_NAME_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.OPEN) != 0) {
+            appendColumn(sql, SymbolEntity.OPEN_PRICE_COLUMN);
+            appendColumn(sql, SymbolEntity.OPEN_TIME_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.LATEST) != 0) {
+            appendColumn(sql, SymbolEntity.LATEST_PRICE_COLUMN);
+            appendColumn(sql, SymbolEntity.LATEST_TIME_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.CLOSE) != 0) {
+            appendColumn(sql, SymbolEntity.CLOSE_PRICE_COLUMN);
+            appendColumn(sql, SymbolEntity.CLOSE_TIME_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.EXTENDED) != 0) {
+            appendColumn(sql, SymbolEntity.EXTENDED_PRICE_COLUMN);
+            appendColumn(sql, SymbolEntity.EXTENDED_TIME_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.PREVIOUS_CLOSE) != 0) {
+            appendColumn(sql, SymbolEntity.PREVIOUS_CLOSE_PRICE_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.MARKET_CAP) != 0) {
+            appendColumn(sql, SymbolEntity.MARKET_CAP_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.DAY_RANGE) != 0) {
+            appendColumn(sql, SymbolEntity.DAY_HIGH_COLUMN);
+            appendColumn(sql, SymbolEntity.DAY_LOW_COLUMN);
+        }
+
+        if ((changedFields & SymbolChanges.WEEK_52_RANGE) != 0) {
+            appendColumn(sql, SymbolEntity.WEEK_52_HIGH_COLUMN);
+            appendColumn(sql, SymbolEntity.WEEK_52_LOW_COLUMN);
+        }
+
+        // Replace trailing comma
+        sql.setLength(sql.length() - 1);
+
+        return sql
+            .append(" WHERE ").append(SymbolEntity.ID_COLUMN).append(" = ?")
+            // Compare-and-set on the latest trade time
+            .append(" AND (? IS NULL")
+            .append(" OR ").append(SymbolEntity.LATEST_TIME_COLUMN).append(" IS NULL")
+            .append(" OR ").append(SymbolEntity.LATEST_TIME_COLUMN).append(" <= ?)")
+            .toString();
+    }
+
+    /**
+     * Appends column assignment to the update statement.
+     * @param sql Update statement builder.
+     * @param column Name of the column.
+     */
+    private static void appendColumn(StringBuilder sql, String column) {
+        sql.append(column).append(" = ?,");
+    }
+
+    /**
+     * Binds nullable string parameter.
+     * @param statement Statement to bind parameter of.
+     * @param index Parameter index.
+     * @param value Parameter value.
+     */
+    private static void bindString(SupportSQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Binds money parameter in the same format as {@link MoneyTypeConverter} stores it.
+     * @param statement Statement to bind parameter of.
+     * @param index Parameter index.
+     * @param value Parameter value.
+     */
+    private static void bindMoney(SupportSQLiteStatement statement, int index, BigDecimal value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(
+                index,
+                value.scaleByPowerOfTen(BigDecimalHelper.MAX_FRACTION_DIGITS).longValue());
+        }
+    }
+
+    /**
+     * Binds nullable epoch timestamp parameter.
+     * @param statement Statement to bind parameter of.
+     * @param index Parameter index.
+     * @param value Parameter value.
+     */
+    private static void bindTimestamp(SupportSQLiteStatement statement, int index, Long value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
+    }
+}
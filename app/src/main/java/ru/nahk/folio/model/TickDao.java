@@ -0,0 +1,64 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Query;
+
+import java.util.List;
+
+/**
+ * Data access methods to work with intraday price ticks.
+ * Ticks are written together with symbol quotes by {@link SymbolQuoteWriter}.
+ */
+@Dao
+public interface TickDao {
+    /**
+     * Loads ticks of the symbol within the time range.
+     * @param symbolId Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @return Ticks in chronological order.
+     */
+    @Query("SELECT * FROM ticks"
+        + " WHERE symbol_id = :symbolId AND time BETWEEN :startTime AND :endTime"
+        + " ORDER BY time")
+    List<TickEntity> get(String symbolId, long startTime, long endTime);
+
+    /**
+     * Downsamples ticks within the time range to the last tick of every bucket.
+     * Regular and extended hours ticks are bucketed separately, so that the regular session close
+     * is kept even if extended hours trading follows it within the same bucket.
+     * Buckets are aligned to the epoch, so repeated runs over the same range remove nothing.
+     * @param startTime Start of the time range as epoch time in milliseconds, inclusive.
+     * @param endTime End of the time range as epoch time in milliseconds, exclusive.
+     * @param bucket Bucket length in milliseconds, range boundaries should be aligned to it.
+     * @return Number of removed ticks.
+     */
+    @Query("DELETE FROM ticks"
+        + " WHERE time >= :startTime AND time < :endTime"
+        + " AND EXISTS (SELECT 1 FROM ticks later"
+            + " WHERE later.symbol_id = ticks.symbol_id"
+            + " AND later.is_extended = ticks.is_extended"
+            + " AND later.time > ticks.time"
+            + " AND later.time < ticks.time - ticks.time % :bucket + :bucket)")
+    int downsample(long startTime, long endTime, long bucket);
+
+    /**
+     * Reduces ticks within the time range to the last regular session tick of every trading day.
+     * Trading days are told apart by the gap between the regular sessions, which does not depend
+     * on the exchange timezone, so sessions crossing UTC midnight are kept whole.
+     * Extended hours ticks are removed, since they are not session closes.
+     * @param startTime Start of the time range as epoch time in milliseconds, inclusive.
+     * @param endTime End of the time range as epoch time in milliseconds, exclusive.
+     * @param sessionGap Minimal time between the regular sessions in milliseconds,
+     * longer than any break within the session.
+     * @return Number of removed ticks.
+     */
+    @Query("DELETE FROM ticks"
+        + " WHERE time >= :startTime AND time < :endTime"
+        + " AND (is_extended OR EXISTS (SELECT 1 FROM ticks later"
+            + " WHERE later.symbol_id = ticks.symbol_id"
+            + " AND NOT later.is_extended"
+            + " AND later.time > ticks.time"
+            + " AND later.time < ticks.time + :sessionGap))")
+    int keepSessionCloses(long startTime, long endTime, long sessionGap);
+}
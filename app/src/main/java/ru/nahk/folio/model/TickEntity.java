@@ -0,0 +1,100 @@
+package ru.nahk.folio.model;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Ignore;
+import android.support.annotation.NonNull;
+
+import java.math.BigDecimal;
+
+import static android.arch.persistence.room.ForeignKey.CASCADE;
+
+/**
+ * Intraday price tick entity.
+ * Ticks are appended every time latest or extended price of the symbol is saved.
+ * Extended hours ticks are flagged, so that they are never taken for a session close.
+ * Primary key starts with the symbol, so that intraday series for a time range
+ * is read with a single index range scan.
+ */
+@Entity(
+    tableName = TickEntity.TABLE_NAME,
+    primaryKeys = {
+        TickEntity.SYMBOL_ID_COLUMN,
+        TickEntity.TIME_COLUMN
+    },
+    foreignKeys = @ForeignKey(
+        entity = SymbolEntity.class,
+        parentColumns = SymbolEntity.ID_COLUMN,
+        childColumns = TickEntity.SYMBOL_ID_COLUMN,
+        onDelete = CASCADE)
+)
+public class TickEntity {
+    /**
+     * Name of the ticks table.
+     */
+    static final String TABLE_NAME = "ticks";
+
+    /**
+     * Name of the stock symbol column.
+     */
+    static final String SYMBOL_ID_COLUMN = "symbol_id";
+
+    /**
+     * Name of the trade time column.
+     */
+    static final String TIME_COLUMN = "time";
+
+    /**
+     * Name of the price column.
+     */
+    static final String PRICE_COLUMN = "price";
+
+    /**
+     * Name of the extended hours flag column.
+     */
+    static final String IS_EXTENDED_COLUMN = "is_extended";
+
+    /**
+     * Stock symbol.
+     */
+    @NonNull
+    @ColumnInfo(name = SYMBOL_ID_COLUMN)
+    public String symbolId;
+
+    /**
+     * Trade time as epoch time in milliseconds.
+     */
+    @ColumnInfo(name = TIME_COLUMN)
+    public long time;
+
+    /**
+     * Trade price.
+     */
+    @NonNull
+    @ColumnInfo(name = PRICE_COLUMN)
+    public BigDecimal price;
+
+    /**
+     * Indicates whether trade was made outside of the regular session.
+     */
+    @ColumnInfo(name = IS_EXTENDED_COLUMN)
+    public boolean isExtended;
+
+    /**
+     * Creates new instance of the {@link TickEntity} class.
+     */
+    public TickEntity() { }
+
+    /**
+     * Creates new instance of the {@link TickEntity} class
+     * with given values.
+     */
+    @Ignore
+    public TickEntity(@NonNull String symbolId, long time, @NonNull BigDecimal price, boolean isExtended) {
+        this.symbolId = symbolId;
+        this.time = time;
+        this.price = price;
+        this.isExtended = isExtended;
+    }
+}
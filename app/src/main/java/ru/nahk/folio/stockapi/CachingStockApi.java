@@ -0,0 +1,235 @@
+package ru.nahk.folio.stockapi;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.SymbolEntity;
+
+/**
+ * {@link StockApi} decorator that skips quote requests for symbols
+ * whose information could not have changed since the last update.
+ */
+public class CachingStockApi implements StockApi {
+    /**
+     * Default time to keep quotes during trading hours in milliseconds.
+     */
+    public static final long DEFAULT_QUOTE_TTL = 60 * 1000;
+
+    /**
+     * Tolerance for the last quote time around the session end in milliseconds.
+     * Closing prints are not always reported exactly at the session end.
+     */
+    private static final long SESSION_END_TOLERANCE = 5 * 60 * 1000;
+
+    /**
+     * Underlying stock API.
+     */
+    private final StockApi mApi;
+
+    /**
+     * Trading sessions calendar.
+     */
+    private final MarketSessionCalendar mCalendar;
+
+    /**
+     * Time to keep quotes during trading hours in milliseconds.
+     */
+    private final long mQuoteTtl;
+
+    /**
+     * Times of the last successful updates indexed by the stock symbol.
+     */
+    private final Map<String, Long> mUpdateTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new instance of the {@link CachingStockApi} class.
+     * @param api Underlying stock API.
+     * @param calendar Trading sessions calendar.
+     * @param quoteTtl Time to keep quotes during trading hours in milliseconds.
+     */
+    public CachingStockApi(StockApi api, MarketSessionCalendar calendar, long quoteTtl) {
+        mApi = api;
+        mCalendar = calendar;
+        mQuoteTtl = quoteTtl;
+    }
+
+    /**
+     * Searches for symbols matching the query.
+     * @param context Application or activity context.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> findSymbols(Context context, String query) throws StockApiException {
+        return mApi.findSymbols(context, query);
+    }
+
+    /**
+     * Searches for symbols matching the query using remote service.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+        return mApi.searchSymbols(query);
+    }
+
+    /**
+     * Fetches historical price candles of the symbol.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when an error occurs during history look-up.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            String symbol,
+            long startTime,
+            long endTime,
+            int interval) throws StockApiException {
+        return mApi.fetchHistory(symbol, startTime, endTime, interval);
+    }
+
+    /**
+     * Performs an in-place update of symbol information, if it could have changed.
+     * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException {
+        if (symbol == null) {
+            return new SymbolChanges();
+        }
+
+        List<SymbolEntity> symbols = new ArrayList<>(1);
+        symbols.add(symbol);
+
+        return updateSymbols(symbols);
+    }
+
+    /**
+     * Performs an in-place update of symbols information that could have changed.
+     * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+        return updateSymbols(symbols, System.currentTimeMillis());
+    }
+
+    /**
+     * Estimates number of remote requests the underlying API makes for the symbols.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        return mApi.getQuoteRequestCount(symbols);
+    }
+
+    /**
+     * Performs an in-place update of symbols information that could have changed at the given time.
+     * Package-private for the unit tests.
+     * @param symbols Symbol entities to update.
+     * @param now Current epoch time in milliseconds.
+     * @return Changes made to the symbols.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    SymbolChanges updateSymbols(List<SymbolEntity> symbols, long now) throws StockApiException {
+        List<SymbolEntity> staleSymbols = new ArrayList<>(symbols.size());
+        for (SymbolEntity symbol : symbols) {
+            if (!isFresh(symbol, now)) {
+                staleSymbols.add(symbol);
+            }
+        }
+
+        if (staleSymbols.isEmpty()) {
+            return new SymbolChanges();
+        }
+
+        SymbolChanges changes;
+
+        try {
+            changes = mApi.updateSymbols(staleSymbols);
+        }
+        catch (StockApiPartialResultException partialResult) {
+            Set<String> failedSymbols = new HashSet<>(partialResult.getFailedSymbols());
+
+            for (SymbolEntity symbol : staleSymbols) {
+                if (!failedSymbols.contains(symbol.id)) {
+                    mUpdateTimes.put(symbol.id, now);
+                }
+            }
+
+            throw partialResult;
+        }
+
+        for (SymbolEntity symbol : staleSymbols) {
+            mUpdateTimes.put(symbol.id, now);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Checks whether symbol information is up to date.
+     * @param symbol Symbol entity to check.
+     * @param now Current epoch time in milliseconds.
+     * @return True if symbol does not need to be updated, otherwise false.
+     */
+    private boolean isFresh(SymbolEntity symbol, long now) {
+        Long updateTime = mUpdateTimes.get(symbol.id);
+        long latestTime = getTime(symbol.latestTime);
+        long extendedTime = getTime(symbol.extendedTime);
+        long dataTime = Math.max(latestTime, extendedTime);
+
+        if (updateTime == null && dataTime == 0) {
+            // Never updated
+            return false;
+        }
+
+        long knownTime = updateTime != null ? Math.max(updateTime, dataTime) : dataTime;
+
+        if (!mCalendar.isListed(symbol.id)) {
+            // Sessions of the other exchanges are unknown
+            return now - knownTime < mQuoteTtl;
+        }
+
+        long lastSessionEnd = mCalendar.getLastExtendedSessionEnd(now);
+
+        if (mCalendar.isTrading(now) || dataTime > lastSessionEnd) {
+            // Market is open or symbol is traded outside of the exchange sessions
+            return now - knownTime < mQuoteTtl;
+        }
+
+        // Market is closed, so quotes are final if they were obtained after the last session
+        if (updateTime != null && updateTime >= lastSessionEnd) {
+            return true;
+        }
+
+        return latestTime >= mCalendar.getLastRegularSessionEnd(now) - SESSION_END_TOLERANCE
+            && (symbol.extendedTime == null || extendedTime >= lastSessionEnd - SESSION_END_TOLERANCE);
+    }
+
+    /**
+     * Converts optional timestamp to epoch time.
+     * @param timestamp Epoch time in milliseconds or NULL.
+     * @return Epoch time in milliseconds or zero, if timestamp is not set.
+     */
+    private static long getTime(Long timestamp) {
+        return timestamp != null ? timestamp : 0;
+    }
+}
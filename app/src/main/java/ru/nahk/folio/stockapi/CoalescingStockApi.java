@@ -0,0 +1,297 @@
+package ru.nahk.folio.stockapi;
+
+import android.content.Context;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.utils.CalendarHelper;
+
+/**
+ * {@link StockApi} decorator that coalesces concurrent updates of the same symbols.
+ * Symbols that are already being fetched by another caller are not requested again,
+ * instead the caller waits for the in-flight result. The result does not replace
+ * more recent data the caller already has.
+ */
+public class CoalescingStockApi implements StockApi {
+    /**
+     * Underlying stock API.
+     */
+    private final StockApi mApi;
+
+    /**
+     * Updates in progress indexed by the stock symbol.
+     */
+    private final Map<String, SymbolUpdate> mUpdatesInFlight = new HashMap<>();
+
+    /**
+     * Creates new instance of the {@link CoalescingStockApi} class.
+     * @param api Underlying stock API.
+     */
+    public CoalescingStockApi(StockApi api) {
+        mApi = api;
+    }
+
+    /**
+     * Searches for symbols matching the query.
+     * @param context Application or activity context.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> findSymbols(Context context, String query) throws StockApiException {
+        return mApi.findSymbols(context, query);
+    }
+
+    /**
+     * Searches for symbols matching the query using remote service.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+        return mApi.searchSymbols(query);
+    }
+
+    /**
+     * Fetches historical price candles of the symbol.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when an error occurs during history look-up.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            String symbol,
+            long startTime,
+            long endTime,
+            int interval) throws StockApiException {
+        return mApi.fetchHistory(symbol, startTime, endTime, interval);
+    }
+
+    /**
+     * Performs an in-place update of symbol information.
+     * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException {
+        if (symbol == null) {
+            return new SymbolChanges();
+        }
+
+        List<SymbolEntity> symbols = new ArrayList<>(1);
+        symbols.add(symbol);
+
+        return updateSymbols(symbols);
+    }
+
+    /**
+     * Performs an in-place update of symbols information.
+     * Only symbols that are not being updated already are requested from the underlying API.
+     * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+        List<SymbolEntity> ownSymbols = new ArrayList<>(symbols.size());
+        List<SymbolUpdate> ownUpdates = new ArrayList<>(symbols.size());
+        List<SymbolEntity> sharedSymbols = new ArrayList<>();
+        List<SymbolUpdate> sharedUpdates = new ArrayList<>();
+
+        synchronized (mUpdatesInFlight) {
+            for (SymbolEntity symbol : symbols) {
+                SymbolUpdate update = mUpdatesInFlight.get(symbol.id);
+
+                if (update != null) {
+                    sharedSymbols.add(symbol);
+                    sharedUpdates.add(update);
+                } else {
+                    update = new SymbolUpdate();
+                    mUpdatesInFlight.put(symbol.id, update);
+                    ownSymbols.add(symbol);
+                    ownUpdates.add(update);
+                }
+            }
+        }
+
+        SymbolChanges changes = new SymbolChanges();
+        StockApiException ownError = null;
+        Set<String> ownFailedSymbols = null;
+
+        try {
+            if (!ownSymbols.isEmpty()) {
+                changes.addAll(mApi.updateSymbols(ownSymbols));
+            }
+        }
+        catch (StockApiPartialResultException partialResult) {
+            ownError = partialResult;
+            ownFailedSymbols = new HashSet<>(partialResult.getFailedSymbols());
+            changes.addAll(partialResult.getChanges());
+        }
+        catch (StockApiException | RuntimeException updateError) {
+            ownError = updateError instanceof StockApiException
+                ? (StockApiException) updateError
+                : new StockApiException(updateError.getMessage(), updateError);
+        }
+        finally {
+            synchronized (mUpdatesInFlight) {
+                for (int index = 0; index < ownSymbols.size(); ++index) {
+                    SymbolEntity symbol = ownSymbols.get(index);
+                    boolean isFailed =
+                        ownError != null
+                            && (ownFailedSymbols == null || ownFailedSymbols.contains(symbol.id));
+
+                    ownUpdates.get(index).complete(symbol, isFailed ? ownError : null);
+                    mUpdatesInFlight.remove(symbol.id);
+                }
+            }
+        }
+
+        if (ownError != null && ownFailedSymbols == null) {
+            throw ownError;
+        }
+
+        List<String> failedSymbols = new ArrayList<>();
+        StockApiException firstError = ownError;
+
+        if (ownFailedSymbols != null) {
+            failedSymbols.addAll(ownFailedSymbols);
+        }
+
+        for (int index = 0; index < sharedSymbols.size(); ++index) {
+            SymbolEntity symbol = sharedSymbols.get(index);
+            SymbolUpdate update = sharedUpdates.get(index);
+
+            update.await();
+
+            if (update.mError != null) {
+                failedSymbols.add(symbol.id);
+
+                if (firstError == null) {
+                    firstError = update.mError;
+                }
+            } else {
+                changes.add(symbol.id, applyResult(symbol, update.mResult));
+            }
+        }
+
+        if (firstError == null) {
+            return changes;
+        }
+
+        if (failedSymbols.size() == symbols.size()) {
+            throw firstError;
+        }
+
+        throw new StockApiPartialResultException(
+            "Failed to update " + failedSymbols.size() + " of " + symbols.size() + " symbols: "
+                + firstError.getMessage(),
+            failedSymbols,
+            changes,
+            firstError);
+    }
+
+    /**
+     * Estimates number of remote requests the underlying API makes for the symbols.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        return mApi.getQuoteRequestCount(symbols);
+    }
+
+    /**
+     * Updates symbol entity with the result of another caller's update,
+     * where the result is more recent than the entity data.
+     * @param symbol Symbol entity to update.
+     * @param result Snapshot of the updated symbol information.
+     * @return {@link SymbolChanges} flags of the changed fields.
+     */
+    private static int applyResult(SymbolEntity symbol, SymbolEntity result) {
+        SymbolEntity previousData = new SymbolEntity(symbol.id);
+        previousData.copyMarketDataFrom(symbol);
+
+        if (CalendarHelper.compare(result.latestTime, symbol.latestTime) > 0) {
+            BigDecimal extendedPrice = symbol.extendedPrice;
+            Long extendedTime = symbol.extendedTime;
+
+            symbol.copyMarketDataFrom(result);
+
+            symbol.extendedPrice = extendedPrice;
+            symbol.extendedTime = extendedTime;
+        }
+
+        if (CalendarHelper.compare(result.extendedTime, symbol.extendedTime) > 0) {
+            symbol.extendedPrice = result.extendedPrice;
+            symbol.extendedTime = result.extendedTime;
+        }
+
+        return SymbolChanges.compare(previousData, symbol);
+    }
+
+    /**
+     * In-flight update of a single symbol.
+     */
+    private static final class SymbolUpdate {
+        /**
+         * Signaled when update is completed.
+         */
+        private final CountDownLatch mCompleted = new CountDownLatch(1);
+
+        /**
+         * Snapshot of the updated symbol information.
+         */
+        private SymbolEntity mResult;
+
+        /**
+         * Error that occurred during update.
+         */
+        private StockApiException mError;
+
+        /**
+         * Publishes update result to the waiting callers.
+         * @param symbol Updated symbol entity.
+         * @param error Update error or null, if update succeeded.
+         */
+        void complete(SymbolEntity symbol, StockApiException error) {
+            if (error == null) {
+                // Owner may modify its entity later, so share a copy
+                mResult = new SymbolEntity(symbol.id);
+                mResult.copyMarketDataFrom(symbol);
+            }
+
+            mError = error;
+            mCompleted.countDown();
+        }
+
+        /**
+         * Waits for the update to complete.
+         * @throws StockApiException Thrown when waiting was interrupted.
+         */
+        void await() throws StockApiException {
+            try {
+                mCompleted.await();
+            }
+            catch (InterruptedException interruptedError) {
+                Thread.currentThread().interrupt();
+                throw new StockApiException("Symbols update was interrupted", interruptedError);
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package ru.nahk.folio.stockapi;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.SymbolEntity;
+
+/**
+ * Local {@link StockApi} implementation that generates deterministic quotes.
+ * Quotes depend only on the seed, stock symbol and current minute, so the provider
+ * can be used to exercise refresh, failover and throughput offline.
+ * Symbols can be requested in batches, so that failed requests produce partial results.
+ * Not registered by default.
+ */
+public class FakeStockApi extends StockApiBase {
+    /**
+     * Interval at which generated quotes change in milliseconds.
+     */
+    private static final long QUOTE_INTERVAL = 60 * 1000;
+
+    /**
+     * Number of cents in the generated base prices range.
+     */
+    private static final int BASE_PRICE_RANGE = 100000;
+
+    /**
+     * Maximum deviation of the generated prices from the base price in percent.
+     */
+    private static final int MAX_DEVIATION_PERCENT = 5;
+
+    /**
+     * Seed that defines generated quotes.
+     */
+    private final long mSeed;
+
+    /**
+     * Simulated latency of every request in milliseconds.
+     */
+    private final long mLatency;
+
+    /**
+     * Every N-th request fails, if positive.
+     */
+    private final int mFailureInterval;
+
+    /**
+     * Maximum number of symbols updated by one request, if positive.
+     */
+    private final int mBatchSize;
+
+    /**
+     * Number of requests made so far.
+     */
+    private final AtomicLong mRequestsCount = new AtomicLong();
+
+    /**
+     * Creates new instance of the {@link FakeStockApi} class
+     * that updates any number of symbols with one request.
+     * @param seed Seed that defines generated quotes.
+     * @param latency Simulated latency of every request in milliseconds.
+     * @param failureInterval Every N-th request fails, if positive.
+     */
+    public FakeStockApi(long seed, long latency, int failureInterval) {
+        this(seed, latency, failureInterval, 0);
+    }
+
+    /**
+     * Creates new instance of the {@link FakeStockApi} class.
+     * @param seed Seed that defines generated quotes.
+     * @param latency Simulated latency of every request in milliseconds.
+     * @param failureInterval Every N-th request fails, if positive.
+     * @param batchSize Maximum number of symbols updated by one request, if positive.
+     */
+    public FakeStockApi(long seed, long latency, int failureInterval, int batchSize) {
+        mSeed = seed;
+        mLatency = latency;
+        mFailureInterval = failureInterval;
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Gets the number of requests made so far, including failed ones.
+     * @return Number of requests.
+     */
+    public long getRequestCount() {
+        return mRequestsCount.get();
+    }
+
+    /**
+     * Generates quotes for the symbols, requesting them in batches one after another.
+     * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiPartialResultException Thrown when only some of the batches were updated.
+     * @throws StockApiException Thrown when all requests are simulated to fail or interrupted.
+     */
+    @Override
+    public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+        SymbolChanges changes = new SymbolChanges();
+
+        if (symbols.isEmpty()) {
+            simulateRequest();
+            return changes;
+        }
+
+        int batchSize = mBatchSize > 0 ? mBatchSize : symbols.size();
+        long interval = System.currentTimeMillis() / QUOTE_INTERVAL;
+        SymbolEntity previousData = new SymbolEntity();
+        List<String> failedSymbols = new ArrayList<>();
+        StockApiException firstError = null;
+
+        for (int batchStart = 0; batchStart < symbols.size(); batchStart += batchSize) {
+            List<SymbolEntity> batch =
+                symbols.subList(batchStart, Math.min(batchStart + batchSize, symbols.size()));
+
+            try {
+                simulateRequest();
+            }
+            catch (StockApiException requestError) {
+                for (SymbolEntity symbol : batch) {
+                    failedSymbols.add(symbol.id);
+                }
+
+                if (firstError == null) {
+                    firstError = requestError;
+                }
+
+                continue;
+            }
+
+            for (SymbolEntity symbol : batch) {
+                previousData.copyMarketDataFrom(symbol);
+                generateQuote(symbol, interval);
+                changes.add(symbol.id, SymbolChanges.compare(previousData, symbol));
+            }
+        }
+
+        if (firstError == null) {
+            return changes;
+        }
+
+        if (failedSymbols.size() == symbols.size()) {
+            throw firstError;
+        }
+
+        throw new StockApiPartialResultException(
+            "Failed to update " + failedSymbols.size() + " of " + symbols.size() + " symbols: "
+                + firstError.getMessage(),
+            failedSymbols,
+            changes,
+            firstError);
+    }
+
+    /**
+     * Gets number of batches the symbols are requested in.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests, one for the empty list.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        if (mBatchSize <= 0 || symbols.isEmpty()) {
+            return 1;
+        }
+
+        return (symbols.size() + mBatchSize - 1) / mBatchSize;
+    }
+
+    /**
+     * Generates historical price candles of the symbol.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when request is simulated to fail or interrupted.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            String symbol,
+            long startTime,
+            long endTime,
+            int interval) throws StockApiException {
+        simulateRequest();
+
+        long symbolHash = mix(mSeed ^ symbol.hashCode());
+        long basePrice = 100 + Math.abs(symbolHash % BASE_PRICE_RANGE);
+        long intervalLength = interval * 1000L;
+        List<CandleEntity> result = new ArrayList<>();
+
+        for (long time = startTime - startTime % intervalLength; time <= endTime; time += intervalLength) {
+            if (time < startTime) {
+                continue;
+            }
+
+            long candleHash = mix(symbolHash + time / intervalLength);
+            long openPrice = deviate(basePrice, candleHash);
+            long closePrice = deviate(basePrice, mix(candleHash));
+
+            result.add(
+                new CandleEntity(
+                    symbol,
+                    interval,
+                    time,
+                    BigDecimal.valueOf(openPrice, 2),
+                    BigDecimal.valueOf(Math.max(openPrice, closePrice), 2),
+                    BigDecimal.valueOf(Math.min(openPrice, closePrice), 2),
+                    BigDecimal.valueOf(closePrice, 2),
+                    Math.abs(candleHash % 1000000)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Simulates request latency and failures.
+     * @throws StockApiException Thrown when request is simulated to fail or interrupted.
+     */
+    private void simulateRequest() throws StockApiException {
+        long requestNumber = mRequestsCount.incrementAndGet();
+
+        if (mLatency > 0) {
+            try {
+                Thread.sleep(mLatency);
+            }
+            catch (InterruptedException interruptedError) {
+                Thread.currentThread().interrupt();
+                throw new StockApiException("Request was interrupted", interruptedError);
+            }
+        }
+
+        if (mFailureInterval > 0 && requestNumber % mFailureInterval == 0) {
+            throw new StockApiTransientException("Simulated failure of request " + requestNumber);
+        }
+    }
+
+    /**
+     * Fills symbol entity with generated quote.
+     * @param symbol Symbol entity to update.
+     * @param interval Index of the quote interval.
+     */
+    private void generateQuote(SymbolEntity symbol, long interval) {
+        long symbolHash = mix(mSeed ^ symbol.id.hashCode());
+        long basePrice = 100 + Math.abs(symbolHash % BASE_PRICE_RANGE);
+        long latestPrice = deviate(basePrice, mix(symbolHash + interval));
+        long openPrice = deviate(basePrice, mix(symbolHash - 1));
+
+        if (symbol.displayName == null) {
+            symbol.displayName = symbol.id;
+        }
+
+        symbol.latestTime =
+            symbol.closeTime =
+                interval * QUOTE_INTERVAL;
+        symbol.latestPrice =
+            symbol.closePrice =
+                BigDecimal.valueOf(latestPrice, 2);
+        symbol.openTime = symbol.latestTime;
+        symbol.openPrice = BigDecimal.valueOf(openPrice, 2);
+        symbol.previousClosePrice = BigDecimal.valueOf(basePrice, 2);
+        symbol.dayHigh = BigDecimal.valueOf(Math.max(latestPrice, openPrice), 2);
+        symbol.dayLow = BigDecimal.valueOf(Math.min(latestPrice, openPrice), 2);
+        symbol.week52High = BigDecimal.valueOf(basePrice * (100 + MAX_DEVIATION_PERCENT) / 100, 2);
+        symbol.week52Low = BigDecimal.valueOf(basePrice * (100 - MAX_DEVIATION_PERCENT) / 100, 2);
+        symbol.marketCap = BigDecimal.valueOf(latestPrice * 1000000L, 2);
+    }
+
+    /**
+     * Deviates price within the allowed range.
+     * @param price Base price in cents.
+     * @param hash Hash that defines the deviation.
+     * @return Deviated price in cents.
+     */
+    private static long deviate(long price, long hash) {
+        long deviationRange = 2 * MAX_DEVIATION_PERCENT + 1;
+        long deviationPercent = Math.abs(hash % deviationRange) - MAX_DEVIATION_PERCENT;
+        return price * (100 + deviationPercent) / 100;
+    }
+
+    /**
+     * Mixes bits of the value to produce a well-distributed hash.
+     * @param value Value to hash.
+     * @return Hash of the value.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
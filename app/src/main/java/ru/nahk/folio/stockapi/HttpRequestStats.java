@@ -0,0 +1,99 @@
+package ru.nahk.folio.stockapi;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Timing and size information of a single HTTP request.
+ */
+public final class HttpRequestStats {
+    /**
+     * Request URL.
+     */
+    private final String mUrl;
+
+    /**
+     * HTTP response code.
+     */
+    private final int mResponseCode;
+
+    /**
+     * Time until response headers were received in milliseconds.
+     */
+    private final long mHeadersTime;
+
+    /**
+     * Time spent receiving and reading response body in milliseconds.
+     */
+    private final long mBodyTime;
+
+    /**
+     * Number of response body bytes received over the network.
+     */
+    private final long mBodyBytes;
+
+    /**
+     * Creates new instance of the {@link HttpRequestStats} class.
+     * @param url Request URL.
+     * @param responseCode HTTP response code.
+     * @param headersTime Time until response headers were received in milliseconds.
+     * @param bodyTime Time spent receiving and reading response body in milliseconds.
+     * @param bodyBytes Number of response body bytes received over the network.
+     */
+    HttpRequestStats(String url, int responseCode, long headersTime, long bodyTime, long bodyBytes) {
+        mUrl = url;
+        mResponseCode = responseCode;
+        mHeadersTime = headersTime;
+        mBodyTime = bodyTime;
+        mBodyBytes = bodyBytes;
+    }
+
+    /**
+     * Gets request URL.
+     * @return Request URL.
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Gets HTTP response code.
+     * @return HTTP response code.
+     */
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /**
+     * Checks whether requested resource has not changed since the previous request.
+     * @return True if resource was not modified, otherwise false.
+     */
+    public boolean isNotModified() {
+        return mResponseCode == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Gets time until response headers were received.
+     * Includes name resolution, connection establishment and time to first byte,
+     * which are not reported separately by {@link HttpURLConnection}.
+     * @return Time in milliseconds.
+     */
+    public long getHeadersTime() {
+        return mHeadersTime;
+    }
+
+    /**
+     * Gets time spent receiving and reading response body.
+     * @return Time in milliseconds.
+     */
+    public long getBodyTime() {
+        return mBodyTime;
+    }
+
+    /**
+     * Gets number of response body bytes received over the network, before decompression.
+     * @return Number of bytes.
+     */
+    public long getBodyBytes() {
+        return mBodyBytes;
+    }
+}
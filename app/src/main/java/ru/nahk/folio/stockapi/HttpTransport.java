@@ -0,0 +1,402 @@
+package ru.nahk.folio.stockapi;
+
+import android.os.SystemClock;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import ru.nahk.folio.BuildConfig;
+
+/**
+ * Shared HTTP transport for {@link StockApi} implementations.
+ * Keeps connections pooled between requests, negotiates compressed responses
+ * and remembers response validators to issue conditional requests.
+ */
+public final class HttpTransport {
+    /**
+     * Reads response body.
+     */
+    public interface BodyReader {
+        /**
+         * Reads response body.
+         * @param body Decompressed response body stream.
+         * @throws IOException Thrown when body cannot be read.
+         * @throws StockApiException Thrown when body contains an error or cannot be understood.
+         */
+        void read(InputStream body) throws IOException, StockApiException;
+    }
+
+    /**
+     * Receives statistics of the completed requests.
+     */
+    public interface RequestListener {
+        /**
+         * Called when request completes with a successful or not modified response.
+         * Called on the thread that issued the request.
+         * @param stats Request statistics.
+         */
+        void onRequestCompleted(HttpRequestStats stats);
+    }
+
+    /**
+     * Maximum number of URLs to remember response validators for.
+     */
+    private static final int MAX_VALIDATORS_COUNT = 64;
+
+    /**
+     * Size of the buffer used to drain unread responses.
+     */
+    private static final int DRAIN_BUFFER_SIZE = 1024;
+
+    /**
+     * Time to establish connection in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+
+    /**
+     * Time to wait for the response data in milliseconds.
+     * Stalled request fails as a transient error instead of blocking its thread.
+     */
+    private static final int READ_TIMEOUT = 20 * 1000;
+
+    /**
+     * HTTP response code for rate limited requests.
+     */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Value of the content encoding header for gzip-compressed responses.
+     */
+    private static final String GZIP_ENCODING = "gzip";
+
+    /**
+     * Synchronization object for the shared transport initialization process.
+     */
+    private static final Object initializationSyncObj = new Object();
+
+    /**
+     * Singleton instance of the transport.
+     */
+    private static HttpTransport instance;
+
+    /**
+     * Response validators of the recently requested URLs in access order.
+     */
+    private final Map<String, Validators> mValidators =
+        new LinkedHashMap<String, Validators>(MAX_VALIDATORS_COUNT, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Validators> eldest) {
+                return size() > MAX_VALIDATORS_COUNT;
+            }
+        };
+
+    /**
+     * Listener of the completed requests or null, if statistics are not collected.
+     */
+    private volatile RequestListener mRequestListener;
+
+    /**
+     * Obtains the shared transport instance.
+     * @return Shared transport instance.
+     */
+    public static HttpTransport getInstance() {
+        if (instance == null) {
+            synchronized (initializationSyncObj) {
+                if (instance == null) {
+                    instance = new HttpTransport();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Creates new instance of the {@link HttpTransport} class.
+     */
+    private HttpTransport() {
+    }
+
+    /**
+     * Sets listener of the completed requests.
+     * @param listener Listener to receive request statistics or null to stop collecting them.
+     */
+    public void setRequestListener(RequestListener listener) {
+        mRequestListener = listener;
+    }
+
+    /**
+     * Issues a conditional GET request.
+     * Reader is not called, if resource has not changed since the last successful request.
+     * @param url Request URL.
+     * @param reader Response body reader.
+     * @throws StockApiException Thrown when request fails or response cannot be read.
+     */
+    public void get(String url, BodyReader reader) throws StockApiException {
+        get(url, reader, true);
+    }
+
+    /**
+     * Issues a GET request.
+     * @param url Request URL.
+     * @param reader Response body reader.
+     * @param isConditional Indicates whether request should be conditional. Reader is not called
+     * for conditional request, if resource has not changed since the last successful request.
+     * Statistics of the completed request are reported to the request listener.
+     * @throws StockApiException Thrown when request fails or response cannot be read.
+     */
+    public void get(
+            String url,
+            BodyReader reader,
+            boolean isConditional) throws StockApiException {
+        long startTime = SystemClock.elapsedRealtime();
+        HttpURLConnection connection;
+
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+        }
+        catch (IOException connectionError) {
+            throw new StockApiTransientException(connectionError.getMessage(), connectionError);
+        }
+
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("User-Agent", "android/folio-" + BuildConfig.VERSION_NAME);
+        connection.setRequestProperty("Accept-Encoding", GZIP_ENCODING);
+
+        Validators validators = null;
+        if (isConditional) {
+            synchronized (mValidators) {
+                validators = mValidators.get(url);
+            }
+        }
+
+        if (validators != null) {
+            if (validators.mETag != null) {
+                connection.setRequestProperty("If-None-Match", validators.mETag);
+            }
+
+            if (validators.mLastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", validators.mLastModified);
+            }
+        }
+
+        // Connection is never disconnected explicitly, so that socket goes back to the pool
+        // once response stream is consumed and closed
+        try {
+            int responseCode = connection.getResponseCode();
+            long headersTime = SystemClock.elapsedRealtime();
+
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                drain(connection.getInputStream());
+                reportRequest(new HttpRequestStats(
+                    url, responseCode, headersTime - startTime, 0, 0));
+                return;
+            }
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                drain(connection.getErrorStream());
+
+                if (responseCode == HTTP_TOO_MANY_REQUESTS) {
+                    throw new StockApiRateLimitedException(
+                        "Too many API requests",
+                        getRetryAfter(connection));
+                }
+
+                if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                    throw new StockApiTransientException("API server error: " + responseCode);
+                }
+
+                throw new StockApiResponseException("Invalid API response code: " + responseCode);
+            }
+
+            CountingInputStream rawBody = new CountingInputStream(connection.getInputStream());
+            InputStream body =
+                GZIP_ENCODING.equalsIgnoreCase(connection.getContentEncoding())
+                    ? new GZIPInputStream(rawBody)
+                    : rawBody;
+
+            try {
+                reader.read(body);
+                drain(body);
+            }
+            finally {
+                body.close();
+            }
+
+            long endTime = SystemClock.elapsedRealtime();
+
+            // Remember validators only after the response was processed successfully,
+            // otherwise failed response would never be requested again
+            String eTag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+
+            synchronized (mValidators) {
+                if (isConditional && (eTag != null || lastModified != null)) {
+                    mValidators.put(url, new Validators(eTag, lastModified));
+                } else {
+                    mValidators.remove(url);
+                }
+            }
+
+            reportRequest(new HttpRequestStats(
+                url, responseCode, headersTime - startTime, endTime - headersTime, rawBody.mCount));
+        }
+        catch (SocketTimeoutException timeoutError) {
+            connection.disconnect();
+            throw new StockApiTransientException("API request timed out", timeoutError);
+        }
+        catch (IOException requestError) {
+            // Connection may be in unknown state, so do not return it to the pool
+            connection.disconnect();
+            throw new StockApiTransientException(requestError.getMessage(), requestError);
+        }
+    }
+
+    /**
+     * Reports completed request to the request listener, if any.
+     * @param stats Request statistics.
+     */
+    private void reportRequest(HttpRequestStats stats) {
+        RequestListener listener = mRequestListener;
+        if (listener != null) {
+            listener.onRequestCompleted(stats);
+        }
+    }
+
+    /**
+     * Reads delay requested by the server in the Retry-After header.
+     * @param connection Connection with received response headers.
+     * @return Delay in milliseconds or zero, if not specified as number of seconds.
+     */
+    private static long getRetryAfter(HttpURLConnection connection) {
+        String retryAfter = connection.getHeaderField("Retry-After");
+
+        if (retryAfter != null) {
+            try {
+                return Long.parseLong(retryAfter.trim()) * 1000;
+            }
+            catch (NumberFormatException formatError) {
+                // HTTP date format is not supported
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Reads remaining data from the stream and closes it.
+     * Fully consumed responses allow underlying connection to be reused.
+     * @param stream Stream to drain, can be null.
+     * @throws IOException Thrown when stream cannot be read.
+     */
+    private static void drain(InputStream stream) throws IOException {
+        if (stream == null) {
+            return;
+        }
+
+        try {
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (stream.read(buffer) != -1) {
+                // Discard
+            }
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Response validators used to issue conditional requests.
+     */
+    private static final class Validators {
+        /**
+         * Value of the ETag header.
+         */
+        private final String mETag;
+
+        /**
+         * Value of the Last-Modified header.
+         */
+        private final String mLastModified;
+
+        /**
+         * Creates new instance of the {@link Validators} class.
+         * @param eTag Value of the ETag header.
+         * @param lastModified Value of the Last-Modified header.
+         */
+        Validators(String eTag, String lastModified) {
+            mETag = eTag;
+            mLastModified = lastModified;
+        }
+    }
+
+    /**
+     * Input stream that counts bytes read from the underlying stream.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        /**
+         * Number of bytes read so far.
+         */
+        private long mCount;
+
+        /**
+         * Creates new instance of the {@link CountingInputStream} class.
+         * @param stream Underlying stream.
+         */
+        CountingInputStream(InputStream stream) {
+            super(stream);
+        }
+
+        /**
+         * Reads next byte from the stream.
+         * @return Next byte or -1 at the end of the stream.
+         * @throws IOException Thrown when stream cannot be read.
+         */
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                ++mCount;
+            }
+            return result;
+        }
+
+        /**
+         * Reads bytes from the stream into the buffer.
+         * @param buffer Destination buffer.
+         * @param offset Offset in the destination buffer.
+         * @param length Maximum number of bytes to read.
+         * @return Number of bytes read or -1 at the end of the stream.
+         * @throws IOException Thrown when stream cannot be read.
+         */
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                mCount += result;
+            }
+            return result;
+        }
+
+        /**
+         * Skips bytes in the stream.
+         * @param count Number of bytes to skip.
+         * @return Number of bytes skipped.
+         * @throws IOException Thrown when stream cannot be read.
+         */
+        @Override
+        public long skip(long count) throws IOException {
+            long result = super.skip(count);
+            mCount += result;
+            return result;
+        }
+    }
+}
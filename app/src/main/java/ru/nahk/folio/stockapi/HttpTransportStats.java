@@ -0,0 +1,102 @@
+package ru.nahk.folio.stockapi;
+
+/**
+ * Accumulates statistics of the requests completed by {@link HttpTransport}.
+ */
+public final class HttpTransportStats implements HttpTransport.RequestListener {
+    /**
+     * Number of completed requests.
+     */
+    private long mRequestCount;
+
+    /**
+     * Number of requests answered with not modified response.
+     */
+    private long mNotModifiedCount;
+
+    /**
+     * Total time until response headers were received in milliseconds.
+     */
+    private long mHeadersTime;
+
+    /**
+     * Total time spent receiving and reading response bodies in milliseconds.
+     */
+    private long mBodyTime;
+
+    /**
+     * Total number of response body bytes received over the network.
+     */
+    private long mBodyBytes;
+
+    /**
+     * Statistics of the most recent request or null, if no requests were completed.
+     */
+    private HttpRequestStats mLastRequest;
+
+    /**
+     * Records statistics of the completed request.
+     * @param stats Request statistics.
+     */
+    @Override
+    public synchronized void onRequestCompleted(HttpRequestStats stats) {
+        ++mRequestCount;
+
+        if (stats.isNotModified()) {
+            ++mNotModifiedCount;
+        }
+
+        mHeadersTime += stats.getHeadersTime();
+        mBodyTime += stats.getBodyTime();
+        mBodyBytes += stats.getBodyBytes();
+        mLastRequest = stats;
+    }
+
+    /**
+     * Gets number of completed requests.
+     * @return Number of requests.
+     */
+    public synchronized long getRequestCount() {
+        return mRequestCount;
+    }
+
+    /**
+     * Gets number of requests answered with not modified response, which skipped the body.
+     * @return Number of requests.
+     */
+    public synchronized long getNotModifiedCount() {
+        return mNotModifiedCount;
+    }
+
+    /**
+     * Gets average time until response headers were received.
+     * @return Time in milliseconds or zero, if no requests were completed.
+     */
+    public synchronized double getAverageHeadersTime() {
+        return mRequestCount > 0 ? (double) mHeadersTime / mRequestCount : 0;
+    }
+
+    /**
+     * Gets average time spent receiving and reading response body.
+     * @return Time in milliseconds or zero, if no requests were completed.
+     */
+    public synchronized double getAverageBodyTime() {
+        return mRequestCount > 0 ? (double) mBodyTime / mRequestCount : 0;
+    }
+
+    /**
+     * Gets total number of response body bytes received over the network, before decompression.
+     * @return Number of bytes.
+     */
+    public synchronized long getBodyBytes() {
+        return mBodyBytes;
+    }
+
+    /**
+     * Gets statistics of the most recent request.
+     * @return Request statistics or null, if no requests were completed.
+     */
+    public synchronized HttpRequestStats getLastRequest() {
+        return mLastRequest;
+    }
+}
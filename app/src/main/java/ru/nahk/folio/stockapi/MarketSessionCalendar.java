@@ -0,0 +1,226 @@
+package ru.nahk.folio.stockapi;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Trading sessions calendar of the US equity markets.
+ * Covers regular and post-market sessions on business days, excluding exchange holidays.
+ * Early closes are treated as full trading days.
+ * Symbols listed on other exchanges are not covered.
+ */
+public class MarketSessionCalendar {
+    /**
+     * Timezone of the exchange.
+     */
+    private static final TimeZone EXCHANGE_TIMEZONE = TimeZone.getTimeZone("America/New_York");
+
+    /**
+     * Start of the regular session in minutes since midnight (9:30).
+     */
+    private static final int REGULAR_SESSION_START = 9 * 60 + 30;
+
+    /**
+     * End of the regular session in minutes since midnight (16:00).
+     */
+    private static final int REGULAR_SESSION_END = 16 * 60;
+
+    /**
+     * End of the post-market session in minutes since midnight (20:00).
+     */
+    private static final int EXTENDED_SESSION_END = 20 * 60;
+
+    /**
+     * Maximum number of days to look back for the previous trading day.
+     */
+    private static final int MAX_LOOKBACK_DAYS = 10;
+
+    /**
+     * First year when Juneteenth was observed by the exchange.
+     */
+    private static final int JUNETEENTH_FIRST_YEAR = 2022;
+
+    /**
+     * Checks whether symbol is listed on the exchanges covered by the calendar.
+     * Symbols of the other exchanges have an exchange suffix (VOD.L, SHOP.TO, 7203.T),
+     * while indices (^FTSE), currencies and futures (EURUSD=X, ES=F) follow their own hours.
+     * @param symbol Stock symbol.
+     * @return True if symbol trades on the US exchanges sessions, otherwise false.
+     */
+    public boolean isListed(String symbol) {
+        return symbol.indexOf('.') < 0
+            && symbol.indexOf('^') < 0
+            && symbol.indexOf('=') < 0;
+    }
+
+    /**
+     * Checks whether quotes can change at the given time,
+     * either during regular or post-market session.
+     * @param time Epoch time in milliseconds.
+     * @return True if market is trading, otherwise false.
+     */
+    public boolean isTrading(long time) {
+        Calendar exchangeTime = toExchangeTime(time);
+
+        if (!isTradingDay(exchangeTime)) {
+            return false;
+        }
+
+        int minutes = exchangeTime.get(Calendar.HOUR_OF_DAY) * 60 + exchangeTime.get(Calendar.MINUTE);
+        return minutes >= REGULAR_SESSION_START && minutes < EXTENDED_SESSION_END;
+    }
+
+    /**
+     * Gets end of the most recent regular session that ended at or before the given time.
+     * @param time Epoch time in milliseconds.
+     * @return Epoch time of the regular session end in milliseconds.
+     */
+    public long getLastRegularSessionEnd(long time) {
+        return getLastSessionBoundary(time, REGULAR_SESSION_END);
+    }
+
+    /**
+     * Gets end of the most recent post-market session that ended at or before the given time.
+     * @param time Epoch time in milliseconds.
+     * @return Epoch time of the post-market session end in milliseconds.
+     */
+    public long getLastExtendedSessionEnd(long time) {
+        return getLastSessionBoundary(time, EXTENDED_SESSION_END);
+    }
+
+    /**
+     * Finds the most recent session boundary at or before the given time.
+     * @param time Epoch time in milliseconds.
+     * @param boundary Boundary time of the day in minutes since midnight.
+     * @return Epoch time of the boundary in milliseconds.
+     */
+    private static long getLastSessionBoundary(long time, int boundary) {
+        Calendar exchangeTime = toExchangeTime(time);
+        exchangeTime.set(Calendar.HOUR_OF_DAY, boundary / 60);
+        exchangeTime.set(Calendar.MINUTE, boundary % 60);
+        exchangeTime.set(Calendar.SECOND, 0);
+        exchangeTime.set(Calendar.MILLISECOND, 0);
+
+        if (exchangeTime.getTimeInMillis() > time) {
+            exchangeTime.add(Calendar.DATE, -1);
+        }
+
+        for (int day = 0; day < MAX_LOOKBACK_DAYS && !isTradingDay(exchangeTime); ++day) {
+            exchangeTime.add(Calendar.DATE, -1);
+        }
+
+        return exchangeTime.getTimeInMillis();
+    }
+
+    /**
+     * Converts epoch time to the exchange local time.
+     * @param time Epoch time in milliseconds.
+     * @return Calendar in the exchange timezone.
+     */
+    private static Calendar toExchangeTime(long time) {
+        Calendar result = Calendar.getInstance(EXCHANGE_TIMEZONE);
+        result.setTimeInMillis(time);
+        return result;
+    }
+
+    /**
+     * Checks whether exchange is open on the given day.
+     * @param date Date in the exchange timezone.
+     * @return True if given date is a trading day, otherwise false.
+     */
+    private static boolean isTradingDay(Calendar date) {
+        int dayOfWeek = date.get(Calendar.DAY_OF_WEEK);
+        return dayOfWeek != Calendar.SATURDAY
+            && dayOfWeek != Calendar.SUNDAY
+            && !isHoliday(date);
+    }
+
+    /**
+     * Checks whether given business day is an exchange holiday.
+     * @param date Date in the exchange timezone.
+     * @return True if exchange is closed for a holiday, otherwise false.
+     */
+    private static boolean isHoliday(Calendar date) {
+        int year = date.get(Calendar.YEAR);
+        int month = date.get(Calendar.MONTH);
+        int day = date.get(Calendar.DATE);
+        int dayOfWeek = date.get(Calendar.DAY_OF_WEEK);
+        int weekOfMonth = (day - 1) / 7 + 1;
+
+        switch (month) {
+            case Calendar.JANUARY:
+                // New Year's Day is not moved to Friday, when it falls on Saturday
+                return (day == 1 || (day == 2 && dayOfWeek == Calendar.MONDAY))
+                    // Martin Luther King Jr. Day
+                    || (dayOfWeek == Calendar.MONDAY && weekOfMonth == 3);
+            case Calendar.FEBRUARY:
+                // Washington's Birthday
+                return dayOfWeek == Calendar.MONDAY && weekOfMonth == 3;
+            case Calendar.MARCH:
+            case Calendar.APRIL:
+                return isGoodFriday(year, month, day);
+            case Calendar.MAY:
+                // Memorial Day
+                return dayOfWeek == Calendar.MONDAY && day + 7 > 31;
+            case Calendar.JUNE:
+                return year >= JUNETEENTH_FIRST_YEAR && isObservedOn(19, day, dayOfWeek);
+            case Calendar.JULY:
+                return isObservedOn(4, day, dayOfWeek);
+            case Calendar.SEPTEMBER:
+                // Labor Day
+                return dayOfWeek == Calendar.MONDAY && weekOfMonth == 1;
+            case Calendar.NOVEMBER:
+                // Thanksgiving Day
+                return dayOfWeek == Calendar.THURSDAY && weekOfMonth == 4;
+            case Calendar.DECEMBER:
+                return isObservedOn(25, day, dayOfWeek);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether fixed-date holiday is observed on the given business day.
+     * Holidays on Saturday are observed on Friday and holidays on Sunday are observed on Monday.
+     * @param holiday Day of month of the holiday.
+     * @param day Day of month to check.
+     * @param dayOfWeek Day of week to check.
+     * @return True if holiday is observed on the given day, otherwise false.
+     */
+    private static boolean isObservedOn(int holiday, int day, int dayOfWeek) {
+        return day == holiday
+            || (day == holiday - 1 && dayOfWeek == Calendar.FRIDAY)
+            || (day == holiday + 1 && dayOfWeek == Calendar.MONDAY);
+    }
+
+    /**
+     * Checks whether given date is Good Friday.
+     * @param year Year.
+     * @param month Month.
+     * @param day Day of month.
+     * @return True if given date is Good Friday, otherwise false.
+     */
+    private static boolean isGoodFriday(int year, int month, int day) {
+        // Anonymous Gregorian algorithm for Easter Sunday
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int easterMonth = (h + l - 7 * m + 114) / 31;
+        int easterDay = (h + l - 7 * m + 114) % 31 + 1;
+
+        // Good Friday is two days before Easter Sunday, which is never earlier than March 22
+        int goodFridayMonth = easterDay > 2 ? easterMonth : easterMonth - 1;
+        int goodFridayDay = easterDay > 2 ? easterDay - 2 : easterDay + 29;
+
+        return month == goodFridayMonth - 1 && day == goodFridayDay;
+    }
+}
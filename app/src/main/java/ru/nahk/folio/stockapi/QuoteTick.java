@@ -0,0 +1,88 @@
+package ru.nahk.folio.stockapi;
+
+import java.math.BigDecimal;
+
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.utils.CalendarHelper;
+
+/**
+ * Single pushed price update of a stock symbol.
+ */
+public final class QuoteTick {
+    /**
+     * Stock symbol.
+     */
+    public final String symbol;
+
+    /**
+     * Trade price.
+     */
+    public final BigDecimal price;
+
+    /**
+     * Trade time as epoch time in milliseconds.
+     */
+    public final long time;
+
+    /**
+     * Indicates whether trade happened outside of the regular session, before or after it.
+     */
+    public final boolean isExtended;
+
+    /**
+     * Creates new instance of the {@link QuoteTick} class.
+     * @param symbol Stock symbol.
+     * @param price Trade price.
+     * @param time Trade time as epoch time in milliseconds.
+     * @param isExtended Indicates whether trade happened outside of the regular session, before or after it.
+     */
+    public QuoteTick(String symbol, BigDecimal price, long time, boolean isExtended) {
+        this.symbol = symbol;
+        this.price = price;
+        this.time = time;
+        this.isExtended = isExtended;
+    }
+
+    /**
+     * Applies the update to the symbol entity, unless entity already has newer data.
+     * @param symbolEntity Symbol entity to update.
+     * @return Flags of the changed fields as defined by {@link SymbolChanges}.
+     */
+    public int applyTo(SymbolEntity symbolEntity) {
+        if (isExtended) {
+            if (CalendarHelper.compare(time, symbolEntity.extendedTime) <= 0) {
+                return 0;
+            }
+
+            symbolEntity.extendedTime = time;
+            symbolEntity.extendedPrice = price;
+            return SymbolChanges.EXTENDED;
+        }
+
+        if (CalendarHelper.compare(time, symbolEntity.latestTime) <= 0) {
+            return 0;
+        }
+
+        // Close price follows the latest regular session price, same as in the pulled quotes
+        symbolEntity.latestTime =
+            symbolEntity.closeTime =
+                time;
+        symbolEntity.latestPrice =
+            symbolEntity.closePrice =
+                price;
+
+        int changedFields = SymbolChanges.LATEST | SymbolChanges.CLOSE;
+
+        if (symbolEntity.dayHigh != null && price.compareTo(symbolEntity.dayHigh) > 0) {
+            symbolEntity.dayHigh = price;
+            changedFields |= SymbolChanges.DAY_RANGE;
+        }
+
+        if (symbolEntity.dayLow != null && price.compareTo(symbolEntity.dayLow) < 0) {
+            symbolEntity.dayLow = price;
+            changedFields |= SymbolChanges.DAY_RANGE;
+        }
+
+        return changedFields;
+    }
+}
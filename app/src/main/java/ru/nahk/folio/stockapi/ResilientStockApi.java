@@ -0,0 +1,700 @@
+package ru.nahk.folio.stockapi;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.SymbolEntity;
+
+/**
+ * {@link StockApi} decorator that protects the upstream service and the caller
+ * from each other. Transient failures are retried with jittered exponential backoff,
+ * repeated failures open a circuit breaker that fails requests fast,
+ * and remote requests draw from token-bucket request budgets, one request for every
+ * batch the underlying API splits quote updates into. Quote updates and
+ * interactive look-ups (symbols search and price history) have separate budgets,
+ * so that background refreshes cannot starve the user and vice versa.
+ */
+public class ResilientStockApi implements StockApi {
+    /**
+     * Circuit breaker state, when requests are passed through.
+     */
+    public static final int BREAKER_CLOSED = 0;
+
+    /**
+     * Circuit breaker state, when requests are failed without calling the upstream service.
+     */
+    public static final int BREAKER_OPEN = 1;
+
+    /**
+     * Circuit breaker state, when a single trial request is allowed to check
+     * whether the upstream service has recovered.
+     */
+    public static final int BREAKER_HALF_OPEN = 2;
+
+    /**
+     * Maximum number of attempts made for a single request.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Backoff before the first retry in milliseconds.
+     */
+    private static final long INITIAL_BACKOFF = 500;
+
+    /**
+     * Maximum backoff between retries in milliseconds.
+     */
+    private static final long MAX_BACKOFF = 4000;
+
+    /**
+     * Number of consecutive transient failures that opens the circuit breaker.
+     */
+    private static final int FAILURE_THRESHOLD = 5;
+
+    /**
+     * Time the circuit breaker stays open after it opens for the first time in milliseconds.
+     */
+    private static final long INITIAL_OPEN_DURATION = 30 * 1000;
+
+    /**
+     * Maximum time the circuit breaker stays open in milliseconds.
+     */
+    private static final long MAX_OPEN_DURATION = 5 * 60 * 1000;
+
+    /**
+     * Maximum number of quote requests that can be made in a burst.
+     */
+    private static final int QUOTE_BUDGET_CAPACITY = 10;
+
+    /**
+     * Time to restore one quote request in the budget in milliseconds.
+     */
+    private static final long QUOTE_BUDGET_REFILL_INTERVAL = 6 * 1000;
+
+    /**
+     * Maximum number of symbols search and price history requests that can be made in a burst.
+     */
+    private static final int LOOKUP_BUDGET_CAPACITY = 10;
+
+    /**
+     * Time to restore one symbols search or price history request in the budget in milliseconds.
+     */
+    private static final long LOOKUP_BUDGET_REFILL_INTERVAL = 2 * 1000;
+
+    /**
+     * Time to back off after the server rejected a request as rate limited
+     * without telling when to retry in milliseconds.
+     */
+    private static final long DEFAULT_RATE_LIMIT_BACKOFF = 60 * 1000;
+
+    /**
+     * Underlying stock API.
+     */
+    private final StockApi mApi;
+
+    /**
+     * Backoff before the first retry in milliseconds.
+     */
+    private final long mInitialBackoff;
+
+    /**
+     * Time the circuit breaker stays open after it opens for the first time in milliseconds.
+     */
+    private final long mInitialOpenDuration;
+
+    /**
+     * Source of the backoff jitter.
+     */
+    private final Random mRandom = new Random();
+
+    /**
+     * Synchronization object for the breaker and budget state.
+     */
+    private final Object mStateSyncObj = new Object();
+
+    /**
+     * Current circuit breaker state.
+     */
+    private int mBreakerState = BREAKER_CLOSED;
+
+    /**
+     * Number of consecutive transient failures.
+     */
+    private int mConsecutiveFailures;
+
+    /**
+     * Time the circuit breaker stays open next time it opens.
+     */
+    private long mOpenDuration;
+
+    /**
+     * Time when open circuit breaker allows a trial request.
+     */
+    private long mOpenUntil;
+
+    /**
+     * Flag that indicates whether the trial request of the half-open breaker is in progress.
+     */
+    private boolean mIsTrialInFlight;
+
+    /**
+     * Last transient failure.
+     */
+    private StockApiException mLastFailure;
+
+    /**
+     * Budget of the quote update requests.
+     */
+    private final RequestBudget mQuoteBudget =
+        new RequestBudget(QUOTE_BUDGET_CAPACITY, QUOTE_BUDGET_REFILL_INTERVAL);
+
+    /**
+     * Budget of the symbols search and price history requests.
+     */
+    private final RequestBudget mLookupBudget =
+        new RequestBudget(LOOKUP_BUDGET_CAPACITY, LOOKUP_BUDGET_REFILL_INTERVAL);
+
+    /**
+     * Time until which requests are not made, because the server rate limited us.
+     */
+    private long mRateLimitedUntil;
+
+    /**
+     * Creates new instance of the {@link ResilientStockApi} class.
+     * @param api Underlying stock API.
+     */
+    public ResilientStockApi(StockApi api) {
+        this(api, INITIAL_BACKOFF, INITIAL_OPEN_DURATION);
+    }
+
+    /**
+     * Creates new instance of the {@link ResilientStockApi} class with the custom delays.
+     * @param api Underlying stock API.
+     * @param initialBackoff Backoff before the first retry in milliseconds.
+     * @param initialOpenDuration Time the circuit breaker stays open after it opens
+     * for the first time in milliseconds.
+     */
+    ResilientStockApi(StockApi api, long initialBackoff, long initialOpenDuration) {
+        mApi = api;
+        mInitialBackoff = initialBackoff;
+        mInitialOpenDuration = initialOpenDuration;
+        mOpenDuration = initialOpenDuration;
+    }
+
+    /**
+     * Searches for symbols matching the query.
+     * Local look-up is not subject to the request budget.
+     * @param context Application or activity context.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> findSymbols(Context context, String query) throws StockApiException {
+        return mApi.findSymbols(context, query);
+    }
+
+    /**
+     * Searches for symbols matching the query using remote service.
+     * Draws from the look-up budget.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(final String query) throws StockApiException {
+        return execute(mLookupBudget, 1, new Request<List<SymbolInfo>>() {
+            @Override
+            public List<SymbolInfo> run() throws StockApiException {
+                return mApi.searchSymbols(query);
+            }
+        });
+    }
+
+    /**
+     * Fetches historical price candles of the symbol.
+     * Draws from the look-up budget.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when an error occurs during history look-up.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            final String symbol,
+            final long startTime,
+            final long endTime,
+            final int interval) throws StockApiException {
+        return execute(mLookupBudget, 1, new Request<List<CandleEntity>>() {
+            @Override
+            public List<CandleEntity> run() throws StockApiException {
+                return mApi.fetchHistory(symbol, startTime, endTime, interval);
+            }
+        });
+    }
+
+    /**
+     * Performs an in-place update of symbol information.
+     * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException {
+        if (symbol == null) {
+            return new SymbolChanges();
+        }
+
+        List<SymbolEntity> symbols = new ArrayList<>(1);
+        symbols.add(symbol);
+
+        return updateSymbols(symbols);
+    }
+
+    /**
+     * Performs an in-place update of symbols information.
+     * Draws a request from the quote budget for every batch of symbols.
+     * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbols(final List<SymbolEntity> symbols) throws StockApiException {
+        if (symbols.isEmpty()) {
+            return new SymbolChanges();
+        }
+
+        int requestCount = Math.max(1, mApi.getQuoteRequestCount(symbols));
+
+        return execute(mQuoteBudget, requestCount, new Request<SymbolChanges>() {
+            @Override
+            public SymbolChanges run() throws StockApiException {
+                return mApi.updateSymbols(symbols);
+            }
+        });
+    }
+
+    /**
+     * Estimates number of remote requests the underlying API makes for the symbols.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        return mApi.getQuoteRequestCount(symbols);
+    }
+
+    /**
+     * Takes a snapshot of the breaker and quote budget state.
+     * @return Current state of the resilience layer.
+     */
+    public State getState() {
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (mStateSyncObj) {
+            int breakerState = mBreakerState;
+            if (breakerState == BREAKER_OPEN && now >= mOpenUntil) {
+                breakerState = BREAKER_HALF_OPEN;
+            }
+
+            long rateLimitDelay = Math.max(getRateLimitDelay(now), mQuoteBudget.getRefillDelay(now));
+
+            return new State(
+                breakerState,
+                mQuoteBudget.getAvailableRequests(now),
+                rateLimitDelay,
+                breakerState == BREAKER_OPEN ? mOpenUntil - now : 0);
+        }
+    }
+
+    /**
+     * Executes the request, retrying transient failures.
+     * @param budget Budget every attempt is taken from.
+     * @param requestCount Number of remote requests every attempt makes.
+     * @param request Request to execute.
+     * @param <T> Type of the request result.
+     * @return Result of the request.
+     * @throws StockApiException Thrown when request has failed.
+     */
+    private <T> T execute(
+            RequestBudget budget,
+            int requestCount,
+            Request<T> request) throws StockApiException {
+        long backoff = mInitialBackoff;
+
+        for (int attempt = 1; ; ++attempt) {
+            acquire(budget, requestCount);
+
+            try {
+                T result = request.run();
+                recordSuccess();
+                return result;
+            }
+            catch (StockApiPartialResultException partialResult) {
+                // The service is reachable, failed part is handled by the caller
+                recordSuccess();
+                throw partialResult;
+            }
+            catch (StockApiRateLimitedException rateLimited) {
+                recordRateLimited(rateLimited.getRetryAfter());
+                throw rateLimited;
+            }
+            catch (StockApiTransientException transientError) {
+                if (!recordFailure(transientError) || attempt >= MAX_ATTEMPTS) {
+                    throw transientError;
+                }
+            }
+            catch (StockApiResponseException responseError) {
+                // The service has responded, so the error is not going to go away on retry
+                recordSuccess();
+                throw responseError;
+            }
+            catch (StockApiException error) {
+                // The service was not necessarily reached, so the request tells nothing about it
+                releaseTrial();
+                throw error;
+            }
+            catch (RuntimeException unexpectedError) {
+                // Failed trial must not leave the breaker waiting for it forever
+                recordFailure(new StockApiException(unexpectedError.getMessage(), unexpectedError));
+                throw unexpectedError;
+            }
+
+            try {
+                // Full jitter spreads retries of the concurrent callers
+                Thread.sleep((long)(mRandom.nextDouble() * backoff));
+            }
+            catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                throw new StockApiTransientException("Request was interrupted", interrupted);
+            }
+
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    /**
+     * Checks that the request can be made and takes it from the budget.
+     * @param budget Budget to take the request from.
+     * @param requestCount Number of remote requests to take.
+     * @throws StockApiException Thrown when the breaker is open or the budget is exhausted.
+     */
+    private void acquire(RequestBudget budget, int requestCount) throws StockApiException {
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (mStateSyncObj) {
+            if (mBreakerState == BREAKER_OPEN) {
+                if (now < mOpenUntil) {
+                    throw new StockApiUnavailableException(
+                        "Stock API is unavailable",
+                        mOpenUntil - now,
+                        mLastFailure);
+                }
+
+                mBreakerState = BREAKER_HALF_OPEN;
+                mIsTrialInFlight = false;
+            }
+
+            if (mBreakerState == BREAKER_HALF_OPEN && mIsTrialInFlight) {
+                throw new StockApiUnavailableException(
+                    "Stock API is unavailable",
+                    0,
+                    mLastFailure);
+            }
+
+            long rateLimitDelay = getRateLimitDelay(now);
+            if (rateLimitDelay > 0) {
+                throw new StockApiRateLimitedException("Too many API requests", rateLimitDelay);
+            }
+
+            if (!budget.tryTake(now, requestCount)) {
+                throw new StockApiRateLimitedException("Too many API requests", budget.getRefillDelay(now));
+            }
+
+            if (mBreakerState == BREAKER_HALF_OPEN) {
+                mIsTrialInFlight = true;
+            }
+        }
+    }
+
+    /**
+     * Records a request that got a response from the service and closes the breaker.
+     */
+    private void recordSuccess() {
+        synchronized (mStateSyncObj) {
+            mBreakerState = BREAKER_CLOSED;
+            mIsTrialInFlight = false;
+            mConsecutiveFailures = 0;
+            mOpenDuration = mInitialOpenDuration;
+            mLastFailure = null;
+        }
+    }
+
+    /**
+     * Allows another trial request, when the request has failed without reaching the service.
+     * Breaker state and failure count are kept as is.
+     */
+    private void releaseTrial() {
+        synchronized (mStateSyncObj) {
+            mIsTrialInFlight = false;
+        }
+    }
+
+    /**
+     * Records a request that was rejected by the service as rate limited.
+     * @param retryAfter Delay requested by the service or zero, if not known.
+     */
+    private void recordRateLimited(long retryAfter) {
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (mStateSyncObj) {
+            // The service is up, so the trial request has succeeded
+            mBreakerState = BREAKER_CLOSED;
+            mIsTrialInFlight = false;
+            mConsecutiveFailures = 0;
+            mOpenDuration = mInitialOpenDuration;
+
+            mRateLimitedUntil = Math.max(
+                mRateLimitedUntil,
+                now + (retryAfter > 0 ? retryAfter : DEFAULT_RATE_LIMIT_BACKOFF));
+        }
+    }
+
+    /**
+     * Records a transient failure and opens the breaker, if necessary.
+     * @param failure Request failure.
+     * @return True if request can be retried, otherwise false.
+     */
+    private boolean recordFailure(StockApiException failure) {
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (mStateSyncObj) {
+            mLastFailure = failure;
+            ++mConsecutiveFailures;
+
+            if (mBreakerState == BREAKER_HALF_OPEN
+                || mConsecutiveFailures >= FAILURE_THRESHOLD) {
+                if (mBreakerState == BREAKER_HALF_OPEN) {
+                    mOpenDuration = Math.min(mOpenDuration * 2, MAX_OPEN_DURATION);
+                }
+
+                mBreakerState = BREAKER_OPEN;
+                mIsTrialInFlight = false;
+                mOpenUntil = now + mOpenDuration;
+                return false;
+            }
+
+            return mBreakerState == BREAKER_CLOSED;
+        }
+    }
+
+    /**
+     * Gets remaining time the service asked us not to make requests.
+     * Must be called while holding the state lock.
+     * @param now Current time.
+     * @return Remaining time in milliseconds or zero, if requests are allowed.
+     */
+    private long getRateLimitDelay(long now) {
+        return Math.max(0, mRateLimitedUntil - now);
+    }
+
+    /**
+     * Token-bucket budget of requests.
+     * Request that needs more than the available requests is allowed and leaves the budget
+     * in debt, so that large updates are not blocked forever, but the following ones wait longer.
+     * Must be accessed while holding the state lock.
+     */
+    private static final class RequestBudget {
+        /**
+         * Maximum number of requests that can be made in a burst.
+         */
+        private final int mCapacity;
+
+        /**
+         * Time to restore one request in the budget in milliseconds.
+         */
+        private final long mRefillInterval;
+
+        /**
+         * Number of requests available in the budget, negative when the budget is in debt.
+         */
+        private int mAvailableRequests;
+
+        /**
+         * Time when the budget was last refilled.
+         */
+        private long mLastRefillTime = SystemClock.elapsedRealtime();
+
+        /**
+         * Creates new instance of the {@link RequestBudget} class with all requests available.
+         * @param capacity Maximum number of requests that can be made in a burst.
+         * @param refillInterval Time to restore one request in the budget in milliseconds.
+         */
+        RequestBudget(int capacity, long refillInterval) {
+            mCapacity = capacity;
+            mRefillInterval = refillInterval;
+            mAvailableRequests = capacity;
+        }
+
+        /**
+         * Takes requests from the budget, if at least one is available.
+         * @param now Current time.
+         * @param count Number of requests to take.
+         * @return True if requests were taken, false if the budget is exhausted.
+         */
+        boolean tryTake(long now, int count) {
+            refill(now);
+
+            if (mAvailableRequests <= 0) {
+                return false;
+            }
+
+            mAvailableRequests -= count;
+            return true;
+        }
+
+        /**
+         * Gets number of requests that can be made right now.
+         * @param now Current time.
+         * @return Number of available requests.
+         */
+        int getAvailableRequests(long now) {
+            refill(now);
+            return Math.max(0, mAvailableRequests);
+        }
+
+        /**
+         * Adds requests to the budget for the time passed since the last refill.
+         * @param now Current time.
+         */
+        private void refill(long now) {
+            long refills = (now - mLastRefillTime) / mRefillInterval;
+
+            if (refills > 0) {
+                mAvailableRequests =
+                    (int)Math.min(mCapacity, mAvailableRequests + refills);
+                mLastRefillTime += refills * mRefillInterval;
+            }
+
+            if (mAvailableRequests == mCapacity) {
+                mLastRefillTime = now;
+            }
+        }
+
+        /**
+         * Gets time until a request becomes available, if the budget is exhausted.
+         * @param now Current time.
+         * @return Time in milliseconds or zero, if requests are available.
+         */
+        long getRefillDelay(long now) {
+            refill(now);
+            return mAvailableRequests <= 0
+                ? mLastRefillTime + (1 - mAvailableRequests) * mRefillInterval - now
+                : 0;
+        }
+    }
+
+    /**
+     * Request to the underlying stock API.
+     * @param <T> Type of the request result.
+     */
+    private interface Request<T> {
+        /**
+         * Executes the request.
+         * @return Result of the request.
+         * @throws StockApiException Thrown when request has failed.
+         */
+        T run() throws StockApiException;
+    }
+
+    /**
+     * Snapshot of the breaker and quote budget state.
+     */
+    public static class State {
+        /**
+         * Circuit breaker state.
+         */
+        private final int mBreakerState;
+
+        /**
+         * Number of requests available in the budget.
+         */
+        private final int mAvailableRequests;
+
+        /**
+         * Remaining time until requests are allowed by the service and the budget.
+         */
+        private final long mRateLimitDelay;
+
+        /**
+         * Remaining time until open breaker allows a trial request.
+         */
+        private final long mUnavailableDelay;
+
+        /**
+         * Creates new instance of the {@link State} class.
+         * @param breakerState Circuit breaker state.
+         * @param availableRequests Number of requests available in the budget.
+         * @param rateLimitDelay Remaining time until requests are allowed
+         * by the service and the budget.
+         * @param unavailableDelay Remaining time until open breaker allows a trial request.
+         */
+        State(
+                int breakerState,
+                int availableRequests,
+                long rateLimitDelay,
+                long unavailableDelay) {
+            mBreakerState = breakerState;
+            mAvailableRequests = availableRequests;
+            mRateLimitDelay = rateLimitDelay;
+            mUnavailableDelay = unavailableDelay;
+        }
+
+        /**
+         * Gets circuit breaker state.
+         * @return One of the BREAKER_* constants.
+         */
+        public int getBreakerState() {
+            return mBreakerState;
+        }
+
+        /**
+         * Gets number of requests that can be made right now.
+         * @return Number of requests available in the budget.
+         */
+        public int getAvailableRequests() {
+            return mAvailableRequests;
+        }
+
+        /**
+         * Checks whether requests are held back, because too many were made recently.
+         * @return True if requests are rate limited, otherwise false.
+         */
+        public boolean isRateLimited() {
+            return mRateLimitDelay > 0;
+        }
+
+        /**
+         * Checks whether requests are failed, because the service is considered to be down.
+         * @return True if the service is unavailable, otherwise false.
+         */
+        public boolean isUnavailable() {
+            return mBreakerState == BREAKER_OPEN;
+        }
+
+        /**
+         * Gets time until the next request can be made.
+         * @return Time in milliseconds or zero, if request can be made right now.
+         */
+        public long getRetryAfter() {
+            return Math.max(mUnavailableDelay, mRateLimitDelay);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package ru.nahk.folio.stockapi;
+
+import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.List;
+
+import ru.nahk.folio.BuildConfig;
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.SymbolEntity;
+
+/**
+ * {@link StreamingStockApi} that receives quotes as server-sent events
+ * and delegates all other requests to the underlying API.
+ * Every event carries a single tick as JSON object:
+ * {@code {"symbol": "AAPL", "price": "189.41", "time": 1700000000, "session": "regular"}},
+ * where time is epoch time in seconds and session is either "regular" or "post".
+ */
+public class SseStreamingStockApi implements StreamingStockApi {
+    /**
+     * Default delay before reconnecting in milliseconds.
+     */
+    private static final long DEFAULT_RECONNECT_DELAY = 3000;
+
+    /**
+     * Maximum delay before reconnecting in milliseconds.
+     */
+    private static final long MAX_RECONNECT_DELAY = 60 * 1000;
+
+    /**
+     * Time without any data, including keep-alive comments, after which connection
+     * is considered broken in milliseconds.
+     */
+    private static final int READ_TIMEOUT = 60 * 1000;
+
+    /**
+     * Time to establish connection, after which attempt fails and is retried in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+
+    /**
+     * Underlying stock API.
+     */
+    private final StockApi mApi;
+
+    /**
+     * URL of the events stream.
+     */
+    private final String mStreamUrl;
+
+    /**
+     * Creates new instance of the {@link SseStreamingStockApi} class.
+     * @param api Underlying stock API.
+     * @param streamUrl URL of the events stream, symbols are passed in the "symbols" query parameter.
+     */
+    public SseStreamingStockApi(StockApi api, String streamUrl) {
+        mApi = api;
+        mStreamUrl = streamUrl;
+    }
+
+    /**
+     * Searches for symbols matching the query.
+     * @param context Application or activity context.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> findSymbols(Context context, String query) throws StockApiException {
+        return mApi.findSymbols(context, query);
+    }
+
+    /**
+     * Searches for symbols matching the query using remote service.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+        return mApi.searchSymbols(query);
+    }
+
+    /**
+     * Fetches historical price candles of the symbol.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when an error occurs during history look-up.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            String symbol,
+            long startTime,
+            long endTime,
+            int interval) throws StockApiException {
+        return mApi.fetchHistory(symbol, startTime, endTime, interval);
+    }
+
+    /**
+     * Performs an in-place update of symbol information.
+     * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException {
+        return mApi.updateSymbol(symbol);
+    }
+
+    /**
+     * Performs an in-place update of symbols information.
+     * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+        return mApi.updateSymbols(symbols);
+    }
+
+    /**
+     * Estimates number of remote requests the polling API makes for the symbols.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        return mApi.getQuoteRequestCount(symbols);
+    }
+
+    /**
+     * Starts receiving quote updates for the symbols on a dedicated thread.
+     * @param symbols Stock symbols to receive updates for.
+     * @param listener Listener for quote updates.
+     * @return Subscription that should be closed, when updates are no longer needed.
+     */
+    @Override
+    public Subscription subscribe(Collection<String> symbols, Listener listener) {
+        StringBuilder url = new StringBuilder(mStreamUrl);
+        url.append(mStreamUrl.indexOf('?') >= 0 ? '&' : '?').append("symbols=");
+
+        boolean isFirst = true;
+        for (String symbol : symbols) {
+            if (!isFirst) {
+                url.append(',');
+            }
+
+            try {
+                url.append(URLEncoder.encode(symbol, "UTF-8"));
+            }
+            catch (UnsupportedEncodingException encodingError) {
+                // UTF-8 is always supported
+                throw new IllegalStateException(encodingError);
+            }
+
+            isFirst = false;
+        }
+
+        EventStream stream = new EventStream(url.toString(), listener);
+        stream.start();
+        return stream;
+    }
+
+    /**
+     * Parses tick from the event data.
+     * @param data Event data.
+     * @return Parsed tick or null, if event does not contain a tick.
+     * @throws IOException Thrown when event data is not a valid JSON.
+     */
+    private static QuoteTick parseTick(String data) throws IOException {
+        String symbol = null;
+        String price = null;
+        long time = 0;
+        boolean isExtended = false;
+
+        JsonReader reader = new JsonReader(new StringReader(data));
+
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                switch (name) {
+                    case "symbol":
+                        symbol = reader.nextString();
+                        break;
+                    case "price":
+                        price = reader.nextString();
+                        break;
+                    case "time":
+                        time = reader.nextLong() * 1000;
+                        break;
+                    case "session":
+                        // Pre-market and post-market trades are both outside of the regular session
+                        isExtended = !"regular".equals(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+        finally {
+            reader.close();
+        }
+
+        if (symbol == null || price == null || time == 0) {
+            return null;
+        }
+
+        try {
+            return new QuoteTick(symbol, new BigDecimal(price), time, isExtended);
+        }
+        catch (NumberFormatException formatError) {
+            throw new IOException("Invalid tick price: " + price, formatError);
+        }
+    }
+
+    /**
+     * Connection to the events stream that reconnects until closed.
+     */
+    private static final class EventStream extends Thread implements Subscription {
+        /**
+         * URL of the events stream.
+         */
+        private final String mUrl;
+
+        /**
+         * Listener for quote updates.
+         */
+        private final Listener mListener;
+
+        /**
+         * Current connection.
+         */
+        private volatile HttpURLConnection mConnection;
+
+        /**
+         * Indicates whether subscription was closed.
+         */
+        private volatile boolean mIsClosed;
+
+        /**
+         * Identifier of the last received event to resume the stream from.
+         */
+        private String mLastEventId;
+
+        /**
+         * Delay before reconnecting in milliseconds, as requested by the server.
+         */
+        private long mReconnectDelay = DEFAULT_RECONNECT_DELAY;
+
+        /**
+         * Creates new instance of the {@link EventStream} class.
+         * @param url URL of the events stream.
+         * @param listener Listener for quote updates.
+         */
+        EventStream(String url, Listener listener) {
+            super("quote-stream");
+            setDaemon(true);
+
+            mUrl = url;
+            mListener = listener;
+        }
+
+        /**
+         * Stops receiving quote updates and closes the connection.
+         */
+        @Override
+        public void close() {
+            mIsClosed = true;
+            interrupt();
+
+            HttpURLConnection connection = mConnection;
+            if (connection != null) {
+                // Unblocks pending read
+                connection.disconnect();
+            }
+        }
+
+        /**
+         * Reads the stream, reconnecting with growing delay after errors.
+         */
+        @Override
+        public void run() {
+            int failedAttempts = 0;
+
+            while (!mIsClosed) {
+                try {
+                    if (readStream()) {
+                        failedAttempts = 0;
+                    }
+                }
+                catch (IOException | StockApiException streamError) {
+                    if (mIsClosed) {
+                        break;
+                    }
+
+                    mListener.onError(streamError instanceof StockApiException
+                        ? (StockApiException) streamError
+                        : new StockApiException(streamError.getMessage(), streamError));
+                }
+
+                long delay = Math.min(mReconnectDelay << Math.min(failedAttempts, 5), MAX_RECONNECT_DELAY);
+                ++failedAttempts;
+
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException interruptedError) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Parses event data and passes the tick to the listener.
+         * Malformed events are reported and skipped.
+         * @param data Event data.
+         */
+        private void dispatchEvent(String data) {
+            QuoteTick tick;
+
+            try {
+                tick = parseTick(data);
+            }
+            catch (IOException | IllegalStateException parseError) {
+                mListener.onError(new StockApiException(parseError.getMessage(), parseError));
+                return;
+            }
+
+            if (tick != null) {
+                mListener.onTick(tick);
+            }
+        }
+
+        /**
+         * Opens connection and dispatches events until the stream ends.
+         * @return True if any event was received, otherwise false.
+         * @throws IOException Thrown when stream cannot be read.
+         * @throws StockApiException Thrown when server rejects the request.
+         */
+        private boolean readStream() throws IOException, StockApiException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(mUrl).openConnection();
+            connection.setRequestProperty("User-Agent", "android/folio-" + BuildConfig.VERSION_NAME);
+            connection.setRequestProperty("Accept", "text/event-stream");
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+
+            if (mLastEventId != null) {
+                connection.setRequestProperty("Last-Event-ID", mLastEventId);
+            }
+
+            mConnection = connection;
+            boolean hasEvents = false;
+
+            try {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new StockApiException("Invalid stream response code: " + connection.getResponseCode());
+                }
+
+                BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+
+                StringBuilder data = new StringBuilder();
+                String line;
+
+                while (!mIsClosed && (line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        // Blank line dispatches the event
+                        if (data.length() > 0) {
+                            dispatchEvent(data.toString());
+
+                            hasEvents = true;
+                            data.setLength(0);
+                        }
+
+                        continue;
+                    }
+
+                    if (line.startsWith(":")) {
+                        // Comment, usually a keep-alive
+                        continue;
+                    }
+
+                    int separatorIndex = line.indexOf(':');
+                    String field = separatorIndex >= 0 ? line.substring(0, separatorIndex) : line;
+                    String value = separatorIndex >= 0 ? line.substring(separatorIndex + 1) : "";
+
+                    if (value.startsWith(" ")) {
+                        value = value.substring(1);
+                    }
+
+                    switch (field) {
+                        case "data":
+                            if (data.length() > 0) {
+                                data.append('\n');
+                            }
+                            data.append(value);
+                            break;
+                        case "id":
+                            mLastEventId = value;
+                            break;
+                        case "retry":
+                            try {
+                                mReconnectDelay = Long.parseLong(value);
+                            }
+                            catch (NumberFormatException formatError) {
+                                // Ignore invalid reconnection time, as required by the protocol
+                            }
+                            break;
+                        default:
+                            // Event types are not used
+                            break;
+                    }
+                }
+            }
+            finally {
+                mConnection = null;
+                connection.disconnect();
+            }
+
+            return hasEvents;
+        }
+    }
+}
@@ -4,12 +4,18 @@ import android.content.Context;
 
 import java.util.List;
 
+import ru.nahk.folio.model.CandleEntity;
 import ru.nahk.folio.model.SymbolEntity;
 
 /**
  * Provides access to market data.
  */
 public interface StockApi {
+    /**
+     * Maximum number of symbols returned by search methods.
+     */
+    int MAX_SEARCH_RESULTS = 20;
+
     /**
      * Searches for symbols matching the query.
      * @param context Application or activity context.
@@ -19,17 +25,51 @@ public interface StockApi {
      */
     List<SymbolInfo> findSymbols(Context context, String query) throws StockApiException;
 
+    /**
+     * Searches for symbols matching the query using remote service.
+     * Slower than {@link #findSymbols(Context, String)}, but also finds symbols
+     * that are not known locally.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    List<SymbolInfo> searchSymbols(String query) throws StockApiException;
+
     /**
      * Performs an in-place update of symbol information.
      * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
      * @throws StockApiException Thrown when an error occurs during update.
      */
-    void updateSymbol(SymbolEntity symbol) throws StockApiException;
+    SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException;
 
     /**
      * Performs an in-place update of symbols information.
      * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
      * @throws StockApiException Thrown when an error occurs during update.
      */
-    void updateSymbols(List<SymbolEntity> symbols) throws StockApiException;
+    SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException;
+
+    /**
+     * Estimates number of remote requests {@link #updateSymbols(List)} makes for the symbols.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests.
+     */
+    int getQuoteRequestCount(List<SymbolEntity> symbols);
+
+    /**
+     * Fetches historical price candles of the symbol.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds, one of the {@link CandleEntity} intervals.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when an error occurs during history look-up.
+     */
+    List<CandleEntity> fetchHistory(
+        String symbol,
+        long startTime,
+        long endTime,
+        int interval) throws StockApiException;
 }
@@ -5,8 +5,8 @@ import android.content.Context;
 import java.util.ArrayList;
 import java.util.List;
 
+import ru.nahk.folio.model.CandleEntity;
 import ru.nahk.folio.model.SymbolEntity;
-import ru.nahk.folio.utils.StringUtils;
 
 /**
  * Base class for stock APIs that use cached data for symbols search.
@@ -16,41 +16,69 @@ public abstract class StockApiBase implements StockApi {
      * Searches for symbols matching the given substring.
      * @param context Application or activity context.
      * @param query Part of the symbol or company name.
-     * @return List of matching symbols.
+     * @return List of best matching symbols.
      */
     @Override
     public List<SymbolInfo> findSymbols(Context context, String query) {
         // Not all APIs support search queries, so lets just use hard-coded list.
         // If it is new symbol that is not known, then users can still type-in whatever they want.
-        List<SymbolInfo> result = new ArrayList<>();
-
-        for (SymbolInfo symbolInfo : SymbolsDatabase.getData(context)) {
-            if (symbolInfo.symbol.equalsIgnoreCase(query)) {
-                // If there is a full match of the symbol - bring it to the top
-                result.add(0, symbolInfo);
-            } else if (StringUtils.containsIgnoreCase(symbolInfo.symbol, query)
-                || StringUtils.containsIgnoreCase(symbolInfo.companyName, query)) {
-                result.add(symbolInfo);
-            }
-        }
+        return SymbolsDatabase.getIndex(context).find(query, MAX_SEARCH_RESULTS);
+    }
+
+    /**
+     * Does not search remotely by default, since symbols are already searched locally.
+     * @param query Part of the symbol or company name.
+     * @return Empty list.
+     * @throws StockApiException Never thrown by default.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+        return new ArrayList<>();
+    }
 
-        return result;
+    /**
+     * Assumes that all symbols are updated with a single request.
+     * @param symbols Symbol entities to update.
+     * @return One request or zero, if there is nothing to update.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        return symbols.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Does not support price history by default.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Never returns.
+     * @throws StockApiException Always thrown by default.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            String symbol,
+            long startTime,
+            long endTime,
+            int interval) throws StockApiException {
+        throw new StockApiException("Price history is not supported");
     }
 
     /**
      * Updates symbol information in place.
      * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
      * @throws StockApiException Thrown when an error occurs during update.
      */
     @Override
-    public void updateSymbol(SymbolEntity symbol) throws StockApiException {
+    public SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException {
         if (symbol == null) {
-            return;
+            return new SymbolChanges();
         }
 
         List<SymbolEntity> symbols = new ArrayList<>(1);
         symbols.add(symbol);
 
-        updateSymbols(symbols);
+        return updateSymbols(symbols);
     }
 }
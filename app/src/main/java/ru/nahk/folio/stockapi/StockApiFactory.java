@@ -1,5 +1,7 @@
 package ru.nahk.folio.stockapi;
 
+import ru.nahk.folio.BuildConfig;
+
 /**
  * Provides access to {@link StockApi} implementations.
  */
@@ -14,6 +16,26 @@ public final class StockApiFactory {
      */
     private static StockApi apiInstance;
 
+    /**
+     * Registry of the stock API providers used by the current implementation.
+     */
+    private static StockApiRegistry registryInstance;
+
+    /**
+     * Resilience layer used by the current implementation.
+     */
+    private static ResilientStockApi resilientApiInstance;
+
+    /**
+     * Statistics of the requests made over the shared HTTP transport.
+     */
+    private static HttpTransportStats transportStatsInstance;
+
+    /**
+     * Singleton instance of the streaming stock API.
+     */
+    private static StreamingStockApi streamingApiInstance;
+
     /**
      * Obtains an instance of the {@link StockApi} implementation.
      * @return An instance of the {@link StockApi} implementation.
@@ -22,11 +44,75 @@ public final class StockApiFactory {
         if (apiInstance == null) {
             synchronized (initializationSyncObj) {
                 if (apiInstance == null) {
-                    apiInstance = new YahooFinanceApi();
+                    transportStatsInstance = new HttpTransportStats();
+                    HttpTransport.getInstance().setRequestListener(transportStatsInstance);
+
+                    registryInstance = new StockApiRegistry();
+                    registryInstance.register("yahoo", new YahooFinanceApi());
+
+                    resilientApiInstance = new ResilientStockApi(registryInstance);
+
+                    apiInstance =
+                        new CachingStockApi(
+                            new CoalescingStockApi(resilientApiInstance),
+                            new MarketSessionCalendar(),
+                            CachingStockApi.DEFAULT_QUOTE_TTL);
                 }
             }
         }
 
         return apiInstance;
     }
+
+    /**
+     * Obtains registry of the stock API providers, that can be used to inspect
+     * providers statistics or register additional providers.
+     * @return Stock API providers registry.
+     */
+    public static StockApiRegistry getRegistry() {
+        getApi();
+        return registryInstance;
+    }
+
+    /**
+     * Obtains state of the retry, circuit breaker and request budget protection,
+     * that can be used to tell rate limiting apart from service outage.
+     * @return Current state of the resilience layer.
+     */
+    public static ResilientStockApi.State getResilienceState() {
+        getApi();
+        return resilientApiInstance.getState();
+    }
+
+    /**
+     * Obtains statistics of the requests made over the shared HTTP transport,
+     * that can be used to check time to response headers and bytes saved by conditional requests.
+     * @return Transport statistics.
+     */
+    public static HttpTransportStats getTransportStats() {
+        getApi();
+        return transportStatsInstance;
+    }
+
+    /**
+     * Obtains an instance of the {@link StreamingStockApi} implementation.
+     * @return An instance of the {@link StreamingStockApi} implementation or null,
+     * if quotes streaming is not configured.
+     */
+    public static StreamingStockApi getStreamingApi() {
+        if (BuildConfig.QUOTE_STREAM_URL.isEmpty()) {
+            return null;
+        }
+
+        if (streamingApiInstance == null) {
+            synchronized (initializationSyncObj) {
+                if (streamingApiInstance == null) {
+                    streamingApiInstance =
+                        new SseStreamingStockApi(getApi(), BuildConfig.QUOTE_STREAM_URL);
+                }
+            }
+        }
+
+        return streamingApiInstance;
+    }
 }
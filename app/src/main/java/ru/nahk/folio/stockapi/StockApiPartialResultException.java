@@ -0,0 +1,54 @@
+package ru.nahk.folio.stockapi;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception that is thrown by {@link StockApi} implementations when only some of the symbols
+ * were updated. Symbols that are not listed as failed hold fresh data and can be used.
+ */
+public class StockApiPartialResultException extends StockApiException {
+    /**
+     * Symbols that failed to update.
+     */
+    private final List<String> mFailedSymbols;
+
+    /**
+     * Changes made to the symbols that were updated.
+     */
+    private final SymbolChanges mChanges;
+
+    /**
+     * Constructs an {@link StockApiPartialResultException} with the specified detail message,
+     * list of failed symbols and cause.
+     * @param message The detail message.
+     * @param failedSymbols Symbols that failed to update.
+     * @param changes Changes made to the symbols that were updated.
+     * @param cause The cause of the first failure.
+     */
+    StockApiPartialResultException(
+            String message,
+            List<String> failedSymbols,
+            SymbolChanges changes,
+            Throwable cause) {
+        super(message, cause);
+        mFailedSymbols = Collections.unmodifiableList(failedSymbols);
+        mChanges = changes;
+    }
+
+    /**
+     * Gets the symbols that failed to update.
+     * @return Symbols that failed to update.
+     */
+    public List<String> getFailedSymbols() {
+        return mFailedSymbols;
+    }
+
+    /**
+     * Gets the changes made to the symbols that were updated.
+     * @return Changes made to the symbols.
+     */
+    public SymbolChanges getChanges() {
+        return mChanges;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.nahk.folio.stockapi;
+
+/**
+ * Exception that is thrown when request was not made or was rejected,
+ * because too many requests were made recently.
+ */
+public class StockApiRateLimitedException extends StockApiTransientException {
+    /**
+     * Time to wait before making next request in milliseconds.
+     */
+    private final long mRetryAfter;
+
+    /**
+     * Constructs an {@link StockApiRateLimitedException} with the specified detail message
+     * and time to wait.
+     * @param message The detail message.
+     * @param retryAfter Time to wait before making next request in milliseconds.
+     */
+    StockApiRateLimitedException(String message, long retryAfter) {
+        super(message);
+        mRetryAfter = retryAfter;
+    }
+
+    /**
+     * Gets time to wait before making next request.
+     * @return Time in milliseconds or zero, if not known.
+     */
+    public long getRetryAfter() {
+        return mRetryAfter;
+    }
+}
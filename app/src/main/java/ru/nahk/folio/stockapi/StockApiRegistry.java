@@ -0,0 +1,469 @@
+package ru.nahk.folio.stockapi;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.SymbolEntity;
+
+/**
+ * Registry of {@link StockApi} providers.
+ * Routes every request to the fastest healthy provider and fails over to the next one,
+ * when provider cannot serve the request.
+ */
+public class StockApiRegistry implements StockApi {
+    /**
+     * Weight of the latest observation in the rolling statistics.
+     */
+    private static final double STATS_SMOOTHING = 0.2;
+
+    /**
+     * Number of consecutive failures after which provider is considered unhealthy.
+     */
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    /**
+     * Time after which unhealthy provider is probed again in milliseconds.
+     */
+    private static final long UNHEALTHY_PROBE_DELAY = 60 * 1000;
+
+    /**
+     * Registered providers in registration order.
+     */
+    private final List<Provider> mProviders = new CopyOnWriteArrayList<>();
+
+    /**
+     * Time after which unhealthy provider is probed again in milliseconds.
+     */
+    private final long mUnhealthyProbeDelay;
+
+    /**
+     * Creates new instance of the {@link StockApiRegistry} class.
+     */
+    public StockApiRegistry() {
+        this(UNHEALTHY_PROBE_DELAY);
+    }
+
+    /**
+     * Creates new instance of the {@link StockApiRegistry} class with the custom probe delay.
+     * @param unhealthyProbeDelay Time after which unhealthy provider is probed again in milliseconds.
+     */
+    StockApiRegistry(long unhealthyProbeDelay) {
+        mUnhealthyProbeDelay = unhealthyProbeDelay;
+    }
+
+    /**
+     * Registers new provider.
+     * Providers with equal latency are preferred in registration order.
+     * @param name Provider name.
+     * @param api Provider implementation.
+     */
+    public void register(String name, StockApi api) {
+        mProviders.add(new Provider(name, api));
+    }
+
+    /**
+     * Gets statistics of the registered providers.
+     * @return Providers statistics in registration order.
+     */
+    public List<ProviderStats> getStats() {
+        long now = SystemClock.elapsedRealtime();
+        List<ProviderStats> result = new ArrayList<>(mProviders.size());
+
+        for (Provider provider : mProviders) {
+            result.add(provider.getStats(now, mUnhealthyProbeDelay));
+        }
+
+        return result;
+    }
+
+    /**
+     * Searches for symbols matching the query in the local symbols index.
+     * Index is shared by all providers, so search is not routed and does not affect providers statistics.
+     * @param context Application or activity context.
+     * @param query Part of the symbol or company name.
+     * @return List of best matching symbols.
+     */
+    @Override
+    public List<SymbolInfo> findSymbols(Context context, String query) {
+        return SymbolsDatabase.getIndex(context).find(query, MAX_SEARCH_RESULTS);
+    }
+
+    /**
+     * Searches for symbols matching the query using the first provider that responds.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when none of the providers could perform the search.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+        StockApiException firstError = null;
+
+        for (Provider provider : getRoute()) {
+            long startTime = SystemClock.elapsedRealtime();
+
+            try {
+                List<SymbolInfo> result = provider.mApi.searchSymbols(query);
+                provider.recordSuccess(SystemClock.elapsedRealtime() - startTime);
+                return result;
+            }
+            catch (StockApiException searchError) {
+                provider.recordFailure(SystemClock.elapsedRealtime());
+
+                if (firstError == null) {
+                    firstError = searchError;
+                }
+            }
+        }
+
+        throw firstError != null ? firstError : new StockApiException("No stock API providers");
+    }
+
+    /**
+     * Fetches historical price candles using the first provider that responds.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when none of the providers could fetch the history.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            String symbol,
+            long startTime,
+            long endTime,
+            int interval) throws StockApiException {
+        StockApiException firstError = null;
+
+        for (Provider provider : getRoute()) {
+            long requestStartTime = SystemClock.elapsedRealtime();
+
+            try {
+                List<CandleEntity> result =
+                    provider.mApi.fetchHistory(symbol, startTime, endTime, interval);
+                provider.recordSuccess(SystemClock.elapsedRealtime() - requestStartTime);
+                return result;
+            }
+            catch (StockApiException historyError) {
+                provider.recordFailure(SystemClock.elapsedRealtime());
+
+                if (firstError == null) {
+                    firstError = historyError;
+                }
+            }
+        }
+
+        throw firstError != null ? firstError : new StockApiException("No stock API providers");
+    }
+
+    /**
+     * Performs an in-place update of symbol information.
+     * @param symbol Symbol entity to update.
+     * @return Changes made to the symbol.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbol(SymbolEntity symbol) throws StockApiException {
+        if (symbol == null) {
+            return new SymbolChanges();
+        }
+
+        List<SymbolEntity> symbols = new ArrayList<>(1);
+        symbols.add(symbol);
+
+        return updateSymbols(symbols);
+    }
+
+    /**
+     * Performs an in-place update of symbols information.
+     * Symbols that the preferred provider failed to update are requested from the next provider.
+     * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    @Override
+    public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+        SymbolChanges changes = new SymbolChanges();
+        List<SymbolEntity> pendingSymbols = symbols;
+        StockApiException lastError = null;
+
+        for (Provider provider : getRoute()) {
+            if (pendingSymbols.isEmpty()) {
+                break;
+            }
+
+            long startTime = SystemClock.elapsedRealtime();
+
+            try {
+                changes.addAll(provider.mApi.updateSymbols(pendingSymbols));
+                provider.recordSuccess(SystemClock.elapsedRealtime() - startTime);
+                return changes;
+            }
+            catch (StockApiPartialResultException partialResult) {
+                // Provider is responsive, so it stays healthy, but some symbols still need an update
+                provider.recordSuccess(SystemClock.elapsedRealtime() - startTime);
+                changes.addAll(partialResult.getChanges());
+                pendingSymbols = selectSymbols(pendingSymbols, partialResult.getFailedSymbols());
+                lastError = partialResult;
+            }
+            catch (StockApiException updateError) {
+                provider.recordFailure(SystemClock.elapsedRealtime());
+                lastError = updateError;
+            }
+        }
+
+        if (lastError == null) {
+            if (mProviders.isEmpty()) {
+                throw new StockApiException("No stock API providers");
+            }
+
+            return changes;
+        }
+
+        if (pendingSymbols.size() == symbols.size()) {
+            throw lastError;
+        }
+
+        List<String> failedSymbols = new ArrayList<>(pendingSymbols.size());
+        for (SymbolEntity symbol : pendingSymbols) {
+            failedSymbols.add(symbol.id);
+        }
+
+        throw new StockApiPartialResultException(
+            "Failed to update " + failedSymbols.size() + " of " + symbols.size() + " symbols: "
+                + lastError.getMessage(),
+            failedSymbols,
+            changes,
+            lastError);
+    }
+
+    /**
+     * Estimates number of remote requests the preferred provider makes for the symbols.
+     * Failover to the other providers can make more requests.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests or zero, if there are no providers.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        List<Provider> route = getRoute();
+        return route.isEmpty() ? 0 : route.get(0).mApi.getQuoteRequestCount(symbols);
+    }
+
+    /**
+     * Orders providers for the next request.
+     * Healthy providers go first ordered by latency, followed by unhealthy providers
+     * that are not due for a probe yet, so that request is still attempted when all of them failed.
+     * @return Ordered list of providers.
+     */
+    private List<Provider> getRoute() {
+        long now = SystemClock.elapsedRealtime();
+        List<Provider> route = new ArrayList<>(mProviders);
+
+        // Take snapshots once, so that concurrent updates do not break the ordering
+        final Map<Provider, ProviderStats> stats = new HashMap<>();
+        for (Provider provider : route) {
+            stats.put(provider, provider.getStats(now, mUnhealthyProbeDelay));
+        }
+
+        Collections.sort(route, new Comparator<Provider>() {
+            @Override
+            public int compare(Provider left, Provider right) {
+                ProviderStats leftStats = stats.get(left);
+                ProviderStats rightStats = stats.get(right);
+
+                if (leftStats.isHealthy() != rightStats.isHealthy()) {
+                    return leftStats.isHealthy() ? -1 : 1;
+                }
+
+                return Double.compare(leftStats.getLatency(), rightStats.getLatency());
+            }
+        });
+
+        return route;
+    }
+
+    /**
+     * Selects symbol entities with the given stock symbols.
+     * @param symbols Symbol entities to select from.
+     * @param selectedSymbols Stock symbols to select.
+     * @return List of selected symbol entities.
+     */
+    private static List<SymbolEntity> selectSymbols(
+            List<SymbolEntity> symbols,
+            List<String> selectedSymbols) {
+        Set<String> selectedSet = new HashSet<>(selectedSymbols);
+        List<SymbolEntity> result = new ArrayList<>(selectedSet.size());
+
+        for (SymbolEntity symbol : symbols) {
+            if (selectedSet.contains(symbol.id)) {
+                result.add(symbol);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Snapshot of the provider statistics.
+     */
+    public static final class ProviderStats {
+        /**
+         * Provider name.
+         */
+        private final String mName;
+
+        /**
+         * Rolling average latency in milliseconds.
+         */
+        private final double mLatency;
+
+        /**
+         * Rolling error rate.
+         */
+        private final double mErrorRate;
+
+        /**
+         * Indicates whether provider is healthy.
+         */
+        private final boolean mIsHealthy;
+
+        /**
+         * Creates new instance of the {@link ProviderStats} class.
+         * @param name Provider name.
+         * @param latency Rolling average latency in milliseconds.
+         * @param errorRate Rolling error rate.
+         * @param isHealthy Indicates whether provider is healthy.
+         */
+        ProviderStats(String name, double latency, double errorRate, boolean isHealthy) {
+            mName = name;
+            mLatency = latency;
+            mErrorRate = errorRate;
+            mIsHealthy = isHealthy;
+        }
+
+        /**
+         * Gets provider name.
+         * @return Provider name.
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Gets rolling average latency of successful requests.
+         * @return Latency in milliseconds or zero, if provider was not used yet.
+         */
+        public double getLatency() {
+            return mLatency;
+        }
+
+        /**
+         * Gets rolling share of failed requests.
+         * @return Error rate between zero and one.
+         */
+        public double getErrorRate() {
+            return mErrorRate;
+        }
+
+        /**
+         * Checks whether provider can serve requests.
+         * @return True if provider is healthy or due for a probe, otherwise false.
+         */
+        public boolean isHealthy() {
+            return mIsHealthy;
+        }
+    }
+
+    /**
+     * Registered provider with its rolling statistics.
+     */
+    private static final class Provider {
+        /**
+         * Provider name.
+         */
+        private final String mName;
+
+        /**
+         * Provider implementation.
+         */
+        private final StockApi mApi;
+
+        /**
+         * Rolling average latency in milliseconds.
+         */
+        private double mLatency;
+
+        /**
+         * Rolling error rate.
+         */
+        private double mErrorRate;
+
+        /**
+         * Number of consecutive failures.
+         */
+        private int mConsecutiveFailures;
+
+        /**
+         * Time of the last failure.
+         */
+        private long mLastFailureTime;
+
+        /**
+         * Creates new instance of the {@link Provider} class.
+         * @param name Provider name.
+         * @param api Provider implementation.
+         */
+        Provider(String name, StockApi api) {
+            mName = name;
+            mApi = api;
+        }
+
+        /**
+         * Records successful request.
+         * @param latency Request latency in milliseconds.
+         */
+        synchronized void recordSuccess(long latency) {
+            mLatency = mLatency == 0
+                ? latency
+                : mLatency + STATS_SMOOTHING * (latency - mLatency);
+            mErrorRate -= STATS_SMOOTHING * mErrorRate;
+            mConsecutiveFailures = 0;
+        }
+
+        /**
+         * Records failed request.
+         * @param now Current time in milliseconds since boot.
+         */
+        synchronized void recordFailure(long now) {
+            mErrorRate += STATS_SMOOTHING * (1 - mErrorRate);
+            ++mConsecutiveFailures;
+            mLastFailureTime = now;
+        }
+
+        /**
+         * Takes snapshot of the provider statistics.
+         * Unhealthy provider is reported as healthy once it is due for a probe.
+         * @param now Current time in milliseconds since boot.
+         * @param unhealthyProbeDelay Time after which unhealthy provider is probed again in milliseconds.
+         * @return Provider statistics.
+         */
+        synchronized ProviderStats getStats(long now, long unhealthyProbeDelay) {
+            boolean isHealthy =
+                mConsecutiveFailures < MAX_CONSECUTIVE_FAILURES
+                    || now - mLastFailureTime >= unhealthyProbeDelay;
+
+            return new ProviderStats(mName, mLatency, mErrorRate, isHealthy);
+        }
+    }
+}
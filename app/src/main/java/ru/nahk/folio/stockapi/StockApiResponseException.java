@@ -0,0 +1,26 @@
+package ru.nahk.folio.stockapi;
+
+/**
+ * Exception that is thrown by {@link StockApi} implementations when the service has responded,
+ * but the response is an error or cannot be understood.
+ * Such requests are not retried, since the same response is expected again.
+ */
+public class StockApiResponseException extends StockApiException {
+    /**
+     * Constructs an {@link StockApiResponseException} with the specified detail message.
+     * @param message The detail message.
+     */
+    StockApiResponseException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs an {@link StockApiResponseException} with the specified detail message
+     * and cause.
+     * @param message The detail message.
+     * @param cause The cause.
+     */
+    StockApiResponseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.nahk.folio.stockapi;
+
+/**
+ * Exception that is thrown by {@link StockApi} implementations when request failed
+ * for a reason that is likely to go away, such as network error or server overload.
+ * Such requests can be retried.
+ */
+public class StockApiTransientException extends StockApiException {
+    /**
+     * Constructs an {@link StockApiTransientException} with the specified detail message.
+     * @param message The detail message.
+     */
+    StockApiTransientException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs an {@link StockApiTransientException} with the specified detail message
+     * and cause.
+     * @param message The detail message.
+     * @param cause The cause.
+     */
+    StockApiTransientException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.nahk.folio.stockapi;
+
+/**
+ * Exception that is thrown without making a request, while the upstream service
+ * is considered to be down after repeated failures.
+ */
+public class StockApiUnavailableException extends StockApiException {
+    /**
+     * Time until the next attempt to reach the service in milliseconds.
+     */
+    private final long mRetryAfter;
+
+    /**
+     * Constructs an {@link StockApiUnavailableException} with the specified detail message,
+     * time until the next attempt and cause.
+     * @param message The detail message.
+     * @param retryAfter Time until the next attempt to reach the service in milliseconds.
+     * @param cause The last failure.
+     */
+    StockApiUnavailableException(String message, long retryAfter, Throwable cause) {
+        super(message, cause);
+        mRetryAfter = retryAfter;
+    }
+
+    /**
+     * Gets time until the next attempt to reach the service.
+     * @return Time in milliseconds.
+     */
+    public long getRetryAfter() {
+        return mRetryAfter;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.nahk.folio.stockapi;
+
+import java.util.Collection;
+
+/**
+ * {@link StockApi} that can push quote updates over a long-lived connection.
+ */
+public interface StreamingStockApi extends StockApi {
+    /**
+     * Receives pushed quote updates.
+     */
+    interface Listener {
+        /**
+         * Handles quote update.
+         * Called on the streaming thread.
+         * @param tick Quote update.
+         */
+        void onTick(QuoteTick tick);
+
+        /**
+         * Handles connection error.
+         * Stream reconnects automatically after the error.
+         * @param error Connection error.
+         */
+        void onError(StockApiException error);
+    }
+
+    /**
+     * Active quotes subscription.
+     */
+    interface Subscription {
+        /**
+         * Stops receiving quote updates and closes the connection.
+         */
+        void close();
+    }
+
+    /**
+     * Starts receiving quote updates for the symbols.
+     * @param symbols Stock symbols to receive updates for.
+     * @param listener Listener for quote updates.
+     * @return Subscription that should be closed, when updates are no longer needed.
+     */
+    Subscription subscribe(Collection<String> symbols, Listener listener);
+}
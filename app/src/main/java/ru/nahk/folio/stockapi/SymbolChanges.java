@@ -0,0 +1,222 @@
+package ru.nahk.folio.stockapi;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.utils.BigDecimalHelper;
+import ru.nahk.folio.utils.CalendarHelper;
+
+/**
+ * Set of changes made to symbols by a {@link StockApi} update.
+ * Changed fields of every symbol are tracked as a combination of field flags.
+ */
+public final class SymbolChanges {
+    /**
+     * Display name has changed.
+     */
+    public static final int DISPLAY_NAME = 1;
+
+    /**
+     * Open price or time has changed.
+     */
+    public static final int OPEN = 1 << 1;
+
+    /**
+     * Latest price or time has changed.
+     */
+    public static final int LATEST = 1 << 2;
+
+    /**
+     * Close price or time has changed.
+     */
+    public static final int CLOSE = 1 << 3;
+
+    /**
+     * Extended hours price or time has changed.
+     */
+    public static final int EXTENDED = 1 << 4;
+
+    /**
+     * Previous close price has changed.
+     */
+    public static final int PREVIOUS_CLOSE = 1 << 5;
+
+    /**
+     * Market capitalization has changed.
+     */
+    public static final int MARKET_CAP = 1 << 6;
+
+    /**
+     * Day price range has changed.
+     */
+    public static final int DAY_RANGE = 1 << 7;
+
+    /**
+     * 52-week price range has changed.
+     */
+    public static final int WEEK_52_RANGE = 1 << 8;
+
+    /**
+     * Changed fields flags indexed by the stock symbol.
+     */
+    private final Map<String, Integer> mChangedFields = new HashMap<>();
+
+    /**
+     * Records changes of the symbol.
+     * @param symbol Stock symbol.
+     * @param changedFields Changed fields flags.
+     */
+    public void add(String symbol, int changedFields) {
+        if (changedFields == 0) {
+            return;
+        }
+
+        Integer currentFields = mChangedFields.get(symbol);
+        mChangedFields.put(
+            symbol,
+            currentFields != null ? currentFields | changedFields : changedFields);
+    }
+
+    /**
+     * Records all changes from another change set.
+     * @param changes Change set to merge.
+     */
+    public void addAll(SymbolChanges changes) {
+        for (Map.Entry<String, Integer> change : changes.mChangedFields.entrySet()) {
+            add(change.getKey(), change.getValue());
+        }
+    }
+
+    /**
+     * Checks whether any symbol has changed.
+     * @return True if there are no changes, otherwise false.
+     */
+    public boolean isEmpty() {
+        return mChangedFields.isEmpty();
+    }
+
+    /**
+     * Gets all changed symbols.
+     * @return Set of changed stock symbols.
+     */
+    public Set<String> getSymbols() {
+        return Collections.unmodifiableSet(mChangedFields.keySet());
+    }
+
+    /**
+     * Gets changed fields of the symbol.
+     * @param symbol Stock symbol.
+     * @return Changed fields flags or zero, if symbol has not changed.
+     */
+    public int getChangedFields(String symbol) {
+        Integer changedFields = mChangedFields.get(symbol);
+        return changedFields != null ? changedFields : 0;
+    }
+
+    /**
+     * Selects symbol entities that have changed.
+     * @param symbols Symbol entities to filter.
+     * @return List of changed symbol entities.
+     */
+    public List<SymbolEntity> filter(List<SymbolEntity> symbols) {
+        List<SymbolEntity> result = new ArrayList<>(mChangedFields.size());
+
+        for (SymbolEntity symbol : symbols) {
+            if (mChangedFields.containsKey(symbol.id)) {
+                result.add(symbol);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Compares market data of two versions of the same symbol.
+     * @param before Symbol entity before update.
+     * @param after Symbol entity after update.
+     * @return Flags of the fields that differ.
+     */
+    public static int compare(SymbolEntity before, SymbolEntity after) {
+        int changedFields = 0;
+
+        if (!equals(before.displayName, after.displayName)) {
+            changedFields |= DISPLAY_NAME;
+        }
+
+        if (!equals(before.openPrice, after.openPrice) || !equals(before.openTime, after.openTime)) {
+            changedFields |= OPEN;
+        }
+
+        if (!equals(before.latestPrice, after.latestPrice) || !equals(before.latestTime, after.latestTime)) {
+            changedFields |= LATEST;
+        }
+
+        if (!equals(before.closePrice, after.closePrice) || !equals(before.closeTime, after.closeTime)) {
+            changedFields |= CLOSE;
+        }
+
+        if (!equals(before.extendedPrice, after.extendedPrice)
+                || !equals(before.extendedTime, after.extendedTime)) {
+            changedFields |= EXTENDED;
+        }
+
+        if (!equals(before.previousClosePrice, after.previousClosePrice)) {
+            changedFields |= PREVIOUS_CLOSE;
+        }
+
+        if (!equals(before.marketCap, after.marketCap)) {
+            changedFields |= MARKET_CAP;
+        }
+
+        if (!equals(before.dayHigh, after.dayHigh) || !equals(before.dayLow, after.dayLow)) {
+            changedFields |= DAY_RANGE;
+        }
+
+        if (!equals(before.week52High, after.week52High) || !equals(before.week52Low, after.week52Low)) {
+            changedFields |= WEEK_52_RANGE;
+        }
+
+        return changedFields;
+    }
+
+    /**
+     * Compares two display names.
+     * @param left First value.
+     * @param right Second value.
+     * @return True if values are equal, otherwise false.
+     */
+    private static boolean equals(String left, String right) {
+        return left == null ? right == null : left.equals(right);
+    }
+
+    /**
+     * Compares two prices with the precision they are persisted with.
+     * @param left First value.
+     * @param right Second value.
+     * @return True if values are equal, otherwise false.
+     */
+    private static boolean equals(BigDecimal left, BigDecimal right) {
+        return left == null
+            ? right == null
+            : right != null
+                && left.setScale(BigDecimalHelper.MAX_FRACTION_DIGITS, RoundingMode.DOWN)
+                    .compareTo(right.setScale(BigDecimalHelper.MAX_FRACTION_DIGITS, RoundingMode.DOWN)) == 0;
+    }
+
+    /**
+     * Compares two timestamps.
+     * @param left First value.
+     * @param right Second value.
+     * @return True if values are equal, otherwise false.
+     */
+    private static boolean equals(Long left, Long right) {
+        return CalendarHelper.compare(left, right) == 0;
+    }
+}
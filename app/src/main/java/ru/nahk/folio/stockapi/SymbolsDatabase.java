@@ -1,71 +1,78 @@
 package ru.nahk.folio.stockapi;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 
-import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-
-import ru.nahk.folio.R;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Database of well-known symbols.
  */
 final class SymbolsDatabase {
+    /**
+     * Name of the asset with compiled symbols catalog.
+     */
+    private static final String CATALOG_ASSET_NAME = "symbols.catalog";
+
     /**
      * Synchronization object used for symbols data initialization.
      */
     private static final Object initializationSyncObj = new Object();
 
     /**
-     * Collection of all well-known symbols.
+     * Search index over all well-known symbols.
      */
-    private static Iterable<SymbolInfo> symbols;
+    private static SymbolsIndex index;
 
     /**
-     * Gets the collection of all well-known symbols.
+     * Gets the search index over all well-known symbols.
      * @param context Application or activity context.
-     * @return Collection of all well-known symbols.
+     * @return Search index over all well-known symbols.
      */
-    static Iterable<SymbolInfo> getData(Context context) {
-        if (symbols == null) {
+    static SymbolsIndex getIndex(Context context) {
+        if (index == null) {
             synchronized (initializationSyncObj) {
-                if (symbols == null) {
-                    symbols = loadData(context);
+                if (index == null) {
+                    index = new SymbolsIndex(loadData(context));
                 }
             }
         }
 
-        return symbols;
+        return index;
     }
 
     /**
-     * Loads the list of well-known symbols.
+     * Loads compiled catalog of well-known symbols.
+     * Catalog asset is stored uncompressed, so it is memory-mapped directly from the package.
      * @param context Application or activity context.
-     * @return Collection of loaded well-known symbols.
+     * @return Catalog data or null, if catalog cannot be loaded.
      */
-    private static Iterable<SymbolInfo> loadData(Context context) {
-        ArrayList<SymbolInfo> result = new ArrayList<>(8603);
-
-        try (InputStream symbolsStream = context.getResources().openRawResource(R.raw.symbols)) {
-            try (InputStreamReader symbolsStreamReader = new InputStreamReader(symbolsStream)) {
-                try (BufferedReader symbolsReader = new BufferedReader(symbolsStreamReader)) {
-                    for (String line; (line = symbolsReader.readLine()) != null; ) {
-                        String[] symbolInfo = line.split("\\t");
-
-                        if (symbolInfo.length >= 2) {
-                            result.add(new SymbolInfo(symbolInfo[0], symbolInfo[1]));
-                        }
-                    }
-                }
+    private static ByteBuffer loadData(Context context) {
+        try (AssetFileDescriptor catalogDescriptor = context.getAssets().openFd(CATALOG_ASSET_NAME)) {
+            try (FileInputStream catalogStream = catalogDescriptor.createInputStream()) {
+                return catalogStream.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY,
+                    catalogDescriptor.getStartOffset(),
+                    catalogDescriptor.getLength());
             }
         }
-        catch (IOException error) {
-            // No symbols are known then
+        catch (IOException mapError) {
+            // Asset is compressed and cannot be mapped, read it at once instead
         }
 
-        return result;
+        try (InputStream catalogStream = context.getAssets().open(CATALOG_ASSET_NAME)) {
+            byte[] catalog = new byte[catalogStream.available()];
+            new DataInputStream(catalogStream).readFully(catalog);
+            return ByteBuffer.wrap(catalog);
+        }
+        catch (IOException readError) {
+            // No symbols are known then
+            return null;
+        }
     }
 }
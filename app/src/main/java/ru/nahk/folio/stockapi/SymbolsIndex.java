@@ -0,0 +1,537 @@
+package ru.nahk.folio.stockapi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Search index over well-known symbols backed by the binary catalog
+ * that is compiled from the symbols list at build time (see compileSymbolsCatalog task).
+ * Symbols are stored in the order of their case-folded tickers, so ticker prefix look-ups
+ * are binary searches and all posting lists come out alphabetically sorted.
+ * {@link SymbolInfo} objects are only created for symbols that are returned from search.
+ */
+final class SymbolsIndex {
+    /**
+     * Catalog file signature.
+     */
+    private static final int CATALOG_MAGIC = 0x4653594D;
+
+    /**
+     * Supported catalog format version.
+     */
+    private static final int CATALOG_VERSION = 1;
+
+    /**
+     * Size of the catalog integer value in bytes.
+     */
+    private static final int INT_SIZE = 4;
+
+    /**
+     * Size of the catalog long value in bytes.
+     */
+    private static final int LONG_SIZE = 8;
+
+    /**
+     * Size of the catalog character in bytes.
+     */
+    private static final int CHAR_SIZE = 2;
+
+    /**
+     * Size of the catalog header in bytes.
+     */
+    private static final int HEADER_SIZE = 7 * INT_SIZE;
+
+    /**
+     * Size of the symbol record in bytes: ticker offset and length, name offset and length.
+     */
+    private static final int SYMBOL_RECORD_SIZE = 4 * INT_SIZE;
+
+    /**
+     * Size of the word record in bytes: offset, length and owner symbol index.
+     */
+    private static final int WORD_RECORD_SIZE = 3 * INT_SIZE;
+
+    /**
+     * Length of the n-grams stored in the inverted index.
+     */
+    private static final int NGRAM_LENGTH = 3;
+
+    /**
+     * Compiled catalog data.
+     */
+    private final ByteBuffer mCatalog;
+
+    /**
+     * Number of symbols in the catalog.
+     */
+    private final int mSymbolsCount;
+
+    /**
+     * Number of company name words in the catalog.
+     */
+    private final int mWordsCount;
+
+    /**
+     * Number of distinct n-grams in the catalog.
+     */
+    private final int mNgramsCount;
+
+    /**
+     * Offset of the symbols table.
+     */
+    private final int mSymbolsOffset;
+
+    /**
+     * Offset of the words table.
+     */
+    private final int mWordsOffset;
+
+    /**
+     * Offset of the sorted n-gram keys.
+     */
+    private final int mNgramKeysOffset;
+
+    /**
+     * Offset of the n-gram posting list starts.
+     */
+    private final int mPostingStartsOffset;
+
+    /**
+     * Offset of the posting lists.
+     */
+    private final int mPostingsOffset;
+
+    /**
+     * Offset of the string pool.
+     */
+    private final int mPoolOffset;
+
+    /**
+     * Creates a new instance of the {@link SymbolsIndex} class
+     * over the compiled symbols catalog.
+     * @param catalog Compiled catalog data or null, if catalog is not available.
+     */
+    SymbolsIndex(ByteBuffer catalog) {
+        if (catalog == null
+                || catalog.capacity() < HEADER_SIZE
+                || catalog.getInt(0) != CATALOG_MAGIC
+                || catalog.getInt(INT_SIZE) != CATALOG_VERSION) {
+            // No symbols are known then
+            mCatalog = ByteBuffer.allocate(0);
+            mSymbolsCount = mWordsCount = mNgramsCount = 0;
+            mSymbolsOffset = mWordsOffset = mNgramKeysOffset =
+                mPostingStartsOffset = mPostingsOffset = mPoolOffset = 0;
+            return;
+        }
+
+        mCatalog = catalog;
+        mSymbolsCount = catalog.getInt(2 * INT_SIZE);
+        mWordsCount = catalog.getInt(3 * INT_SIZE);
+        mNgramsCount = catalog.getInt(4 * INT_SIZE);
+        int postingsCount = catalog.getInt(5 * INT_SIZE);
+
+        mSymbolsOffset = HEADER_SIZE;
+        mWordsOffset = mSymbolsOffset + mSymbolsCount * SYMBOL_RECORD_SIZE;
+        mNgramKeysOffset = mWordsOffset + mWordsCount * WORD_RECORD_SIZE;
+        mPostingStartsOffset = mNgramKeysOffset + mNgramsCount * LONG_SIZE;
+        mPostingsOffset = mPostingStartsOffset + (mNgramsCount + 1) * INT_SIZE;
+        mPoolOffset = mPostingsOffset + postingsCount * INT_SIZE;
+    }
+
+    /**
+     * Searches for symbols matching the query.
+     * Results are ranked as exact ticker match, ticker prefix match,
+     * company name word prefix match and then any substring match.
+     * @param query Part of the symbol or company name.
+     * @param limit Maximum number of results to return.
+     * @return Ranked list of matching symbols.
+     */
+    List<SymbolInfo> find(String query, int limit) {
+        List<SymbolInfo> result = new ArrayList<>();
+
+        if (query == null) {
+            return result;
+        }
+
+        String foldedQuery = fold(query.trim());
+        if (foldedQuery.isEmpty() || limit <= 0 || mSymbolsCount == 0) {
+            return result;
+        }
+
+        BitSet matched = new BitSet(mSymbolsCount);
+
+        // Exact ticker match comes first and is followed by other ticker prefix matches
+        int tickersStart = lowerBound(mSymbolsOffset, SYMBOL_RECORD_SIZE, mSymbolsCount, foldedQuery);
+        int tickersEnd = prefixUpperBound(mSymbolsOffset, SYMBOL_RECORD_SIZE, mSymbolsCount, foldedQuery, tickersStart);
+
+        for (int symbolIndex = tickersStart;
+                symbolIndex < tickersEnd && result.size() < limit;
+                ++symbolIndex) {
+            addMatch(result, matched, symbolIndex);
+        }
+
+        // Company name word prefix matches
+        int wordsStart = lowerBound(mWordsOffset, WORD_RECORD_SIZE, mWordsCount, foldedQuery);
+        int wordsEnd = prefixUpperBound(mWordsOffset, WORD_RECORD_SIZE, mWordsCount, foldedQuery, wordsStart);
+
+        for (int wordIndex = wordsStart;
+                wordIndex < wordsEnd && result.size() < limit;
+                ++wordIndex) {
+            addMatch(
+                result,
+                matched,
+                mCatalog.getInt(mWordsOffset + wordIndex * WORD_RECORD_SIZE + 2 * INT_SIZE));
+        }
+
+        // Any substring matches
+        if (result.size() < limit) {
+            if (foldedQuery.length() >= NGRAM_LENGTH) {
+                findSubstringCandidates(foldedQuery, result, matched, limit);
+            } else {
+                // Query is too short for n-gram look-up, but previous ranks
+                // almost always fill the results, so the scan stops early.
+                for (int symbolIndex = 0;
+                        symbolIndex < mSymbolsCount && result.size() < limit;
+                        ++symbolIndex) {
+                    if (!matched.get(symbolIndex) && containsQuery(symbolIndex, foldedQuery)) {
+                        addMatch(result, matched, symbolIndex);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Looks up symbols that contain all n-grams of the query and verifies
+     * that the query is actually a substring of the ticker or company name.
+     * @param foldedQuery Case-folded search query.
+     * @param result Search results to append to.
+     * @param matched Indices of symbols that are already in results.
+     * @param limit Maximum number of results.
+     */
+    private void findSubstringCandidates(
+            String foldedQuery,
+            List<SymbolInfo> result,
+            BitSet matched,
+            int limit) {
+        int ngramsCount = foldedQuery.length() - NGRAM_LENGTH + 1;
+        int[] postingStarts = new int[ngramsCount];
+        int[] postingEnds = new int[ngramsCount];
+        int shortestPosting = 0;
+
+        for (int queryNgram = 0; queryNgram < ngramsCount; ++queryNgram) {
+            int ngramIndex = findNgram(packNgram(foldedQuery, queryNgram));
+
+            if (ngramIndex < 0) {
+                // No symbol contains this n-gram
+                return;
+            }
+
+            postingStarts[queryNgram] =
+                mCatalog.getInt(mPostingStartsOffset + ngramIndex * INT_SIZE);
+            postingEnds[queryNgram] =
+                mCatalog.getInt(mPostingStartsOffset + (ngramIndex + 1) * INT_SIZE);
+
+            if (postingEnds[queryNgram] - postingStarts[queryNgram]
+                    < postingEnds[shortestPosting] - postingStarts[shortestPosting]) {
+                shortestPosting = queryNgram;
+            }
+        }
+
+        // Iterate the shortest posting list and probe the others
+        for (int posting = postingStarts[shortestPosting];
+                posting < postingEnds[shortestPosting] && result.size() < limit;
+                ++posting) {
+            int candidate = mCatalog.getInt(mPostingsOffset + posting * INT_SIZE);
+
+            if (matched.get(candidate)) {
+                continue;
+            }
+
+            boolean hasAllNgrams = true;
+            for (int queryNgram = 0; queryNgram < ngramsCount && hasAllNgrams; ++queryNgram) {
+                hasAllNgrams =
+                    queryNgram == shortestPosting
+                        || postingContains(postingStarts[queryNgram], postingEnds[queryNgram], candidate);
+            }
+
+            if (hasAllNgrams && containsQuery(candidate, foldedQuery)) {
+                addMatch(result, matched, candidate);
+            }
+        }
+    }
+
+    /**
+     * Finds n-gram in the sorted n-gram keys table.
+     * @param ngram Packed n-gram.
+     * @return Index of the n-gram or negative value, if not found.
+     */
+    private int findNgram(long ngram) {
+        int low = 0;
+        int high = mNgramsCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleNgram = mCatalog.getLong(mNgramKeysOffset + middle * LONG_SIZE);
+
+            if (middleNgram < ngram) {
+                low = middle + 1;
+            } else if (middleNgram > ngram) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Checks if the posting list contains given symbol.
+     * @param start Index of the first posting.
+     * @param end Index after the last posting.
+     * @param symbolIndex Index of the symbol to look for.
+     * @return True if symbol is in the posting list, otherwise false.
+     */
+    private boolean postingContains(int start, int end, int symbolIndex) {
+        int low = start;
+        int high = end - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleSymbol = mCatalog.getInt(mPostingsOffset + middle * INT_SIZE);
+
+            if (middleSymbol < symbolIndex) {
+                low = middle + 1;
+            } else if (middleSymbol > symbolIndex) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if ticker or company name of the symbol contains the query.
+     * @param symbolIndex Index of the symbol.
+     * @param foldedQuery Case-folded search query.
+     * @return True if the symbol matches the query, otherwise false.
+     */
+    private boolean containsQuery(int symbolIndex, String foldedQuery) {
+        int record = mSymbolsOffset + symbolIndex * SYMBOL_RECORD_SIZE;
+
+        return
+            poolContains(
+                mCatalog.getInt(record),
+                mCatalog.getInt(record + INT_SIZE),
+                foldedQuery)
+            || poolContains(
+                mCatalog.getInt(record + 2 * INT_SIZE),
+                mCatalog.getInt(record + 3 * INT_SIZE),
+                foldedQuery);
+    }
+
+    /**
+     * Adds symbol to search results, unless it is already there.
+     * @param result Search results.
+     * @param matched Indices of symbols that are already in results.
+     * @param symbolIndex Index of the symbol to add.
+     */
+    private void addMatch(List<SymbolInfo> result, BitSet matched, int symbolIndex) {
+        if (!matched.get(symbolIndex)) {
+            matched.set(symbolIndex);
+
+            int record = mSymbolsOffset + symbolIndex * SYMBOL_RECORD_SIZE;
+
+            result.add(
+                new SymbolInfo(
+                    poolString(mCatalog.getInt(record), mCatalog.getInt(record + INT_SIZE)),
+                    poolString(
+                        mCatalog.getInt(record + 2 * INT_SIZE),
+                        mCatalog.getInt(record + 3 * INT_SIZE))));
+        }
+    }
+
+    /**
+     * Finds index of the first record which string is not less than the key.
+     * @param tableOffset Offset of the records table.
+     * @param recordSize Size of one record, that starts with string offset and length.
+     * @param count Number of records in the table.
+     * @param key Case-folded key to look for.
+     * @return Index of the first record that is not less than the key.
+     */
+    private int lowerBound(int tableOffset, int recordSize, int count, String key) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int record = tableOffset + middle * recordSize;
+
+            if (poolCompare(mCatalog.getInt(record), mCatalog.getInt(record + INT_SIZE), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Finds index after the last record which string starts with the prefix.
+     * @param tableOffset Offset of the records table.
+     * @param recordSize Size of one record, that starts with string offset and length.
+     * @param count Number of records in the table.
+     * @param prefix Case-folded prefix to look for.
+     * @param start Index of the first record that is not less than the prefix.
+     * @return Index after the last record with the given prefix.
+     */
+    private int prefixUpperBound(int tableOffset, int recordSize, int count, String prefix, int start) {
+        int low = start;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int record = tableOffset + middle * recordSize;
+
+            if (poolStartsWith(mCatalog.getInt(record), mCatalog.getInt(record + INT_SIZE), prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Compares case-folded pool string with the key.
+     * @param offset Offset of the string in the pool.
+     * @param length Length of the string.
+     * @param key Case-folded key.
+     * @return Negative value, zero or positive value if pool string is less than,
+     * equal to or greater than the key.
+     */
+    private int poolCompare(int offset, int length, String key) {
+        int commonLength = Math.min(length, key.length());
+
+        for (int charIndex = 0; charIndex < commonLength; ++charIndex) {
+            char poolChar = Character.toUpperCase(poolChar(offset + charIndex));
+            char keyChar = key.charAt(charIndex);
+
+            if (poolChar != keyChar) {
+                return poolChar - keyChar;
+            }
+        }
+
+        return length - key.length();
+    }
+
+    /**
+     * Checks if case-folded pool string starts with the prefix.
+     * @param offset Offset of the string in the pool.
+     * @param length Length of the string.
+     * @param prefix Case-folded prefix.
+     * @return True if pool string starts with the prefix, otherwise false.
+     */
+    private boolean poolStartsWith(int offset, int length, String prefix) {
+        return length >= prefix.length() && poolRegionMatches(offset, prefix);
+    }
+
+    /**
+     * Checks if case-folded pool string contains the substring.
+     * @param offset Offset of the string in the pool.
+     * @param length Length of the string.
+     * @param substring Case-folded substring.
+     * @return True if pool string contains the substring, otherwise false.
+     */
+    private boolean poolContains(int offset, int length, String substring) {
+        for (int start = offset; start <= offset + length - substring.length(); ++start) {
+            if (poolRegionMatches(start, substring)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if case-folded pool characters at the given offset match the text.
+     * @param offset Offset in the pool.
+     * @param text Case-folded text.
+     * @return True if pool region matches the text, otherwise false.
+     */
+    private boolean poolRegionMatches(int offset, String text) {
+        for (int charIndex = 0; charIndex < text.length(); ++charIndex) {
+            if (Character.toUpperCase(poolChar(offset + charIndex)) != text.charAt(charIndex)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates string from the pool characters.
+     * @param offset Offset of the string in the pool.
+     * @param length Length of the string.
+     * @return String from the pool.
+     */
+    private String poolString(int offset, int length) {
+        char[] chars = new char[length];
+
+        for (int charIndex = 0; charIndex < length; ++charIndex) {
+            chars[charIndex] = poolChar(offset + charIndex);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Reads single character from the pool.
+     * @param index Index of the character in the pool.
+     * @return Pool character.
+     */
+    private char poolChar(int index) {
+        return mCatalog.getChar(mPoolOffset + index * CHAR_SIZE);
+    }
+
+    /**
+     * Packs n-gram characters into a single number.
+     * @param text Source text.
+     * @param start Index of the first n-gram character.
+     * @return Packed n-gram.
+     */
+    private static long packNgram(String text, int start) {
+        long ngram = 0;
+
+        for (int charIndex = start; charIndex < start + NGRAM_LENGTH; ++charIndex) {
+            ngram = (ngram << Character.SIZE) | text.charAt(charIndex);
+        }
+
+        return ngram;
+    }
+
+    /**
+     * Converts text to the case used in the catalog.
+     * Each character is folded separately, the same way catalog compiler does it.
+     * @param text Text to convert.
+     * @return Case-folded text.
+     */
+    private static String fold(String text) {
+        char[] chars = text.toCharArray();
+
+        for (int charIndex = 0; charIndex < chars.length; ++charIndex) {
+            chars[charIndex] = Character.toUpperCase(chars[charIndex]);
+        }
+
+        return new String(chars);
+    }
+}
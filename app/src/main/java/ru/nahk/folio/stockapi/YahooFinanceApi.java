@@ -1,23 +1,26 @@
 package ru.nahk.folio.stockapi;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import ru.nahk.folio.BuildConfig;
+import ru.nahk.folio.model.CandleEntity;
 import ru.nahk.folio.model.SymbolEntity;
 import ru.nahk.folio.utils.CalendarHelper;
 
@@ -31,27 +34,268 @@ public class YahooFinanceApi extends StockApiBase {
     private final static String QUOTE_API_URL =
         "https://query2.finance.yahoo.com/v6/finance/quote?symbols=%s&fields=symbol,shortName,regularMarketOpen,regularMarketPrice,regularMarketTime,postMarketPrice,postMarketTime,regularMarketPreviousClose,marketCap,regularMarketDayHigh,regularMarketDayLow,fiftyTwoWeekHigh,fiftyTwoWeekLow";
 
+    /**
+     * URI template to search for symbols.
+     */
+    private final static String SEARCH_API_URL =
+        "https://query2.finance.yahoo.com/v1/finance/search?q=%s&quotesCount=" + MAX_SEARCH_RESULTS
+            + "&newsCount=0&listsCount=0";
+
+    /**
+     * URI template to query historical price candles.
+     */
+    private final static String CHART_API_URL =
+        "https://query2.finance.yahoo.com/v8/finance/chart/%s?period1=%d&period2=%d&interval=%s&includePrePost=false";
+
+    /**
+     * Maximum length of the symbols part of the request URL.
+     * Keeps request URLs well below the limits of servers and proxies.
+     */
+    private final static int MAX_SYMBOLS_URL_LENGTH = 1500;
+
+    /**
+     * Maximum number of requests that are sent to API at the same time.
+     */
+    private final static int MAX_CONCURRENT_REQUESTS = 4;
+
+    /**
+     * How long idle request threads are kept alive, in seconds.
+     */
+    private final static int REQUEST_THREAD_KEEP_ALIVE = 30;
+
+    /**
+     * Executor for concurrent quote requests.
+     */
+    private final static ThreadPoolExecutor requestsExecutor = createRequestsExecutor();
+
+    /**
+     * Searches for symbols matching the query using Yahoo Finance search API.
+     * @param query Part of the symbol or company name.
+     * @return List of symbols that match the query.
+     * @throws StockApiException Thrown when an error occurs during symbols look-up.
+     */
+    @Override
+    public List<SymbolInfo> searchSymbols(String query) throws StockApiException {
+        final List<SymbolInfo> result = new ArrayList<>();
+
+        if (query == null || query.trim().isEmpty()) {
+            return result;
+        }
+
+        String encodedQuery;
+
+        try {
+            encodedQuery = URLEncoder.encode(query.trim(), "UTF-8");
+        }
+        catch (UnsupportedEncodingException encodingError) {
+            throw new StockApiException(
+                "Failed to prepare request URL: " + encodingError.getMessage(),
+                encodingError);
+        }
+
+        // Search results are always needed, so request is not conditional
+        HttpTransport.getInstance().get(
+            String.format(SEARCH_API_URL, encodedQuery),
+            new HttpTransport.BodyReader() {
+                @Override
+                public void read(InputStream body) throws IOException, StockApiException {
+                    JsonReader reader = new JsonReader(new InputStreamReader(body, "UTF-8"));
+
+                    try {
+                        readSearchResponse(reader, result);
+                    }
+                    catch (IllegalStateException parseError) {
+                        throw new StockApiResponseException(parseError.getMessage(), parseError);
+                    }
+                }
+            },
+            false);
+
+        return result;
+    }
+
+    /**
+     * Fetches historical price candles using Yahoo Finance chart API.
+     * @param symbol Stock symbol.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds.
+     * @return Candles in chronological order.
+     * @throws StockApiException Thrown when an error occurs during history look-up.
+     */
+    @Override
+    public List<CandleEntity> fetchHistory(
+            final String symbol,
+            long startTime,
+            long endTime,
+            final int interval) throws StockApiException {
+        String intervalCode;
+
+        switch (interval) {
+            case CandleEntity.INTERVAL_5_MINUTES:
+                intervalCode = "5m";
+                break;
+            case CandleEntity.INTERVAL_HOUR:
+                intervalCode = "60m";
+                break;
+            case CandleEntity.INTERVAL_DAY:
+                intervalCode = "1d";
+                break;
+            case CandleEntity.INTERVAL_WEEK:
+                intervalCode = "1wk";
+                break;
+            default:
+                throw new StockApiException("Unsupported candle interval: " + interval);
+        }
+
+        String encodedSymbol;
+
+        try {
+            encodedSymbol = URLEncoder.encode(symbol, "UTF-8");
+        }
+        catch (UnsupportedEncodingException encodingError) {
+            throw new StockApiException(
+                "Failed to prepare request URL: " + encodingError.getMessage(),
+                encodingError);
+        }
+
+        final List<CandleEntity> result = new ArrayList<>();
+
+        // Time range is different every time, so conditional request makes no sense
+        HttpTransport.getInstance().get(
+            String.format(Locale.ROOT, CHART_API_URL, encodedSymbol, startTime / 1000, endTime / 1000, intervalCode),
+            new HttpTransport.BodyReader() {
+                @Override
+                public void read(InputStream body) throws IOException, StockApiException {
+                    JsonReader reader = new JsonReader(new InputStreamReader(body, "UTF-8"));
+
+                    try {
+                        readChartResponse(reader, symbol, interval, result);
+                    }
+                    catch (IllegalStateException | NumberFormatException parseError) {
+                        throw new StockApiResponseException(parseError.getMessage(), parseError);
+                    }
+                }
+            },
+            false);
+
+        return result;
+    }
+
     /**
      * Updates symbols information in-place.
+     * Symbols are split into batches that fit into request URL and batches are fetched
+     * concurrently. Failure of one batch does not prevent other batches from being updated.
      * @param symbols Symbol entities to update.
+     * @return Changes made to the symbols.
+     * @throws StockApiPartialResultException Thrown when only some of the batches were updated.
      * @throws StockApiException Thrown when an error occurs during update.
      */
     @Override
-    public void updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+    public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+        SymbolChanges changes = new SymbolChanges();
+
         if (symbols == null || symbols.size() <= 0) {
-            return;
+            return changes;
         }
 
-        Map<String, SymbolEntity> symbolsMap = new HashMap<>();
-        StringBuilder symbolNames = new StringBuilder();
+        List<QuoteBatch> batches = createBatches(symbols);
 
-        for (SymbolEntity symbol : symbols) {
-            if (symbolNames.length() > 0) {
-                symbolNames.append(',');
+        // Start all but the last batch in the background and fetch the last one on this thread
+        List<Future<?>> pendingBatches = new ArrayList<>(batches.size() - 1);
+        for (int batchIndex = 0; batchIndex < batches.size() - 1; ++batchIndex) {
+            pendingBatches.add(requestsExecutor.submit(batches.get(batchIndex)));
+        }
+
+        batches.get(batches.size() - 1).run();
+
+        for (Future<?> pendingBatch : pendingBatches) {
+            try {
+                pendingBatch.get();
+            }
+            catch (InterruptedException interruptedError) {
+                for (Future<?> batch : pendingBatches) {
+                    batch.cancel(true);
+                }
+
+                Thread.currentThread().interrupt();
+                throw new StockApiException("Symbols update was interrupted", interruptedError);
             }
+            catch (ExecutionException executionError) {
+                // Batches report their own errors
+            }
+        }
+
+        // Collect failures
+        List<String> failedSymbols = new ArrayList<>();
+        StockApiException firstError = null;
+        int failedBatches = 0;
+
+        for (QuoteBatch batch : batches) {
+            // Failed batch can still have some of the symbols updated
+            changes.addAll(batch.mChanges);
+
+            if (batch.mError != null) {
+                failedSymbols.addAll(batch.mSymbolsMap.keySet());
+                ++failedBatches;
+
+                if (firstError == null) {
+                    firstError = batch.mError;
+                }
+            }
+        }
+
+        if (firstError == null) {
+            return changes;
+        }
+
+        if (failedBatches == batches.size()) {
+            throw firstError;
+        }
+
+        throw new StockApiPartialResultException(
+            "Failed to update " + failedSymbols.size() + " of " + symbols.size() + " symbols: "
+                + firstError.getMessage(),
+            failedSymbols,
+            changes,
+            firstError);
+    }
+
+    /**
+     * Gets number of batches the symbols are requested in.
+     * @param symbols Symbol entities to update.
+     * @return Number of requests.
+     */
+    @Override
+    public int getQuoteRequestCount(List<SymbolEntity> symbols) {
+        if (symbols == null || symbols.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return createBatches(symbols).size();
+        }
+        catch (StockApiException encodingError) {
+            // Update fails the same way before making any requests
+            return 0;
+        }
+    }
+
+    /**
+     * Splits symbols into batches that fit into request URL.
+     * @param symbols Symbol entities to update, not empty.
+     * @return Batches of symbols.
+     * @throws StockApiException Thrown when symbol cannot be encoded into URL.
+     */
+    private static List<QuoteBatch> createBatches(List<SymbolEntity> symbols) throws StockApiException {
+        List<QuoteBatch> batches = new ArrayList<>();
+        QuoteBatch currentBatch = null;
+
+        for (SymbolEntity symbol : symbols) {
+            String encodedSymbol;
 
             try {
-                symbolNames.append(URLEncoder.encode(symbol.id, "UTF-8"));
+                encodedSymbol = URLEncoder.encode(symbol.id, "UTF-8");
             }
             catch (UnsupportedEncodingException encodingError) {
                 throw new StockApiException(
@@ -59,156 +303,622 @@ public class YahooFinanceApi extends StockApiBase {
                     encodingError);
             }
 
-            symbolsMap.put(symbol.id, symbol);
+            if (currentBatch == null
+                    || currentBatch.mSymbolNames.length() + encodedSymbol.length() >= MAX_SYMBOLS_URL_LENGTH) {
+                currentBatch = new QuoteBatch();
+                batches.add(currentBatch);
+            }
+
+            currentBatch.add(symbol, encodedSymbol);
         }
 
-        HttpURLConnection connection = null;
-        StringBuilder response = new StringBuilder();
+        return batches;
+    }
 
-        try {
-            connection =
-                (HttpURLConnection) new URL(String.format(QUOTE_API_URL, symbolNames.toString()))
-                    .openConnection();
-            connection.setRequestProperty("User-Agent", "android/folio-" + BuildConfig.VERSION_NAME);
-            connection.setRequestMethod("GET");
-            connection.connect();
-
-            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                throw new StockApiException("Invalid API response code: " + connection.getResponseCode());
-            }
-
-            // Read entire response
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                String responseLine;
-                while ((responseLine = reader.readLine()) != null) {
-                    response.append(responseLine);
-                    response.append(System.lineSeparator());
+    /**
+     * Queries latest information for one batch of symbols and updates them in-place.
+     * Symbols are left intact, if quotes have not changed since the previous request.
+     * @param symbolNames Comma-separated URL-encoded list of symbols.
+     * @param symbolsMap Symbols to update indexed by the stock symbol.
+     * @param changes Change set to record symbol changes to.
+     * @throws StockApiException Thrown when an error occurs during update.
+     */
+    private static void updateSymbolsBatch(
+            String symbolNames,
+            final Map<String, SymbolEntity> symbolsMap,
+            final SymbolChanges changes) throws StockApiException {
+        HttpTransport.getInstance().get(
+            String.format(QUOTE_API_URL, symbolNames),
+            new HttpTransport.BodyReader() {
+                @Override
+                public void read(InputStream body) throws IOException, StockApiException {
+                    // Parse response as it arrives
+                    JsonReader reader = new JsonReader(new InputStreamReader(body, "UTF-8"));
+
+                    try {
+                        readQuoteResponse(reader, symbolsMap, changes);
+                    }
+                    catch (IllegalStateException | NumberFormatException parseError) {
+                        throw new StockApiResponseException(parseError.getMessage(), parseError);
+                    }
                 }
+            });
+    }
+
+    /**
+     * Reads symbols search response.
+     * @param reader JSON reader positioned at the start of the response.
+     * @param result List to add found symbols to.
+     * @throws IOException Thrown when response cannot be read.
+     */
+    private static void readSearchResponse(
+            JsonReader reader,
+            List<SymbolInfo> result) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"quotes".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
             }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String symbol = null;
+                String shortName = null;
+                String longName = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+
+                    if (reader.peek() != JsonToken.STRING) {
+                        reader.skipValue();
+                    } else if ("symbol".equals(name)) {
+                        symbol = reader.nextString();
+                    } else if ("shortname".equals(name)) {
+                        shortName = reader.nextString();
+                    } else if ("longname".equals(name)) {
+                        longName = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                if (symbol != null) {
+                    result.add(
+                        new SymbolInfo(
+                            symbol,
+                            shortName != null ? shortName : longName != null ? longName : symbol));
+                }
+            }
+            reader.endArray();
         }
-        catch (IOException ioError) {
-            throw new StockApiException(ioError.getMessage(), ioError);
+        reader.endObject();
+    }
+
+    /**
+     * Reads historical price candles response.
+     * @param reader JSON reader positioned at the start of the response.
+     * @param symbol Stock symbol.
+     * @param interval Candle interval in seconds.
+     * @param result List to add candles to.
+     * @throws IOException Thrown when response cannot be read.
+     * @throws StockApiException Thrown when API reports an error.
+     */
+    private static void readChartResponse(
+            JsonReader reader,
+            String symbol,
+            int interval,
+            List<CandleEntity> result) throws IOException, StockApiException {
+        ChartSeries series = new ChartSeries();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"chart".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    throw new StockApiResponseException(readErrorDescription(reader));
+                } else if ("result".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readChartResult(reader, series);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
         }
-        finally {
-            if (connection != null) {
-                connection.disconnect();
+        reader.endObject();
+
+        for (int index = 0; index < series.timestamps.size(); ++index) {
+            String timestamp = series.timestamps.get(index);
+            String open = getValue(series.openPrices, index);
+            String high = getValue(series.highPrices, index);
+            String low = getValue(series.lowPrices, index);
+            String close = getValue(series.closePrices, index);
+            String volume = getValue(series.volumes, index);
+
+            // Intervals without trades have no prices
+            if (timestamp == null || open == null || high == null || low == null || close == null) {
+                continue;
             }
+
+            result.add(
+                new CandleEntity(
+                    symbol,
+                    interval,
+                    Long.parseLong(timestamp) * 1000,
+                    new BigDecimal(open),
+                    new BigDecimal(high),
+                    new BigDecimal(low),
+                    new BigDecimal(close),
+                    volume == null ? 0 : new BigDecimal(volume).longValue()));
         }
+    }
+
+    /**
+     * Reads error description from the error object.
+     * @param reader JSON reader positioned at the start of the error object.
+     * @return Error description.
+     * @throws IOException Thrown when response cannot be read.
+     */
+    private static String readErrorDescription(JsonReader reader) throws IOException {
+        String description = "Failed to load price history";
 
-        if (response.length() == 0) {
-            throw new StockApiException("Empty response from API");
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("description".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                description = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
 
-        try {
-            // Parse response
-            JSONObject jsonResponse = new JSONObject(response.toString());
-
-            // Check for request errors
-            if (jsonResponse.has("description")) {
-                throw new StockApiException(jsonResponse.getString("description"));
-            }
-
-            JSONArray quotes =
-                jsonResponse
-                    .getJSONObject("quoteResponse")
-                    .getJSONArray("result");
-
-            for (int quoteIndex = 0; quoteIndex < quotes.length(); ++quoteIndex) {
-                JSONObject quote = quotes.getJSONObject(quoteIndex);
-
-                SymbolEntity symbolEntity = symbolsMap.get(quote.getString("symbol"));
-
-                if (symbolEntity != null) {
-                    symbolEntity.displayName =
-                        quote.optString("shortName", symbolEntity.displayName);
-
-                    if (quote.has("regularMarketTime")) {
-                        Calendar latestPriceTime =
-                            CalendarHelper.fromEpochInSeconds(quote.getLong("regularMarketTime"));
-
-                        if (isNewer(latestPriceTime, symbolEntity.latestTime)) {
-                            if (quote.has("regularMarketPrice")) {
-                                // Set close time and price equal to latest.
-                                // Yahoo Finance API doesn't provide separate value for closing price
-                                // and technically close price is the latest price at the time of
-                                // exchange closing.
-                                // Lets just adjust close price along with latest and let UI choose
-                                // which one to show based on extended trading timestamp.
-                                symbolEntity.latestTime =
-                                    symbolEntity.closeTime =
-                                        latestPriceTime;
-
-                                symbolEntity.latestPrice =
-                                    symbolEntity.closePrice =
-                                        new BigDecimal(quote.getString("regularMarketPrice"));
-                            }
-
-                            if (quote.has("regularMarketOpen")) {
-                                // Round up open time to 13:30 GMT (9:30 EST)
-                                // TODO: Is this affected by daylight saving time?
-                                symbolEntity.openTime =
-                                    CalendarHelper.fromComponents(
-                                        latestPriceTime.get(Calendar.YEAR),
-                                        latestPriceTime.get(Calendar.MONTH),
-                                        latestPriceTime.get(Calendar.DATE),
-                                        13, 30);
-                                symbolEntity.openPrice =
-                                    new BigDecimal(quote.getString("regularMarketOpen"));
-                            }
+        return description;
+    }
+
+    /**
+     * Reads single chart result.
+     * @param reader JSON reader positioned at the start of the result object.
+     * @param series Series to add values to.
+     * @throws IOException Thrown when response cannot be read.
+     */
+    private static void readChartResult(JsonReader reader, ChartSeries series) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if ("timestamp".equals(name)) {
+                readValues(reader, series.timestamps);
+            } else if ("indicators".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("quote".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readChartQuote(reader, series);
                         }
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
                     }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
 
-                    if (quote.has("postMarketTime") && quote.has("postMarketPrice")) {
-                        symbolEntity.extendedTime =
-                            CalendarHelper.fromEpochInSeconds(quote.getLong("postMarketTime"));
-                        symbolEntity.extendedPrice =
-                            new BigDecimal(quote.getString("postMarketPrice"));
-                    }
+    /**
+     * Reads price and volume series of a chart result.
+     * @param reader JSON reader positioned at the start of the quote object.
+     * @param series Series to add values to.
+     * @throws IOException Thrown when response cannot be read.
+     */
+    private static void readChartQuote(JsonReader reader, ChartSeries series) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "open":
+                    readValues(reader, series.openPrices);
+                    break;
+                case "high":
+                    readValues(reader, series.highPrices);
+                    break;
+                case "low":
+                    readValues(reader, series.lowPrices);
+                    break;
+                case "close":
+                    readValues(reader, series.closePrices);
+                    break;
+                case "volume":
+                    readValues(reader, series.volumes);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
 
-                    if (quote.has("regularMarketPreviousClose")) {
-                        symbolEntity.previousClosePrice =
-                            new BigDecimal(quote.getString("regularMarketPreviousClose"));
-                    }
+    /**
+     * Reads array of numbers, keeping them as strings to avoid precision loss.
+     * @param reader JSON reader positioned at the start of the array.
+     * @param values List to add values to, missing values are added as nulls.
+     * @throws IOException Thrown when response cannot be read.
+     */
+    private static void readValues(JsonReader reader, List<String> values) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
 
-                    if (quote.has("marketCap")) {
-                        symbolEntity.marketCap =
-                            new BigDecimal(quote.getString("marketCap"));
-                    }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                values.add(null);
+            } else {
+                values.add(reader.nextString());
+            }
+        }
+        reader.endArray();
+    }
 
-                    if (quote.has("regularMarketDayHigh") && quote.has("regularMarketDayLow")) {
-                        symbolEntity.dayHigh =
-                            new BigDecimal(quote.getString("regularMarketDayHigh"));
-                        symbolEntity.dayLow =
-                            new BigDecimal(quote.getString("regularMarketDayLow"));
-                    }
+    /**
+     * Gets value at the given index.
+     * @param values List of values.
+     * @param index Index of the value.
+     * @return Value or null, if list is shorter.
+     */
+    private static String getValue(List<String> values, int index) {
+        return index < values.size() ? values.get(index) : null;
+    }
 
-                    if (quote.has("fiftyTwoWeekHigh") && quote.has("fiftyTwoWeekLow")) {
-                        symbolEntity.week52High =
-                            new BigDecimal(quote.getString("fiftyTwoWeekHigh"));
-                        symbolEntity.week52Low =
-                            new BigDecimal(quote.getString("fiftyTwoWeekLow"));
+    /**
+     * Reads quotes response and updates matching symbols in-place.
+     * Package-private for the parsing benchmark.
+     * @param reader JSON reader positioned at the start of the response.
+     * @param symbolsMap Symbols to update indexed by the stock symbol.
+     * @param changes Change set to record symbol changes to.
+     * @throws IOException Thrown when response cannot be read.
+     * @throws StockApiException Thrown when API reports an error.
+     */
+    static void readQuoteResponse(
+            JsonReader reader,
+            Map<String, SymbolEntity> symbolsMap,
+            SymbolChanges changes) throws IOException, StockApiException {
+        boolean hasQuotes = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if ("description".equals(name) && reader.peek() == JsonToken.STRING) {
+                // Request error
+                throw new StockApiResponseException(reader.nextString());
+            } else if ("quoteResponse".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("result".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        readQuotes(reader, symbolsMap, changes);
+                        hasQuotes = true;
+                    } else {
+                        reader.skipValue();
                     }
                 }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasQuotes) {
+            throw new StockApiResponseException("Empty response from API");
+        }
+    }
+
+    /**
+     * Reads array of quotes and updates matching symbols in-place.
+     * @param reader JSON reader positioned at the start of the quotes array.
+     * @param symbolsMap Symbols to update indexed by the stock symbol.
+     * @param changes Change set to record symbol changes to.
+     * @throws IOException Thrown when response cannot be read.
+     */
+    private static void readQuotes(
+            JsonReader reader,
+            Map<String, SymbolEntity> symbolsMap,
+            SymbolChanges changes) throws IOException {
+        // Fields can come in any order, so hold them until the quote is read completely
+        Quote quote = new Quote();
+        SymbolEntity previousData = new SymbolEntity();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            quote.clear();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                switch (name) {
+                    case "symbol":
+                        quote.symbol = reader.nextString();
+                        break;
+                    case "shortName":
+                        quote.shortName = reader.nextString();
+                        break;
+                    case "regularMarketTime":
+                        quote.regularMarketTime = reader.nextLong();
+                        break;
+                    case "regularMarketPrice":
+                        quote.regularMarketPrice = reader.nextString();
+                        break;
+                    case "regularMarketOpen":
+                        quote.regularMarketOpen = reader.nextString();
+                        break;
+                    case "postMarketTime":
+                        quote.postMarketTime = reader.nextLong();
+                        break;
+                    case "postMarketPrice":
+                        quote.postMarketPrice = reader.nextString();
+                        break;
+                    case "regularMarketPreviousClose":
+                        quote.regularMarketPreviousClose = reader.nextString();
+                        break;
+                    case "marketCap":
+                        quote.marketCap = reader.nextString();
+                        break;
+                    case "regularMarketDayHigh":
+                        quote.regularMarketDayHigh = reader.nextString();
+                        break;
+                    case "regularMarketDayLow":
+                        quote.regularMarketDayLow = reader.nextString();
+                        break;
+                    case "fiftyTwoWeekHigh":
+                        quote.fiftyTwoWeekHigh = reader.nextString();
+                        break;
+                    case "fiftyTwoWeekLow":
+                        quote.fiftyTwoWeekLow = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            SymbolEntity symbolEntity =
+                quote.symbol == null ? null : symbolsMap.get(quote.symbol);
+
+            if (symbolEntity != null) {
+                previousData.copyMarketDataFrom(symbolEntity);
+                applyQuote(quote, symbolEntity);
+                changes.add(symbolEntity.id, SymbolChanges.compare(previousData, symbolEntity));
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Updates symbol entity with the quote data.
+     * @param quote Quote data.
+     * @param symbolEntity Symbol entity to update.
+     */
+    private static void applyQuote(Quote quote, SymbolEntity symbolEntity) {
+        if (quote.shortName != null) {
+            symbolEntity.displayName = quote.shortName;
+        }
+
+        if (quote.regularMarketTime != null) {
+            long latestPriceTime = TimeUnit.SECONDS.toMillis(quote.regularMarketTime);
+
+            if (isNewer(latestPriceTime, symbolEntity.latestTime)) {
+                if (quote.regularMarketPrice != null) {
+                    // Set close time and price equal to latest.
+                    // Yahoo Finance API doesn't provide separate value for closing price
+                    // and technically close price is the latest price at the time of
+                    // exchange closing.
+                    // Lets just adjust close price along with latest and let UI choose
+                    // which one to show based on extended trading timestamp.
+                    symbolEntity.latestTime =
+                        symbolEntity.closeTime =
+                            latestPriceTime;
+
+                    symbolEntity.latestPrice =
+                        symbolEntity.closePrice =
+                            new BigDecimal(quote.regularMarketPrice);
+                }
+
+                if (quote.regularMarketOpen != null) {
+                    // Round up open time to 13:30 GMT (9:30 EST)
+                    // TODO: Is this affected by daylight saving time?
+                    symbolEntity.openTime =
+                        CalendarHelper.atUtcTime(latestPriceTime, 13, 30);
+                    symbolEntity.openPrice =
+                        new BigDecimal(quote.regularMarketOpen);
+                }
             }
         }
-        catch (JSONException jsonException) {
-            throw new StockApiException(jsonException.getMessage(), jsonException);
+
+        if (quote.postMarketTime != null && quote.postMarketPrice != null) {
+            symbolEntity.extendedTime =
+                TimeUnit.SECONDS.toMillis(quote.postMarketTime);
+            symbolEntity.extendedPrice =
+                new BigDecimal(quote.postMarketPrice);
+        }
+
+        if (quote.regularMarketPreviousClose != null) {
+            symbolEntity.previousClosePrice =
+                new BigDecimal(quote.regularMarketPreviousClose);
         }
+
+        if (quote.marketCap != null) {
+            symbolEntity.marketCap =
+                new BigDecimal(quote.marketCap);
+        }
+
+        if (quote.regularMarketDayHigh != null && quote.regularMarketDayLow != null) {
+            symbolEntity.dayHigh =
+                new BigDecimal(quote.regularMarketDayHigh);
+            symbolEntity.dayLow =
+                new BigDecimal(quote.regularMarketDayLow);
+        }
+
+        if (quote.fiftyTwoWeekHigh != null && quote.fiftyTwoWeekLow != null) {
+            symbolEntity.week52High =
+                new BigDecimal(quote.fiftyTwoWeekHigh);
+            symbolEntity.week52Low =
+                new BigDecimal(quote.fiftyTwoWeekLow);
+        }
+    }
+
+    /**
+     * Creates executor for concurrent quote requests.
+     * Threads are stopped when there are no requests to run.
+     * @return Executor for quote requests.
+     */
+    private static ThreadPoolExecutor createRequestsExecutor() {
+        ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(
+                MAX_CONCURRENT_REQUESTS,
+                MAX_CONCURRENT_REQUESTS,
+                REQUEST_THREAD_KEEP_ALIVE,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
     }
 
     /**
-     * Compares if new {@link Calendar} value is greater than current one.
-     * @param newValue New timestamp value.
-     * @param currentValue Current timestamp value.
+     * Compares if new timestamp value is greater than current one.
+     * @param newValue New epoch timestamp value.
+     * @param currentValue Current epoch timestamp value or NULL.
      * @return True if new value is greater than the old one.
      */
-    private static boolean isNewer(Calendar newValue, Calendar currentValue) {
-        if (newValue == null) {
-            return false;
-        } else if (currentValue == null) {
-            return true;
-        } else {
-            return newValue.compareTo(currentValue) > 0;
+    private static boolean isNewer(long newValue, Long currentValue) {
+        return currentValue == null || newValue > currentValue;
+    }
+
+    /**
+     * Raw fields of a single quote from the API response.
+     * Prices are kept as strings to be converted to {@link BigDecimal} without precision loss.
+     */
+    private static final class Quote {
+        String symbol;
+        String shortName;
+        Long regularMarketTime;
+        String regularMarketPrice;
+        String regularMarketOpen;
+        Long postMarketTime;
+        String postMarketPrice;
+        String regularMarketPreviousClose;
+        String marketCap;
+        String regularMarketDayHigh;
+        String regularMarketDayLow;
+        String fiftyTwoWeekHigh;
+        String fiftyTwoWeekLow;
+
+        /**
+         * Resets all fields before reading the next quote.
+         */
+        void clear() {
+            symbol = shortName = null;
+            regularMarketTime = postMarketTime = null;
+            regularMarketPrice = regularMarketOpen = postMarketPrice = null;
+            regularMarketPreviousClose = marketCap = null;
+            regularMarketDayHigh = regularMarketDayLow = null;
+            fiftyTwoWeekHigh = fiftyTwoWeekLow = null;
+        }
+    }
+
+    /**
+     * Raw series of a chart response.
+     * Numbers are kept as strings to be converted without precision loss.
+     */
+    private static final class ChartSeries {
+        final List<String> timestamps = new ArrayList<>();
+        final List<String> openPrices = new ArrayList<>();
+        final List<String> highPrices = new ArrayList<>();
+        final List<String> lowPrices = new ArrayList<>();
+        final List<String> closePrices = new ArrayList<>();
+        final List<String> volumes = new ArrayList<>();
+    }
+
+    /**
+     * Batch of symbols that are fetched with a single request.
+     */
+    private static final class QuoteBatch implements Runnable {
+        /**
+         * Comma-separated URL-encoded list of symbols.
+         */
+        private final StringBuilder mSymbolNames = new StringBuilder();
+
+        /**
+         * Symbols in the batch indexed by the stock symbol.
+         */
+        private final Map<String, SymbolEntity> mSymbolsMap = new HashMap<>();
+
+        /**
+         * Changes made to the symbols in the batch.
+         */
+        private final SymbolChanges mChanges = new SymbolChanges();
+
+        /**
+         * Error that occurred while fetching the batch.
+         */
+        private StockApiException mError;
+
+        /**
+         * Adds symbol to the batch.
+         * @param symbol Symbol entity to update.
+         * @param encodedSymbol URL-encoded stock symbol.
+         */
+        void add(SymbolEntity symbol, String encodedSymbol) {
+            if (mSymbolNames.length() > 0) {
+                mSymbolNames.append(',');
+            }
+
+            mSymbolNames.append(encodedSymbol);
+            mSymbolsMap.put(symbol.id, symbol);
+        }
+
+        /**
+         * Fetches the batch and records the error, if any.
+         */
+        @Override
+        public void run() {
+            try {
+                updateSymbolsBatch(mSymbolNames.toString(), mSymbolsMap, mChanges);
+            }
+            catch (StockApiException batchError) {
+                mError = batchError;
+            }
+            catch (RuntimeException unexpectedError) {
+                mError = new StockApiException(unexpectedError.getMessage(), unexpectedError);
+            }
         }
     }
 }
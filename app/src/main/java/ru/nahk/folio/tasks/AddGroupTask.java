@@ -6,6 +6,7 @@ import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.model.GroupEntity;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -17,6 +18,11 @@ public class AddGroupTask extends UiAsyncTask<Long> {
      */
     private PortfolioDatabase mDataStore;
 
+    /**
+     * Shared portfolio repository.
+     */
+    private PortfolioRepository mRepository;
+
     /**
      * Portfolio positions list adapter.
      */
@@ -35,21 +41,22 @@ public class AddGroupTask extends UiAsyncTask<Long> {
     /**
      * Creates new asynchronous task class that adds new group.
      * @param progressHandler Async task progress handler.
-     * @param dataStore Persistent portfolio data store.
+     * @param repository Shared portfolio repository.
      * @param listAdapter Positions list adapter.
      * @param parentGroup Parent group.
      * @param groupName Name of the group to add.
      */
     public AddGroupTask(
         @NonNull ProgressHandler progressHandler,
-        @NonNull PortfolioDatabase dataStore,
+        @NonNull PortfolioRepository repository,
         @NonNull PositionsListAdapter listAdapter,
         @NonNull GroupViewModel parentGroup,
         @NonNull String groupName) {
 
         super(progressHandler);
 
-        mDataStore = dataStore;
+        mRepository = repository;
+        mDataStore = repository.getDataStore();
         mListAdapter = listAdapter;
         mParentGroup = parentGroup;
         mGroupName = groupName;
@@ -71,7 +78,7 @@ public class AddGroupTask extends UiAsyncTask<Long> {
 
         // Reload portfolio
         // TODO: Optimize and inject group at specific location?
-        mListAdapter.setData(mDataStore.loadPortfolio());
+        mListAdapter.setData(mRepository.reloadPortfolio());
 
         return newGroupId;
     }
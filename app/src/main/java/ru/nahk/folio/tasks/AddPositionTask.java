@@ -3,11 +3,13 @@ package ru.nahk.folio.tasks;
 import android.content.Context;
 import android.support.annotation.NonNull;
 
+import java.util.Collections;
 import java.util.concurrent.Callable;
 
 import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 import ru.nahk.folio.model.PositionEntity;
 import ru.nahk.folio.model.SymbolEntity;
 import ru.nahk.folio.stockapi.StockApiFactory;
@@ -22,6 +24,11 @@ public class AddPositionTask extends RefreshPortfolioItemWidgetsTask<Long> {
      */
     private PortfolioDatabase mDataStore;
 
+    /**
+     * Shared portfolio repository.
+     */
+    private PortfolioRepository mRepository;
+
     /**
      * Portfolio positions list adapter.
      */
@@ -43,7 +50,7 @@ public class AddPositionTask extends RefreshPortfolioItemWidgetsTask<Long> {
      * list adapter, parent group and stock symbol.
      * @param progressHandler Async task progress handler.
      * @param context Activity context.
-     * @param dataStore Persistent portfolio data store.
+     * @param repository Shared portfolio repository.
      * @param listAdapter Portfolio positions list adapter.
      * @param parentGroup Parent group.
      * @param symbol Stock symbol for the position.
@@ -51,14 +58,15 @@ public class AddPositionTask extends RefreshPortfolioItemWidgetsTask<Long> {
     public AddPositionTask(
         @NonNull ProgressHandler progressHandler,
         @NonNull Context context,
-        @NonNull PortfolioDatabase dataStore,
+        @NonNull PortfolioRepository repository,
         @NonNull PositionsListAdapter listAdapter,
         @NonNull GroupViewModel parentGroup,
         @NonNull String symbol) {
 
         super(progressHandler, context);
 
-        mDataStore = dataStore;
+        mRepository = repository;
+        mDataStore = repository.getDataStore();
         mListAdapter = listAdapter;
         mParentGroup = parentGroup;
         mSymbol = symbol;
@@ -96,8 +104,9 @@ public class AddPositionTask extends RefreshPortfolioItemWidgetsTask<Long> {
         if (isNewSymbol) {
             try {
                 // New symbol was added - load its details and current price
-                StockApiFactory.getApi().updateSymbol(symbolEntity);
-                mDataStore.symbolDao().update(symbolEntity);
+                mDataStore.updateSymbolQuotes(
+                    Collections.singletonList(symbolEntity),
+                    StockApiFactory.getApi().updateSymbol(symbolEntity));
             } catch (Exception error) {
                 // Symbol details refresh is best effort only,
                 // we should still update the adapter.
@@ -105,7 +114,7 @@ public class AddPositionTask extends RefreshPortfolioItemWidgetsTask<Long> {
         }
 
         // Reload portfolio
-        mListAdapter.setData(mDataStore.loadPortfolio());
+        mListAdapter.setData(mRepository.reloadPortfolio());
 
         return encoded << 1 >>> 1;
     }
@@ -67,6 +67,7 @@ public class DeleteLotItemTask extends RefreshPortfolioItemWidgetsTask<Integer>
     @Override
     protected Integer doAsync() {
         mLotDao.delete(mLotItem.id);
+        invalidatePortfolio();
         return mListAdapter.deleteItem(mLotItem);
     }
 
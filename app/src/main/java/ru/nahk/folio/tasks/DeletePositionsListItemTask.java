@@ -7,6 +7,7 @@ import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.model.GroupDao;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 import ru.nahk.folio.model.PositionViewModel;
 import ru.nahk.folio.model.PositionsListItemViewModel;
 import ru.nahk.folio.utils.ProgressHandler;
@@ -20,6 +21,11 @@ public class DeletePositionsListItemTask extends RefreshPortfolioItemWidgetsTask
      */
     private PortfolioDatabase mDataStore;
 
+    /**
+     * Shared portfolio repository.
+     */
+    private PortfolioRepository mRepository;
+
     /**
      * Portfolio positions list adapter.
      */
@@ -36,20 +42,21 @@ public class DeletePositionsListItemTask extends RefreshPortfolioItemWidgetsTask
      * list adapter, parent group and stock symbol.
      * @param progressHandler Async task progress handler.
      * @param context Activity context.
-     * @param dataStore Persistent portfolio data store.
+     * @param repository Shared portfolio repository.
      * @param listAdapter Portfolio positions list adapter.
      * @param positionsListItem Portfolio positions list item to delete.
      */
     public DeletePositionsListItemTask(
         @NonNull ProgressHandler progressHandler,
         @NonNull Context context,
-        @NonNull PortfolioDatabase dataStore,
+        @NonNull PortfolioRepository repository,
         @NonNull PositionsListAdapter listAdapter,
         @NonNull PositionsListItemViewModel positionsListItem) {
 
         super(progressHandler, context);
 
-        mDataStore = dataStore;
+        mRepository = repository;
+        mDataStore = repository.getDataStore();
         mListAdapter = listAdapter;
         mPositionsListItem = positionsListItem;
     }
@@ -83,7 +90,7 @@ public class DeletePositionsListItemTask extends RefreshPortfolioItemWidgetsTask
         }
 
         // TODO: Optimize deletion of an empty group? No need to reload everything.
-        mListAdapter.setData(mDataStore.loadPortfolio());
+        mListAdapter.setData(mRepository.reloadPortfolio());
         return mListAdapter;
     }
 
@@ -0,0 +1,106 @@
+package ru.nahk.folio.tasks;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioExporter;
+import ru.nahk.folio.model.PortfolioRecord;
+import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ProgressHandler;
+
+/**
+ * Async task to export portfolio groups, positions and lots to CSV or JSON document.
+ */
+public class ExportPortfolioTask extends UiAsyncTask<Integer> {
+    /**
+     * Content resolver to open the document with.
+     */
+    private final ContentResolver mContentResolver;
+
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Document to export to.
+     */
+    private final Uri mDocumentUri;
+
+    /**
+     * Format of the document: {@link PortfolioRecord#FORMAT_CSV} or {@link PortfolioRecord#FORMAT_JSON}.
+     */
+    private final int mFormat;
+
+    /**
+     * Callback to receive the number of exported lots.
+     */
+    private final Callback<Integer> mCompletionCallback;
+
+    /**
+     * Creates new instance of the {@link ExportPortfolioTask} class
+     * with the provided progress handler, activity context, data store,
+     * document, format and completion callback.
+     * @param progressHandler Async task progress handler.
+     * @param context Activity context.
+     * @param dataStore Persistent portfolio data store.
+     * @param documentUri Document to export to.
+     * @param format Format of the document.
+     * @param completionCallback Callback to receive the number of exported lots.
+     */
+    public ExportPortfolioTask(
+        @NonNull ProgressHandler progressHandler,
+        @NonNull Context context,
+        @NonNull PortfolioDatabase dataStore,
+        @NonNull Uri documentUri,
+        int format,
+        @NonNull Callback<Integer> completionCallback) {
+
+        super(progressHandler);
+
+        mContentResolver = context.getApplicationContext().getContentResolver();
+        mDataStore = dataStore;
+        mDocumentUri = documentUri;
+        mFormat = format;
+        mCompletionCallback = completionCallback;
+    }
+
+    /**
+     * Writes all positions and lots to the document.
+     * @return Number of exported lots.
+     * @throws Exception Thrown if anything goes wrong.
+     */
+    @Override
+    protected Integer doAsync() throws Exception {
+        OutputStream stream = mContentResolver.openOutputStream(mDocumentUri);
+        if (stream == null) {
+            throw new FileNotFoundException(mDocumentUri.toString());
+        }
+
+        try (PortfolioRecord.Writer writer =
+                PortfolioRecord.openWriter(
+                    new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)),
+                    mFormat)) {
+            return new PortfolioExporter(mDataStore).exportRecords(writer);
+        }
+    }
+
+    /**
+     * Reports the number of exported lots.
+     * @param lotCount Number of exported lots.
+     */
+    @Override
+    protected void doAfter(Integer lotCount) {
+        super.doAfter(lotCount);
+        mCompletionCallback.run(lotCount);
+    }
+}
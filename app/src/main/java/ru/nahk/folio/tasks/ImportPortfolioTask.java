@@ -0,0 +1,146 @@
+package ru.nahk.folio.tasks;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import ru.nahk.folio.activities.PositionsListAdapter;
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioImporter;
+import ru.nahk.folio.model.PortfolioRecord;
+import ru.nahk.folio.model.PortfolioRepository;
+import ru.nahk.folio.stockapi.StockApiException;
+import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ProgressHandler;
+
+/**
+ * Async task to import portfolio groups, positions and lots from CSV or JSON document.
+ */
+public class ImportPortfolioTask extends RefreshPortfolioItemWidgetsTask<Integer> {
+    /**
+     * Content resolver to open the document with.
+     */
+    private final ContentResolver mContentResolver;
+
+    /**
+     * Portfolio repository.
+     */
+    private final PortfolioRepository mRepository;
+
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Portfolio positions list adapter.
+     */
+    private final PositionsListAdapter mListAdapter;
+
+    /**
+     * Document to import.
+     */
+    private final Uri mDocumentUri;
+
+    /**
+     * Callback to receive the number of imported lots.
+     */
+    private final Callback<Integer> mCompletionCallback;
+
+    /**
+     * Indicates whether document was imported only partially.
+     */
+    private boolean mIsPartialImport;
+
+    /**
+     * Creates new instance of the {@link ImportPortfolioTask} class
+     * with the provided progress handler, activity context, portfolio repository,
+     * list adapter, document and completion callback.
+     * @param progressHandler Async task progress handler.
+     * @param context Activity context.
+     * @param repository Portfolio repository.
+     * @param listAdapter Portfolio positions list adapter.
+     * @param documentUri Document to import.
+     * @param completionCallback Callback to receive the number of imported lots.
+     */
+    public ImportPortfolioTask(
+        @NonNull ProgressHandler progressHandler,
+        @NonNull Context context,
+        @NonNull PortfolioRepository repository,
+        @NonNull PositionsListAdapter listAdapter,
+        @NonNull Uri documentUri,
+        @NonNull Callback<Integer> completionCallback) {
+
+        super(progressHandler, context);
+
+        mContentResolver = context.getApplicationContext().getContentResolver();
+        mRepository = repository;
+        mDataStore = repository.getDataStore();
+        mListAdapter = listAdapter;
+        mDocumentUri = documentUri;
+        mCompletionCallback = completionCallback;
+    }
+
+    /**
+     * Imports the document, loads prices for the new symbols and reloads the portfolio once.
+     * @return Number of imported lots.
+     * @throws Exception Thrown if document cannot be opened.
+     */
+    @Override
+    protected Integer doAsync() throws Exception {
+        InputStream stream = mContentResolver.openInputStream(mDocumentUri);
+        if (stream == null) {
+            throw new FileNotFoundException(mDocumentUri.toString());
+        }
+
+        PortfolioImporter importer = new PortfolioImporter(mDataStore);
+
+        try (PortfolioRecord.Reader reader =
+                PortfolioRecord.openReader(
+                    new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))) {
+            importer.importRecords(reader);
+        }
+        catch (IOException importError) {
+            // Chunks imported before the error are kept, so the portfolio is still reloaded
+            mIsPartialImport = true;
+            reportError(importError);
+        }
+
+        if (!importer.getNewSymbols().isEmpty()) {
+            try {
+                SymbolsRefresh.run(mDataStore, importer.getNewSymbols());
+            }
+            catch (StockApiException stockApiException) {
+                // Prices refresh is best effort only, symbols are refreshed with the portfolio
+            }
+        }
+
+        mListAdapter.setData(mRepository.reloadPortfolio());
+
+        return importer.getLotCount();
+    }
+
+    /**
+     * Notifies adapter about the changes and reports the number of imported lots,
+     * unless import error was reported.
+     * @param lotCount Number of imported lots.
+     */
+    @Override
+    protected void doAfter(Integer lotCount) {
+        super.doAfter(lotCount);
+
+        mListAdapter.notifyDataSetChanged();
+
+        if (!mIsPartialImport) {
+            mCompletionCallback.run(lotCount);
+        }
+    }
+}
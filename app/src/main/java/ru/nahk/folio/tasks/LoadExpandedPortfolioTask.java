@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 
 import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioTree;
 import ru.nahk.folio.utils.Callback;
 import ru.nahk.folio.utils.ProgressHandler;
 
@@ -68,7 +69,7 @@ public class LoadExpandedPortfolioTask extends UiAsyncTask<PositionsListAdapter>
         adapter.setOnGroupClickListener(mGroupItemClickListener);
         adapter.setOnPositionClickListener(mPositionItemClickListener);
 
-        adapter.setData(mDataStore.loadPortfolio(true));
+        adapter.setData(new PortfolioTree(mDataStore.loadPortfolio(true)));
 
         return adapter;
     }
@@ -4,7 +4,7 @@ import android.support.annotation.NonNull;
 
 import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.utils.ProgressHandler;
-import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 import ru.nahk.folio.utils.Callback;
 
 /**
@@ -12,9 +12,9 @@ import ru.nahk.folio.utils.Callback;
  */
 public class LoadPortfolioTask extends UiAsyncTask<PositionsListAdapter> {
     /**
-     * Persisted portfolio data storage.
+     * Shared portfolio repository.
      */
-    private final PortfolioDatabase mDataStore;
+    private final PortfolioRepository mRepository;
 
     /**
      * Listener for positions list item long click events.
@@ -42,7 +42,7 @@ public class LoadPortfolioTask extends UiAsyncTask<PositionsListAdapter> {
      * list item long click listener, group item click listener,
      * position item click listener and task completion callback.
      * @param progressHandler Async task progress handler.
-     * @param dataStore Persistent portfolio data store.
+     * @param repository Shared portfolio repository.
      * @param itemLongClickListener Listener for list item long click events.
      * @param groupItemClickListener Listener for group items click events.
      * @param positionItemClickListener Listener for position items click events.
@@ -50,7 +50,7 @@ public class LoadPortfolioTask extends UiAsyncTask<PositionsListAdapter> {
      */
     public LoadPortfolioTask(
         @NonNull ProgressHandler progressHandler,
-        @NonNull PortfolioDatabase dataStore,
+        @NonNull PortfolioRepository repository,
         @NonNull PositionsListAdapter.OnItemLongClickListener itemLongClickListener,
         @NonNull PositionsListAdapter.OnGroupItemClickListener groupItemClickListener,
         @NonNull PositionsListAdapter.OnPositionItemClickListener positionItemClickListener,
@@ -58,7 +58,7 @@ public class LoadPortfolioTask extends UiAsyncTask<PositionsListAdapter> {
 
         super(progressHandler);
 
-        mDataStore = dataStore;
+        mRepository = repository;
         mItemLongClickListener = itemLongClickListener;
         mGroupItemClickListener = groupItemClickListener;
         mPositionItemClickListener = positionItemClickListener;
@@ -77,7 +77,7 @@ public class LoadPortfolioTask extends UiAsyncTask<PositionsListAdapter> {
         adapter.setOnGroupClickListener(mGroupItemClickListener);
         adapter.setOnPositionClickListener(mPositionItemClickListener);
 
-        adapter.setData(mDataStore.loadPortfolio());
+        adapter.setData(mRepository.getPortfolio());
 
         return adapter;
     }
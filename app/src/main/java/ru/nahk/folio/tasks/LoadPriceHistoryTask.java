@@ -0,0 +1,180 @@
+package ru.nahk.folio.tasks;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.nahk.folio.model.CandleDao;
+import ru.nahk.folio.model.CandleEntity;
+import ru.nahk.folio.model.CandleRangeEntity;
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.stockapi.StockApi;
+import ru.nahk.folio.stockapi.StockApiException;
+import ru.nahk.folio.stockapi.StockApiFactory;
+import ru.nahk.folio.utils.Callback;
+import ru.nahk.folio.utils.ProgressHandler;
+
+/**
+ * Async task to load historical price candles of the symbol.
+ * Only candles outside of the range that was already requested are fetched from {@link StockApi}.
+ */
+public class LoadPriceHistoryTask extends UiAsyncTask<List<CandleEntity>> {
+    /**
+     * Stock symbol to load history for.
+     */
+    private final String mSymbol;
+
+    /**
+     * Start of the time range as epoch time in milliseconds.
+     */
+    private final long mStartTime;
+
+    /**
+     * End of the time range as epoch time in milliseconds.
+     */
+    private final long mEndTime;
+
+    /**
+     * Candle interval in seconds.
+     */
+    private final int mInterval;
+
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Callback to receive loaded candles.
+     */
+    private final Callback<List<CandleEntity>> mCallback;
+
+    /**
+     * Creates new instance of the {@link LoadPriceHistoryTask} class
+     * with the provided progress handler, stock symbol, time range, interval,
+     * data store and callback.
+     * @param progressHandler Async task progress handler.
+     * @param symbol Stock symbol to load history for.
+     * @param startTime Start of the time range as epoch time in milliseconds.
+     * @param endTime End of the time range as epoch time in milliseconds.
+     * @param interval Candle interval in seconds, one of the {@link CandleEntity} intervals.
+     * @param dataStore Persistent portfolio data store.
+     * @param callback Callback to receive loaded candles.
+     */
+    public LoadPriceHistoryTask(
+        @NonNull ProgressHandler progressHandler,
+        @NonNull String symbol,
+        long startTime,
+        long endTime,
+        int interval,
+        @NonNull PortfolioDatabase dataStore,
+        @NonNull Callback<List<CandleEntity>> callback) {
+
+        super(progressHandler);
+
+        mSymbol = symbol;
+        mStartTime = startTime;
+        mEndTime = endTime;
+        mInterval = interval;
+        mDataStore = dataStore;
+        mCallback = callback;
+    }
+
+    /**
+     * Fetches candles outside of the already requested range, saves them together with
+     * the extended range and reads the requested time range.
+     * @return Candles in chronological order.
+     * @throws Exception Thrown if anything goes wrong.
+     */
+    @Override
+    protected List<CandleEntity> doAsync() throws Exception {
+        final CandleDao candleDao = mDataStore.candleDao();
+        StockApi stockApi = StockApiFactory.getApi();
+
+        CandleRangeEntity range = candleDao.getRange(mSymbol, mInterval);
+        final List<CandleEntity> newCandles = new ArrayList<>();
+        final CandleRangeEntity newRange = range != null
+            ? new CandleRangeEntity(mSymbol, mInterval, range.startTime, range.endTime)
+            : new CandleRangeEntity(mSymbol, mInterval, mStartTime, mStartTime);
+
+        try {
+            if (range == null) {
+                newCandles.addAll(stockApi.fetchHistory(mSymbol, mStartTime, mEndTime, mInterval));
+                newRange.endTime = mEndTime;
+            } else {
+                if (mStartTime < range.startTime) {
+                    // Requested range starts before the already requested one
+                    newCandles.addAll(stockApi.fetchHistory(mSymbol, mStartTime, range.startTime, mInterval));
+                    newRange.startTime = mStartTime;
+                }
+
+                if (mEndTime > range.endTime) {
+                    // Candle that contains the end of the requested range could still be forming,
+                    // so it is fetched again
+                    long fetchStartTime = range.endTime - mInterval * 1000L;
+                    Long lastCandleTime = candleDao.getLastCandleTime(mSymbol, mInterval);
+                    if (lastCandleTime != null && lastCandleTime > fetchStartTime) {
+                        fetchStartTime = lastCandleTime;
+                    }
+
+                    newCandles.addAll(stockApi.fetchHistory(mSymbol, fetchStartTime, mEndTime, mInterval));
+                    newRange.endTime = mEndTime;
+                }
+            }
+        }
+        catch (StockApiException apiError) {
+            // Show what is stored and report the error
+            reportError(apiError);
+        }
+
+        if (mDataStore.symbolDao().get(mSymbol) == null) {
+            // Candles are only stored for symbols in the portfolio
+            return selectRange(newCandles);
+        }
+
+        boolean rangeExtended = range == null
+            ? newRange.startTime < newRange.endTime
+            : newRange.startTime < range.startTime || newRange.endTime > range.endTime;
+
+        if (rangeExtended) {
+            // Candles are only fetched together with extending the range
+            mDataStore.runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    candleDao.insert(newCandles);
+                    candleDao.insertRange(newRange);
+                }
+            });
+        }
+
+        return candleDao.get(mSymbol, mInterval, mStartTime, mEndTime);
+    }
+
+    /**
+     * Passes loaded candles to the callback.
+     * @param candles Loaded candles.
+     */
+    @Override
+    protected void doAfter(List<CandleEntity> candles) {
+        super.doAfter(candles);
+        mCallback.run(candles);
+    }
+
+    /**
+     * Selects candles within the requested time range.
+     * @param candles Candles to filter.
+     * @return Candles within the requested time range.
+     */
+    private List<CandleEntity> selectRange(List<CandleEntity> candles) {
+        List<CandleEntity> result = new ArrayList<>(candles.size());
+
+        for (CandleEntity candle : candles) {
+            if (candle.time >= mStartTime && candle.time <= mEndTime) {
+                result.add(candle);
+            }
+        }
+
+        return result;
+    }
+}
@@ -6,6 +6,7 @@ import android.support.annotation.NonNull;
 import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.model.GroupViewModel;
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 import ru.nahk.folio.model.PositionViewModel;
 import ru.nahk.folio.model.PositionsListItemViewModel;
 import ru.nahk.folio.utils.ProgressHandler;
@@ -19,6 +20,11 @@ public class MovePositionsListItemTask extends RefreshPortfolioItemWidgetsTask<L
      */
     private final PortfolioDatabase mDataStore;
 
+    /**
+     * Shared portfolio repository.
+     */
+    private final PortfolioRepository mRepository;
+
     /**
      * Portfolio positions list adapter.
      */
@@ -40,7 +46,7 @@ public class MovePositionsListItemTask extends RefreshPortfolioItemWidgetsTask<L
      * list adapter, list item and target group.
      * @param progressHandler Async task progress handler.
      * @param context Activity context.
-     * @param dataStore Persistent portfolio data store.
+     * @param repository Shared portfolio repository.
      * @param listAdapter Portfolio positions list adapter.
      * @param positionsListItem Positions list item to move.
      * @param targetGroup Target positions group.
@@ -48,14 +54,15 @@ public class MovePositionsListItemTask extends RefreshPortfolioItemWidgetsTask<L
     public MovePositionsListItemTask(
         @NonNull ProgressHandler progressHandler,
         @NonNull Context context,
-        @NonNull PortfolioDatabase dataStore,
+        @NonNull PortfolioRepository repository,
         @NonNull PositionsListAdapter listAdapter,
         @NonNull PositionsListItemViewModel positionsListItem,
         @NonNull GroupViewModel targetGroup) {
 
         super(progressHandler, context);
 
-        mDataStore = dataStore;
+        mRepository = repository;
+        mDataStore = repository.getDataStore();
         mListAdapter = listAdapter;
         mTargetGroup = targetGroup;
         mPositionsListItem = positionsListItem;
@@ -90,7 +97,7 @@ public class MovePositionsListItemTask extends RefreshPortfolioItemWidgetsTask<L
         }
 
         // TODO: Optimize move of an empty group? No need to reload everything.
-        mListAdapter.setData(mDataStore.loadPortfolio());
+        mListAdapter.setData(mRepository.reloadPortfolio());
 
         return mPositionsListItem.id;
     }
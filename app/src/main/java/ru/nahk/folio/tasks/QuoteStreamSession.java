@@ -0,0 +1,252 @@
+package ru.nahk.folio.tasks;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.nahk.folio.broadcasts.SymbolsDataChangedBroadcast;
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.stockapi.QuoteTick;
+import ru.nahk.folio.stockapi.StockApiException;
+import ru.nahk.folio.stockapi.StreamingStockApi;
+import ru.nahk.folio.stockapi.SymbolChanges;
+
+/**
+ * Streams quotes for the foreground activity.
+ * Received ticks are accumulated and saved in batches no more often than once per
+ * throttling interval, followed by {@link SymbolsDataChangedBroadcast}.
+ */
+public class QuoteStreamSession implements StreamingStockApi.Listener {
+    /**
+     * Minimum interval between saved batches of ticks in milliseconds.
+     */
+    private static final long THROTTLE_INTERVAL = 1000;
+
+    /**
+     * Application context.
+     */
+    private final Context mContext;
+
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Streaming stock API.
+     */
+    private final StreamingStockApi mApi;
+
+    /**
+     * Stock symbol to stream or null to stream all portfolio symbols.
+     */
+    private final String mSymbol;
+
+    /**
+     * Main thread handler to schedule batches.
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Ticks received since the last batch indexed by the stock symbol.
+     */
+    private Map<String, List<QuoteTick>> mPendingTicks = new HashMap<>();
+
+    /**
+     * Indicates whether next batch is already scheduled.
+     */
+    private boolean mIsBatchScheduled;
+
+    /**
+     * Active quotes subscription.
+     */
+    private StreamingStockApi.Subscription mSubscription;
+
+    /**
+     * Indicates whether session was stopped.
+     */
+    private boolean mIsStopped;
+
+    /**
+     * Creates new instance of the {@link QuoteStreamSession} class.
+     * @param context Activity or application context.
+     * @param dataStore Persistent portfolio data store.
+     * @param api Streaming stock API.
+     * @param symbol Stock symbol to stream or null to stream all portfolio symbols.
+     */
+    public QuoteStreamSession(
+        @NonNull Context context,
+        @NonNull PortfolioDatabase dataStore,
+        @NonNull StreamingStockApi api,
+        String symbol) {
+
+        mContext = context.getApplicationContext();
+        mDataStore = dataStore;
+        mApi = api;
+        mSymbol = symbol;
+    }
+
+    /**
+     * Resolves symbols to stream and subscribes to quote updates in background.
+     */
+    public void start() {
+        AsyncTask.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<String> symbols = new ArrayList<>();
+
+                if (mSymbol != null) {
+                    symbols.add(mSymbol);
+                } else {
+                    for (SymbolEntity symbol : mDataStore.symbolDao().get()) {
+                        symbols.add(symbol.id);
+                    }
+                }
+
+                if (symbols.isEmpty()) {
+                    return;
+                }
+
+                StreamingStockApi.Subscription subscription = mApi.subscribe(symbols, QuoteStreamSession.this);
+
+                synchronized (QuoteStreamSession.this) {
+                    if (!mIsStopped) {
+                        mSubscription = subscription;
+                        return;
+                    }
+                }
+
+                // Session was stopped while subscribing
+                subscription.close();
+            }
+        });
+    }
+
+    /**
+     * Closes the subscription. Ticks that were not saved yet are discarded.
+     */
+    public void stop() {
+        StreamingStockApi.Subscription subscription;
+
+        synchronized (this) {
+            mIsStopped = true;
+            subscription = mSubscription;
+            mSubscription = null;
+            mPendingTicks.clear();
+        }
+
+        if (subscription != null) {
+            subscription.close();
+        }
+
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Accumulates the tick and schedules the next batch.
+     * @param tick Quote update.
+     */
+    @Override
+    public synchronized void onTick(QuoteTick tick) {
+        if (mIsStopped) {
+            return;
+        }
+
+        List<QuoteTick> symbolTicks = mPendingTicks.get(tick.symbol);
+        if (symbolTicks == null) {
+            symbolTicks = new ArrayList<>();
+            mPendingTicks.put(tick.symbol, symbolTicks);
+        }
+
+        symbolTicks.add(tick);
+
+        if (!mIsBatchScheduled) {
+            mIsBatchScheduled = true;
+            mHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    AsyncTask.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            saveBatch();
+                        }
+                    });
+                }
+            }, THROTTLE_INTERVAL);
+        }
+    }
+
+    /**
+     * Ignores stream errors, since stream reconnects automatically
+     * and pulled quotes are still available.
+     * @param error Connection error.
+     */
+    @Override
+    public void onError(StockApiException error) {
+    }
+
+    /**
+     * Applies accumulated ticks to the symbols and saves the ones that have changed.
+     */
+    private void saveBatch() {
+        Map<String, List<QuoteTick>> ticks;
+
+        synchronized (this) {
+            ticks = mPendingTicks;
+            mPendingTicks = new HashMap<>();
+            mIsBatchScheduled = false;
+
+            if (mIsStopped) {
+                return;
+            }
+        }
+
+        List<SymbolEntity> changedSymbols = new ArrayList<>();
+        SymbolChanges changes = new SymbolChanges();
+        List<SymbolEntity> savedSymbols;
+
+        mDataStore.beginTransaction();
+        try {
+            for (Map.Entry<String, List<QuoteTick>> symbolTicks : ticks.entrySet()) {
+                SymbolEntity symbolEntity = mDataStore.symbolDao().get(symbolTicks.getKey());
+
+                if (symbolEntity == null) {
+                    continue;
+                }
+
+                int changedFields = 0;
+                for (QuoteTick tick : symbolTicks.getValue()) {
+                    changedFields |= tick.applyTo(symbolEntity);
+                }
+
+                if (changedFields != 0) {
+                    changedSymbols.add(symbolEntity);
+                    changes.add(symbolEntity.id, changedFields);
+                }
+            }
+
+            savedSymbols = mDataStore.updateSymbolQuotes(changedSymbols, changes);
+            mDataStore.setTransactionSuccessful();
+        }
+        finally {
+            mDataStore.endTransaction();
+        }
+
+        if (!savedSymbols.isEmpty()) {
+            ArrayList<String> savedSymbolIds = new ArrayList<>(savedSymbols.size());
+            for (SymbolEntity symbol : savedSymbols) {
+                savedSymbolIds.add(symbol.id);
+            }
+
+            SymbolsDataChangedBroadcast.send(mContext, savedSymbolIds);
+        }
+    }
+}
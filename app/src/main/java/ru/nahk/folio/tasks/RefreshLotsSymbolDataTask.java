@@ -9,7 +9,6 @@ import java.util.List;
 import ru.nahk.folio.activities.LotsListAdapter;
 import ru.nahk.folio.model.PortfolioDatabase;
 import ru.nahk.folio.model.SymbolEntity;
-import ru.nahk.folio.stockapi.StockApiFactory;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -66,7 +65,7 @@ public class RefreshLotsSymbolDataTask extends RefreshPortfolioItemWidgetsTask<L
     /**
      * Updates stock symbol detailed information, saves it to the persistent store and
      * updates list adapter.
-     * @return Updated lots list adapter.
+     * @return Updated lots list adapter or NULL, if nothing has changed.
      * @throws Exception Thrown if anything goes wrong.
      */
     @Override
@@ -81,9 +80,9 @@ public class RefreshLotsSymbolDataTask extends RefreshPortfolioItemWidgetsTask<L
         List<SymbolEntity> symbols = new ArrayList<>(1);
         symbols.add(symbolEntity);
 
-        StockApiFactory.getApi().updateSymbols(symbols);
-
-        mDataStore.symbolDao().update(symbols);
+        if (SymbolsRefresh.run(mDataStore, symbols).isEmpty()) {
+            return null;
+        }
 
         mListAdapter.setData(
             mDataStore.lotDao().getLotsForPosition(mPositionId));
@@ -6,6 +6,7 @@ import android.support.annotation.NonNull;
 
 import java.lang.ref.WeakReference;
 
+import ru.nahk.folio.model.PortfolioRepository;
 import ru.nahk.folio.utils.ProgressHandler;
 import ru.nahk.folio.widgets.PortfolioItemWidgetManager;
 
@@ -34,6 +35,18 @@ public abstract class RefreshPortfolioItemWidgetsTask<Result> extends UiAsyncTas
         mContext = new WeakReference<>(context);
     }
 
+    /**
+     * Marks portfolio snapshot as outdated after the task has changed groups, positions or lots,
+     * so that widgets are refreshed from the reloaded portfolio.
+     * Room delivers table invalidations asynchronously, so they may arrive after the refresh.
+     */
+    final void invalidatePortfolio() {
+        Context context = mContext.get();
+        if (context != null) {
+            PortfolioRepository.getInstance(context.getApplicationContext()).invalidate();
+        }
+    }
+
     /**
      * Kicks off background task to update all portfolio item widgets.
      * @param result Async work result.
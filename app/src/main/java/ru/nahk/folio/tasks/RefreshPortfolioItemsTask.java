@@ -0,0 +1,119 @@
+package ru.nahk.folio.tasks;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ru.nahk.folio.activities.PositionsListAdapter;
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioTree;
+import ru.nahk.folio.model.PositionViewModel;
+import ru.nahk.folio.model.PositionsListItemViewModel;
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.utils.ProgressHandler;
+
+/**
+ * Async task to refresh values of the portfolio items affected by symbols or lots changes
+ * without reloading the whole portfolio.
+ */
+public class RefreshPortfolioItemsTask extends UiAsyncTask<PositionsListAdapter> {
+    /**
+     * Persistent portfolio data store.
+     */
+    private final PortfolioDatabase mDataStore;
+
+    /**
+     * Portfolio positions list adapter.
+     */
+    private final PositionsListAdapter mListAdapter;
+
+    /**
+     * Stock symbols which data has changed.
+     */
+    private final List<String> mSymbols;
+
+    /**
+     * Identifier of the position which lots have changed or NULL, if lots did not change.
+     */
+    private final Long mPositionId;
+
+    /**
+     * Stored data of the changed symbols.
+     */
+    private final List<SymbolEntity> mUpdatedSymbols = new ArrayList<>();
+
+    /**
+     * Stored data of the changed position or NULL, if it was not loaded.
+     */
+    private PositionViewModel mUpdatedPosition;
+
+    /**
+     * Creates new instance of the {@link RefreshPortfolioItemsTask} class
+     * with the progress handler, data store, list adapter and changed items.
+     * @param progressHandler Async task progress handler.
+     * @param dataStore Persistent portfolio data store.
+     * @param listAdapter Portfolio positions list adapter.
+     * @param symbols Stock symbols which data has changed.
+     * @param positionId Identifier of the position which lots have changed
+     * or NULL, if lots did not change.
+     */
+    public RefreshPortfolioItemsTask(
+        @NonNull ProgressHandler progressHandler,
+        @NonNull PortfolioDatabase dataStore,
+        @NonNull PositionsListAdapter listAdapter,
+        @NonNull List<String> symbols,
+        Long positionId) {
+
+        super(progressHandler);
+
+        mDataStore = dataStore;
+        mListAdapter = listAdapter;
+        mSymbols = symbols;
+        mPositionId = positionId;
+    }
+
+    /**
+     * Loads stored data of the changed symbols and position.
+     * @return Portfolio positions list adapter.
+     */
+    @Override
+    protected PositionsListAdapter doAsync() {
+        for (String symbolId : mSymbols) {
+            SymbolEntity symbol = mDataStore.symbolDao().get(symbolId);
+
+            if (symbol != null) {
+                mUpdatedSymbols.add(symbol);
+            }
+        }
+
+        if (mPositionId != null) {
+            mUpdatedPosition = mDataStore.positionDao().load(mPositionId);
+        }
+
+        return mListAdapter;
+    }
+
+    /**
+     * Applies loaded data to the displayed portfolio tree and notifies adapter about the changed items.
+     * Tree is changed on the UI thread only, since it is read by the list while binding items.
+     * @param adapter Portfolio positions list adapter.
+     */
+    @Override
+    protected void doAfter(PositionsListAdapter adapter) {
+        PortfolioTree tree = adapter.getTree();
+        Set<PositionsListItemViewModel> changedItems = new HashSet<>();
+
+        for (SymbolEntity symbol : mUpdatedSymbols) {
+            tree.updateSymbol(symbol, changedItems);
+        }
+
+        if (mUpdatedPosition != null) {
+            tree.updatePosition(mUpdatedPosition, changedItems);
+        }
+
+        adapter.notifyItemsChanged(changedItems);
+    }
+}
@@ -3,13 +3,16 @@ package ru.nahk.folio.tasks;
 import android.content.Context;
 import android.support.annotation.NonNull;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.utils.ProgressHandler;
 import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioTree;
+import ru.nahk.folio.model.PositionsListItemViewModel;
 import ru.nahk.folio.model.SymbolEntity;
-import ru.nahk.folio.stockapi.StockApiFactory;
 
 /**
  * Async task to refresh symbols data for all positions in the portfolio.
@@ -25,6 +28,16 @@ public class RefreshPortfolioSymbolsDataTask extends RefreshPortfolioItemWidgets
      */
     private final PositionsListAdapter mListAdapter;
 
+    /**
+     * Portfolio items which values have changed.
+     */
+    private final Set<PositionsListItemViewModel> mChangedItems = new HashSet<>();
+
+    /**
+     * Symbols which data was saved by the refresh.
+     */
+    private List<SymbolEntity> mUpdatedSymbols;
+
     /**
      * Creates new instance of the {@link RefreshPortfolioSymbolsDataTask} class
      * with the provided progress handler, activity context, data store and list adapter.
@@ -46,20 +59,24 @@ public class RefreshPortfolioSymbolsDataTask extends RefreshPortfolioItemWidgets
     }
 
     /**
-     * Updates all stock symbols detailed information, saves it to the persistent store and
-     * updates list adapter.
-     * @return Updated portfolio positions list adapter.
+     * Updates all stock symbols detailed information, saves changes to the persistent store and
+     * applies them to the displayed portfolio.
+     * @return Updated portfolio positions list adapter or NULL, if nothing has changed.
      * @throws Exception Thrown if anything goes wrong.
      */
     @Override
     protected PositionsListAdapter doAsync() throws Exception {
-        List<SymbolEntity> symbols = mDataStore.symbolDao().get();
+        SymbolsRefresh refresh = SymbolsRefresh.run(mDataStore, mDataStore.symbolDao().get());
 
-        StockApiFactory.getApi().updateSymbols(symbols);
+        if (refresh.getPartialResultError() != null) {
+            reportError(refresh.getPartialResultError());
+        }
 
-        mDataStore.symbolDao().update(symbols);
+        if (refresh.isEmpty()) {
+            return null;
+        }
 
-        mListAdapter.setData(mDataStore.loadPortfolio());
+        mUpdatedSymbols = refresh.getUpdatedSymbols();
         return mListAdapter;
     }
 
@@ -70,6 +87,16 @@ public class RefreshPortfolioSymbolsDataTask extends RefreshPortfolioItemWidgets
     @Override
     protected void doAfter(PositionsListAdapter adapter) {
         super.doAfter(adapter);
-        adapter.notifyDataSetChanged();
+
+        if (adapter != null) {
+            // Apply new prices to the displayed portfolio instead of reloading it,
+            // tree is changed on the UI thread only, since it is read by the list while binding items
+            PortfolioTree tree = adapter.getTree();
+            for (SymbolEntity symbol : mUpdatedSymbols) {
+                tree.updateSymbol(symbol, mChangedItems);
+            }
+
+            adapter.notifyItemsChanged(mChangedItems);
+        }
     }
 }
@@ -4,16 +4,16 @@ import android.support.annotation.NonNull;
 
 import ru.nahk.folio.activities.PositionsListAdapter;
 import ru.nahk.folio.utils.ProgressHandler;
-import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.PortfolioRepository;
 
 /**
  * Async task to refresh portfolio positions list.
  */
 public class RefreshPositionsListTask extends UiAsyncTask<PositionsListAdapter> {
     /**
-     * Persistent portfolio data store.
+     * Shared portfolio repository.
      */
-    private PortfolioDatabase mDataStore;
+    private PortfolioRepository mRepository;
 
     /**
      * Portfolio positions list adapter.
@@ -24,27 +24,29 @@ public class RefreshPositionsListTask extends UiAsyncTask<PositionsListAdapter>
      * Creates new instance of the {@link RefreshPositionsListTask} class
      * with the progress handler, data store and list adapter.
      * @param progressHandler Async task progress handler.
-     * @param dataStore Persistent portfolio data store.
+     * @param repository Shared portfolio repository.
      * @param listAdapter Portfolio positions list adapter.
      */
     public RefreshPositionsListTask(
         @NonNull ProgressHandler progressHandler,
-        @NonNull PortfolioDatabase dataStore,
+        @NonNull PortfolioRepository repository,
         @NonNull PositionsListAdapter listAdapter) {
 
         super(progressHandler);
 
-        mDataStore = dataStore;
+        mRepository = repository;
         mListAdapter = listAdapter;
     }
 
     /**
-     * Reloads portfolio positions information and updates the list adapter.
+     * Retrieves current portfolio positions information and updates the list adapter.
+     * Portfolio is only reloaded from the database if its structure has changed,
+     * since committed symbol quotes are already applied to the repository snapshot.
      * @return Updated list adapter.
      */
     @Override
     protected PositionsListAdapter doAsync() {
-        mListAdapter.setData(mDataStore.loadPortfolio());
+        mListAdapter.setData(mRepository.getPortfolio());
         return mListAdapter;
     }
 
@@ -7,9 +7,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ru.nahk.folio.activities.SymbolDetailsPresenter;
-import ru.nahk.folio.model.SymbolDao;
+import ru.nahk.folio.model.PortfolioDatabase;
 import ru.nahk.folio.model.SymbolEntity;
-import ru.nahk.folio.stockapi.StockApiFactory;
 import ru.nahk.folio.utils.ProgressHandler;
 
 /**
@@ -22,9 +21,9 @@ public class RefreshSymbolDataTask extends RefreshPortfolioItemWidgetsTask<Symbo
     private String mSymbol;
 
     /**
-     * Persistent data store for stock symbols data.
+     * Persistent portfolio data store.
      */
-    private SymbolDao mSymbolDao;
+    private PortfolioDatabase mDataStore;
 
     /**
      * Presenter for symbol details information.
@@ -33,25 +32,25 @@ public class RefreshSymbolDataTask extends RefreshPortfolioItemWidgetsTask<Symbo
 
     /**
      * Creates new instance of the {@link RefreshSymbolDataTask} class
-     * with the provided progress provider, stock symbol, symbol data access and
+     * with the provided progress provider, stock symbol, data store and
      * symbol details presenter.
      * @param progressHandler Async task progress handler.
      * @param context Activity context.
      * @param symbol Stock symbol to load detail for.
-     * @param symbolDao Persistent data store for symbols data.
+     * @param dataStore Persistent portfolio data store.
      * @param symbolDetailsPresenter Presenter for symbol details information.
      */
     public RefreshSymbolDataTask(
         @NonNull ProgressHandler progressHandler,
         @NonNull Context context,
         @NonNull String symbol,
-        @NonNull SymbolDao symbolDao,
+        @NonNull PortfolioDatabase dataStore,
         @NonNull SymbolDetailsPresenter symbolDetailsPresenter) {
 
         super(progressHandler, context);
 
         mSymbol = symbol;
-        mSymbolDao = symbolDao;
+        mDataStore = dataStore;
         mSymbolDetailsPresenter = symbolDetailsPresenter;
     }
 
@@ -63,7 +62,7 @@ public class RefreshSymbolDataTask extends RefreshPortfolioItemWidgetsTask<Symbo
     @Override
     protected SymbolEntity doAsync() throws Exception {
         SymbolEntity symbolEntity =
-            mSymbolDao.get(mSymbol);
+            mDataStore.symbolDao().get(mSymbol);
 
         if (symbolEntity == null) {
             return null;
@@ -72,9 +71,10 @@ public class RefreshSymbolDataTask extends RefreshPortfolioItemWidgetsTask<Symbo
         List<SymbolEntity> symbols = new ArrayList<>(1);
         symbols.add(symbolEntity);
 
-        StockApiFactory.getApi().updateSymbols(symbols);
-
-        mSymbolDao.update(symbols);
+        if (SymbolsRefresh.run(mDataStore, symbols).isEmpty()) {
+            // Stored data may have been updated by a concurrent refresh
+            return mDataStore.symbolDao().get(mSymbol);
+        }
 
         return symbolEntity;
     }
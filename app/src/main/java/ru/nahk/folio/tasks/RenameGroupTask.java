@@ -66,6 +66,7 @@ public class RenameGroupTask extends RefreshPortfolioItemWidgetsTask<Integer> {
     @Override
     protected Integer doAsync() {
         mGroupDao.rename(mGroup.id, mNewName);
+        invalidatePortfolio();
         mGroup.name = mNewName;
         return mListAdapter.getItemIndex(mGroup);
     }
@@ -67,6 +67,8 @@ public class SaveLotTask extends RefreshPortfolioItemWidgetsTask<Long> {
             modifiedLotId = mLot.id;
         }
 
+        invalidatePortfolio();
+
         mListAdapter.setData(
             mLotDao.getLotsForPosition(mLot.positionId));
 
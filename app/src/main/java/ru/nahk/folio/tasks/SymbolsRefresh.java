@@ -0,0 +1,135 @@
+package ru.nahk.folio.tasks;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.nahk.folio.model.PortfolioDatabase;
+import ru.nahk.folio.model.SymbolEntity;
+import ru.nahk.folio.stockapi.StockApi;
+import ru.nahk.folio.stockapi.StockApiException;
+import ru.nahk.folio.stockapi.StockApiFactory;
+import ru.nahk.folio.stockapi.StockApiPartialResultException;
+import ru.nahk.folio.stockapi.SymbolChanges;
+
+/**
+ * Refreshes market data of the symbols in two phases.
+ * New data is fetched from the stock API without holding any database lock and
+ * then saved in a short transaction, which skips symbols that got more recent
+ * data in the meantime, so network latency never blocks other database readers and writers.
+ */
+public final class SymbolsRefresh {
+    /**
+     * Symbol entities that were updated and saved.
+     */
+    private final List<SymbolEntity> mUpdatedSymbols;
+
+    /**
+     * Error for the symbols that failed to update or NULL, if all symbols were updated.
+     */
+    private final StockApiPartialResultException mPartialResultError;
+
+    /**
+     * Creates new instance of the {@link SymbolsRefresh} class.
+     * @param updatedSymbols Symbol entities that were updated and saved.
+     * @param partialResultError Error for the symbols that failed to update.
+     */
+    private SymbolsRefresh(
+        List<SymbolEntity> updatedSymbols,
+        StockApiPartialResultException partialResultError) {
+
+        mUpdatedSymbols = updatedSymbols;
+        mPartialResultError = partialResultError;
+    }
+
+    /**
+     * Refreshes market data of the symbols and saves changes to the persistent store.
+     * Must be called from a background thread outside of any database transaction.
+     * @param dataStore Persistent portfolio data store.
+     * @param symbols Symbol entities to refresh.
+     * @return Refresh results.
+     * @throws StockApiException Thrown if none of the symbols could be updated.
+     */
+    public static SymbolsRefresh run(
+        @NonNull PortfolioDatabase dataStore,
+        @NonNull List<SymbolEntity> symbols) throws StockApiException {
+
+        return run(dataStore, StockApiFactory.getApi(), symbols);
+    }
+
+    /**
+     * Refreshes market data of the symbols using the given stock API
+     * and saves changes to the persistent store.
+     * Must be called from a background thread outside of any database transaction.
+     * @param dataStore Persistent portfolio data store.
+     * @param api Stock API to fetch market data from.
+     * @param symbols Symbol entities to refresh.
+     * @return Refresh results.
+     * @throws StockApiException Thrown if none of the symbols could be updated.
+     */
+    public static SymbolsRefresh run(
+        @NonNull PortfolioDatabase dataStore,
+        @NonNull StockApi api,
+        @NonNull List<SymbolEntity> symbols) throws StockApiException {
+
+        StockApiPartialResultException partialResultError = null;
+        SymbolChanges changes;
+
+        // Fetch phase: no database lock is held during network requests
+        try {
+            changes = api.updateSymbols(symbols);
+        }
+        catch (StockApiPartialResultException partialResult) {
+            // Save symbols that were updated and report the rest
+            partialResultError = partialResult;
+            changes = partialResult.getChanges();
+        }
+
+        // Write phase: stale results are rejected by compare-and-set on the latest trade time
+        List<SymbolEntity> updatedSymbols =
+            changes.isEmpty()
+                ? new ArrayList<SymbolEntity>()
+                : dataStore.updateSymbolQuotes(changes.filter(symbols), changes);
+
+        return new SymbolsRefresh(updatedSymbols, partialResultError);
+    }
+
+    /**
+     * Checks whether any of the symbols were updated.
+     * @return True if at least one symbol was updated, otherwise false.
+     */
+    public boolean isEmpty() {
+        return mUpdatedSymbols.isEmpty();
+    }
+
+    /**
+     * Gets the symbol entities that were updated and saved.
+     * @return Updated symbol entities.
+     */
+    public List<SymbolEntity> getUpdatedSymbols() {
+        return mUpdatedSymbols;
+    }
+
+    /**
+     * Gets the identifiers of the symbols that were updated and saved.
+     * @return Updated symbol identifiers.
+     */
+    public ArrayList<String> getUpdatedSymbolIds() {
+        ArrayList<String> symbolIds = new ArrayList<>(mUpdatedSymbols.size());
+
+        for (SymbolEntity symbol : mUpdatedSymbols) {
+            symbolIds.add(symbol.id);
+        }
+
+        return symbolIds;
+    }
+
+    /**
+     * Gets the error for the symbols that failed to update.
+     * @return Partial result error or NULL, if all symbols were updated.
+     */
+    public StockApiPartialResultException getPartialResultError() {
+        return mPartialResultError;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.nahk.folio.tasks;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.AsyncTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job service that periodically downsamples intraday price ticks.
+ */
+public class TickCompactionJob extends JobService {
+    /**
+     * Identifier of the job.
+     */
+    private static final int JOB_ID = 3;
+
+    /**
+     * Interval between the job runs.
+     */
+    private static final long COMPACTION_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Instance of the currently running compaction task.
+     */
+    private TickCompactionTask mCompactionTask;
+
+    /**
+     * Schedules periodic compaction job, unless it is already scheduled.
+     * @param context Application context.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler =
+            context.getSystemService(JobScheduler.class);
+
+        for (JobInfo pendingJob : scheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == JOB_ID) {
+                // Rescheduling would postpone the next run
+                return;
+            }
+        }
+
+        scheduler.schedule(
+            new JobInfo
+                .Builder(
+                    JOB_ID,
+                    new ComponentName(context, TickCompactionJob.class))
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(COMPACTION_INTERVAL)
+                .build());
+    }
+
+    /**
+     * Starts async task to downsample ticks.
+     * @param params Job parameters.
+     * @return True if new task was started, otherwise false.
+     */
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        TickCompactionTask previousTask = mCompactionTask;
+
+        if (previousTask != null
+                && previousTask.getStatus() != AsyncTask.Status.FINISHED) {
+            // Previous task is still running, let it finish
+            return false;
+        }
+
+        mCompactionTask = new TickCompactionTask(this, params);
+        mCompactionTask.execute();
+
+        return true;
+    }
+
+    /**
+     * Forgets active async task, compaction statements are not interruptible.
+     * @param params Job parameters.
+     * @return True to run the compaction again later.
+     */
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        TickCompactionTask activeTask = mCompactionTask;
+
+        if (activeTask != null) {
+            activeTask.cancel(false);
+            mCompactionTask = null;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.nahk.folio.tasks;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+
+import ru.nahk.folio.model.PortfolioDatabase;
+
+/**
+ * Asynchronous task that downsamples intraday price ticks.
+ */
+class TickCompactionTask extends AsyncTask<Void, Void, JobService> {
+    /**
+     * Parent job service.
+     */
+    private final WeakReference<JobService> mJobService;
+
+    /**
+     * Parent job parameters.
+     */
+    private final JobParameters mJobParameters;
+
+    /**
+     * Creates new instance of the {@link TickCompactionTask} class
+     * with the provided parent job service and job parameters.
+     * @param jobService Parent job service.
+     * @param jobParameters Parameters of the job.
+     */
+    TickCompactionTask(
+        @NonNull JobService jobService,
+        @NonNull JobParameters jobParameters) {
+
+        mJobService = new WeakReference<>(jobService);
+        mJobParameters = jobParameters;
+    }
+
+    /**
+     * Downsamples ticks that are older than the current day.
+     * @param aVoid Nothing.
+     * @return Parent job service.
+     */
+    @Override
+    protected JobService doInBackground(Void[] aVoid) {
+        JobService jobService = mJobService.get();
+
+        if (jobService == null) {
+            return null;
+        }
+
+        PortfolioDatabase
+            .getInstance(jobService.getApplicationContext())
+            .compactTicks(System.currentTimeMillis());
+
+        return jobService;
+    }
+
+    /**
+     * Finishes the parent job.
+     * @param jobService Parent job service.
+     */
+    @Override
+    protected void onPostExecute(JobService jobService) {
+        if (jobService != null) {
+            jobService.jobFinished(mJobParameters, false);
+        }
+    }
+
+    /**
+     * Finishes the parent job.
+     * @param jobService Parent job service.
+     */
+    @Override
+    protected void onCancelled(JobService jobService) {
+        if (jobService != null) {
+            jobService.jobFinished(mJobParameters, false);
+        }
+    }
+}
@@ -47,6 +47,14 @@ public abstract class UiAsyncTask<Result> extends AsyncTask<Void, Void, Result>
         return null;
     }
 
+    /**
+     * Reports an error that did not prevent the background work from completing.
+     * @param error Non-fatal error.
+     */
+    protected final void reportError(Exception error) {
+        mProgressHandler.progressError(error);
+    }
+
     /**
      * Executes actual background work.
      * @return Result of the background work.
@@ -52,22 +52,6 @@ public final class BigDecimalHelper {
      */
     private static final NumberFormat SHORT_PERCENTAGE_FORMAT = getShortPercentageFormat();
 
-    /**
-     * Adds two {@link BigDecimal} values.
-     * @param accumulator Accumulator to hold the result.
-     * @param increment Value to add.
-     * @return Updated accumulator value.
-     */
-    public static BigDecimal add(BigDecimal accumulator, BigDecimal increment) {
-        if (accumulator == null) {
-            return increment;
-        } else if (increment == null) {
-            return accumulator;
-        }
-
-        return accumulator.add(increment);
-    }
-
     /**
      * Strips trailing zeros from {@link BigDecimal} number.
      * @return New {@link BigDecimal} without trailing zeros.
@@ -102,6 +86,15 @@ public final class BigDecimalHelper {
         return CURRENCY_FORMAT.format(value);
     }
 
+    /**
+     * Formats currency value that is already rounded to the currency precision.
+     * @param value Value to format.
+     * @return Formatted currency value.
+     */
+    static String formatCurrency(double value) {
+        return CURRENCY_FORMAT.format(value);
+    }
+
     /**
      * Formats currency value change.
      * @param change Value change to format.
@@ -111,6 +104,15 @@ public final class BigDecimalHelper {
         return CURRENCY_CHANGE_FORMAT.format(change);
     }
 
+    /**
+     * Formats currency value change that is already rounded to the currency precision.
+     * @param change Value change to format.
+     * @return Formatted currency value change.
+     */
+    static String formatCurrencyChange(double change) {
+        return CURRENCY_CHANGE_FORMAT.format(change);
+    }
+
     /**
      * Formats currency value rounding it to millions, billions or trillions where possible.
      * @param value Value to format.
@@ -143,7 +145,16 @@ public final class BigDecimalHelper {
      * @return Formatted percentage value.
      */
     public static String formatPercentage(BigDecimal full, BigDecimal part) {
-        return PERCENTAGE_FORMAT.format(computePercentage(full, part));
+        return formatPercentage(computePercentage(full, part));
+    }
+
+    /**
+     * Formats percentage value.
+     * @param percentage Percentage value.
+     * @return Formatted percentage value.
+     */
+    static String formatPercentage(float percentage) {
+        return PERCENTAGE_FORMAT.format(percentage);
     }
 
     /**
@@ -153,7 +164,16 @@ public final class BigDecimalHelper {
      * @return Formatted percentage value.
      */
     public static String formatPercentageShort(BigDecimal full, BigDecimal part) {
-        return SHORT_PERCENTAGE_FORMAT.format(computePercentage(full, part));
+        return formatPercentageShort(computePercentage(full, part));
+    }
+
+    /**
+     * Formats percentage value to a short string.
+     * @param percentage Percentage value.
+     * @return Formatted percentage value.
+     */
+    static String formatPercentageShort(float percentage) {
+        return SHORT_PERCENTAGE_FORMAT.format(percentage);
     }
 
     /**
@@ -4,11 +4,13 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Helper class to work with {@link Calendar} type.
+ * Helper class to work with {@link Calendar} type and epoch timestamps.
  */
 public final class CalendarHelper {
     /**
@@ -17,13 +19,18 @@ public final class CalendarHelper {
     private static final TimeZone UTC_TIMEZONE = TimeZone.getTimeZone("UTC");
 
     /**
-     * Compares two {@link Calendar} objects.
-     * @param left First {@link Calendar} object.
-     * @param right Second {@link Calendar} object.
-     * @return Zero if both objects are equal, negative value if left is less than right
-     * and positive value otherwise.
+     * Number of milliseconds in one day.
      */
-    public static int compare(Calendar left, Calendar right) {
+    private static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Compares two optional epoch timestamps.
+     * @param left First timestamp in milliseconds or NULL.
+     * @param right Second timestamp in milliseconds or NULL.
+     * @return Zero if both timestamps are equal, negative value if left is less than right
+     * and positive value otherwise. Missing timestamp is less than any other.
+     */
+    public static int compare(Long left, Long right) {
         if (left == null && right == null) {
             return 0;
         } else if (left == null) {
@@ -31,7 +38,9 @@ public final class CalendarHelper {
         } else if (right == null) {
             return 1;
         } else {
-            return left.compareTo(right);
+            long leftValue = left;
+            long rightValue = right;
+            return leftValue < rightValue ? -1 : (leftValue == rightValue ? 0 : 1);
         }
     }
 
@@ -49,38 +58,15 @@ public final class CalendarHelper {
     }
 
     /**
-     * Creates {@link Calendar} from date and time components.
-     * @param year Year.
-     * @param month Month.
-     * @param date Date.
+     * Computes epoch timestamp of the given UTC time on the same UTC date as the given timestamp.
+     * @param epoch Epoch time in milliseconds.
      * @param hour Hour.
      * @param minute Minute.
-     * @return {@link Calendar} instance representing specified date and time.
-     */
-    public static Calendar fromComponents(int year, int month, int date, int hour, int minute) {
-        Calendar result = Calendar.getInstance(UTC_TIMEZONE);
-        result.set(year, month, date, hour, minute);
-        return result;
-    }
-
-    /**
-     * Converts epoch timestamp in milliseconds to {@link Calendar} instance.
-     * @param epoch Epoch time in milliseconds.
-     * @return {@link Calendar} instance for the given epoch timestamp.
-     */
-    public static Calendar fromEpochInMillis(long epoch) {
-        Calendar result = Calendar.getInstance(UTC_TIMEZONE);
-        result.setTimeInMillis(epoch);
-        return result;
-    }
-
-    /**
-     * Converts epoch timestamp in seconds to {@link Calendar} instance.
-     * @param epoch Epoch time in seconds.
-     * @return {@link Calendar} instance for the given epoch timestamp.
+     * @return Epoch time in milliseconds.
      */
-    public static Calendar fromEpochInSeconds(long epoch) {
-        return fromEpochInMillis(epoch * 1000);
+    public static long atUtcTime(long epoch, int hour, int minute) {
+        long dayStart = epoch - ((epoch % DAY_IN_MILLIS) + DAY_IN_MILLIS) % DAY_IN_MILLIS;
+        return dayStart + TimeUnit.HOURS.toMillis(hour) + TimeUnit.MINUTES.toMillis(minute);
     }
 
     /**
@@ -128,14 +114,14 @@ public final class CalendarHelper {
     }
 
      /**
-      * Converts UTC {@link Calendar} to local time and formats with month-day format.
-      * @param timestamp Timestamp to format.
+      * Converts epoch timestamp to local time and formats with month-day format.
+      * @param timestamp Epoch time in milliseconds.
       * @return Formatted date and time.
       */
-    public static String toLocalTimeString(Calendar timestamp) {
+    public static String toLocalTimeString(long timestamp) {
         @SuppressWarnings("SimpleDateFormat")
         SimpleDateFormat timestampFormat = new SimpleDateFormat(
             android.text.format.DateFormat.getBestDateTimePattern(Locale.getDefault(), "dMMMhhmm"));
-        return timestampFormat.format(timestamp.getTime());
+        return timestampFormat.format(new Date(timestamp));
     }
 }
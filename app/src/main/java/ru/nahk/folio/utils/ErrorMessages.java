@@ -0,0 +1,32 @@
+package ru.nahk.folio.utils;
+
+import android.content.Context;
+
+import ru.nahk.folio.R;
+import ru.nahk.folio.stockapi.StockApiRateLimitedException;
+import ru.nahk.folio.stockapi.StockApiUnavailableException;
+
+/**
+ * Utility methods to present errors to the user.
+ */
+public final class ErrorMessages {
+    /**
+     * Gets user-facing message for the error.
+     * Stock API failures that are caused by rate limiting or service outage
+     * are reported with dedicated messages, so users can tell them apart.
+     * @param context Application or activity context.
+     * @param error Error to describe.
+     * @return Error message.
+     */
+    public static String getMessage(Context context, Exception error) {
+        if (error instanceof StockApiRateLimitedException) {
+            return context.getString(R.string.stock_api_rate_limited_error);
+        }
+
+        if (error instanceof StockApiUnavailableException) {
+            return context.getString(R.string.stock_api_unavailable_error);
+        }
+
+        return error.getMessage();
+    }
+}
@@ -0,0 +1,290 @@
+package ru.nahk.folio.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Utility methods to work with money values represented as {@code long}
+ * number of ten-thousandths of a dollar, the same way they are stored in the database.
+ * Unknown values are represented with {@link #UNKNOWN} and propagate through arithmetic.
+ */
+public final class Money {
+    /**
+     * Value that represents unknown amount of money.
+     */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    /**
+     * Number of money units in one dollar.
+     */
+    private static final long SCALE = 10000;
+
+    /**
+     * Number of money units in one cent.
+     */
+    private static final long CENT = SCALE / 100;
+
+    /**
+     * Checks whether money value is known.
+     * @param value Money value.
+     * @return True if value is known, otherwise false.
+     */
+    public static boolean isKnown(long value) {
+        return value != UNKNOWN;
+    }
+
+    /**
+     * Adds two money values, treating unknown values as absent.
+     * @param accumulator Accumulator to hold the result.
+     * @param increment Value to add.
+     * @return Updated accumulator value or {@link #UNKNOWN}, if both values are unknown.
+     * @throws ArithmeticException Thrown if result overflows.
+     */
+    public static long add(long accumulator, long increment) {
+        if (accumulator == UNKNOWN) {
+            return increment;
+        } else if (increment == UNKNOWN) {
+            return accumulator;
+        }
+
+        return checkResult(addExact(accumulator, increment));
+    }
+
+    /**
+     * Subtracts one money value from another.
+     * @param minuend Value to subtract from.
+     * @param subtrahend Value to subtract.
+     * @return Difference or {@link #UNKNOWN}, if any value is unknown.
+     * @throws ArithmeticException Thrown if result overflows.
+     */
+    public static long subtract(long minuend, long subtrahend) {
+        if (minuend == UNKNOWN || subtrahend == UNKNOWN) {
+            return UNKNOWN;
+        }
+
+        return checkResult(addExact(minuend, -subtrahend));
+    }
+
+    /**
+     * Multiplies money value by the quantity.
+     * @param value Money value.
+     * @param quantity Quantity to multiply by.
+     * @return Product or {@link #UNKNOWN}, if value is unknown.
+     * @throws ArithmeticException Thrown if result overflows.
+     */
+    public static long multiply(long value, long quantity) {
+        if (value == UNKNOWN) {
+            return UNKNOWN;
+        }
+
+        long result = value * quantity;
+
+        if (quantity != 0 && (result / quantity != value || (quantity == -1 && value == Long.MIN_VALUE))) {
+            throw new ArithmeticException("Money value overflow");
+        }
+
+        return checkResult(result);
+    }
+
+    /**
+     * Compares two known money values.
+     * @param left First value.
+     * @param right Second value.
+     * @return Negative number, zero or positive number if first value is less than,
+     * equal to or greater than second value.
+     */
+    public static int compare(long left, long right) {
+        return left < right ? -1 : (left == right ? 0 : 1);
+    }
+
+    /**
+     * Converts {@link BigDecimal} amount of dollars to money value.
+     * Extra fraction digits are truncated, as they are when amount is stored in the database.
+     * @param dollars Amount of dollars or NULL.
+     * @return Money value or {@link #UNKNOWN}, if amount is NULL.
+     * @throws ArithmeticException Thrown if amount does not fit into money value.
+     */
+    public static long fromBigDecimal(BigDecimal dollars) {
+        if (dollars == null) {
+            return UNKNOWN;
+        }
+
+        BigInteger value =
+            dollars
+                .setScale(BigDecimalHelper.MAX_FRACTION_DIGITS, RoundingMode.DOWN)
+                .unscaledValue();
+
+        if (value.bitLength() > Long.SIZE - 1) {
+            throw new ArithmeticException("Money value overflow");
+        }
+
+        return checkResult(value.longValue());
+    }
+
+    /**
+     * Converts money value to {@link BigDecimal} amount of dollars.
+     * @param value Money value.
+     * @return Amount of dollars or NULL, if value is unknown.
+     */
+    public static BigDecimal toBigDecimal(long value) {
+        return value == UNKNOWN ? null : BigDecimal.valueOf(value, BigDecimalHelper.MAX_FRACTION_DIGITS);
+    }
+
+    /**
+     * Parses plain decimal amount of dollars into money value.
+     * @param dollars Amount of dollars, for example "-1234.5".
+     * @return Money value.
+     * @throws NumberFormatException Thrown if amount is not a valid decimal number
+     * or has more fraction digits than money value can hold.
+     * @throws ArithmeticException Thrown if amount does not fit into money value.
+     */
+    public static long parse(String dollars) {
+        BigDecimal value = new BigDecimal(dollars);
+
+        if (value.scale() > BigDecimalHelper.MAX_FRACTION_DIGITS
+                && value.stripTrailingZeros().scale() > BigDecimalHelper.MAX_FRACTION_DIGITS) {
+            throw new NumberFormatException("Too many fraction digits: " + dollars);
+        }
+
+        return fromBigDecimal(value);
+    }
+
+    /**
+     * Formats known money value as plain decimal amount of dollars without trailing zeros,
+     * which can be read back with {@link #parse(String)}.
+     * @param value Money value.
+     * @return Amount of dollars, for example "-1234.5".
+     */
+    public static String toPlainString(long value) {
+        StringBuilder result = new StringBuilder(24);
+
+        if (value < 0) {
+            result.append('-');
+        }
+
+        // Known values are never Long.MIN_VALUE, so absolute value cannot overflow
+        long absoluteValue = Math.abs(value);
+        result.append(absoluteValue / SCALE);
+
+        long fraction = absoluteValue % SCALE;
+        if (fraction != 0) {
+            int fractionDigits = BigDecimalHelper.MAX_FRACTION_DIGITS;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                --fractionDigits;
+            }
+
+            result.append('.');
+
+            String fractionString = Long.toString(fraction);
+            for (int padding = fractionString.length(); padding < fractionDigits; ++padding) {
+                result.append('0');
+            }
+
+            result.append(fractionString);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Formats known money value as currency.
+     * @param value Money value.
+     * @return Formatted currency value.
+     */
+    public static String formatCurrency(long value) {
+        return BigDecimalHelper.formatCurrency(toRoundedDollars(value));
+    }
+
+    /**
+     * Formats known money value as currency change.
+     * @param change Money value change.
+     * @return Formatted currency value change.
+     */
+    public static String formatCurrencyChange(long change) {
+        return BigDecimalHelper.formatCurrencyChange(toRoundedDollars(change));
+    }
+
+    /**
+     * Computes partial value percentage of the full value and formats it to string.
+     * @param full Full value.
+     * @param part Partial value.
+     * @return Formatted percentage value.
+     */
+    public static String formatPercentage(long full, long part) {
+        return BigDecimalHelper.formatPercentage(computePercentage(full, part));
+    }
+
+    /**
+     * Computes partial value percentage of the full value and formats it to a short string.
+     * @param full Full value.
+     * @param part Partial value.
+     * @return Formatted percentage value.
+     */
+    public static String formatPercentageShort(long full, long part) {
+        return BigDecimalHelper.formatPercentageShort(computePercentage(full, part));
+    }
+
+    /**
+     * Computes partial value percentage of the full value.
+     * @param full Full value.
+     * @param part Partial value.
+     * @return Percentage value.
+     */
+    private static float computePercentage(long full, long part) {
+        return
+            full == UNKNOWN || part == UNKNOWN || full == 0
+                ? 0
+                : Math.abs((float) part / full);
+    }
+
+    /**
+     * Rounds money value to whole cents with half-even rounding, which currency format uses,
+     * so that the following conversion to {@code double} cannot change the formatted result.
+     * @param value Money value.
+     * @return Amount of dollars.
+     */
+    private static double toRoundedDollars(long value) {
+        long cents = value / CENT;
+        long remainder = Math.abs(value % CENT);
+
+        if (remainder * 2 > CENT || (remainder * 2 == CENT && cents % 2 != 0)) {
+            cents += value < 0 ? -1 : 1;
+        }
+
+        return cents / 100.0;
+    }
+
+    /**
+     * Adds two values failing on overflow.
+     * @param left First value.
+     * @param right Second value.
+     * @return Sum of the values.
+     * @throws ArithmeticException Thrown if result overflows.
+     */
+    private static long addExact(long left, long right) {
+        long result = left + right;
+
+        // Overflow if both arguments have the opposite sign of the result
+        if (((left ^ result) & (right ^ result)) < 0) {
+            throw new ArithmeticException("Money value overflow");
+        }
+
+        return result;
+    }
+
+    /**
+     * Ensures that result of the arithmetic is not mistaken for unknown value.
+     * @param result Result of the arithmetic.
+     * @return The same result.
+     * @throws ArithmeticException Thrown if result collides with {@link #UNKNOWN}.
+     */
+    private static long checkResult(long result) {
+        if (result == UNKNOWN) {
+            throw new ArithmeticException("Money value overflow");
+        }
+
+        return result;
+    }
+}
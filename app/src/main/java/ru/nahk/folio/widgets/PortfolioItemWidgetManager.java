@@ -9,7 +9,7 @@ import android.text.TextUtils;
 import android.view.View;
 import android.widget.RemoteViews;
 
-import java.math.BigDecimal;
+import java.util.List;
 
 import ru.nahk.folio.R;
 import ru.nahk.folio.activities.ActivityNavigationConstants;
@@ -17,11 +17,12 @@ import ru.nahk.folio.activities.LotsListActivity;
 import ru.nahk.folio.activities.MainActivity;
 import ru.nahk.folio.activities.SymbolDetailsActivity;
 import ru.nahk.folio.model.GroupViewModel;
-import ru.nahk.folio.model.PortfolioDatabase;
 import ru.nahk.folio.model.PortfolioItemWidgetEntity;
+import ru.nahk.folio.model.PortfolioRepository;
+import ru.nahk.folio.model.PortfolioTree;
 import ru.nahk.folio.model.PositionViewModel;
 import ru.nahk.folio.model.PositionsListItemViewModel;
-import ru.nahk.folio.utils.BigDecimalHelper;
+import ru.nahk.folio.utils.Money;
 
 /**
  * Manages portfolio item widgets UI.
@@ -43,52 +44,50 @@ public final class PortfolioItemWidgetManager {
     private static final String NAVIGATE_TO_SYMBOL_DETAILS = "NAVIGATE_TO_SYMBOL_DETAILS";
 
     /**
-     * Refreshes specified widget view.
+     * Refreshes specified widget view from the current portfolio snapshot.
      * @param context Activity context.
      * @param widgetId Unique identifier of the widget.
      */
     public static void updateWidget(@NonNull Context context, int widgetId) {
-        PortfolioDatabase database =
-            PortfolioDatabase.getInstance(context.getApplicationContext());
+        PortfolioRepository repository =
+            PortfolioRepository.getInstance(context.getApplicationContext());
 
-        database.beginTransaction();
-        try {
+        PortfolioItemWidgetEntity widget =
+            repository.getDataStore().widgetDao().loadPortfolioItemWidget(widgetId);
+
+        if (widget != null) {
             updateWidgetView(
                 context,
-                database.widgetDao().loadPortfolioItemWidget(widgetId),
-                database,
+                widget,
+                repository.getPortfolio(),
                 AppWidgetManager.getInstance(context));
-
-            database.setTransactionSuccessful();
-        }
-        finally {
-            database.endTransaction();
         }
     }
 
     /**
-     * Refreshes all widgets views.
+     * Refreshes all widgets views after symbols data has changed.
+     * Committed symbol quotes are applied to the repository snapshot by the writing thread,
+     * so the snapshot is only reloaded if portfolio structure has changed.
      * @param context Activity context.
      */
     public static void updateAllWidgets(@NonNull Context context) {
-        PortfolioDatabase database =
-            PortfolioDatabase.getInstance(context.getApplicationContext());
+        PortfolioRepository repository =
+            PortfolioRepository.getInstance(context.getApplicationContext());
 
-        database.beginTransaction();
-        try {
-            AppWidgetManager widgetManager =
-                AppWidgetManager.getInstance(context);
+        List<PortfolioItemWidgetEntity> widgets =
+            repository.getDataStore().widgetDao().loadAllPortfolioItemWidgets();
 
-            for (PortfolioItemWidgetEntity widget:
-                database.widgetDao().loadAllPortfolioItemWidgets()) {
+        if (widgets.isEmpty()) {
+            return;
+        }
 
-                updateWidgetView(context, widget, database, widgetManager);
-            }
+        // Snapshot is read outside of the database transaction,
+        // since loading it takes the repository lock and then opens a transaction
+        PortfolioTree portfolio = repository.getPortfolio();
+        AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
 
-            database.setTransactionSuccessful();
-        }
-        finally {
-            database.endTransaction();
+        for (PortfolioItemWidgetEntity widget : widgets) {
+            updateWidgetView(context, widget, portfolio, widgetManager);
         }
     }
 
@@ -96,13 +95,13 @@ public final class PortfolioItemWidgetManager {
      * Updates single portfolio item widget.
      * @param context Activity context.
      * @param widget Widget data.
-     * @param database Portfolio persistent storage.
+     * @param portfolio Portfolio snapshot.
      * @param widgetManager Application widgets manager.
      */
     private static void updateWidgetView(
         @NonNull Context context,
         @NonNull PortfolioItemWidgetEntity widget,
-        @NonNull PortfolioDatabase database,
+        @NonNull PortfolioTree portfolio,
         @NonNull AppWidgetManager widgetManager) {
 
         RemoteViews view = null;
@@ -110,11 +109,11 @@ public final class PortfolioItemWidgetManager {
         if (widget.itemType == PortfolioItemWidgetEntity.ITEM_TYPE_GROUP) {
             view = getGroupWidgetView(
                 context,
-                database.groupDao().loadWithValue(widget.itemId));
+                portfolio.getGroup(widget.itemId));
         } else if (widget.itemType == PortfolioItemWidgetEntity.ITEM_TYPE_POSITION) {
             view = getPositionWidgetView(
                 context,
-                database.positionDao().load(widget.itemId));
+                portfolio.getPosition(widget.itemId));
         }
 
         if (view != null) {
@@ -178,9 +177,9 @@ public final class PortfolioItemWidgetManager {
                 view.setTextViewText(R.id.position_name, position.symbol);
             }
 
-            if (position.quantity > 0 && position.symbolValueChange != null) {
+            if (position.quantity > 0 && Money.isKnown(position.symbolValueChange)) {
                 int symbolValueChangeDirection =
-                    position.symbolValueChange.compareTo(BigDecimal.ZERO);
+                    Money.compare(position.symbolValueChange, 0);
 
                 view.setViewVisibility(R.id.symbol_value_change_icon, View.VISIBLE);
 
@@ -219,19 +218,19 @@ public final class PortfolioItemWidgetManager {
 
             view.setTextViewText(
                 R.id.position_current_value,
-                item.currentValue != null
-                    ? BigDecimalHelper.formatCurrency(item.currentValue)
+                Money.isKnown(item.currentValue)
+                    ? Money.formatCurrency(item.currentValue)
                     : context.getString(R.string.unknown_value));
 
-            if (item.currentValue != null && item.baseValue != null) {
-                BigDecimal valueChange = item.currentValue.subtract(item.baseValue);
-                int valueChangeDirection = item.currentValue.compareTo(item.baseValue);
+            if (Money.isKnown(item.currentValue) && Money.isKnown(item.baseValue)) {
+                long valueChange = Money.subtract(item.currentValue, item.baseValue);
+                int valueChangeDirection = Money.compare(item.currentValue, item.baseValue);
 
                 view.setTextViewText(
                     R.id.position_value_change,
                     context.getString(R.string.extended_value_change_format,
-                        BigDecimalHelper.formatCurrencyChange(valueChange),
-                        BigDecimalHelper.formatPercentageShort(item.baseValue, valueChange)));
+                        Money.formatCurrencyChange(valueChange),
+                        Money.formatPercentageShort(item.baseValue, valueChange)));
 
                 valueChangeColorResId =
                     valueChangeDirection > 0
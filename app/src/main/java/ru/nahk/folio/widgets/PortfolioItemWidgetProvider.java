@@ -7,6 +7,8 @@ import android.appwidget.AppWidgetProvider;
 import android.content.ComponentName;
 import android.content.Context;
 
+import ru.nahk.folio.tasks.TickCompactionJob;
+
 /**
  * Provider for portfolio item widget.
  */
@@ -66,7 +68,8 @@ public class PortfolioItemWidgetProvider extends AppWidgetProvider {
     }
 
     /**
-     * Schedules periodic job to refresh prices and update widget views.
+     * Schedules periodic job to refresh prices and update widget views
+     * along with the price ticks compaction job.
      * @param context Application context.
      */
     private void scheduleUpdateJob(Context context) {
@@ -82,5 +85,8 @@ public class PortfolioItemWidgetProvider extends AppWidgetProvider {
                 .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
                 .setPeriodic(REFRESH_INTERVAL)
                 .build());
+
+        // Widget refreshes append price ticks, so keep them compacted as well
+        TickCompactionJob.schedule(context);
     }
 }
@@ -6,13 +6,11 @@ import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 
 import java.lang.ref.WeakReference;
-import java.util.List;
 
 import ru.nahk.folio.broadcasts.SymbolsDataChangedBroadcast;
 import ru.nahk.folio.model.PortfolioDatabase;
-import ru.nahk.folio.model.SymbolEntity;
 import ru.nahk.folio.stockapi.StockApiException;
-import ru.nahk.folio.stockapi.StockApiFactory;
+import ru.nahk.folio.tasks.SymbolsRefresh;
 
 /**
  * Asynchronous task that refreshes symbols data and updates all widget views.
@@ -58,26 +56,22 @@ class PortfolioItemWidgetUpdateTask extends AsyncTask<Void, Void, JobService> {
         PortfolioDatabase database =
             PortfolioDatabase.getInstance(jobService.getApplicationContext());
 
-        database.beginTransaction();
         try {
-            // Refresh all symbols
-            List<SymbolEntity> symbols = database.symbolDao().get();
-            StockApiFactory.getApi().updateSymbols(symbols);
-            database.symbolDao().update(symbols);
-
-            // Notify app that symbols data has changed
-            SymbolsDataChangedBroadcast.send(jobService.getApplicationContext());
-
-            database.setTransactionSuccessful();
+            // Refresh all symbols, symbols that were still updated on partial failure are saved
+            SymbolsRefresh refresh = SymbolsRefresh.run(database, database.symbolDao().get());
+
+            if (!refresh.isEmpty()) {
+                // Notify app that symbols data has changed
+                SymbolsDataChangedBroadcast.send(
+                    jobService.getApplicationContext(),
+                    refresh.getUpdatedSymbolIds());
+            }
         }
         catch (StockApiException stockApiException) {
             // If we cannot update prices, still proceed to update the views with old data.
             // Sometimes this task can be called from initialization, so views will be
             // completely empty otherwise.
         }
-        finally {
-            database.endTransaction();
-        }
 
         // Don't start UI refresh, if cancellation requested
         if (isCancelled()) {
@@ -0,0 +1,276 @@
+package ru.nahk.folio.stockapi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import ru.nahk.folio.model.SymbolEntity;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link CachingStockApi} skips quote requests only while quotes cannot change.
+ */
+public class CachingStockApiTest {
+    /**
+     * Time to keep quotes during trading hours in milliseconds.
+     */
+    private static final long QUOTE_TTL = 60 * 1000;
+
+    /**
+     * Checks that quotes obtained after the post-market session are kept overnight
+     * and requested again once the next session opens.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void overnightMakesNoRequests() throws StockApiException {
+        QuoteApi api = new QuoteApi(
+            exchangeTime(2024, Calendar.JUNE, 11, 16, 0),
+            exchangeTime(2024, Calendar.JUNE, 11, 19, 59));
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+        SymbolEntity symbol = new SymbolEntity("AAPL");
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 11, 20, 30));
+        assertEquals(1, api.mRequestCount);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 11, 23, 0));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 3, 0));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 9, 29));
+        assertEquals(1, api.mRequestCount);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 9, 30));
+        assertEquals(2, api.mRequestCount);
+    }
+
+    /**
+     * Checks that quotes stored before the restart are kept overnight,
+     * if they include the closing prints.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void storedClosingQuotesMakeNoRequests() throws StockApiException {
+        QuoteApi api = new QuoteApi(0, 0);
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+
+        SymbolEntity symbol = new SymbolEntity("AAPL");
+        symbol.latestTime = exchangeTime(2024, Calendar.JUNE, 11, 16, 0);
+        symbol.extendedTime = exchangeTime(2024, Calendar.JUNE, 11, 19, 58);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 7, 0));
+        assertEquals(0, api.mRequestCount);
+
+        // Quotes from the middle of the session are not final
+        symbol.latestTime = exchangeTime(2024, Calendar.JUNE, 11, 12, 0);
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 7, 0));
+        assertEquals(1, api.mRequestCount);
+    }
+
+    /**
+     * Checks that quotes are kept over the weekend.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void weekendMakesNoRequests() throws StockApiException {
+        QuoteApi api = new QuoteApi(
+            exchangeTime(2024, Calendar.JUNE, 14, 16, 0),
+            exchangeTime(2024, Calendar.JUNE, 14, 19, 59));
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+        SymbolEntity symbol = new SymbolEntity("MSFT");
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 14, 21, 0));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 15, 12, 0));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 16, 12, 0));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 17, 9, 0));
+        assertEquals(1, api.mRequestCount);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 17, 10, 0));
+        assertEquals(2, api.mRequestCount);
+    }
+
+    /**
+     * Checks that quotes are kept over the exchange holiday.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void holidayMakesNoRequests() throws StockApiException {
+        QuoteApi api = new QuoteApi(
+            exchangeTime(2024, Calendar.JULY, 3, 13, 0),
+            exchangeTime(2024, Calendar.JULY, 3, 16, 59));
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+        SymbolEntity symbol = new SymbolEntity("MSFT");
+
+        // Early close on July 3 is treated as a full day
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JULY, 3, 20, 30));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JULY, 4, 12, 0));
+        assertEquals(1, api.mRequestCount);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JULY, 5, 10, 0));
+        assertEquals(2, api.mRequestCount);
+    }
+
+    /**
+     * Checks that quotes are kept over Good Friday.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void goodFridayMakesNoRequests() throws StockApiException {
+        QuoteApi api = new QuoteApi(
+            exchangeTime(2024, Calendar.MARCH, 28, 16, 0),
+            exchangeTime(2024, Calendar.MARCH, 28, 19, 59));
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+        SymbolEntity symbol = new SymbolEntity("MSFT");
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.MARCH, 28, 20, 30));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.MARCH, 29, 12, 0));
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.APRIL, 1, 9, 0));
+        assertEquals(1, api.mRequestCount);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.APRIL, 1, 9, 30));
+        assertEquals(2, api.mRequestCount);
+    }
+
+    /**
+     * Checks that quotes are kept only for the quote lifetime during the trading hours.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void tradingHoursFollowQuoteLifetime() throws StockApiException {
+        long now = exchangeTime(2024, Calendar.JUNE, 12, 11, 0);
+        QuoteApi api = new QuoteApi(now, 0);
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+        SymbolEntity symbol = new SymbolEntity("MSFT");
+
+        update(cachingApi, symbol, now);
+        update(cachingApi, symbol, now + QUOTE_TTL - 1);
+        assertEquals(1, api.mRequestCount);
+
+        update(cachingApi, symbol, now + QUOTE_TTL);
+        assertEquals(2, api.mRequestCount);
+    }
+
+    /**
+     * Checks that symbols of the other exchanges follow the quote lifetime
+     * while the US market is closed.
+     * @throws StockApiException Thrown if update fails.
+     */
+    @Test
+    public void foreignSymbolFollowsQuoteLifetime() throws StockApiException {
+        // London close is at 11:30 New York time
+        QuoteApi api = new QuoteApi(exchangeTime(2024, Calendar.JUNE, 11, 11, 30), 0);
+        CachingStockApi cachingApi = new CachingStockApi(api, new MarketSessionCalendar(), QUOTE_TTL);
+        SymbolEntity symbol = new SymbolEntity("VOD.L");
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 11, 20, 30));
+        assertEquals(1, api.mRequestCount);
+
+        // London opens at 3:00 New York time, while the US market is still closed
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 4, 0));
+        assertEquals(2, api.mRequestCount);
+
+        update(cachingApi, symbol, exchangeTime(2024, Calendar.JUNE, 12, 4, 0) + QUOTE_TTL - 1);
+        assertEquals(2, api.mRequestCount);
+    }
+
+    /**
+     * Checks which symbols are covered by the US exchanges calendar.
+     */
+    @Test
+    public void listedSymbols() {
+        MarketSessionCalendar calendar = new MarketSessionCalendar();
+
+        assertEquals(true, calendar.isListed("AAPL"));
+        assertEquals(true, calendar.isListed("BRK-B"));
+        assertEquals(false, calendar.isListed("VOD.L"));
+        assertEquals(false, calendar.isListed("SHOP.TO"));
+        assertEquals(false, calendar.isListed("7203.T"));
+        assertEquals(false, calendar.isListed("^FTSE"));
+        assertEquals(false, calendar.isListed("EURUSD=X"));
+    }
+
+    /**
+     * Updates the symbol at the given time.
+     * @param api Caching stock API.
+     * @param symbol Symbol entity to update.
+     * @param now Epoch time in milliseconds.
+     * @throws StockApiException Thrown if update fails.
+     */
+    private static void update(CachingStockApi api, SymbolEntity symbol, long now) throws StockApiException {
+        List<SymbolEntity> symbols = new ArrayList<>(1);
+        symbols.add(symbol);
+        api.updateSymbols(symbols, now);
+    }
+
+    /**
+     * Computes epoch time of the New York exchange local time.
+     * @param year Year.
+     * @param month Month.
+     * @param date Date.
+     * @param hour Hour.
+     * @param minute Minute.
+     * @return Epoch time in milliseconds.
+     */
+    private static long exchangeTime(int year, int month, int date, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("America/New_York"));
+        calendar.clear();
+        calendar.set(year, month, date, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Stock API that counts quote requests and reports fixed trade times.
+     */
+    private static final class QuoteApi extends StockApiBase {
+        /**
+         * Latest trade time reported for every symbol or zero, if it is not changed.
+         */
+        private final long mLatestTime;
+
+        /**
+         * Extended hours trade time reported for every symbol or zero, if it is not changed.
+         */
+        private final long mExtendedTime;
+
+        /**
+         * Number of quote requests.
+         */
+        private int mRequestCount;
+
+        /**
+         * Creates new instance of the {@link QuoteApi} class.
+         * @param latestTime Latest trade time or zero, if it is not changed.
+         * @param extendedTime Extended hours trade time or zero, if it is not changed.
+         */
+        QuoteApi(long latestTime, long extendedTime) {
+            mLatestTime = latestTime;
+            mExtendedTime = extendedTime;
+        }
+
+        /**
+         * Counts the request and sets trade times of the symbols.
+         * @param symbols Symbol entities to update.
+         * @return Changes made to the symbols.
+         */
+        @Override
+        public SymbolChanges updateSymbols(List<SymbolEntity> symbols) {
+            ++mRequestCount;
+
+            SymbolChanges changes = new SymbolChanges();
+            for (SymbolEntity symbol : symbols) {
+                if (mLatestTime != 0) {
+                    symbol.latestTime = mLatestTime;
+                }
+
+                if (mExtendedTime != 0) {
+                    symbol.extendedTime = mExtendedTime;
+                }
+
+                changes.add(symbol.id, SymbolChanges.LATEST);
+            }
+
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package ru.nahk.folio.stockapi;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.nahk.folio.model.SymbolEntity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link CoalescingStockApi} shares in-flight updates between concurrent callers
+ * without replacing more recent data of the waiting callers.
+ */
+public class CoalescingStockApiTest {
+    /**
+     * Time to wait for the callers in seconds.
+     */
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Stock symbol updated by all callers.
+     */
+    private static final String SYMBOL = "AAPL";
+
+    /**
+     * Latest trade time reported by the underlying API.
+     */
+    private static final long LATEST_TIME = 1700000000000L;
+
+    /**
+     * Extended hours trade time reported by the underlying API.
+     */
+    private static final long EXTENDED_TIME = 1700003600000L;
+
+    /**
+     * Checks that concurrent callers make a single request and waiters
+     * take only the parts of the result that are newer than their own data.
+     * @throws Exception Thrown if update fails or test is interrupted.
+     */
+    @Test
+    public void waitersKeepNewerData() throws Exception {
+        BlockingStockApi blockingApi = new BlockingStockApi();
+        CoalescingStockApi api = new CoalescingStockApi(blockingApi);
+
+        SymbolEntity ownerSymbol = new SymbolEntity(SYMBOL);
+
+        // Loaded after the owner read its data, so the latest trade is newer than the result
+        SymbolEntity newerSymbol = createSymbol(LATEST_TIME + 60000, "190.50", null, null);
+
+        // Latest trade is older, but extended hours trade is newer than the result
+        SymbolEntity mixedSymbol = createSymbol(LATEST_TIME - 60000, "188.00", EXTENDED_TIME + 60000, "189.75");
+
+        SymbolEntity olderSymbol = createSymbol(LATEST_TIME - 60000, "188.00", null, null);
+
+        Caller owner = new Caller(api, ownerSymbol);
+        owner.start();
+        assertTrue(blockingApi.mStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        Caller[] waiters = {
+            new Caller(api, newerSymbol),
+            new Caller(api, mixedSymbol),
+            new Caller(api, olderSymbol)
+        };
+
+        for (Caller waiter : waiters) {
+            waiter.start();
+            waiter.awaitWaiting();
+        }
+
+        blockingApi.mRelease.countDown();
+
+        owner.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        for (Caller waiter : waiters) {
+            waiter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertNull(waiter.mError);
+        }
+
+        assertNull(owner.mError);
+        assertEquals(1, blockingApi.mRequestCount.get());
+        assertEquals(LATEST_TIME, (long) ownerSymbol.latestTime);
+
+        // Newer data is kept and no changes are reported
+        assertEquals(LATEST_TIME + 60000, (long) newerSymbol.latestTime);
+        assertEquals(new BigDecimal("190.50"), newerSymbol.latestPrice);
+        assertEquals(EXTENDED_TIME, (long) newerSymbol.extendedTime);
+        assertEquals(SymbolChanges.EXTENDED, waiters[0].mChanges.getChangedFields(SYMBOL));
+
+        // Only the older part is replaced
+        assertEquals(LATEST_TIME, (long) mixedSymbol.latestTime);
+        assertEquals(new BigDecimal("189.41"), mixedSymbol.latestPrice);
+        assertEquals(EXTENDED_TIME + 60000, (long) mixedSymbol.extendedTime);
+        assertEquals(new BigDecimal("189.75"), mixedSymbol.extendedPrice);
+        assertEquals(0, waiters[1].mChanges.getChangedFields(SYMBOL) & SymbolChanges.EXTENDED);
+        assertTrue((waiters[1].mChanges.getChangedFields(SYMBOL) & SymbolChanges.LATEST) != 0);
+
+        // Older data is replaced entirely
+        assertEquals(LATEST_TIME, (long) olderSymbol.latestTime);
+        assertEquals(new BigDecimal("189.41"), olderSymbol.latestPrice);
+        assertEquals(EXTENDED_TIME, (long) olderSymbol.extendedTime);
+        assertTrue((waiters[2].mChanges.getChangedFields(SYMBOL) & SymbolChanges.LATEST) != 0);
+    }
+
+    /**
+     * Checks that owner's failure is reported to the waiters and the next update
+     * makes a new request.
+     * @throws Exception Thrown if test is interrupted.
+     */
+    @Test
+    public void failureIsShared() throws Exception {
+        BlockingStockApi blockingApi = new BlockingStockApi();
+        blockingApi.mError = new StockApiTransientException("Connection reset");
+        CoalescingStockApi api = new CoalescingStockApi(blockingApi);
+
+        Caller owner = new Caller(api, new SymbolEntity(SYMBOL));
+        owner.start();
+        assertTrue(blockingApi.mStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        Caller waiter = new Caller(api, new SymbolEntity(SYMBOL));
+        waiter.start();
+        waiter.awaitWaiting();
+
+        blockingApi.mRelease.countDown();
+        owner.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        waiter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        assertEquals(StockApiTransientException.class, owner.mError.getClass());
+        assertEquals(StockApiTransientException.class, waiter.mError.getClass());
+        assertEquals(1, blockingApi.mRequestCount.get());
+
+        blockingApi.mError = null;
+        api.updateSymbol(new SymbolEntity(SYMBOL));
+        assertEquals(2, blockingApi.mRequestCount.get());
+    }
+
+    /**
+     * Creates symbol entity with the given trades.
+     * @param latestTime Latest trade time.
+     * @param latestPrice Latest trade price.
+     * @param extendedTime Extended hours trade time or NULL.
+     * @param extendedPrice Extended hours trade price or NULL.
+     * @return Symbol entity.
+     */
+    private static SymbolEntity createSymbol(
+            long latestTime,
+            String latestPrice,
+            Long extendedTime,
+            String extendedPrice) {
+        SymbolEntity symbol = new SymbolEntity(SYMBOL);
+        symbol.latestTime = latestTime;
+        symbol.latestPrice = new BigDecimal(latestPrice);
+        symbol.extendedTime = extendedTime;
+        symbol.extendedPrice = extendedPrice != null ? new BigDecimal(extendedPrice) : null;
+        return symbol;
+    }
+
+    /**
+     * Thread that updates a single symbol.
+     */
+    private static final class Caller extends Thread {
+        /**
+         * Stock API to update the symbol with.
+         */
+        private final CoalescingStockApi mApi;
+
+        /**
+         * Symbol entity to update.
+         */
+        private final SymbolEntity mSymbol;
+
+        /**
+         * Changes made to the symbol.
+         */
+        private volatile SymbolChanges mChanges;
+
+        /**
+         * Update error.
+         */
+        private volatile StockApiException mError;
+
+        /**
+         * Creates new instance of the {@link Caller} class.
+         * @param api Stock API to update the symbol with.
+         * @param symbol Symbol entity to update.
+         */
+        Caller(CoalescingStockApi api, SymbolEntity symbol) {
+            mApi = api;
+            mSymbol = symbol;
+        }
+
+        /**
+         * Updates the symbol.
+         */
+        @Override
+        public void run() {
+            try {
+                mChanges = mApi.updateSymbol(mSymbol);
+            }
+            catch (StockApiException updateError) {
+                mError = updateError;
+            }
+        }
+
+        /**
+         * Waits until the caller blocks waiting for the in-flight update.
+         * @throws InterruptedException Thrown if waiting was interrupted.
+         */
+        void awaitWaiting() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+            while (getState() != State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            assertEquals(State.WAITING, getState());
+        }
+    }
+
+    /**
+     * Stock API that blocks every update until released.
+     */
+    private static final class BlockingStockApi extends StockApiBase {
+        /**
+         * Signalled when the first update has started.
+         */
+        private final CountDownLatch mStarted = new CountDownLatch(1);
+
+        /**
+         * Releases the blocked updates.
+         */
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+
+        /**
+         * Number of requests made.
+         */
+        private final AtomicInteger mRequestCount = new AtomicInteger();
+
+        /**
+         * Error of the requests or NULL, if they succeed.
+         */
+        private volatile StockApiException mError;
+
+        /**
+         * Waits for the release and sets the same trades for all symbols.
+         * @param symbols Symbol entities to update.
+         * @return Changes made to the symbols.
+         * @throws StockApiException Configured error or thrown if waiting was interrupted.
+         */
+        @Override
+        public SymbolChanges updateSymbols(List<SymbolEntity> symbols) throws StockApiException {
+            mRequestCount.incrementAndGet();
+            mStarted.countDown();
+
+            try {
+                mRelease.await();
+            }
+            catch (InterruptedException interruptedError) {
+                Thread.currentThread().interrupt();
+                throw new StockApiException("Update was interrupted", interruptedError);
+            }
+
+            if (mError != null) {
+                throw mError;
+            }
+
+            SymbolChanges changes = new SymbolChanges();
+            for (SymbolEntity symbol : symbols) {
+                SymbolEntity previousData = new SymbolEntity(symbol.id);
+                previousData.copyMarketDataFrom(symbol);
+
+                symbol.latestTime = LATEST_TIME;
+                symbol.latestPrice = new BigDecimal("189.41");
+                symbol.extendedTime = EXTENDED_TIME;
+                symbol.extendedPrice = new BigDecimal("189.20");
+
+                changes.add(symbol.id, SymbolChanges.compare(previousData, symbol));
+            }
+
+            return changes;
+        }
+    }
+}
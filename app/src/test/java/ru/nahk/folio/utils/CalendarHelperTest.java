@@ -0,0 +1,137 @@
+package ru.nahk.folio.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks epoch timestamp helpers of {@link CalendarHelper}.
+ */
+public class CalendarHelperTest {
+    /**
+     * Default timezone of the test machine.
+     */
+    private TimeZone mDefaultTimeZone;
+
+    /**
+     * Switches default timezone to one with daylight saving time,
+     * so that conversions depending on it would fail around the transitions.
+     */
+    @Before
+    public void setDefaultTimeZone() {
+        mDefaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    /**
+     * Restores default timezone of the test machine.
+     */
+    @After
+    public void restoreDefaultTimeZone() {
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    /**
+     * Checks timestamps after the epoch start.
+     */
+    @Test
+    public void atUtcTimeAfterEpoch() {
+        assertEquals(
+            utc(2024, Calendar.JUNE, 14, 9, 30),
+            CalendarHelper.atUtcTime(utc(2024, Calendar.JUNE, 14, 18, 45), 9, 30));
+        assertEquals(
+            utc(1970, Calendar.JANUARY, 1, 13, 30),
+            CalendarHelper.atUtcTime(0, 13, 30));
+        assertEquals(
+            utc(2024, Calendar.JUNE, 14, 0, 0),
+            CalendarHelper.atUtcTime(utc(2024, Calendar.JUNE, 14, 0, 0), 0, 0));
+    }
+
+    /**
+     * Checks timestamps before the epoch start, which must stay on their own date
+     * instead of being moved to the next one.
+     */
+    @Test
+    public void atUtcTimeBeforeEpoch() {
+        assertEquals(
+            utc(1969, Calendar.DECEMBER, 31, 14, 30),
+            CalendarHelper.atUtcTime(-1, 14, 30));
+        assertEquals(
+            utc(1969, Calendar.DECEMBER, 31, 14, 30),
+            CalendarHelper.atUtcTime(utc(1969, Calendar.DECEMBER, 31, 0, 0), 14, 30));
+        assertEquals(
+            utc(1929, Calendar.OCTOBER, 29, 9, 0),
+            CalendarHelper.atUtcTime(utc(1929, Calendar.OCTOBER, 29, 23, 59), 9, 0));
+    }
+
+    /**
+     * Checks timestamps around daylight saving time transitions of the default timezone,
+     * which must not shift the result.
+     */
+    @Test
+    public void atUtcTimeAcrossDaylightSavingTransitions() {
+        // Clocks in New York go forward at 07:00 UTC
+        long springForward = utc(2024, Calendar.MARCH, 10, 7, 0);
+        assertEquals(
+            utc(2024, Calendar.MARCH, 10, 14, 30),
+            CalendarHelper.atUtcTime(springForward - 1, 14, 30));
+        assertEquals(
+            utc(2024, Calendar.MARCH, 10, 14, 30),
+            CalendarHelper.atUtcTime(springForward, 14, 30));
+
+        // Clocks in New York go back at 06:00 UTC
+        long fallBack = utc(2024, Calendar.NOVEMBER, 3, 6, 0);
+        assertEquals(
+            utc(2024, Calendar.NOVEMBER, 3, 21, 0),
+            CalendarHelper.atUtcTime(fallBack - 1, 21, 0));
+        assertEquals(
+            utc(2024, Calendar.NOVEMBER, 3, 21, 0),
+            CalendarHelper.atUtcTime(fallBack, 21, 0));
+
+        // Local date is still the previous day, UTC date is used
+        assertEquals(
+            utc(2024, Calendar.NOVEMBER, 4, 14, 30),
+            CalendarHelper.atUtcTime(utc(2024, Calendar.NOVEMBER, 4, 3, 0), 14, 30));
+    }
+
+    /**
+     * Checks ordering of the optional timestamps.
+     */
+    @Test
+    public void compare() {
+        assertEquals(0, CalendarHelper.compare(null, null));
+        assertTrue(CalendarHelper.compare(null, Long.MIN_VALUE) < 0);
+        assertTrue(CalendarHelper.compare(Long.MIN_VALUE, null) > 0);
+
+        assertEquals(0, CalendarHelper.compare(1000L, 1000L));
+        assertTrue(CalendarHelper.compare(-1000L, 1000L) < 0);
+        assertTrue(CalendarHelper.compare(1000L, -1000L) > 0);
+
+        // Difference of the extreme values overflows an int
+        assertTrue(CalendarHelper.compare(Long.MIN_VALUE, Long.MAX_VALUE) < 0);
+        assertTrue(CalendarHelper.compare(Long.MAX_VALUE, Long.MIN_VALUE) > 0);
+        assertTrue(CalendarHelper.compare(0L, 1L << 32) < 0);
+    }
+
+    /**
+     * Computes epoch timestamp of the UTC date and time.
+     * @param year Year.
+     * @param month Month.
+     * @param date Date.
+     * @param hour Hour.
+     * @param minute Minute.
+     * @return Epoch time in milliseconds.
+     */
+    private static long utc(int year, int month, int date, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, date, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
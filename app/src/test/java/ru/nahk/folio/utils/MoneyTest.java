@@ -0,0 +1,296 @@
+package ru.nahk.folio.utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks arithmetic, conversions and formatting of the {@link Money} values.
+ */
+public class MoneyTest {
+    /**
+     * Largest money value.
+     */
+    private static final long MAX = Long.MAX_VALUE;
+
+    /**
+     * Smallest known money value.
+     */
+    private static final long MIN = Long.MIN_VALUE + 1;
+
+    /**
+     * Checks that unknown values are skipped by addition and make other arithmetic unknown.
+     */
+    @Test
+    public void unknownPropagation() {
+        assertEquals(15000, Money.add(Money.UNKNOWN, 15000));
+        assertEquals(15000, Money.add(15000, Money.UNKNOWN));
+        assertEquals(Money.UNKNOWN, Money.add(Money.UNKNOWN, Money.UNKNOWN));
+
+        assertEquals(Money.UNKNOWN, Money.subtract(Money.UNKNOWN, 15000));
+        assertEquals(Money.UNKNOWN, Money.subtract(15000, Money.UNKNOWN));
+
+        assertEquals(Money.UNKNOWN, Money.multiply(Money.UNKNOWN, 10));
+        assertEquals(Money.UNKNOWN, Money.multiply(Money.UNKNOWN, 0));
+
+        assertEquals(false, Money.isKnown(Money.UNKNOWN));
+        assertEquals(true, Money.isKnown(MIN));
+        assertNull(Money.toBigDecimal(Money.UNKNOWN));
+    }
+
+    /**
+     * Checks that addition fails instead of wrapping around or producing unknown value.
+     */
+    @Test
+    public void addOverflow() {
+        assertEquals(MAX, Money.add(MAX - 1, 1));
+        assertEquals(MIN, Money.add(MIN + 1, -1));
+        assertEquals(0, Money.add(MAX, MIN));
+
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.add(MAX, 1);
+            }
+        });
+
+        // Result would be mistaken for unknown value
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.add(MIN, -1);
+            }
+        });
+
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.add(MIN, MIN);
+            }
+        });
+    }
+
+    /**
+     * Checks that subtraction fails instead of wrapping around or producing unknown value.
+     */
+    @Test
+    public void subtractOverflow() {
+        assertEquals(MAX, Money.subtract(0, MIN));
+        assertEquals(MIN, Money.subtract(-1, MAX - 1));
+        assertEquals(0, Money.subtract(MIN, MIN));
+
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.subtract(1, MIN);
+            }
+        });
+
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.subtract(-2, MAX);
+            }
+        });
+
+        // Result would be mistaken for unknown value
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.subtract(-1, MAX);
+            }
+        });
+    }
+
+    /**
+     * Checks that multiplication fails instead of wrapping around or producing unknown value.
+     */
+    @Test
+    public void multiplyOverflow() {
+        assertEquals(-MAX, Money.multiply(MAX, -1));
+        assertEquals(MAX, Money.multiply(MIN, -1));
+        assertEquals(0, Money.multiply(MAX, 0));
+        assertEquals(MAX - 1, Money.multiply(MAX / 2, 2));
+
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.multiply(MAX, 2);
+            }
+        });
+
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.multiply(1L << 32, 1L << 32);
+            }
+        });
+
+        // Result would be mistaken for unknown value
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.multiply(1L << 62, -2);
+            }
+        });
+    }
+
+    /**
+     * Checks that extra fraction digits are truncated towards zero
+     * and amounts outside of the money range fail.
+     */
+    @Test
+    public void fromBigDecimalBoundaries() {
+        assertEquals(Money.UNKNOWN, Money.fromBigDecimal(null));
+
+        assertEquals(12345, Money.fromBigDecimal(new BigDecimal("1.23456789")));
+        assertEquals(-12345, Money.fromBigDecimal(new BigDecimal("-1.23459999")));
+        assertEquals(0, Money.fromBigDecimal(new BigDecimal("0.00009")));
+        assertEquals(0, Money.fromBigDecimal(new BigDecimal("-0.00009")));
+        assertEquals(1200000, Money.fromBigDecimal(new BigDecimal("1.2E+2")));
+
+        // Fraction digits beyond the largest value are truncated, not rounded up
+        BigDecimal largest = BigDecimal.valueOf(MAX, BigDecimalHelper.MAX_FRACTION_DIGITS);
+        assertEquals(MAX, Money.fromBigDecimal(largest));
+        assertEquals(MAX, Money.fromBigDecimal(largest.add(new BigDecimal("0.00009"))));
+
+        BigDecimal smallest = BigDecimal.valueOf(MIN, BigDecimalHelper.MAX_FRACTION_DIGITS);
+        assertEquals(MIN, Money.fromBigDecimal(smallest));
+        assertEquals(MIN, Money.fromBigDecimal(smallest.subtract(new BigDecimal("0.00009"))));
+
+        final BigDecimal tooLarge = largest.add(new BigDecimal("0.0001"));
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.fromBigDecimal(tooLarge);
+            }
+        });
+
+        // Fits into long, but would be mistaken for unknown value
+        final BigDecimal unknown = smallest.subtract(new BigDecimal("0.0001"));
+        assertOverflow(new Operation() {
+            @Override
+            public long run() {
+                return Money.fromBigDecimal(unknown);
+            }
+        });
+
+        assertEquals(largest, Money.toBigDecimal(MAX));
+        assertEquals(new BigDecimal("-0.0001"), Money.toBigDecimal(-1));
+    }
+
+    /**
+     * Checks that plain strings are read back to the same values.
+     */
+    @Test
+    public void plainStringRoundTrip() {
+        long[] values = { 0, 1, -1, 10, 5000, 12345, -12340000, 10000000, MAX, MIN };
+
+        for (long value : values) {
+            String dollars = Money.toPlainString(value);
+            assertEquals(dollars, value, Money.parse(dollars));
+            assertEquals(dollars, 0, Money.toBigDecimal(value).compareTo(new BigDecimal(dollars)));
+        }
+
+        assertEquals("-1234.5", Money.toPlainString(-12345000));
+        assertEquals("0.0001", Money.toPlainString(1));
+        assertEquals("0.05", Money.toPlainString(500));
+
+        // Trailing zeros beyond the money precision are accepted
+        assertEquals(15000, Money.parse("1.500000"));
+
+        try {
+            Money.parse("1.00001");
+            fail("NumberFormatException is expected");
+        }
+        catch (NumberFormatException formatError) {
+            // Expected
+        }
+    }
+
+    /**
+     * Checks that currency is rounded to cents half-even, same as formatting the exact amount.
+     */
+    @Test
+    public void currencyRounding() {
+        assertEquals("$1,234.57", Money.formatCurrency(12345678));
+        assertEquals("$1.24", Money.formatCurrency(12350));
+        assertEquals("$1.22", Money.formatCurrency(12250));
+        assertEquals("$1.23", Money.formatCurrency(12251));
+        assertEquals("$0.00", Money.formatCurrency(49));
+
+        // Amounts rounded to zero are not formatted as negative zero
+        assertEquals(Money.formatCurrency(0), Money.formatCurrency(-50));
+        assertEquals(Money.formatCurrency(0), Money.formatCurrency(-1));
+        assertEquals(Money.formatCurrencyChange(0), Money.formatCurrencyChange(-50));
+
+        long[] values = {
+            12350, 12250, 12251, 12349, -12350, -12250, -12251, 50, 150, -150,
+            0, 1, 999999999950L, -999999999950L, 12345678901234L
+        };
+
+        for (long value : values) {
+            BigDecimal dollars = Money.toBigDecimal(value);
+            assertEquals(
+                dollars.toPlainString(),
+                BigDecimalHelper.formatCurrency(dollars),
+                Money.formatCurrency(value));
+            assertEquals(
+                dollars.toPlainString(),
+                BigDecimalHelper.formatCurrencyChange(dollars),
+                Money.formatCurrencyChange(value));
+        }
+    }
+
+    /**
+     * Checks that percentage is absolute and is zero for unknown or zero full value.
+     */
+    @Test
+    public void percentage() {
+        assertEquals(BigDecimalHelper.formatPercentage(0.25f), Money.formatPercentage(400000, 100000));
+        assertEquals(BigDecimalHelper.formatPercentage(0.25f), Money.formatPercentage(400000, -100000));
+        assertEquals(BigDecimalHelper.formatPercentage(0.25f), Money.formatPercentage(-400000, 100000));
+        assertEquals(BigDecimalHelper.formatPercentage(1.5f), Money.formatPercentage(100000, 150000));
+
+        assertEquals(BigDecimalHelper.formatPercentage(0f), Money.formatPercentage(0, 100000));
+        assertEquals(BigDecimalHelper.formatPercentage(0f), Money.formatPercentage(Money.UNKNOWN, 100000));
+        assertEquals(BigDecimalHelper.formatPercentage(0f), Money.formatPercentage(100000, Money.UNKNOWN));
+
+        assertEquals(
+            BigDecimalHelper.formatPercentage(new BigDecimal("30"), new BigDecimal("1")),
+            Money.formatPercentage(300000, 10000));
+        assertEquals(
+            BigDecimalHelper.formatPercentageShort(new BigDecimal("30"), new BigDecimal("1")),
+            Money.formatPercentageShort(300000, 10000));
+        assertEquals(BigDecimalHelper.formatPercentageShort(0f), Money.formatPercentageShort(0, 10000));
+    }
+
+    /**
+     * Checks that operation fails with overflow.
+     * @param operation Operation to run.
+     */
+    private static void assertOverflow(Operation operation) {
+        try {
+            long result = operation.run();
+            fail("ArithmeticException is expected, got " + result);
+        }
+        catch (ArithmeticException overflowError) {
+            // Expected
+        }
+    }
+
+    /**
+     * Money operation that can overflow.
+     */
+    private interface Operation {
+        /**
+         * Runs the operation.
+         * @return Result of the operation.
+         */
+        long run();
+    }
+}